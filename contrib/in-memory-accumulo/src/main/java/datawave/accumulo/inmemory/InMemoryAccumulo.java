@@ -47,6 +47,7 @@ public class InMemoryAccumulo {
     Map<String,InMemoryUser> users = new HashMap<>();
     final FileSystem fs;
     final AtomicInteger tableIdCounter = new AtomicInteger(0);
+    ScanSimulation scanSimulation = null;
     
     InMemoryAccumulo(FileSystem fs) {
         InMemoryUser root = new InMemoryUser("root", new PasswordToken(new byte[0]), Authorizations.EMPTY);
@@ -78,6 +79,13 @@ public class InMemoryAccumulo {
     }
     
     public BatchScanner createBatchScanner(String tableName, Authorizations authorizations) {
+        return createBatchScanner(tableName, authorizations, 1);
+    }
+    
+    public BatchScanner createBatchScanner(String tableName, Authorizations authorizations, int numQueryThreads) {
+        if (scanSimulation != null) {
+            return new TabletSimulatingBatchScanner(tables.get(tableName), authorizations, numQueryThreads, scanSimulation);
+        }
         return new InMemoryBatchScanner(tables.get(tableName), authorizations);
     }
     
@@ -62,7 +62,7 @@ public class InMemoryConnector extends Connector {
     public BatchScanner createBatchScanner(String tableName, Authorizations authorizations, int numQueryThreads) throws TableNotFoundException {
         if (acu.tables.get(tableName) == null)
             throw new TableNotFoundException(tableName, tableName, "no such table");
-        return acu.createBatchScanner(tableName, authorizations);
+        return acu.createBatchScanner(tableName, authorizations, numQueryThreads);
     }
     
     @Override
@@ -133,6 +133,21 @@ public class InMemoryInstance implements Instance {
         return getConnector(user, TextUtil.getBytes(new Text(pass.toString())));
     }
     
+    /**
+     * Makes the batch scanners created from this instance scan the way tablet servers would, or restores the default serial scans when null.
+     *
+     * @param scanSimulation
+     *            the scan settings, or null
+     * @see TabletSimulatingBatchScanner
+     */
+    public void setScanSimulation(ScanSimulation scanSimulation) {
+        acu.scanSimulation = scanSimulation;
+    }
+    
+    public ScanSimulation getScanSimulation() {
+        return acu.scanSimulation;
+    }
+    
     AccumuloConfiguration conf = null;
     
     @Override
@@ -0,0 +1,35 @@
+package datawave.accumulo.inmemory;
+
+import org.apache.accumulo.core.data.Range;
+
+/**
+ * Timing hooks for the scans run by a {@link TabletSimulatingBatchScanner}. Methods are called from the scan threads, so implementations must be thread safe.
+ */
+public interface ScanListener {
+    
+    /**
+     * Called after the iterator stack for a batch has been built and seeked.
+     *
+     * @param tablet
+     *            the extent of the tablet being scanned
+     * @param range
+     *            the range the stack was seeked to
+     * @param nanos
+     *            the time taken to build and seek the stack
+     */
+    default void initialized(Range tablet, Range range, long nanos) {}
+    
+    /**
+     * Called when a batch has been read, just before the iterator stack is torn down.
+     *
+     * @param tablet
+     *            the extent of the tablet being scanned
+     * @param entries
+     *            the number of entries in the batch
+     * @param yielded
+     *            true if the iterator stack yielded
+     * @param nanos
+     *            the time taken to read the batch, not including the seek
+     */
+    default void batchRead(Range tablet, int entries, boolean yielded, long nanos) {}
+}
@@ -0,0 +1,34 @@
+package datawave.accumulo.inmemory;
+
+/**
+ * Settings that make batch scanners behave more like scans against tablet servers. When set on an {@link InMemoryInstance}, batch scanners bin their ranges
+ * by the splits of the table, scan the tablets in parallel, and tear down and rebuild the iterator stack after every batch as a tablet server would.
+ *
+ * @see TabletSimulatingBatchScanner
+ */
+public class ScanSimulation {
+    
+    private int batchSize = 1000;
+    private ScanListener listener = new ScanListener() {};
+    
+    /**
+     * @return the number of entries returned by an iterator stack before it is torn down and rebuilt from the last key, or 0 to never tear it down
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+    
+    public ScanSimulation setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+        return this;
+    }
+    
+    public ScanListener getListener() {
+        return listener;
+    }
+    
+    public ScanSimulation setListener(ScanListener listener) {
+        this.listener = listener;
+        return this;
+    }
+}
@@ -0,0 +1,251 @@
+package datawave.accumulo.inmemory;
+
+import java.io.IOException;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.NoSuchElementException;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.accumulo.core.client.impl.ScannerOptions;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
+import org.apache.accumulo.core.iterators.SortedMapIterator;
+import org.apache.accumulo.core.iterators.YieldCallback;
+import org.apache.accumulo.core.iterators.YieldingKeyValueIterator;
+import org.apache.accumulo.core.security.Authorizations;
+import org.apache.hadoop.io.Text;
+
+/**
+ * A batch scanner that scans the way a tablet server would. Ranges are binned by the splits of the table, the tablets are scanned in parallel by up to the
+ * requested number of query threads, and every tablet is read in batches: after each batch the iterator stack is torn down, rebuilt and seeked from the last
+ * key returned, and a stack that yields is rebuilt from its yield position. This reproduces the re-seek and yield behavior of iterators like the QueryIterator
+ * without a cluster.
+ * <p>
+ * As with a real batch scanner, entries from different tablets are returned in no particular order. Entries are copied before they are handed to the caller.
+ */
+public class TabletSimulatingBatchScanner extends InMemoryBatchScanner {
+    
+    private static final int QUEUE_SIZE = 1000;
+    
+    private final int numQueryThreads;
+    private final ScanSimulation simulation;
+    private final List<ExecutorService> executors = new ArrayList<>();
+    
+    public TabletSimulatingBatchScanner(InMemoryTable table, Authorizations authorizations, int numQueryThreads, ScanSimulation simulation) {
+        super(table, authorizations);
+        this.numQueryThreads = Math.max(1, numQueryThreads);
+        this.simulation = simulation;
+    }
+    
+    @Override
+    public TabletSimulatingBatchScanner clone() {
+        TabletSimulatingBatchScanner clone = new TabletSimulatingBatchScanner(table, getAuthorizations(), numQueryThreads, simulation);
+        clone.ranges = (ranges == null ? null : new ArrayList<>(ranges));
+        ScannerOptions.setOptions(clone, this);
+        clone.timeOut = timeOut;
+        return clone;
+    }
+    
+    @Override
+    public Iterator<Entry<Key,Value>> iterator() {
+        if (ranges == null) {
+            throw new IllegalStateException("ranges not set");
+        }
+        
+        Map<Range,List<Range>> tablets = binRanges(table.splits, ranges);
+        ResultIterator results = new ResultIterator(tablets.size());
+        
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(numQueryThreads, Math.max(1, tablets.size())), r -> {
+            Thread thread = new Thread(r, "InMemory tablet scan");
+            thread.setDaemon(true);
+            return thread;
+        });
+        synchronized (executors) {
+            executors.add(executor);
+        }
+        for (Entry<Range,List<Range>> tablet : tablets.entrySet()) {
+            executor.execute(() -> {
+                try {
+                    for (Range range : tablet.getValue()) {
+                        Range remaining = range;
+                        while (remaining != null) {
+                            remaining = scanBatch(tablet.getKey(), remaining, results.queue);
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    // the scanner was closed
+                } catch (Throwable t) {
+                    results.failure.compareAndSet(null, t);
+                } finally {
+                    results.running.decrementAndGet();
+                }
+            });
+        }
+        executor.shutdown();
+        return results;
+    }
+    
+    /**
+     * A single tablet server scan batch: build and seek the iterator stack, read up to the batch size or until the stack yields, then tear it down.
+     *
+     * @return the range left to scan, or null if the range is done
+     */
+    @SuppressWarnings("unchecked")
+    private Range scanBatch(Range tablet, Range range, BlockingQueue<Entry<Key,Value>> queue) throws IOException, InterruptedException {
+        ScanListener listener = simulation.getListener();
+        int batchSize = simulation.getBatchSize();
+        
+        long start = System.nanoTime();
+        SortedKeyValueIterator<Key,Value> iter = createFilter(new SortedMapIterator(table.table));
+        YieldCallback<Key> yield = null;
+        if (iter instanceof YieldingKeyValueIterator) {
+            yield = new YieldCallback<>();
+            ((YieldingKeyValueIterator<Key,Value>) iter).enableYielding(yield);
+        }
+        iter.seek(range, createColumnBSS(fetchedColumns), !fetchedColumns.isEmpty());
+        long seeked = System.nanoTime();
+        listener.initialized(tablet, range, seeked - start);
+        
+        int count = 0;
+        Key lastKey = null;
+        while (!(yield != null && yield.hasYielded()) && iter.hasTop() && (batchSize <= 0 || count < batchSize)) {
+            lastKey = new Key(iter.getTopKey());
+            queue.put(new AbstractMap.SimpleImmutableEntry<>(lastKey, new Value(iter.getTopValue())));
+            count++;
+            iter.next();
+        }
+        
+        boolean yielded = (yield != null && yield.hasYielded());
+        listener.batchRead(tablet, count, yielded, System.nanoTime() - seeked);
+        
+        Key restart;
+        if (yielded) {
+            restart = yield.getPositionAndReset();
+        } else if (iter.hasTop()) {
+            restart = lastKey;
+        } else {
+            return null;
+        }
+        if (!range.isInfiniteStopKey() && restart.compareTo(range.getEndKey()) >= 0) {
+            return null;
+        }
+        return new Range(restart, false, range.getEndKey(), range.isEndKeyInclusive());
+    }
+    
+    /**
+     * Clips the ranges to the tablets defined by the splits.
+     *
+     * @return the clipped ranges, keyed by tablet extent in tablet order
+     */
+    static Map<Range,List<Range>> binRanges(SortedSet<Text> splits, Collection<Range> ranges) {
+        Map<Range,List<Range>> tablets = new TreeMap<>();
+        for (Range range : ranges) {
+            Text prevEndRow = null;
+            Collection<Text> endRows = splits;
+            if (!range.isInfiniteStartKey()) {
+                Text startRow = range.getStartKey().getRow();
+                SortedSet<Text> before = splits.headSet(startRow);
+                prevEndRow = (before.isEmpty() ? null : before.last());
+                endRows = splits.tailSet(startRow);
+            }
+            
+            Iterator<Text> endRowIter = endRows.iterator();
+            while (true) {
+                Text endRow = (endRowIter.hasNext() ? endRowIter.next() : null);
+                Range extent = new Range(prevEndRow, false, endRow, true);
+                Range clipped = extent.clip(range, true);
+                if (clipped != null) {
+                    List<Range> tabletRanges = tablets.get(extent);
+                    if (tabletRanges == null) {
+                        tabletRanges = new ArrayList<>();
+                        tablets.put(extent, tabletRanges);
+                    }
+                    tabletRanges.add(clipped);
+                }
+                if (endRow == null || (!range.isInfiniteStopKey() && endRow.compareTo(range.getEndKey().getRow()) >= 0)) {
+                    break;
+                }
+                prevEndRow = endRow;
+            }
+        }
+        return tablets;
+    }
+    
+    /**
+     * The tablet scans run in parallel, so rebuilding from a last key is only meaningful when a single thread returns the tablets in order.
+     */
+    @Override
+    public Iterator<Entry<Key,Value>> rebuild(Key lastKey) {
+        if (numQueryThreads > 1) {
+            throw new UnsupportedOperationException("Cannot rebuild a scan over multiple threads from a single key");
+        }
+        return super.rebuild(lastKey);
+    }
+    
+    @Override
+    public void close() {
+        synchronized (executors) {
+            for (ExecutorService executor : executors) {
+                executor.shutdownNow();
+            }
+            executors.clear();
+        }
+    }
+    
+    private static class ResultIterator implements Iterator<Entry<Key,Value>> {
+        
+        private final BlockingQueue<Entry<Key,Value>> queue = new ArrayBlockingQueue<>(QUEUE_SIZE);
+        private final AtomicInteger running;
+        private final AtomicReference<Throwable> failure = new AtomicReference<>();
+        private Entry<Key,Value> next = null;
+        
+        ResultIterator(int tablets) {
+            this.running = new AtomicInteger(tablets);
+        }
+        
+        @Override
+        public boolean hasNext() {
+            while (next == null) {
+                if (failure.get() != null) {
+                    throw new RuntimeException(failure.get());
+                }
+                // check for completion before polling, as entries are queued before their scan completes
+                boolean done = (running.get() == 0);
+                try {
+                    next = queue.poll(10, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+                if (next == null && done) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        
+        @Override
+        public Entry<Key,Value> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Entry<Key,Value> entry = next;
+            next = null;
+            return entry;
+        }
+    }
+}
@@ -0,0 +1,238 @@
+package datawave.accumulo.inmemory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.accumulo.core.client.BatchScanner;
+import org.apache.accumulo.core.client.BatchWriter;
+import org.apache.accumulo.core.client.BatchWriterConfig;
+import org.apache.accumulo.core.client.Connector;
+import org.apache.accumulo.core.client.IteratorSetting;
+import org.apache.accumulo.core.client.security.tokens.PasswordToken;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Mutation;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.WrappingIterator;
+import org.apache.accumulo.core.iterators.YieldCallback;
+import org.apache.accumulo.core.iterators.YieldingKeyValueIterator;
+import org.apache.accumulo.core.security.Authorizations;
+import org.apache.hadoop.io.Text;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks the tablet simulating batch scanner returns the same entries as the plain in memory batch scanner, however the scan is split up.
+ */
+public class TabletSimulatingBatchScannerTest {
+    
+    private static final String TABLE = "test";
+    
+    private static final int ROWS = 10;
+    
+    private static AtomicInteger instances = new AtomicInteger(0);
+    
+    private Connector plain;
+    private Connector simulated;
+    private ScanSimulation simulation;
+    private CountingListener listener;
+    
+    @Before
+    public void setup() throws Exception {
+        listener = new CountingListener();
+        simulation = new ScanSimulation().setListener(listener);
+        plain = createConnector(null);
+        simulated = createConnector(simulation);
+    }
+    
+    private static Connector createConnector(ScanSimulation simulation) throws Exception {
+        InMemoryInstance instance = new InMemoryInstance(TabletSimulatingBatchScannerTest.class.getName() + instances.incrementAndGet());
+        instance.setScanSimulation(simulation);
+        Connector connector = instance.getConnector("root", new PasswordToken(""));
+        connector.tableOperations().create(TABLE);
+        BatchWriter writer = connector.createBatchWriter(TABLE, new BatchWriterConfig());
+        for (int row = 0; row < ROWS; row++) {
+            Mutation m = new Mutation("row" + row);
+            for (int cf = 0; cf < 3; cf++) {
+                for (int cq = 0; cq < 4; cq++) {
+                    // a fixed timestamp, so that the keys of both instances are equal
+                    m.put("cf" + cf, "cq" + cq, 1L, new Value(("value" + row + cf + cq).getBytes()));
+                }
+            }
+            writer.addMutation(m);
+        }
+        writer.close();
+        connector.tableOperations().addSplits(TABLE, new TreeSet<>(Arrays.asList(new Text("row3"), new Text("row6"))));
+        return connector;
+    }
+    
+    private static List<Range> getRanges() {
+        List<Range> ranges = new ArrayList<>();
+        // within a tablet, across both splits, and ending exactly on a split
+        ranges.add(new Range("row0"));
+        ranges.add(new Range(new Key("row2", "cf1"), true, new Key("row7", "cf2"), false));
+        ranges.add(new Range("row8", "row9"));
+        return ranges;
+    }
+    
+    private static List<Entry<Key,Value>> scan(Connector connector, int threads, Collection<Range> ranges, IteratorSetting setting, Text family)
+                    throws Exception {
+        BatchScanner scanner = connector.createBatchScanner(TABLE, new Authorizations(), threads);
+        try {
+            scanner.setRanges(ranges);
+            if (null != setting) {
+                scanner.addScanIterator(setting);
+            }
+            if (null != family) {
+                scanner.fetchColumnFamily(family);
+            }
+            List<Entry<Key,Value>> entries = new ArrayList<>();
+            for (Entry<Key,Value> entry : scanner) {
+                entries.add(entry);
+            }
+            return entries;
+        } finally {
+            scanner.close();
+        }
+    }
+    
+    private static List<String> sorted(List<Entry<Key,Value>> entries) {
+        List<String> strings = new ArrayList<>();
+        for (Entry<Key,Value> entry : entries) {
+            strings.add(entry.getKey() + " " + entry.getValue());
+        }
+        Collections.sort(strings);
+        return strings;
+    }
+    
+    private void assertSameResults(int threads, Collection<Range> ranges, IteratorSetting setting, Text family) throws Exception {
+        List<String> expected = sorted(scan(plain, threads, ranges, setting, family));
+        Assert.assertFalse(expected.isEmpty());
+        Assert.assertEquals(expected, sorted(scan(simulated, threads, ranges, setting, family)));
+    }
+    
+    @Test
+    public void testBinRanges() {
+        SortedSet<Text> splits = new TreeSet<>(Arrays.asList(new Text("row3"), new Text("row6")));
+        Map<Range,List<Range>> tablets = TabletSimulatingBatchScanner.binRanges(splits, Collections.singleton(new Range("row2", "row7")));
+        
+        Assert.assertEquals(3, tablets.size());
+        List<Range> clipped = new ArrayList<>();
+        for (List<Range> ranges : tablets.values()) {
+            Assert.assertEquals(1, ranges.size());
+            clipped.addAll(ranges);
+        }
+        Assert.assertEquals(new Range(new Text("row2"), true, new Text("row3"), true), clipped.get(0));
+        Assert.assertEquals(new Range(new Text("row3"), false, new Text("row6"), true), clipped.get(1));
+        Assert.assertEquals(new Range(new Text("row6"), false, new Text("row7"), true), clipped.get(2));
+        
+        Assert.assertEquals(3, TabletSimulatingBatchScanner.binRanges(splits, Collections.singleton(new Range())).size());
+        Assert.assertEquals(1, TabletSimulatingBatchScanner.binRanges(splits, Collections.singleton(new Range("row4"))).size());
+    }
+    
+    @Test
+    public void testAcrossSplits() throws Exception {
+        simulation.setBatchSize(0);
+        assertSameResults(4, getRanges(), null, null);
+        assertSameResults(4, Collections.singleton(new Range()), null, null);
+        // each range is read from each of its tablets in one batch: five tablet ranges for the first scan, three for the second
+        Assert.assertEquals(8, listener.batches.get());
+    }
+    
+    @Test
+    public void testSingleThreadReturnsTabletsInOrder() throws Exception {
+        simulation.setBatchSize(5);
+        List<Entry<Key,Value>> expected = scan(plain, 1, getRanges(), null, null);
+        List<Entry<Key,Value>> actual = scan(simulated, 1, getRanges(), null, null);
+        Assert.assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            Assert.assertEquals(expected.get(i).getKey(), actual.get(i).getKey());
+            Assert.assertEquals(expected.get(i).getValue(), actual.get(i).getValue());
+        }
+    }
+    
+    @Test
+    public void testBatchReseeks() throws Exception {
+        simulation.setBatchSize(2);
+        assertSameResults(3, getRanges(), null, null);
+        assertSameResults(3, getRanges(), null, new Text("cf1"));
+        // the stack was rebuilt and seeked after every two of the hundred entries in the first scan
+        Assert.assertTrue(listener.batches.get() >= 50);
+        Assert.assertEquals(listener.initialized.get(), listener.batches.get());
+        Assert.assertEquals(0, listener.yields.get());
+    }
+    
+    @Test
+    public void testYields() throws Exception {
+        simulation.setBatchSize(1000);
+        IteratorSetting setting = new IteratorSetting(50, "yield", YieldingEveryThirdIterator.class);
+        assertSameResults(2, getRanges(), setting, null);
+        assertSameResults(2, Collections.singleton(new Range()), setting, new Text("cf2"));
+        // the plain scanner never enables yielding, so the same entries came back across the yields
+        Assert.assertTrue(listener.yields.get() > 0);
+    }
+    
+    @Test
+    public void testYieldsWithBatchReseeks() throws Exception {
+        simulation.setBatchSize(4);
+        IteratorSetting setting = new IteratorSetting(50, "yield", YieldingEveryThirdIterator.class);
+        assertSameResults(3, getRanges(), setting, null);
+        Assert.assertTrue(listener.yields.get() > 0);
+    }
+    
+    /**
+     * Yields after every third entry it returns, as an iterator with a time limit would
+     */
+    public static class YieldingEveryThirdIterator extends WrappingIterator implements YieldingKeyValueIterator<Key,Value> {
+        private YieldCallback<Key> yield = null;
+        private int count = 0;
+        
+        @Override
+        public void enableYielding(YieldCallback<Key> callback) {
+            this.yield = callback;
+        }
+        
+        @Override
+        public boolean hasTop() {
+            return !(yield != null && yield.hasYielded()) && super.hasTop();
+        }
+        
+        @Override
+        public void next() throws IOException {
+            Key last = new Key(getTopKey());
+            super.next();
+            if (yield != null && ++count % 3 == 0 && super.hasTop()) {
+                yield.yield(last);
+            }
+        }
+    }
+    
+    private static class CountingListener implements ScanListener {
+        private final AtomicInteger initialized = new AtomicInteger(0);
+        private final AtomicInteger batches = new AtomicInteger(0);
+        private final AtomicInteger yields = new AtomicInteger(0);
+        
+        @Override
+        public void initialized(Range tablet, Range range, long nanos) {
+            initialized.incrementAndGet();
+        }
+        
+        @Override
+        public void batchRead(Range tablet, int entries, boolean yielded, long nanos) {
+            batches.incrementAndGet();
+            if (yielded) {
+                yields.incrementAndGet();
+            }
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package datawave.microservice.audit.accumulo;
+
+import com.rabbitmq.client.Channel;
+import datawave.microservice.audit.common.AuditMessage;
+import datawave.microservice.audit.common.AuditMessageHandler;
+import datawave.webservice.common.audit.AuditParameters;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Handles audit messages for the {@link AccumuloAuditor}. When messages are delivered for manual acknowledgement, each one is queued without waiting for it to
+ * be written, so that the messages delivered while a batch is flushed are written together in the next batch. A message is acknowledged once the batch holding
+ * it has been flushed, and rejected without being requeued if it could not be written, which dead letters it as the retries of an automatically acknowledged
+ * message do. Messages delivered for automatic acknowledgement are written before {@link #onMessage(AuditMessage)} returns.
+ */
+public class AccumuloAuditMessageHandler extends AuditMessageHandler {
+    
+    private final Logger log = LoggerFactory.getLogger(this.getClass());
+    
+    private final AccumuloAuditor auditor;
+    
+    public AccumuloAuditMessageHandler(AuditParameters auditParameters, AccumuloAuditor auditor) {
+        super(auditParameters, auditor);
+        this.auditor = auditor;
+    }
+    
+    /**
+     * @param msg
+     *            the audit message
+     * @param channel
+     *            the channel the message was delivered on, if it is to be acknowledged manually
+     * @param deliveryTag
+     *            the delivery tag of the message on the channel
+     */
+    public void onMessage(AuditMessage msg, Channel channel, Long deliveryTag) throws Exception {
+        if (channel == null || deliveryTag == null) {
+            onMessage(msg);
+            return;
+        }
+        
+        CompletableFuture<Void> written;
+        try {
+            AuditParameters ap = getAuditParameters(msg);
+            written = (ap == null) ? CompletableFuture.completedFuture(null) : auditor.auditAsync(ap);
+        } catch (InterruptedException e) {
+            // the message is left unacknowledged, to be redelivered
+            Thread.currentThread().interrupt();
+            throw e;
+        } catch (Exception e) {
+            log.error("Error processing audit message: " + e.getMessage());
+            written = new CompletableFuture<>();
+            written.completeExceptionally(e);
+        }
+        written.whenComplete((result, e) -> acknowledge(channel, deliveryTag, e == null));
+    }
+    
+    private void acknowledge(Channel channel, long deliveryTag, boolean written) {
+        try {
+            if (written) {
+                channel.basicAck(deliveryTag, false);
+            } else {
+                channel.basicNack(deliveryTag, false, false);
+            }
+        } catch (IOException e) {
+            // the broker redelivers the message once the channel is closed
+            log.warn("Unable to acknowledge audit message " + deliveryTag, e);
+        }
+    }
+}
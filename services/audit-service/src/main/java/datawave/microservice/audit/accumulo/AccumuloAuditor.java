@@ -7,6 +7,7 @@ import org.apache.accumulo.core.client.AccumuloSecurityException;
 import org.apache.accumulo.core.client.BatchWriter;
 import org.apache.accumulo.core.client.BatchWriterConfig;
 import org.apache.accumulo.core.client.Connector;
+import org.apache.accumulo.core.client.MutationsRejectedException;
 import org.apache.accumulo.core.client.TableExistsException;
 import org.apache.accumulo.core.data.Mutation;
 import org.apache.accumulo.core.data.Value;
@@ -15,25 +16,67 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * An implementation for {@link Auditor}, which writes audit messages to Accumulo.
+ * <p>
+ * Audit messages are written through a single, long-lived {@link BatchWriter} using group commit. Each message is appended to a bounded queue, and a
+ * dedicated writer thread drains everything queued while the previous flush was in progress, adds it to the writer and flushes it once.
+ * {@link #audit(AuditParameters)} waits until its message has been flushed, while {@link #auditAsync(AuditParameters)} returns a future which completes then,
+ * so that a caller which does not wait for each message, such as the {@link AccumuloAuditMessageHandler}, can acknowledge the messages of a batch to the
+ * messaging infrastructure only after the batch is durably written, preserving at-least-once delivery.
  */
-public class AccumuloAuditor implements Auditor {
+public class AccumuloAuditor implements Auditor, AutoCloseable {
     
     private static Logger log = LoggerFactory.getLogger(AccumuloAuditor.class);
     
-    private SimpleDateFormat formatter = new SimpleDateFormat(Auditor.ISO_8601_FORMAT_STRING);
+    public static final long DEFAULT_MAX_LATENCY_MILLIS = 10000L;
+    public static final long DEFAULT_MAX_MEMORY = 10485760L;
+    public static final int DEFAULT_WRITE_THREADS = 4;
+    public static final int DEFAULT_QUEUE_CAPACITY = 10000;
+    public static final int DEFAULT_MAX_BATCH_SIZE = 1000;
+    
+    private final ThreadLocal<SimpleDateFormat> formatter = ThreadLocal.withInitial(() -> new SimpleDateFormat(Auditor.ISO_8601_FORMAT_STRING));
     
     private String tableName;
     
     private Connector connector;
     
+    private final BatchWriterConfig writerConfig;
+    
+    private final int maxBatchSize;
+    
+    private final BlockingQueue<PendingAudit> queue;
+    
+    private final Thread writerThread;
+    
+    private volatile boolean running = true;
+    
     public AccumuloAuditor(String tableName, Connector connector) {
+        this(tableName, connector, DEFAULT_MAX_LATENCY_MILLIS, DEFAULT_MAX_MEMORY, DEFAULT_WRITE_THREADS, DEFAULT_QUEUE_CAPACITY, DEFAULT_MAX_BATCH_SIZE);
+    }
+    
+    public AccumuloAuditor(String tableName, Connector connector, long maxLatencyMillis, long maxMemory, int writeThreads, int queueCapacity,
+                    int maxBatchSize) {
         this.tableName = tableName;
         this.connector = connector;
+        this.writerConfig = new BatchWriterConfig().setMaxLatency(maxLatencyMillis, TimeUnit.MILLISECONDS).setMaxMemory(maxMemory)
+                        .setMaxWriteThreads(writeThreads);
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
         init();
+        
+        this.writerThread = new Thread(this::writeAudits, "AccumuloAuditor-" + tableName);
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
     }
     
     private void init() {
@@ -49,14 +92,140 @@ public class AccumuloAuditor implements Auditor {
     
     @Override
     public void audit(AuditParameters msg) throws Exception {
-        if (!msg.getAuditType().equals(AuditType.NONE)) {
-            try (BatchWriter writer = connector.createBatchWriter(tableName,
-                            new BatchWriterConfig().setMaxLatency(10, TimeUnit.SECONDS).setMaxMemory(10240L).setMaxWriteThreads(1))) {
-                Mutation m = new Mutation(formatter.format(msg.getQueryDate()));
-                m.put(new Text(msg.getUserDn()), new Text(""), msg.getColviz(), new Value(msg.toString().getBytes()));
-                writer.addMutation(m);
-                writer.flush();
+        PendingAudit pending = enqueue(msg);
+        if (pending != null) {
+            while (true) {
+                try {
+                    pending.written.get(1, TimeUnit.SECONDS);
+                    return;
+                } catch (ExecutionException e) {
+                    throw new Exception("Unable to write audit message to [" + tableName + "]", e.getCause());
+                } catch (TimeoutException e) {
+                    // the writer may have stopped after this message was queued, in which case nothing will ever write it
+                    if (!writerThread.isAlive() && queue.remove(pending))
+                        throw new IllegalStateException("Accumulo auditor for [" + tableName + "] has been closed");
+                }
             }
         }
     }
+    
+    /**
+     * Queues the audit message without waiting for it to be written. A message queued while the auditor is being closed may never complete, in which case a
+     * caller which acknowledges messages once they are written leaves it to be redelivered.
+     *
+     * @param msg
+     *            the audit message
+     * @return a future which completes once the message has been flushed, or exceptionally if it could not be written
+     */
+    public CompletableFuture<Void> auditAsync(AuditParameters msg) throws InterruptedException {
+        PendingAudit pending = enqueue(msg);
+        if (pending == null)
+            return CompletableFuture.completedFuture(null);
+        
+        if (!writerThread.isAlive() && queue.remove(pending))
+            pending.written.completeExceptionally(new IllegalStateException("Accumulo auditor for [" + tableName + "] has been closed"));
+        return pending.written;
+    }
+    
+    /**
+     * @return the queued message, or null if it is not audited
+     */
+    private PendingAudit enqueue(AuditParameters msg) throws InterruptedException {
+        if (msg.getAuditType().equals(AuditType.NONE))
+            return null;
+        
+        Mutation m = new Mutation(formatter.get().format(msg.getQueryDate()));
+        m.put(new Text(msg.getUserDn()), new Text(""), msg.getColviz(), new Value(msg.toString().getBytes()));
+        
+        if (!running)
+            throw new IllegalStateException("Accumulo auditor for [" + tableName + "] has been closed");
+        
+        PendingAudit pending = new PendingAudit(m);
+        queue.put(pending);
+        return pending;
+    }
+    
+    /**
+     * Stops accepting audit messages, writes any that are still queued, and closes the batch writer.
+     */
+    @Override
+    public void close() throws InterruptedException {
+        running = false;
+        writerThread.join();
+    }
+    
+    private void writeAudits() {
+        BatchWriter writer = null;
+        List<PendingAudit> batch = new ArrayList<>(maxBatchSize);
+        try {
+            while (running || !queue.isEmpty()) {
+                PendingAudit first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null)
+                    continue;
+                
+                batch.add(first);
+                queue.drainTo(batch, maxBatchSize - 1);
+                try {
+                    if (writer == null)
+                        writer = connector.createBatchWriter(tableName, writerConfig);
+                    for (PendingAudit pending : batch)
+                        writer.addMutation(pending.mutation);
+                    writer.flush();
+                    batchWritten(batch.size());
+                    
+                    log.debug("Wrote {} audit messages to [{}]", batch.size(), tableName);
+                    for (PendingAudit pending : batch)
+                        pending.written.complete(null);
+                } catch (Exception e) {
+                    log.error("Unable to write " + batch.size() + " audit messages to [" + tableName + "]", e);
+                    for (PendingAudit pending : batch)
+                        pending.written.completeExceptionally(e);
+                    // a batch writer which has rejected mutations will reject everything after, so start over with a new one
+                    writer = close(writer);
+                }
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            running = false;
+            IllegalStateException closed = new IllegalStateException("Accumulo auditor for [" + tableName + "] has been closed");
+            for (PendingAudit pending : batch)
+                pending.written.completeExceptionally(closed);
+            PendingAudit pending;
+            while ((pending = queue.poll()) != null)
+                pending.written.completeExceptionally(closed);
+            close(writer);
+        }
+    }
+    
+    /**
+     * Called on the writer thread once a batch of audit messages has been flushed, before their callers are told
+     *
+     * @param size
+     *            the number of messages in the batch
+     */
+    protected void batchWritten(int size) {
+        // nothing to do by default
+    }
+    
+    private BatchWriter close(BatchWriter writer) {
+        if (writer != null) {
+            try {
+                writer.close();
+            } catch (MutationsRejectedException e) {
+                log.warn("Unable to close batch writer for [" + tableName + "]", e);
+            }
+        }
+        return null;
+    }
+    
+    private static class PendingAudit {
+        private final Mutation mutation;
+        private final CompletableFuture<Void> written = new CompletableFuture<>();
+        
+        private PendingAudit(Mutation mutation) {
+            this.mutation = mutation;
+        }
+    }
 }
@@ -1,11 +1,13 @@
 package datawave.microservice.audit.accumulo.config;
 
+import com.rabbitmq.client.Channel;
+import datawave.microservice.audit.accumulo.AccumuloAuditMessageHandler;
 import datawave.microservice.audit.accumulo.AccumuloAuditor;
 import datawave.microservice.audit.accumulo.config.AccumuloAuditProperties.Accumulo;
+import datawave.microservice.audit.accumulo.config.AccumuloAuditProperties.Writer;
 import datawave.microservice.audit.common.AuditMessage;
 import datawave.microservice.audit.common.AuditMessageHandler;
 import datawave.webservice.common.audit.AuditParameters;
-import datawave.webservice.common.audit.Auditor;
 import org.apache.accumulo.core.client.AccumuloException;
 import org.apache.accumulo.core.client.AccumuloSecurityException;
 import org.apache.accumulo.core.client.ClientConfiguration;
@@ -16,6 +18,7 @@ import org.apache.accumulo.core.client.security.tokens.PasswordToken;
 import org.apache.commons.configuration.BaseConfiguration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.amqp.support.AmqpHeaders;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
@@ -25,6 +28,8 @@ import org.springframework.cloud.stream.annotation.StreamListener;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.messaging.SubscribableChannel;
+import org.springframework.messaging.handler.annotation.Header;
+import org.springframework.messaging.handler.annotation.Payload;
 
 import javax.annotation.Resource;
 
@@ -32,6 +37,10 @@ import javax.annotation.Resource;
  * Configures the AccumuloAuditor to process messages received by the audit service. This configuration is activated via the 'audit.accumulo.enabled' property.
  * When enabled, this configuration will also enable the appropriate Spring Cloud Stream configuration for the accumulo audit binding, as specified in the audit
  * config.
+ * <p>
+ * The binding should be consumed with manual acknowledgement and a prefetch of about the writer's largest batch, so that the messages delivered while a batch
+ * is flushed are written together, and each is acknowledged after the flush. With automatic acknowledgement each message is written before the next is
+ * delivered.
  */
 @Configuration
 @EnableConfigurationProperties(AccumuloAuditProperties.class)
@@ -45,19 +54,22 @@ public class AccumuloAuditConfig {
     private AuditParameters msgHandlerAuditParams;
     
     @Bean
-    public AuditMessageHandler accumuloAuditMessageHandler(Auditor accumuloAuditor) {
-        return new AuditMessageHandler(msgHandlerAuditParams, accumuloAuditor) {
+    public AuditMessageHandler accumuloAuditMessageHandler(AccumuloAuditor accumuloAuditor) {
+        return new AccumuloAuditMessageHandler(msgHandlerAuditParams, accumuloAuditor) {
             @Override
             @StreamListener(AccumuloAuditBinding.NAME)
-            public void onMessage(AuditMessage msg) throws Exception {
-                super.onMessage(msg);
+            public void onMessage(@Payload AuditMessage msg, @Header(name = AmqpHeaders.CHANNEL, required = false) Channel channel,
+                            @Header(name = AmqpHeaders.DELIVERY_TAG, required = false) Long deliveryTag) throws Exception {
+                super.onMessage(msg, channel, deliveryTag);
             }
         };
     }
     
-    @Bean
-    public Auditor accumuloAuditor(AccumuloAuditProperties accumuloAuditProperties, Connector connector) {
-        return new AccumuloAuditor(accumuloAuditProperties.getTableName(), connector);
+    @Bean(destroyMethod = "close")
+    public AccumuloAuditor accumuloAuditor(AccumuloAuditProperties accumuloAuditProperties, Connector connector) {
+        Writer writer = accumuloAuditProperties.getWriterConfig();
+        return new AccumuloAuditor(accumuloAuditProperties.getTableName(), connector, writer.getMaxLatencyMillis(), writer.getMaxMemory(),
+                        writer.getWriteThreads(), writer.getQueueCapacity(), writer.getMaxBatchSize());
     }
     
     @Bean
@@ -1,5 +1,6 @@
 package datawave.microservice.audit.accumulo.config;
 
+import datawave.microservice.audit.accumulo.AccumuloAuditor;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 
@@ -11,6 +12,8 @@ public class AccumuloAuditProperties {
     
     private Accumulo accumuloConfig = new Accumulo();
     
+    private Writer writerConfig = new Writer();
+    
     public String getTableName() {
         return tableName;
     }
@@ -27,6 +30,14 @@ public class AccumuloAuditProperties {
         this.accumuloConfig = accumuloConfig;
     }
     
+    public Writer getWriterConfig() {
+        return writerConfig;
+    }
+    
+    public void setWriterConfig(Writer writerConfig) {
+        this.writerConfig = writerConfig;
+    }
+    
     public static class Accumulo {
         private String zookeepers;
         private String instanceName;
@@ -65,4 +76,55 @@ public class AccumuloAuditProperties {
             this.password = password;
         }
     }
+    
+    /**
+     * Configures the batch writer shared by all audit messages, and the queue of messages waiting to be written by it.
+     */
+    public static class Writer {
+        private long maxLatencyMillis = AccumuloAuditor.DEFAULT_MAX_LATENCY_MILLIS;
+        private long maxMemory = AccumuloAuditor.DEFAULT_MAX_MEMORY;
+        private int writeThreads = AccumuloAuditor.DEFAULT_WRITE_THREADS;
+        private int queueCapacity = AccumuloAuditor.DEFAULT_QUEUE_CAPACITY;
+        private int maxBatchSize = AccumuloAuditor.DEFAULT_MAX_BATCH_SIZE;
+        
+        public long getMaxLatencyMillis() {
+            return maxLatencyMillis;
+        }
+        
+        public void setMaxLatencyMillis(long maxLatencyMillis) {
+            this.maxLatencyMillis = maxLatencyMillis;
+        }
+        
+        public long getMaxMemory() {
+            return maxMemory;
+        }
+        
+        public void setMaxMemory(long maxMemory) {
+            this.maxMemory = maxMemory;
+        }
+        
+        public int getWriteThreads() {
+            return writeThreads;
+        }
+        
+        public void setWriteThreads(int writeThreads) {
+            this.writeThreads = writeThreads;
+        }
+        
+        public int getQueueCapacity() {
+            return queueCapacity;
+        }
+        
+        public void setQueueCapacity(int queueCapacity) {
+            this.queueCapacity = queueCapacity;
+        }
+        
+        public int getMaxBatchSize() {
+            return maxBatchSize;
+        }
+        
+        public void setMaxBatchSize(int maxBatchSize) {
+            this.maxBatchSize = maxBatchSize;
+        }
+    }
 }
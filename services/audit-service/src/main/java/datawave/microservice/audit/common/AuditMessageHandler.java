@@ -25,9 +25,8 @@ public class AuditMessageHandler {
     
     public void onMessage(AuditMessage msg) throws Exception {
         try {
-            AuditParameters ap = msgHandlerAuditParams.fromMap(msg.getAuditParameters());
-            // log the audit message if the type is anything except NONE (even null)
-            if (!(ap.getAuditType() != null && ap.getAuditType().equals(AuditType.NONE))) {
+            AuditParameters ap = getAuditParameters(msg);
+            if (ap != null) {
                 auditor.audit(ap);
             }
         } catch (Exception e) {
@@ -35,4 +34,13 @@ public class AuditMessageHandler {
             throw e;
         }
     }
+    
+    /**
+     * @return the parameters of the audit message, or null if it is not to be audited
+     */
+    protected AuditParameters getAuditParameters(AuditMessage msg) throws Exception {
+        AuditParameters ap = msgHandlerAuditParams.fromMap(msg.getAuditParameters());
+        // log the audit message if the type is anything except NONE (even null)
+        return (ap.getAuditType() != null && ap.getAuditType().equals(AuditType.NONE)) ? null : ap;
+    }
 }
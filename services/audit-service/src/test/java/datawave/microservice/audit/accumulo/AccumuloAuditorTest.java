@@ -1,7 +1,9 @@
 package datawave.microservice.audit.accumulo;
 
+import com.rabbitmq.client.Channel;
 import datawave.accumulo.inmemory.InMemoryInstance;
 import datawave.microservice.audit.accumulo.config.AccumuloAuditProperties;
+import datawave.microservice.audit.common.AuditMessage;
 import datawave.webservice.common.audit.AuditParameters;
 import datawave.webservice.common.audit.Auditor;
 import org.apache.accumulo.core.client.AccumuloException;
@@ -14,6 +16,7 @@ import org.apache.accumulo.core.data.Key;
 import org.apache.accumulo.core.data.Value;
 import org.apache.accumulo.core.security.Authorizations;
 import org.apache.accumulo.core.security.ColumnVisibility;
+import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -28,10 +31,19 @@ import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.web.context.annotation.RequestScope;
 
+import java.lang.reflect.Proxy;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
@@ -43,6 +55,8 @@ import static org.junit.Assert.assertTrue;
 @ActiveProfiles({"AccumuloAuditorTest", "accumulo-enabled"})
 public class AccumuloAuditorTest {
     
+    private static final String BATCHED_TABLE = "BatchedAuditTable";
+    
     @Autowired
     private Auditor accumuloAuditor;
     
@@ -69,13 +83,19 @@ public class AccumuloAuditorTest {
         
         assertFalse(tableName + " already exists before test", connector.tableOperations().exists(tableName));
         
-        Auditor accumuloAuditor = new AccumuloAuditor(tableName, connector);
-        
-        assertTrue(tableName + " doesn't exist after test", connector.tableOperations().exists(tableName));
-        
-        accumuloAuditor = new AccumuloAuditor(tableName, connector);
+        try (AccumuloAuditor accumuloAuditor = new AccumuloAuditor(tableName, connector)) {
+            assertTrue(tableName + " doesn't exist after test", connector.tableOperations().exists(tableName));
+        }
         
-        assertTrue(tableName + " doesn't exist after test", connector.tableOperations().exists(tableName));
+        try (AccumuloAuditor accumuloAuditor = new AccumuloAuditor(tableName, connector)) {
+            assertTrue(tableName + " doesn't exist after test", connector.tableOperations().exists(tableName));
+        }
+    }
+    
+    @Before
+    public void deleteBatchedTable() throws Exception {
+        if (connector.tableOperations().exists(BATCHED_TABLE))
+            connector.tableOperations().delete(BATCHED_TABLE);
     }
     
     @Test
@@ -109,6 +129,155 @@ public class AccumuloAuditorTest {
         assertEquals(auditParams.toString(), value.toString());
     }
     
+    private static AuditParameters getAuditParameters(int i) {
+        AuditParameters auditParams = new AuditParameters();
+        auditParams.setUserDn("someUser" + i);
+        auditParams.setAuths("AUTH1,AUTH2");
+        auditParams.setQuery("test query " + i);
+        auditParams.setAuditType(Auditor.AuditType.ACTIVE);
+        auditParams.setColviz(new ColumnVisibility("ALL"));
+        auditParams.setQueryDate(new Date());
+        return auditParams;
+    }
+    
+    private int countAudits(String tableName) throws Exception {
+        Scanner scanner = connector.createScanner(tableName, new Authorizations("ALL"));
+        int count = 0;
+        for (Map.Entry<Key,Value> entry : scanner) {
+            count++;
+        }
+        return count;
+    }
+    
+    @Test
+    public void testConcurrentAudits() throws Exception {
+        int numAudits = 50;
+        try (HeldAuditor auditor = new HeldAuditor(BATCHED_TABLE, connector)) {
+            // hold up the writer on the first message, and queue the rest meanwhile
+            CompletableFuture<Void> first = auditor.auditAsync(getAuditParameters(0));
+            assertTrue("the first batch was not written", auditor.held.await(10, TimeUnit.SECONDS));
+            List<CompletableFuture<Void>> futures = new ArrayList<>();
+            for (int i = 1; i < numAudits; i++) {
+                futures.add(auditor.auditAsync(getAuditParameters(i)));
+            }
+            assertFalse(first.isDone());
+            
+            auditor.release.countDown();
+            first.get(10, TimeUnit.SECONDS);
+            for (CompletableFuture<Void> future : futures) {
+                future.get(10, TimeUnit.SECONDS);
+            }
+            
+            // the messages queued during the first flush were written with a single flush
+            assertEquals(Arrays.asList(1, numAudits - 1), auditor.batchSizes);
+        }
+        assertEquals(numAudits, countAudits(BATCHED_TABLE));
+    }
+    
+    @Test
+    public void testManualAcknowledgement() throws Exception {
+        List<String> acknowledgements = new CopyOnWriteArrayList<>();
+        Channel channel = getChannel(acknowledgements);
+        try (HeldAuditor auditor = new HeldAuditor(BATCHED_TABLE, connector)) {
+            AccumuloAuditMessageHandler handler = new AccumuloAuditMessageHandler(new AuditParameters(), auditor);
+            
+            // the handler returns without waiting for the messages to be written, so the ones delivered during a flush are written together
+            handler.onMessage(AuditMessage.fromParams(getAuditParameters(1)), channel, 1L);
+            assertTrue("the first batch was not written", auditor.held.await(10, TimeUnit.SECONDS));
+            for (long tag = 2; tag <= 5; tag++) {
+                handler.onMessage(AuditMessage.fromParams(getAuditParameters((int) tag)), channel, tag);
+            }
+            assertEquals("messages were acknowledged before they were written", Collections.emptyList(), acknowledgements);
+            
+            auditor.release.countDown();
+            awaitAcknowledgements(acknowledgements, 5);
+            assertEquals(Arrays.asList("ack 1", "ack 2", "ack 3", "ack 4", "ack 5"), acknowledgements);
+            assertEquals(Arrays.asList(1, 4), auditor.batchSizes);
+        }
+        assertEquals(5, countAudits(BATCHED_TABLE));
+    }
+    
+    @Test
+    public void testFailedBatchRejected() throws Exception {
+        List<String> acknowledgements = new CopyOnWriteArrayList<>();
+        try (AccumuloAuditor auditor = new AccumuloAuditor(BATCHED_TABLE, connector) {
+            @Override
+            protected void batchWritten(int size) {
+                throw new IllegalStateException("failed to write " + size);
+            }
+        }) {
+            AccumuloAuditMessageHandler handler = new AccumuloAuditMessageHandler(new AuditParameters(), auditor);
+            handler.onMessage(AuditMessage.fromParams(getAuditParameters(7)), getChannel(acknowledgements), 7L);
+            
+            // rejected without being requeued, to be dead lettered
+            awaitAcknowledgements(acknowledgements, 1);
+            assertEquals(Collections.singletonList("nack 7"), acknowledgements);
+        }
+    }
+    
+    private static void awaitAcknowledgements(List<String> acknowledgements, int count) throws InterruptedException {
+        long stop = System.currentTimeMillis() + 10000;
+        while (acknowledgements.size() < count && System.currentTimeMillis() < stop) {
+            Thread.sleep(10);
+        }
+        assertEquals(count, acknowledgements.size());
+    }
+    
+    /**
+     * @return a channel which records the delivery tags of the messages it acknowledges and rejects
+     */
+    private static Channel getChannel(List<String> acknowledgements) {
+        return (Channel) Proxy.newProxyInstance(AccumuloAuditorTest.class.getClassLoader(), new Class<?>[] {Channel.class}, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "basicAck":
+                    acknowledgements.add("ack " + args[0]);
+                    return null;
+                case "basicNack":
+                    assertEquals("the message was requeued", false, args[2]);
+                    acknowledgements.add("nack " + args[0]);
+                    return null;
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "equals":
+                    return proxy == args[0];
+                default:
+                    throw new UnsupportedOperationException(method.getName());
+            }
+        });
+    }
+    
+    /**
+     * Holds up the writer after it flushes the first batch, until released, and records the size of every batch
+     */
+    private static class HeldAuditor extends AccumuloAuditor {
+        private final CountDownLatch held = new CountDownLatch(1);
+        private final CountDownLatch release = new CountDownLatch(1);
+        private final List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+        
+        HeldAuditor(String tableName, Connector connector) {
+            super(tableName, connector);
+        }
+        
+        @Override
+        protected void batchWritten(int size) {
+            batchSizes.add(size);
+            if (held.getCount() > 0) {
+                held.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+        
+        @Override
+        public void close() throws InterruptedException {
+            release.countDown();
+            super.close();
+        }
+    }
+    
     @Test
     public void testNoneAudit() throws Exception {
         connector.tableOperations().deleteRows(accumuloAuditProperties.getTableName(), null, null);
@@ -25,7 +25,8 @@ public class MockDatawaveUserLookup {
         this.mockDULProperties = mockDULProperties;
     }
     
-    @Cacheable(key = "#dn.toString()")
+    // synchronized so that concurrent lookups of a user that is not cached, e.g. after all users were evicted, only build it once
+    @Cacheable(key = "#dn.toString()", sync = true)
     public DatawaveUser lookupUser(SubjectIssuerDNPair dn) {
         return buildUser(dn);
     }
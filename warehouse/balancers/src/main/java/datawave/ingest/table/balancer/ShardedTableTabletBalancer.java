@@ -2,8 +2,10 @@ package datawave.ingest.table.balancer;
 
 import com.google.common.base.Function;
 import com.google.common.collect.Iterables;
+import org.apache.accumulo.core.conf.Property;
 import org.apache.accumulo.core.data.impl.KeyExtent;
 import org.apache.accumulo.core.master.thrift.TabletServerStatus;
+import org.apache.accumulo.core.tabletserver.thrift.TabletStats;
 import org.apache.accumulo.core.util.Pair;
 import org.apache.accumulo.server.master.balancer.GroupBalancer;
 import org.apache.accumulo.server.master.state.TServerInstance;
@@ -15,6 +17,7 @@ import org.apache.log4j.Logger;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -33,14 +36,41 @@ import java.util.TreeMap;
  * Therefore, a legal balance could have successive days on the same tablet servers. For example, if a day were partitioned into 100 pieces and the cluster had
  * 500 tablet servers, a legal balance of 20 days of data could have days 1-5 all on the first 100 tablet servers, days 6-10 on the second 100 tablet servers,
  * and so on. This is not ideal, since the real goal is to spread data out across the cluster as much as possible.
+ * <p>
+ * Spreading the shards evenly does not spread the load evenly: recent days are queried and ingested far more than old ones, so the tablet servers that happen
+ * to hold the busiest shards carry most of the scans. When {@value #LOAD_BALANCING_ENABLED} is set on the table, every balancing pass that finds the groups
+ * balanced goes on to even out the load using the recent query rate, ingest rate and size of each tablet, as reported by the tablet servers. It only ever swaps
+ * two tablets of the same day between tablet servers, so the spread of the shards is kept exactly (see {@link TabletLoadPlanner}). With
+ * {@value #LOAD_BALANCING_DRY_RUN} set, the swaps are logged rather than made, and {@value #LOAD_BALANCING_SNAPSHOT} captures the load seen by each pass to a
+ * file that can be replayed offline with {@link TabletLoadSnapshot}.
  */
 public class ShardedTableTabletBalancer extends GroupBalancer {
     private static final Logger log = Logger.getLogger(ShardedTableTabletBalancer.class);
+    
+    private static final String LOAD_BALANCING_PREFIX = Property.TABLE_ARBITRARY_PROP_PREFIX.getKey() + "datawave.balancer.load.";
+    public static final String LOAD_BALANCING_ENABLED = LOAD_BALANCING_PREFIX + "enabled";
+    public static final String LOAD_BALANCING_DRY_RUN = LOAD_BALANCING_PREFIX + "dryRun";
+    public static final String LOAD_BALANCING_SNAPSHOT = LOAD_BALANCING_PREFIX + "snapshotFile";
+    public static final String LOAD_BALANCING_QUERY_WEIGHT = LOAD_BALANCING_PREFIX + "queryWeight";
+    public static final String LOAD_BALANCING_INGEST_WEIGHT = LOAD_BALANCING_PREFIX + "ingestWeight";
+    public static final String LOAD_BALANCING_ENTRIES_WEIGHT = LOAD_BALANCING_PREFIX + "entriesWeight";
+    public static final String LOAD_BALANCING_TOLERANCE = LOAD_BALANCING_PREFIX + "tolerance";
+    public static final String LOAD_BALANCING_MAX_SWAPS = LOAD_BALANCING_PREFIX + "maxSwaps";
+    
+    public static final double DEFAULT_QUERY_WEIGHT = 0.6;
+    public static final double DEFAULT_INGEST_WEIGHT = 0.3;
+    public static final double DEFAULT_ENTRIES_WEIGHT = 0.1;
+    public static final double DEFAULT_TOLERANCE = 0.1;
+    public static final int DEFAULT_MAX_SWAPS = 50;
+    
+    private final String tableId;
     private Collection<Pair<KeyExtent,Location>> tabletLocationCache;
     private Function<KeyExtent,String> partitioner;
+    private long lastLoadBalance = 0;
     
     public ShardedTableTabletBalancer(String tableId) {
         super(tableId);
+        this.tableId = tableId;
     }
     
     // synchronized to ensure exclusivity between getAssignments and balance calls
@@ -64,7 +94,108 @@ public class ShardedTableTabletBalancer extends GroupBalancer {
         final int numTservers = current.size();
         partitioner = new ShardGroupPartitioner(numTservers, getLocationProvider());
         
-        return super.balance(current, migrations, migrationsOut);
+        long waitTime = super.balance(current, migrations, migrationsOut);
+        
+        // Only balance the load once the shards are spread out and settled
+        if (migrationsOut.isEmpty() && !hasMigrations(migrations)) {
+            balanceLoad(current, migrationsOut);
+        }
+        return waitTime;
+    }
+    
+    private boolean hasMigrations(Set<KeyExtent> migrations) {
+        for (KeyExtent extent : migrations) {
+            if (tableId.equals(extent.getTableId())) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Swaps tablets of the same day between tablet servers to even out their load, if load balancing is enabled for the table.
+     */
+    protected void balanceLoad(SortedMap<TServerInstance,TabletServerStatus> current, List<TabletMigration> migrationsOut) {
+        Map<String,String> properties = getTableProperties();
+        if (!Boolean.parseBoolean(properties.get(LOAD_BALANCING_ENABLED)) || System.currentTimeMillis() - lastLoadBalance < getWaitTime()) {
+            return;
+        }
+        lastLoadBalance = System.currentTimeMillis();
+        
+        Map<TServerInstance,Map<KeyExtent,TabletLoad>> loads = getTabletLoads(current);
+        if (loads == null) {
+            return;
+        }
+        
+        String snapshotFile = properties.get(LOAD_BALANCING_SNAPSHOT);
+        if (snapshotFile != null) {
+            try {
+                TabletLoadSnapshot.write(loads, snapshotFile);
+            } catch (Exception e) {
+                log.warn("Unable to write tablet load snapshot to " + snapshotFile, e);
+            }
+        }
+        
+        int maxSwaps = Math.min(getInt(properties, LOAD_BALANCING_MAX_SWAPS, DEFAULT_MAX_SWAPS), getMaxMigrations() / 2);
+        TabletLoadPlanner planner = new TabletLoadPlanner(new ShardDayPartitioner(), getDouble(properties, LOAD_BALANCING_QUERY_WEIGHT, DEFAULT_QUERY_WEIGHT),
+                        getDouble(properties, LOAD_BALANCING_INGEST_WEIGHT, DEFAULT_INGEST_WEIGHT),
+                        getDouble(properties, LOAD_BALANCING_ENTRIES_WEIGHT, DEFAULT_ENTRIES_WEIGHT),
+                        getDouble(properties, LOAD_BALANCING_TOLERANCE, DEFAULT_TOLERANCE), maxSwaps);
+        List<TabletMigration> planned = planner.plan(loads);
+        
+        if (Boolean.parseBoolean(properties.get(LOAD_BALANCING_DRY_RUN))) {
+            log.info("Load balancing dry run for table " + tableId + " planned " + planned.size() + " migrations");
+            for (TabletMigration migration : planned) {
+                log.info("Would migrate " + migration);
+            }
+        } else {
+            if (!planned.isEmpty()) {
+                log.info("Migrating " + planned.size() + " tablets of table " + tableId + " to balance load");
+            }
+            migrationsOut.addAll(planned);
+        }
+    }
+    
+    /**
+     * Gets the recent load of each of this table's tablets from the tablet servers.
+     *
+     * @return the load of each tablet by tablet server, or null if it could not be retrieved from every tablet server
+     */
+    protected Map<TServerInstance,Map<KeyExtent,TabletLoad>> getTabletLoads(SortedMap<TServerInstance,TabletServerStatus> current) {
+        Map<TServerInstance,Map<KeyExtent,TabletLoad>> loads = new HashMap<>();
+        for (TServerInstance tserver : current.keySet()) {
+            Map<KeyExtent,TabletLoad> tablets = new HashMap<>();
+            try {
+                for (TabletStats stats : getOnlineTabletsForTable(tserver, tableId)) {
+                    tablets.put(new KeyExtent(stats.getExtent()), TabletLoad.fromStats(stats));
+                }
+            } catch (Exception e) {
+                log.warn("Unable to get tablet statistics for table " + tableId + " from " + tserver + ", skipping load balancing", e);
+                return null;
+            }
+            loads.put(tserver, tablets);
+        }
+        return loads;
+    }
+    
+    /**
+     * Gets the custom properties of this table, which hold the load balancing configuration.
+     */
+    protected Map<String,String> getTableProperties() {
+        if (context == null) {
+            return Collections.emptyMap();
+        }
+        return context.getServerConfigurationFactory().getTableConfiguration(tableId).getAllPropertiesWithPrefix(Property.TABLE_ARBITRARY_PROP_PREFIX);
+    }
+    
+    private static double getDouble(Map<String,String> properties, String name, double defaultValue) {
+        String value = properties.get(name);
+        return value == null ? defaultValue : Double.parseDouble(value);
+    }
+    
+    private static int getInt(Map<String,String> properties, String name, int defaultValue) {
+        String value = properties.get(name);
+        return value == null ? defaultValue : Integer.parseInt(value);
     }
     
     @Override
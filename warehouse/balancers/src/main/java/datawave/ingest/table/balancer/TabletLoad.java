@@ -0,0 +1,45 @@
+package datawave.ingest.table.balancer;
+
+import org.apache.accumulo.core.tabletserver.thrift.TabletStats;
+
+/**
+ * The recent load of a single tablet, as reported by its tablet server.
+ */
+public class TabletLoad {
+    private final double queryRate;
+    private final double ingestRate;
+    private final long entries;
+    
+    public TabletLoad(double queryRate, double ingestRate, long entries) {
+        this.queryRate = queryRate;
+        this.ingestRate = ingestRate;
+        this.entries = entries;
+    }
+    
+    public static TabletLoad fromStats(TabletStats stats) {
+        return new TabletLoad(stats.getQueryRate(), stats.getIngestRate(), stats.getNumEntries());
+    }
+    
+    /**
+     * @return the recent rate of entries read by scans, per second
+     */
+    public double getQueryRate() {
+        return queryRate;
+    }
+    
+    /**
+     * @return the recent rate of entries written, per second
+     */
+    public double getIngestRate() {
+        return ingestRate;
+    }
+    
+    public long getEntries() {
+        return entries;
+    }
+    
+    @Override
+    public String toString() {
+        return "query=" + queryRate + ", ingest=" + ingestRate + ", entries=" + entries;
+    }
+}
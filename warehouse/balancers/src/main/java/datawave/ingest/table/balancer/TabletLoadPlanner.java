@@ -0,0 +1,226 @@
+package datawave.ingest.table.balancer;
+
+import com.google.common.base.Function;
+import org.apache.accumulo.core.data.impl.KeyExtent;
+import org.apache.accumulo.server.master.state.TServerInstance;
+import org.apache.accumulo.server.master.state.TabletMigration;
+import org.apache.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+/**
+ * Plans migrations that even out the load of a table across its tablet servers without disturbing the way its shards are spread out.
+ * <p>
+ * Each tablet is scored by its share of the table's query rate, ingest rate and entries, weighted by the configured weights, and each tablet server by the sum
+ * of the scores of its tablets. The planner then repeatedly takes the most loaded tablet server and swaps one of its tablets for a less loaded tablet of the
+ * <em>same partition</em> (the shard day) on the least loaded tablet server it can find a swap with, choosing the pair that brings the two servers closest
+ * together. A swap never changes how many tablets of any partition a tablet server holds, so the placement made by the {@link ShardedTableTabletBalancer}
+ * groups is left intact. Planning stops once every server is within the tolerance of the mean load, no swap helps, or the maximum number of swaps is reached.
+ * A tablet is moved at most once per plan.
+ */
+public class TabletLoadPlanner {
+    private static final Logger log = Logger.getLogger(TabletLoadPlanner.class);
+    
+    private final Function<KeyExtent,String> partitioner;
+    private final double queryWeight;
+    private final double ingestWeight;
+    private final double entriesWeight;
+    private final double tolerance;
+    private final int maxSwaps;
+    
+    /**
+     * @param partitioner
+     *            the partitions tablets may only be swapped within
+     * @param queryWeight
+     *            the weight of the query rate in a tablet's score
+     * @param ingestWeight
+     *            the weight of the ingest rate in a tablet's score
+     * @param entriesWeight
+     *            the weight of the number of entries in a tablet's score
+     * @param tolerance
+     *            how far, as a fraction of the mean load, a tablet server's load may be from the mean before it is balanced
+     * @param maxSwaps
+     *            the maximum number of swaps to plan, each of which is two migrations
+     */
+    public TabletLoadPlanner(Function<KeyExtent,String> partitioner, double queryWeight, double ingestWeight, double entriesWeight, double tolerance,
+                    int maxSwaps) {
+        this.partitioner = partitioner;
+        this.queryWeight = queryWeight;
+        this.ingestWeight = ingestWeight;
+        this.entriesWeight = entriesWeight;
+        this.tolerance = tolerance;
+        this.maxSwaps = maxSwaps;
+    }
+    
+    /**
+     * Scores the tablets by their weighted share of the load of the whole table.
+     */
+    public Map<KeyExtent,Double> score(Map<TServerInstance,Map<KeyExtent,TabletLoad>> loads) {
+        double totalQuery = 0, totalIngest = 0, totalEntries = 0;
+        for (Map<KeyExtent,TabletLoad> tablets : loads.values()) {
+            for (TabletLoad load : tablets.values()) {
+                totalQuery += load.getQueryRate();
+                totalIngest += load.getIngestRate();
+                totalEntries += load.getEntries();
+            }
+        }
+        
+        Map<KeyExtent,Double> scores = new HashMap<>();
+        for (Map<KeyExtent,TabletLoad> tablets : loads.values()) {
+            for (Entry<KeyExtent,TabletLoad> tablet : tablets.entrySet()) {
+                TabletLoad load = tablet.getValue();
+                double score = 0;
+                if (totalQuery > 0)
+                    score += queryWeight * load.getQueryRate() / totalQuery;
+                if (totalIngest > 0)
+                    score += ingestWeight * load.getIngestRate() / totalIngest;
+                if (totalEntries > 0)
+                    score += entriesWeight * load.getEntries() / totalEntries;
+                scores.put(tablet.getKey(), score);
+            }
+        }
+        return scores;
+    }
+    
+    /**
+     * Sums the scores of the tablets on each tablet server.
+     */
+    public Map<TServerInstance,Double> serverLoads(Map<TServerInstance,Map<KeyExtent,TabletLoad>> loads, Map<KeyExtent,Double> scores) {
+        Map<TServerInstance,Double> serverLoads = new HashMap<>();
+        for (Entry<TServerInstance,Map<KeyExtent,TabletLoad>> entry : loads.entrySet()) {
+            double load = 0;
+            for (KeyExtent extent : entry.getValue().keySet()) {
+                load += scores.get(extent);
+            }
+            serverLoads.put(entry.getKey(), load);
+        }
+        return serverLoads;
+    }
+    
+    /**
+     * Plans the swaps for the current placement and load of a table.
+     *
+     * @param loads
+     *            the load of each tablet, by the tablet server it is on. Every tablet server that should be balanced must be present, even with no tablets.
+     * @return the planned migrations, two per swap
+     */
+    public List<TabletMigration> plan(Map<TServerInstance,Map<KeyExtent,TabletLoad>> loads) {
+        List<TabletMigration> migrations = new ArrayList<>();
+        if (loads.size() < 2) {
+            return migrations;
+        }
+        
+        final Map<KeyExtent,Double> scores = score(loads);
+        Map<TServerInstance,Double> serverLoads = serverLoads(loads, scores);
+        double mean = 0;
+        for (double load : serverLoads.values()) {
+            mean += load;
+        }
+        mean /= serverLoads.size();
+        if (mean <= 0) {
+            return migrations;
+        }
+        double allowed = tolerance * mean;
+        
+        // the tablets of each tablet server by partition, which is where swap candidates are found
+        Map<TServerInstance,Map<String,List<KeyExtent>>> partitions = new HashMap<>();
+        for (Entry<TServerInstance,Map<KeyExtent,TabletLoad>> entry : loads.entrySet()) {
+            Map<String,List<KeyExtent>> byPartition = new HashMap<>();
+            for (KeyExtent extent : entry.getValue().keySet()) {
+                String partition = partitioner.apply(extent);
+                List<KeyExtent> extents = byPartition.get(partition);
+                if (extents == null) {
+                    extents = new ArrayList<>();
+                    byPartition.put(partition, extents);
+                }
+                extents.add(extent);
+            }
+            partitions.put(entry.getKey(), byPartition);
+        }
+        
+        Set<KeyExtent> moved = new HashSet<>();
+        Set<TServerInstance> exhausted = new HashSet<>();
+        int swaps = 0;
+        while (swaps < maxSwaps) {
+            TServerInstance hot = null;
+            for (Entry<TServerInstance,Double> entry : serverLoads.entrySet()) {
+                if (!exhausted.contains(entry.getKey()) && (hot == null || entry.getValue() > serverLoads.get(hot))) {
+                    hot = entry.getKey();
+                }
+            }
+            if (hot == null || serverLoads.get(hot) - mean <= allowed) {
+                break;
+            }
+            
+            // try the least loaded tablet servers first
+            List<TServerInstance> colder = new ArrayList<>(serverLoads.keySet());
+            colder.remove(hot);
+            final Map<TServerInstance,Double> currentLoads = serverLoads;
+            colder.sort((a, b) -> Double.compare(currentLoads.get(a), currentLoads.get(b)));
+            
+            boolean swapped = false;
+            for (TServerInstance cold : colder) {
+                double gap = serverLoads.get(hot) - serverLoads.get(cold);
+                if (gap <= allowed) {
+                    break;
+                }
+                KeyExtent bestHot = null, bestCold = null;
+                double bestDelta = 0, bestRemaining = gap;
+                for (Entry<String,List<KeyExtent>> partition : partitions.get(hot).entrySet()) {
+                    List<KeyExtent> candidates = partitions.get(cold).get(partition.getKey());
+                    if (candidates == null) {
+                        continue;
+                    }
+                    for (KeyExtent hotExtent : partition.getValue()) {
+                        if (moved.contains(hotExtent)) {
+                            continue;
+                        }
+                        for (KeyExtent coldExtent : candidates) {
+                            if (moved.contains(coldExtent)) {
+                                continue;
+                            }
+                            // moving delta from hot to cold leaves them |gap - 2 * delta| apart
+                            double delta = scores.get(hotExtent) - scores.get(coldExtent);
+                            double remaining = Math.abs(gap - 2 * delta);
+                            if (delta > 0 && remaining < bestRemaining) {
+                                bestHot = hotExtent;
+                                bestCold = coldExtent;
+                                bestDelta = delta;
+                                bestRemaining = remaining;
+                            }
+                        }
+                    }
+                }
+                if (bestHot != null) {
+                    String partition = partitioner.apply(bestHot);
+                    partitions.get(hot).get(partition).remove(bestHot);
+                    partitions.get(hot).get(partition).add(bestCold);
+                    partitions.get(cold).get(partition).remove(bestCold);
+                    partitions.get(cold).get(partition).add(bestHot);
+                    serverLoads.put(hot, serverLoads.get(hot) - bestDelta);
+                    serverLoads.put(cold, serverLoads.get(cold) + bestDelta);
+                    moved.add(bestHot);
+                    moved.add(bestCold);
+                    migrations.add(new TabletMigration(bestHot, hot, cold));
+                    migrations.add(new TabletMigration(bestCold, cold, hot));
+                    if (log.isDebugEnabled()) {
+                        log.debug("Swapping " + bestHot + " on " + hot + " with " + bestCold + " on " + cold + " to move " + bestDelta + " of the load");
+                    }
+                    swaps++;
+                    swapped = true;
+                    break;
+                }
+            }
+            if (!swapped) {
+                exhausted.add(hot);
+            }
+        }
+        return migrations;
+    }
+}
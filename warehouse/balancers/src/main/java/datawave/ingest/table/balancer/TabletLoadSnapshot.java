@@ -0,0 +1,147 @@
+package datawave.ingest.table.balancer;
+
+import org.apache.accumulo.core.data.impl.KeyExtent;
+import org.apache.accumulo.server.master.state.TServerInstance;
+import org.apache.accumulo.server.master.state.TabletMigration;
+import org.apache.hadoop.io.Text;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+
+/**
+ * Captures the placement and load of a table's tablets, as seen by the {@link ShardedTableTabletBalancer} during a balancing pass, so that load balancing can
+ * be replayed and tuned offline. A snapshot is a text file with one tablet per line: the tablet server, the table id, the end row, the previous end row, the
+ * query rate, the ingest rate and the number of entries, separated by tabs, with a missing row written as {@value #NULL_ROW}.
+ * <p>
+ * Running this class with a snapshot plans the swaps the balancer would make for it and reports the load of the tablet servers before and after:
+ *
+ * <pre>
+ * TabletLoadSnapshot snapshotFile [queryWeight ingestWeight entriesWeight tolerance maxSwaps]
+ * </pre>
+ */
+public class TabletLoadSnapshot {
+    public static final String NULL_ROW = "-";
+    
+    private TabletLoadSnapshot() {}
+    
+    public static void write(Map<TServerInstance,Map<KeyExtent,TabletLoad>> loads, Writer writer) throws IOException {
+        for (Entry<TServerInstance,Map<KeyExtent,TabletLoad>> server : loads.entrySet()) {
+            for (Entry<KeyExtent,TabletLoad> tablet : server.getValue().entrySet()) {
+                KeyExtent extent = tablet.getKey();
+                TabletLoad load = tablet.getValue();
+                writer.write(server.getKey() + "\t" + extent.getTableId() + "\t" + toString(extent.getEndRow()) + "\t" + toString(extent.getPrevEndRow()) + "\t"
+                                + load.getQueryRate() + "\t" + load.getIngestRate() + "\t" + load.getEntries() + "\n");
+            }
+        }
+        writer.flush();
+    }
+    
+    /**
+     * Writes a snapshot to a file, replacing it only once the snapshot is complete.
+     */
+    public static void write(Map<TServerInstance,Map<KeyExtent,TabletLoad>> loads, String file) throws IOException {
+        Path path = Paths.get(file);
+        Path tmp = Paths.get(file + ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+            write(loads, writer);
+        }
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING);
+    }
+    
+    public static Map<TServerInstance,Map<KeyExtent,TabletLoad>> read(Reader reader) throws IOException {
+        Map<TServerInstance,Map<KeyExtent,TabletLoad>> loads = new TreeMap<>();
+        BufferedReader lines = new BufferedReader(reader);
+        String line;
+        while ((line = lines.readLine()) != null) {
+            if (line.isEmpty()) {
+                continue;
+            }
+            String[] fields = line.split("\t");
+            if (fields.length != 7) {
+                throw new IOException("Expected 7 fields in snapshot line: " + line);
+            }
+            TServerInstance server = new TServerInstance(fields[0]);
+            Map<KeyExtent,TabletLoad> tablets = loads.get(server);
+            if (tablets == null) {
+                tablets = new TreeMap<>();
+                loads.put(server, tablets);
+            }
+            tablets.put(new KeyExtent(fields[1], toText(fields[2]), toText(fields[3])),
+                            new TabletLoad(Double.parseDouble(fields[4]), Double.parseDouble(fields[5]), Long.parseLong(fields[6])));
+        }
+        return loads;
+    }
+    
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1 && args.length != 6) {
+            System.err.println("usage: " + TabletLoadSnapshot.class.getName() + " snapshotFile [queryWeight ingestWeight entriesWeight tolerance maxSwaps]");
+            System.exit(1);
+        }
+        
+        Map<TServerInstance,Map<KeyExtent,TabletLoad>> loads;
+        try (Reader reader = Files.newBufferedReader(Paths.get(args[0]), StandardCharsets.UTF_8)) {
+            loads = read(reader);
+        }
+        
+        TabletLoadPlanner planner;
+        if (args.length == 6) {
+            planner = new TabletLoadPlanner(new ShardedTableTabletBalancer.ShardDayPartitioner(), Double.parseDouble(args[1]), Double.parseDouble(args[2]),
+                            Double.parseDouble(args[3]), Double.parseDouble(args[4]), Integer.parseInt(args[5]));
+        } else {
+            planner = new TabletLoadPlanner(new ShardedTableTabletBalancer.ShardDayPartitioner(), ShardedTableTabletBalancer.DEFAULT_QUERY_WEIGHT,
+                            ShardedTableTabletBalancer.DEFAULT_INGEST_WEIGHT, ShardedTableTabletBalancer.DEFAULT_ENTRIES_WEIGHT,
+                            ShardedTableTabletBalancer.DEFAULT_TOLERANCE, ShardedTableTabletBalancer.DEFAULT_MAX_SWAPS);
+        }
+        
+        System.out.println("Before: " + describe(planner.serverLoads(loads, planner.score(loads)).values()));
+        List<TabletMigration> migrations = planner.plan(loads);
+        for (TabletMigration migration : migrations) {
+            System.out.println(migration);
+        }
+        
+        // apply the plan and report the result
+        Map<KeyExtent,Double> scores = planner.score(loads);
+        for (TabletMigration migration : migrations) {
+            TabletLoad load = loads.get(migration.oldServer).remove(migration.tablet);
+            loads.get(migration.newServer).put(migration.tablet, load);
+        }
+        System.out.println("After " + (migrations.size() / 2) + " swaps: " + describe(planner.serverLoads(loads, scores).values()));
+    }
+    
+    private static String describe(Collection<Double> loads) {
+        double min = Double.MAX_VALUE, max = 0, sum = 0;
+        for (double load : loads) {
+            min = Math.min(min, load);
+            max = Math.max(max, load);
+            sum += load;
+        }
+        double mean = sum / loads.size();
+        double variance = 0;
+        for (double load : loads) {
+            variance += (load - mean) * (load - mean);
+        }
+        return String.format("%d tablet servers, load min=%.6f max=%.6f mean=%.6f stddev=%.6f", loads.size(), min, max, mean,
+                        Math.sqrt(variance / loads.size()));
+    }
+    
+    private static String toString(Text row) {
+        return row == null ? NULL_ROW : row.toString();
+    }
+    
+    private static Text toText(String row) {
+        return NULL_ROW.equals(row) ? null : new Text(row);
+    }
+}
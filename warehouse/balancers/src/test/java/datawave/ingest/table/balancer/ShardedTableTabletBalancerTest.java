@@ -23,6 +23,8 @@ import org.junit.experimental.categories.Category;
 import org.junit.rules.TestWatcher;
 import org.junit.runner.Description;
 
+import java.io.StringReader;
+import java.io.StringWriter;
 import java.text.SimpleDateFormat;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
@@ -520,6 +522,100 @@ public class ShardedTableTabletBalancerTest {
         runAndCheckBalance(1);
     }
     
+    @Test
+    public void testBalanceLoad() {
+        TServerInstance[] servers = new TServerInstance[4];
+        for (int i = 0; i < servers.length; i++) {
+            servers[i] = testTServers.addTServer("127.0.0.1");
+        }
+        
+        // Every day is spread across all the servers, but the first shard of every day is hot and they are all on the first server.
+        String prev = null;
+        for (int day = 10; day < 20; day++) {
+            for (int shard = 0; shard < servers.length; shard++) {
+                String end = "201001" + day + "_" + shard;
+                KeyExtent extent = makeExtent(TNAME, end, prev);
+                testTServers.addTablet(extent, servers[shard]);
+                testBalancer.tabletLoads.put(extent, new TabletLoad(shard == 0 ? 100 : 1, 0, 1000));
+                prev = end;
+            }
+        }
+        testBalancer.properties.put(ShardedTableTabletBalancer.LOAD_BALANCING_ENABLED, "true");
+        
+        Map<TServerInstance,Double> before = testBalancer.getServerLoads();
+        assertTrue(before.get(servers[0]) > 0.5);
+        
+        runAndCheckBalance(3);
+        testTServers.checkDateDistribution();
+        testTServers.checkShardsPerDay(1, 1);
+        
+        // The hot shards can't be split any finer than one per server
+        Map<TServerInstance,Double> after = testBalancer.getServerLoads();
+        double mean = 0;
+        for (double load : after.values()) {
+            mean += load / after.size();
+        }
+        double hotScore = ShardedTableTabletBalancer.DEFAULT_QUERY_WEIGHT * 100 / 1030;
+        for (TServerInstance server : servers) {
+            assertTrue("Load of " + server + " is " + after.get(server), Math.abs(after.get(server) - mean) < hotScore);
+        }
+    }
+    
+    @Test
+    public void testBalanceLoadDryRun() {
+        TServerInstance server1 = testTServers.addTServer("127.0.0.1");
+        TServerInstance server2 = testTServers.addTServer("127.0.0.1");
+        KeyExtent hot1 = makeExtent(TNAME, "20100123_1", null);
+        KeyExtent cold1 = makeExtent(TNAME, "20100123_2", "20100123_1");
+        KeyExtent hot2 = makeExtent(TNAME, "20100124_1", "20100123_2");
+        KeyExtent cold2 = makeExtent(TNAME, "20100124_2", "20100124_1");
+        testTServers.addTablet(hot1, server1);
+        testTServers.addTablet(cold1, server2);
+        testTServers.addTablet(hot2, server1);
+        testTServers.addTablet(cold2, server2);
+        testBalancer.tabletLoads.put(hot1, new TabletLoad(50, 10, 100));
+        testBalancer.tabletLoads.put(cold1, new TabletLoad(0, 0, 100));
+        testBalancer.tabletLoads.put(hot2, new TabletLoad(50, 10, 100));
+        testBalancer.tabletLoads.put(cold2, new TabletLoad(0, 0, 100));
+        testBalancer.properties.put(ShardedTableTabletBalancer.LOAD_BALANCING_ENABLED, "true");
+        testBalancer.properties.put(ShardedTableTabletBalancer.LOAD_BALANCING_DRY_RUN, "true");
+        
+        ArrayList<TabletMigration> migrationsOut = new ArrayList<>();
+        testBalancer.balance(testTServers.getCurrent(), new HashSet<>(), migrationsOut);
+        assertTrue(migrationsOut.isEmpty());
+        
+        // Without the dry run, one hot tablet is swapped with the cold tablet of the same day
+        testBalancer.properties.remove(ShardedTableTabletBalancer.LOAD_BALANCING_DRY_RUN);
+        testBalancer.balance(testTServers.getCurrent(), new HashSet<>(), migrationsOut);
+        assertEquals(2, migrationsOut.size());
+        assertEquals(migrationsOut.get(0).oldServer, migrationsOut.get(1).newServer);
+        assertEquals(migrationsOut.get(0).newServer, migrationsOut.get(1).oldServer);
+        assertEquals(new ShardedTableTabletBalancer.ShardDayPartitioner().apply(migrationsOut.get(0).tablet),
+                        new ShardedTableTabletBalancer.ShardDayPartitioner().apply(migrationsOut.get(1).tablet));
+    }
+    
+    @Test
+    public void testLoadSnapshot() throws Exception {
+        TServerInstance server1 = testTServers.addTServer("127.0.0.1");
+        TServerInstance server2 = testTServers.addTServer("127.0.0.1");
+        Map<TServerInstance,Map<KeyExtent,TabletLoad>> loads = new TreeMap<>();
+        loads.put(server1, new TreeMap<>());
+        loads.put(server2, new TreeMap<>());
+        loads.get(server1).put(makeExtent(TNAME, "20100123_1", null), new TabletLoad(1.5, 2.5, 10));
+        loads.get(server2).put(makeExtent(TNAME, null, "20100123_1"), new TabletLoad(0, 0, 0));
+        
+        StringWriter writer = new StringWriter();
+        TabletLoadSnapshot.write(loads, writer);
+        Map<TServerInstance,Map<KeyExtent,TabletLoad>> read = TabletLoadSnapshot.read(new StringReader(writer.toString()));
+        assertEquals(loads.keySet(), read.keySet());
+        for (TServerInstance server : loads.keySet()) {
+            assertEquals(loads.get(server).keySet(), read.get(server).keySet());
+            for (KeyExtent extent : loads.get(server).keySet()) {
+                assertEquals(loads.get(server).get(extent).toString(), read.get(server).get(extent).toString());
+            }
+        }
+    }
+    
     private void runAndCheckBalance(int numPasses) {
         
         // Balance the number of times we're told to
@@ -823,6 +919,8 @@ public class ShardedTableTabletBalancerTest {
     
     private class TestShardedTableTabletBalancer extends ShardedTableTabletBalancer {
         private TestTServers testTServers;
+        private final Map<String,String> properties = new HashMap<>();
+        private final Map<KeyExtent,TabletLoad> tabletLoads = new HashMap<>();
         
         public TestShardedTableTabletBalancer(TestTServers testTServers) {
             super(TNAME);
@@ -845,6 +943,31 @@ public class ShardedTableTabletBalancerTest {
             return 0;
         }
         
+        @Override
+        protected Map<String,String> getTableProperties() {
+            return properties;
+        }
+        
+        @Override
+        protected Map<TServerInstance,Map<KeyExtent,TabletLoad>> getTabletLoads(SortedMap<TServerInstance,TabletServerStatus> current) {
+            Map<TServerInstance,Map<KeyExtent,TabletLoad>> loads = new HashMap<>();
+            for (TServerInstance tserver : current.keySet()) {
+                loads.put(tserver, new HashMap<>());
+            }
+            for (Entry<KeyExtent,TServerInstance> entry : testTServers.tabletLocs.entrySet()) {
+                TabletLoad load = tabletLoads.get(entry.getKey());
+                loads.get(entry.getValue()).put(entry.getKey(), load == null ? new TabletLoad(0, 0, 0) : load);
+            }
+            return loads;
+        }
+        
+        public Map<TServerInstance,Double> getServerLoads() {
+            TabletLoadPlanner planner = new TabletLoadPlanner(new ShardDayPartitioner(), DEFAULT_QUERY_WEIGHT, DEFAULT_INGEST_WEIGHT, DEFAULT_ENTRIES_WEIGHT,
+                            DEFAULT_TOLERANCE, DEFAULT_MAX_SWAPS);
+            Map<TServerInstance,Map<KeyExtent,TabletLoad>> loads = getTabletLoads(testTServers.getCurrent());
+            return planner.serverLoads(loads, planner.score(loads));
+        }
+        
         @Override
         protected int getMaxMigrations() {
             return 30000;
@@ -0,0 +1,296 @@
+package datawave.ingest.data.config;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Tokenizes a delimited record directly over its UTF-8 encoded bytes. This produces the same tokens as the {@link org.apache.commons.lang.text.StrTokenizer}
+ * instances used by the CSV readers and ingest helpers (CSV, TSV, or a plain delimiter string), but it only records the token boundaries while scanning. A
+ * String is created for a token only when {@link #getString(int)} is called, so callers can skip fields they are going to drop without paying for the decode.
+ * <p>
+ * Since every byte of a multi-byte UTF-8 sequence is &gt;= 0x80, the ASCII quote, whitespace and delimiter bytes can never match part of a wider character.
+ * <p>
+ * This class is not thread safe and is meant to be reset and reused for every record.
+ */
+public class CSVByteTokenizer {
+    
+    private static final byte QUOTE = '"';
+    private static final int INITIAL_CAPACITY = 64;
+    
+    /** The delimiter as UTF-8 bytes */
+    private final byte[] delimiter;
+    
+    /** Whether a token starting with a double quote is read as a quoted token */
+    private final boolean quoted;
+    
+    /** Whether whitespace and control characters surrounding an unquoted token are removed */
+    private boolean trim;
+    
+    /** Whether whitespace and control characters at the start of the record are skipped before tokenizing */
+    private boolean skipLeadingWhitespace = false;
+    
+    private byte[] data;
+    private int count;
+    private int[] starts = new int[INITIAL_CAPACITY];
+    private int[] lengths = new int[INITIAL_CAPACITY];
+    
+    /** Tokens that contained quotes are unescaped into this buffer; those tokens have a negative start of -(offset + 1) */
+    private byte[] workArea = new byte[256];
+    private int workAreaSize;
+    
+    public CSVByteTokenizer(String delimiter, boolean quoted, boolean trim) {
+        if (delimiter == null || delimiter.isEmpty()) {
+            throw new IllegalArgumentException("A non-empty delimiter is required");
+        }
+        this.delimiter = delimiter.getBytes(StandardCharsets.UTF_8);
+        this.quoted = quoted;
+        this.trim = trim;
+    }
+    
+    /**
+     * Creates a tokenizer that matches the StrTokenizer configuration the CSV readers use for the separator configured on the helper: a CSV instance for ',',
+     * a TSV instance for '\t', and an unquoted, untrimmed delimiter string otherwise.
+     *
+     * @param helper
+     *            the configured CSV helper
+     * @return a new tokenizer
+     */
+    public static CSVByteTokenizer create(CSVHelper helper) {
+        final String separator = helper.getSeparator();
+        if (separator.equals(",")) {
+            return new CSVByteTokenizer(",", true, true);
+        } else if (separator.equals("\\t")) {
+            return new CSVByteTokenizer("\t", true, true);
+        } else {
+            return new CSVByteTokenizer(separator, false, false);
+        }
+    }
+    
+    public CSVByteTokenizer setTrim(boolean trim) {
+        this.trim = trim;
+        return this;
+    }
+    
+    public CSVByteTokenizer setSkipLeadingWhitespace(boolean skipLeadingWhitespace) {
+        this.skipLeadingWhitespace = skipLeadingWhitespace;
+        return this;
+    }
+    
+    /**
+     * Tokenize a record. The byte array is referenced, not copied, and must not be modified while the tokens are being read.
+     *
+     * @param bytes
+     *            the buffer holding the record
+     * @param offset
+     *            the offset of the record in the buffer
+     * @param length
+     *            the length of the record
+     * @return the number of tokens found
+     */
+    public int reset(byte[] bytes, int offset, int length) {
+        this.data = bytes;
+        this.count = 0;
+        this.workAreaSize = 0;
+        
+        int pos = offset;
+        final int end = offset + length;
+        if (skipLeadingWhitespace) {
+            while (pos < end && isWhitespace(bytes[pos])) {
+                pos++;
+            }
+        }
+        
+        while (pos >= 0 && pos < end) {
+            pos = readNextToken(pos, end);
+            if (pos >= end) {
+                addToken(0, 0);
+            }
+        }
+        return count;
+    }
+    
+    public int reset(byte[] bytes) {
+        return reset(bytes, 0, bytes.length);
+    }
+    
+    /**
+     * @return the number of tokens in the current record
+     */
+    public int size() {
+        return count;
+    }
+    
+    /**
+     * @param index
+     *            the token index
+     * @return true if the token is empty or beyond the end of the record
+     */
+    public boolean isNull(int index) {
+        return index >= count || lengths[index] == 0;
+    }
+    
+    /**
+     * Materialize a token.
+     *
+     * @param index
+     *            the token index
+     * @return the token, or null if it is empty (mirroring StrTokenizer.setEmptyTokenAsNull(true))
+     */
+    public String getString(int index) {
+        if (isNull(index)) {
+            return null;
+        }
+        final int start = starts[index];
+        if (start < 0) {
+            return new String(workArea, -(start + 1), lengths[index], StandardCharsets.UTF_8);
+        }
+        return new String(data, start, lengths[index], StandardCharsets.UTF_8);
+    }
+    
+    /**
+     * @return all of the tokens as Strings, equivalent to StrTokenizer.getTokenArray()
+     */
+    public String[] getTokenArray() {
+        final String[] tokens = new String[count];
+        for (int i = 0; i < count; i++) {
+            tokens[i] = getString(i);
+        }
+        return tokens;
+    }
+    
+    private int readNextToken(int start, final int end) {
+        // skip leading whitespace unless it is a delimiter or quote
+        while (start < end) {
+            if (!trim || !isWhitespace(data[start]) || isDelimiter(start, end) || isQuote(start)) {
+                break;
+            }
+            start++;
+        }
+        
+        if (start >= end) {
+            addToken(0, 0);
+            return -1;
+        }
+        
+        if (isDelimiter(start, end)) {
+            addToken(0, 0);
+            return start + delimiter.length;
+        }
+        
+        if (isQuote(start)) {
+            return readQuoted(start + 1, end);
+        }
+        return readUnquoted(start, end);
+    }
+    
+    /**
+     * An unquoted token is always a contiguous slice of the record, so it can be referenced in place.
+     */
+    private int readUnquoted(final int start, final int end) {
+        int pos = start;
+        int tokenEnd = start;
+        while (pos < end) {
+            if (isDelimiter(pos, end)) {
+                addToken(start, tokenEnd - start);
+                return pos + delimiter.length;
+            }
+            if (!(trim && isWhitespace(data[pos]))) {
+                tokenEnd = pos + 1;
+            }
+            pos++;
+        }
+        addToken(start, tokenEnd - start);
+        return -1;
+    }
+    
+    /**
+     * A quoted token may contain escaped ("") quotes and may switch in and out of quoting, so it is unescaped into the work area.
+     */
+    private int readQuoted(final int start, final int end) {
+        final int tokenStart = workAreaSize;
+        int trimEnd = workAreaSize;
+        boolean quoting = true;
+        int pos = start;
+        while (pos < end) {
+            if (quoting) {
+                if (isQuote(pos)) {
+                    if (pos + 1 < end && isQuote(pos + 1)) {
+                        append(QUOTE);
+                        pos += 2;
+                        trimEnd = workAreaSize;
+                        continue;
+                    }
+                    quoting = false;
+                    pos++;
+                    continue;
+                }
+                append(data[pos++]);
+                trimEnd = workAreaSize;
+            } else {
+                if (isDelimiter(pos, end)) {
+                    addWorkAreaToken(tokenStart, trimEnd);
+                    return pos + delimiter.length;
+                }
+                if (isQuote(pos)) {
+                    quoting = true;
+                    pos++;
+                    continue;
+                }
+                final byte b = data[pos++];
+                append(b);
+                if (!(trim && isWhitespace(b))) {
+                    trimEnd = workAreaSize;
+                }
+            }
+        }
+        addWorkAreaToken(tokenStart, trimEnd);
+        return -1;
+    }
+    
+    private void addWorkAreaToken(int tokenStart, int trimEnd) {
+        // drop any trimmed bytes so the next token starts right after this one
+        workAreaSize = trimEnd;
+        addToken(-(tokenStart + 1), trimEnd - tokenStart);
+    }
+    
+    private void addToken(int start, int length) {
+        if (count == starts.length) {
+            starts = Arrays.copyOf(starts, count * 2);
+            lengths = Arrays.copyOf(lengths, count * 2);
+        }
+        starts[count] = start;
+        lengths[count] = length;
+        count++;
+    }
+    
+    private void append(byte b) {
+        if (workAreaSize == workArea.length) {
+            workArea = Arrays.copyOf(workArea, workArea.length * 2);
+        }
+        workArea[workAreaSize++] = b;
+    }
+    
+    private boolean isQuote(int pos) {
+        return quoted && data[pos] == QUOTE;
+    }
+    
+    private boolean isDelimiter(int pos, int end) {
+        if (data[pos] != delimiter[0]) {
+            return false;
+        }
+        if (pos + delimiter.length > end) {
+            return false;
+        }
+        for (int i = 1; i < delimiter.length; i++) {
+            if (data[pos + i] != delimiter[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /** Mirrors StrMatcher.trimMatcher(), which matches any character &lt;= 32 */
+    private static boolean isWhitespace(byte b) {
+        return b >= 0 && b <= ' ';
+    }
+}
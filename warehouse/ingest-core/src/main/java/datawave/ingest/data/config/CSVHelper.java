@@ -2,11 +2,14 @@ package datawave.ingest.data.config;
 
 import org.apache.hadoop.conf.Configuration;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.regex.Pattern;
 
 /**
  * Helper for CSV data
@@ -121,6 +124,12 @@ public class CSVHelper extends DataTypeHelperImpl {
     /** Pattern used to prevent matching escaped multivalue field separators when splitting multivalued fields */
     public static final String BACKSLASH_ESCAPE_LOOKBEHIND_PATTERN = "(?<!\\\\)";
     
+    /**
+     * Parameter to specify that records should be tokenized in place over their raw bytes with a {@link CSVByteTokenizer} instead of being converted to a
+     * String and split with a StrTokenizer (default is false).
+     */
+    public static final String BYTE_TOKENIZER_ENABLED = ".data.byte.tokenizer.enabled";
+    
     public enum ThresholdAction {
         FAIL, DROP, REPLACE, TRUNCATE
     }
@@ -133,6 +142,9 @@ public class CSVHelper extends DataTypeHelperImpl {
     private Map<String,String> multiValuedFieldsBlacklist = new HashMap<>();
     private boolean hasMultiValuedFieldsBlacklist = false;
     private String multiValueSeparator = null;
+    private Pattern multiValueSeparatorPattern = null;
+    private char multiValueSeparatorChar = 0;
+    private boolean useByteTokenizer = false;
     private int fieldSizeThreshold = Integer.MAX_VALUE;
     private int multiFieldSizeThreshold = Integer.MAX_VALUE;
     private ThresholdAction thresholdAction = ThresholdAction.FAIL;
@@ -222,6 +234,12 @@ public class CSVHelper extends DataTypeHelperImpl {
         }
         
         this.multiValueSeparator = config.get(this.getType().typeName() + MULTI_VALUED_SEPARATOR, ";");
+        this.multiValueSeparatorPattern = Pattern.compile(getEscapeSafeMultiValueSeparatorPattern());
+        if (multiValueSeparator.length() == 1 && "\\.[]{}()<>*+-=!?^$|".indexOf(multiValueSeparator.charAt(0)) < 0) {
+            this.multiValueSeparatorChar = multiValueSeparator.charAt(0);
+        }
+        
+        this.useByteTokenizer = config.getBoolean(this.getType().typeName() + BYTE_TOKENIZER_ENABLED, this.useByteTokenizer);
         
         this.fieldSizeThreshold = config.getInt(this.getType().typeName() + FIELD_SIZE_THRESHOLD, this.fieldSizeThreshold);
         this.thresholdAction = ThresholdAction.valueOf(config.get(this.getType().typeName() + THRESHOLD_ACTION, this.thresholdAction.name()).toUpperCase());
@@ -301,6 +319,55 @@ public class CSVHelper extends DataTypeHelperImpl {
         return BACKSLASH_ESCAPE_LOOKBEHIND_PATTERN + getMultiValueSeparator();
     }
     
+    /**
+     * Split a multi-valued field on the multi-value separator, ignoring separators escaped with a '\\' (backslash). This is equivalent to calling
+     * String.split(..) with {@link #getEscapeSafeMultiValueSeparatorPattern()}, but the pattern is only compiled once and a single character separator is
+     * split without a regex at all.
+     *
+     * @param fieldValue
+     *            the field value to split
+     * @return the split values
+     */
+    public String[] splitMultiValuedField(String fieldValue) {
+        if (multiValueSeparatorPattern == null) {
+            return fieldValue.split(getEscapeSafeMultiValueSeparatorPattern());
+        } else if (multiValueSeparatorChar == 0) {
+            return multiValueSeparatorPattern.split(fieldValue);
+        }
+        
+        List<String> values = null;
+        int start = 0;
+        for (int i = fieldValue.indexOf(multiValueSeparatorChar); i >= 0; i = fieldValue.indexOf(multiValueSeparatorChar, i + 1)) {
+            if (i > 0 && fieldValue.charAt(i - 1) == '\\') {
+                continue;
+            }
+            if (values == null) {
+                values = new ArrayList<>();
+            }
+            values.add(fieldValue.substring(start, i));
+            start = i + 1;
+        }
+        
+        if (values == null) {
+            return new String[] {fieldValue};
+        }
+        values.add(fieldValue.substring(start));
+        
+        // mirror String.split by dropping trailing empty strings
+        int size = values.size();
+        while (size > 0 && values.get(size - 1).isEmpty()) {
+            size--;
+        }
+        return values.subList(0, size).toArray(new String[size]);
+    }
+    
+    /**
+     * @return true if records should be tokenized with a {@link CSVByteTokenizer}
+     */
+    public boolean useByteTokenizer() {
+        return useByteTokenizer;
+    }
+    
     public int getMultiFieldSizeThreshold() {
         return multiFieldSizeThreshold;
     }
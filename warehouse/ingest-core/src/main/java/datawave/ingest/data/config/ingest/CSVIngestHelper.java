@@ -5,9 +5,9 @@ import java.util.Set;
 import com.google.common.collect.HashMultimap;
 import com.google.common.collect.Multimap;
 import datawave.ingest.data.RawRecordContainer;
+import datawave.ingest.data.config.CSVByteTokenizer;
 import datawave.ingest.data.config.CSVHelper;
 import datawave.ingest.data.config.NormalizedContentInterface;
-import datawave.util.StringUtils;
 import org.apache.commons.lang.StringEscapeUtils;
 import org.apache.commons.lang.text.StrTokenizer;
 import org.apache.hadoop.conf.Configuration;
@@ -17,6 +17,7 @@ public class CSVIngestHelper extends ContentBaseIngestHelper {
     
     private static final Logger log = Logger.getLogger(CSVIngestHelper.class);
     protected CSVHelper helper = null;
+    private CSVByteTokenizer byteTokenizer = null;
     
     @Override
     public void setup(Configuration config) {
@@ -24,6 +25,25 @@ public class CSVIngestHelper extends ContentBaseIngestHelper {
         helper = createHelper();
         helper.setup(config);
         this.setEmbeddedHelper(helper);
+        if (helper.useByteTokenizer()) {
+            if (supportsByteTokenizer()) {
+                byteTokenizer = configureByteTokenizer(CSVByteTokenizer.create(helper));
+            } else {
+                log.warn(getClass().getName() + " does not support the byte tokenizer, so events will be tokenized as Strings");
+            }
+        }
+    }
+    
+    /**
+     * Whether this class tokenizes events with the byte tokenizer when the configuration enables it. The byte tokenizer calls neither
+     * {@link #configureTokenizer(StrTokenizer)} nor {@link #preProcessRawData(byte[])}, so each class opts in for itself and a subclass which does not override
+     * this tokenizes events as Strings, through those hooks. A subclass overrides this once {@link #configureByteTokenizer(CSVByteTokenizer)} makes the same
+     * changes as its hooks.
+     * 
+     * @return true if the byte tokenizer may be used
+     */
+    protected boolean supportsByteTokenizer() {
+        return getClass() == CSVIngestHelper.class;
     }
     
     /**
@@ -34,7 +54,8 @@ public class CSVIngestHelper extends ContentBaseIngestHelper {
     }
     
     /**
-     * Allow classes extending this class to modify the StrTokenizer being used.
+     * Allow classes extending this class to modify the StrTokenizer being used. This is not called when the byte tokenizer is used, see
+     * {@link #supportsByteTokenizer()}.
      * 
      * @param tokenizer
      *            The StrTokenizer that will be used on each Event
@@ -44,7 +65,19 @@ public class CSVIngestHelper extends ContentBaseIngestHelper {
     }
     
     /**
-     * Allow classes extending this class to modify the raw data before setting it on the StrTokenizer
+     * Allow classes extending this class to modify the CSVByteTokenizer being used when the byte tokenizer is enabled. This is the counterpart to
+     * {@link #configureTokenizer(StrTokenizer)} and {@link #preProcessRawData(byte[])}, which are not called in that mode.
+     * 
+     * @param tokenizer
+     *            The CSVByteTokenizer that will be used on each Event
+     */
+    protected CSVByteTokenizer configureByteTokenizer(CSVByteTokenizer tokenizer) {
+        return tokenizer;
+    }
+    
+    /**
+     * Allow classes extending this class to modify the raw data before setting it on the StrTokenizer. This is not called when the byte tokenizer is used, see
+     * {@link #supportsByteTokenizer()}.
      * 
      * @param data
      *            The raw data from the Event
@@ -61,6 +94,12 @@ public class CSVIngestHelper extends ContentBaseIngestHelper {
     public Multimap<String,NormalizedContentInterface> getEventFields(RawRecordContainer event) {
         HashMultimap<String,String> fields = HashMultimap.create();
         
+        if (byteTokenizer != null) {
+            byteTokenizer.reset(event.getRawData());
+            processFields(fields, byteTokenizer);
+            return normalize(fields);
+        }
+        
         String data = preProcessRawData(event.getRawData());
         
         StrTokenizer tokenizer;
@@ -114,6 +153,38 @@ public class CSVIngestHelper extends ContentBaseIngestHelper {
         }
     }
     
+    /**
+     * Same as {@link #processFields(HashMultimap, String[])}, but only the tokens of fields that are kept are turned into Strings.
+     * 
+     * @param fields
+     * @param tokenizer
+     *            a CSVByteTokenizer that has been reset with the event's raw data
+     */
+    protected void processFields(HashMultimap<String,String> fields, CSVByteTokenizer tokenizer) {
+        final String[] header = helper.getHeader();
+        for (int i = 0; i < Math.max(tokenizer.size(), header.length); i++) {
+            
+            if (i < header.length) {
+                String fieldName = header[i];
+                
+                if (!tokenizer.isNull(i) && keepField(fieldName)) {
+                    String fieldValue = StringEscapeUtils.unescapeCsv(tokenizer.getString(i));
+                    fieldValue = helper.clean(fieldName, fieldValue);
+                    if (fieldValue != null) {
+                        processPreSplitField(fields, fieldName, fieldValue);
+                    }
+                }
+            } else if (helper.processExtraFields()) {
+                String fieldValue = StringEscapeUtils.unescapeCsv(tokenizer.getString(i));
+                if (fieldValue != null) {
+                    processExtraField(fields, fieldValue);
+                }
+            } else {
+                break;
+            }
+        }
+    }
+    
     /**
      * Used to process extra fields. The PROCESS_EXTRA_FIELDS configuration parameter must be set to enable this processing.
      * 
@@ -149,7 +220,7 @@ public class CSVIngestHelper extends ContentBaseIngestHelper {
                 String singleFieldName = helper.usingMultiValuedFieldsBlacklist() ? fieldName : helper.getMultiValuedFields().get(fieldName);
                 int limit = helper.getMultiFieldSizeThreshold();
                 int count = 0;
-                for (String value : StringUtils.splitIterable(fieldValue, helper.getEscapeSafeMultiValueSeparatorPattern())) {
+                for (String value : helper.splitMultiValuedField(fieldValue)) {
                     value = helper.clean(singleFieldName, value);
                     if (value != null) {
                         if (count == limit) {
@@ -180,6 +180,8 @@ public class IngestJob implements Tool {
     protected final Set<String> compressionTableBlackList = new HashSet<>();
     protected int maxRFileEntries = 0;
     protected long maxRFileSize = 0;
+    protected long localityGroupBufferSize = 0;
+    protected long indexBlockSize = 0;
     @SuppressWarnings("rawtypes")
     protected Class<? extends InputFormat> inputFormat = EventSequenceFileInputFormat.class;
     @SuppressWarnings("rawtypes")
@@ -247,6 +249,8 @@ public class IngestJob implements Tool {
         System.out.println("                     [-compressionTableBlackList table,table,...");
         System.out.println("                     [-maxRFileUndeduppedEntries maxEntries]");
         System.out.println("                     [-maxRFileUncompressedSize maxSize]");
+        System.out.println("                     [-localityGroupBufferSize bufferSize]");
+        System.out.println("                     [-rfileIndexBlockSize indexBlockSize]");
         System.out.println("                     [-shardedMapFiles table1=/hdfs/path/table1splits.seq[,table2=/hdfs/path/table2splits.seq] ]");
     }
     
@@ -657,6 +661,10 @@ public class IngestJob implements Tool {
                 maxRFileEntries = Integer.parseInt(args[++i]);
             } else if (args[i].equals("-maxRFileUncompressedSize")) {
                 maxRFileSize = Long.parseLong(args[++i]);
+            } else if (args[i].equals("-localityGroupBufferSize")) {
+                localityGroupBufferSize = Long.parseLong(args[++i]);
+            } else if (args[i].equals("-rfileIndexBlockSize")) {
+                indexBlockSize = Long.parseLong(args[++i]);
             } else if (args[i].equals("-shardedMapFiles")) {
                 conf.set(ShardedTableMapFile.SHARDED_MAP_FILE_PATHS_RAW, args[++i]);
                 ShardedTableMapFile.extractShardedTableMapFilePaths(conf);
@@ -786,6 +794,12 @@ public class IngestJob implements Tool {
         
         conf.setInt(MultiRFileOutputFormatter.EVENT_PARTITION_COUNT, this.reduceTasks * 2);
         configureMultiRFileOutputFormatter(conf, compressionType, compressionTableBlackList, maxRFileEntries, maxRFileSize, generateMapFileRowKeys);
+        if (localityGroupBufferSize > 0) {
+            MultiRFileOutputFormatter.setLocalityGroupBuffering(conf, true, localityGroupBufferSize);
+        }
+        if (indexBlockSize > 0) {
+            MultiRFileOutputFormatter.setIndexBlockSize(conf, indexBlockSize);
+        }
         
         DelegatingPartitioner.configurePartitioner(job, conf, tableNames); // sets the partitioner
     }
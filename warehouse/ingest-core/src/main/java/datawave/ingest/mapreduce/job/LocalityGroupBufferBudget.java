@@ -0,0 +1,69 @@
+package datawave.ingest.mapreduce.job;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The memory budget shared by all of the {@link LocalityGroupBufferingWriter}s of a task. A task may have many files open at once (one per table, and one per
+ * shard location for the sharded tables), so a budget per writer would not bound the heap. Instead, whenever the entries buffered by all of the writers
+ * together reach the budget, the writer buffering the most spills its sorted runs to disk, until the total is back under the budget.
+ */
+public class LocalityGroupBufferBudget {
+    
+    private final long size;
+    private final List<LocalityGroupBufferingWriter> writers = new ArrayList<>();
+    private long bufferedBytes = 0;
+    
+    /**
+     * @param size
+     *            the number of bytes all of the writers together may buffer in memory
+     */
+    public LocalityGroupBufferBudget(long size) {
+        this.size = Math.max(1L, size);
+    }
+    
+    public long getSize() {
+        return size;
+    }
+    
+    public synchronized long getBufferedBytes() {
+        return bufferedBytes;
+    }
+    
+    synchronized void register(LocalityGroupBufferingWriter writer) {
+        writers.add(writer);
+    }
+    
+    /**
+     * Stops accounting for a writer, returning whatever it still had buffered to the budget
+     */
+    synchronized void release(LocalityGroupBufferingWriter writer) {
+        for (int i = 0; i < writers.size(); i++) {
+            if (writers.get(i) == writer) {
+                writers.remove(i);
+                bufferedBytes -= writer.getBufferedBytes();
+                return;
+            }
+        }
+    }
+    
+    /**
+     * Accounts for entries buffered by a writer, spilling the largest buffers if the budget has been reached
+     */
+    synchronized void add(long bytes) throws IOException {
+        bufferedBytes += bytes;
+        while (bufferedBytes >= size) {
+            LocalityGroupBufferingWriter largest = null;
+            for (LocalityGroupBufferingWriter writer : writers) {
+                if (largest == null || writer.getBufferedBytes() > largest.getBufferedBytes()) {
+                    largest = writer;
+                }
+            }
+            if (largest == null || largest.getBufferedBytes() == 0) {
+                break;
+            }
+            bufferedBytes -= largest.spill();
+        }
+    }
+}
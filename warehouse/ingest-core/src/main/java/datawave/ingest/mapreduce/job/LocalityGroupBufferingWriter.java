@@ -0,0 +1,380 @@
+package datawave.ingest.mapreduce.job;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.apache.accumulo.core.data.ByteSequence;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.file.FileSKVWriter;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.log4j.Logger;
+
+/**
+ * A FileSKVWriter that buffers the appended entries per locality group and writes each locality group contiguously, in sorted order, when it is closed. This
+ * removes the requirement that keys be appended in order, and keeps the entries of a locality group together instead of flipping between groups as the column
+ * families change.
+ * <p>
+ * Entries are held in memory until the {@link LocalityGroupBufferBudget} shared by the writers of the task is reached, at which point the writer buffering the
+ * most sorts every group's buffer and spills it to a file in the spill directory as a sorted run. On close the runs of each group are merged, written through
+ * to the delegate and deleted. The entries and bytes written for each locality group are reported as counters when a task context is available.
+ */
+public class LocalityGroupBufferingWriter implements FileSKVWriter {
+    
+    private static final Logger log = Logger.getLogger(LocalityGroupBufferingWriter.class);
+    
+    public static final String ENTRIES_COUNTER_GROUP = "LocalityGroupEntries";
+    public static final String BYTES_COUNTER_GROUP = "LocalityGroupBytes";
+    public static final String DEFAULT_GROUP_NAME = "default";
+    
+    /** rough per entry heap overhead of the Key, Value and map entry objects */
+    private static final long ENTRY_OVERHEAD = 96;
+    
+    private static final Comparator<Map.Entry<Key,Value>> KEY_COMPARATOR = Comparator.comparing(Map.Entry::getKey);
+    
+    private final FileSKVWriter delegate;
+    private final String table;
+    private final Map<Text,String> columnFamilyToLocalityGroup;
+    private final Map<String,Set<ByteSequence>> localityGroupToColumnFamilies;
+    private final LocalityGroupBufferBudget budget;
+    private final File spillDir;
+    private final TaskAttemptContext context;
+    
+    // the named locality groups are written in name order, followed by the default group
+    private final Map<String,GroupBuffer> groups = new TreeMap<>();
+    private final GroupBuffer defaultGroup = new GroupBuffer(DEFAULT_GROUP_NAME);
+    private long bufferedBytes = 0;
+    private boolean closed = false;
+    
+    /**
+     * @param delegate
+     *            the writer for the underlying file
+     * @param table
+     *            the table being written, used to name the counters
+     * @param columnFamilyToLocalityGroup
+     *            the column family to locality group mapping for the table, or null if the table has no locality groups
+     * @param localityGroupToColumnFamilies
+     *            the locality group to column family mapping for the table, or null if the table has no locality groups
+     * @param bufferSize
+     *            the number of bytes to buffer in memory before spilling sorted runs
+     * @param spillDir
+     *            the local directory for the sorted runs
+     * @param context
+     *            the task context used to report counters, may be null
+     */
+    public LocalityGroupBufferingWriter(FileSKVWriter delegate, String table, Map<Text,String> columnFamilyToLocalityGroup,
+                    Map<String,Set<ByteSequence>> localityGroupToColumnFamilies, long bufferSize, File spillDir, TaskAttemptContext context) {
+        this(delegate, table, columnFamilyToLocalityGroup, localityGroupToColumnFamilies, new LocalityGroupBufferBudget(bufferSize), spillDir, context);
+    }
+    
+    /**
+     * @param delegate
+     *            the writer for the underlying file
+     * @param table
+     *            the table being written, used to name the counters
+     * @param columnFamilyToLocalityGroup
+     *            the column family to locality group mapping for the table, or null if the table has no locality groups
+     * @param localityGroupToColumnFamilies
+     *            the locality group to column family mapping for the table, or null if the table has no locality groups
+     * @param budget
+     *            the memory budget shared with the other writers of the task
+     * @param spillDir
+     *            the local directory for the sorted runs
+     * @param context
+     *            the task context used to report counters, may be null
+     */
+    public LocalityGroupBufferingWriter(FileSKVWriter delegate, String table, Map<Text,String> columnFamilyToLocalityGroup,
+                    Map<String,Set<ByteSequence>> localityGroupToColumnFamilies, LocalityGroupBufferBudget budget, File spillDir, TaskAttemptContext context) {
+        this.delegate = delegate;
+        this.table = table;
+        this.columnFamilyToLocalityGroup = (columnFamilyToLocalityGroup == null || !delegate.supportsLocalityGroups()) ? Collections.emptyMap()
+                        : columnFamilyToLocalityGroup;
+        this.localityGroupToColumnFamilies = localityGroupToColumnFamilies;
+        this.budget = budget;
+        this.spillDir = spillDir;
+        this.context = context;
+        budget.register(this);
+    }
+    
+    @Override
+    public boolean supportsLocalityGroups() {
+        return delegate.supportsLocalityGroups();
+    }
+    
+    /**
+     * Locality groups are determined from the column family of each appended key, so this is a no-op.
+     */
+    @Override
+    public void startNewLocalityGroup(String name, Set<ByteSequence> columnFamilies) throws IOException {}
+    
+    /**
+     * Locality groups are determined from the column family of each appended key, so this is a no-op.
+     */
+    @Override
+    public void startDefaultLocalityGroup() throws IOException {}
+    
+    @Override
+    public void append(Key key, Value value) throws IOException {
+        if (closed) {
+            throw new IllegalStateException("Cannot append to a closed writer");
+        }
+        
+        String groupName = columnFamilyToLocalityGroup.get(key.getColumnFamily());
+        GroupBuffer group;
+        if (groupName == null) {
+            group = defaultGroup;
+        } else {
+            group = groups.get(groupName);
+            if (group == null) {
+                group = new GroupBuffer(groupName);
+                groups.put(groupName, group);
+            }
+        }
+        
+        // the reducer may reuse the key and value objects, so keep copies
+        Value copy = (value == null ? new Value(new byte[0]) : new Value(value.get(), true));
+        long size = group.add(new Key(key), copy);
+        bufferedBytes += size;
+        budget.add(size);
+    }
+    
+    @Override
+    public DataOutputStream createMetaStore(String name) throws IOException {
+        return delegate.createMetaStore(name);
+    }
+    
+    @Override
+    public long getLength() throws IOException {
+        return delegate.getLength();
+    }
+    
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        
+        // the buffered entries are either written out or discarded below
+        budget.release(this);
+        try {
+            for (GroupBuffer group : groups.values()) {
+                delegate.startNewLocalityGroup(group.name, localityGroupToColumnFamilies.get(group.name));
+                group.writeTo(delegate);
+            }
+            delegate.startDefaultLocalityGroup();
+            defaultGroup.writeTo(delegate);
+            delegate.close();
+        } finally {
+            for (GroupBuffer group : groups.values()) {
+                group.cleanup();
+            }
+            defaultGroup.cleanup();
+        }
+        
+        reportCounters();
+    }
+    
+    long getBufferedBytes() {
+        return bufferedBytes;
+    }
+    
+    /**
+     * Spills the buffers of every group as sorted runs
+     * 
+     * @return the number of buffered bytes released
+     */
+    long spill() throws IOException {
+        if (log.isDebugEnabled()) {
+            log.debug("Spilling " + bufferedBytes + " buffered bytes for " + table);
+        }
+        for (GroupBuffer group : groups.values()) {
+            group.spill();
+        }
+        defaultGroup.spill();
+        long released = bufferedBytes;
+        bufferedBytes = 0;
+        return released;
+    }
+    
+    private void reportCounters() {
+        List<GroupBuffer> written = new ArrayList<>(groups.values());
+        written.add(defaultGroup);
+        for (GroupBuffer group : written) {
+            if (group.entriesWritten == 0) {
+                continue;
+            }
+            if (log.isDebugEnabled()) {
+                log.debug("Wrote " + group.entriesWritten + " entries (" + group.bytesWritten + " bytes) to locality group " + group.name + " for " + table);
+            }
+            if (context != null) {
+                context.getCounter(ENTRIES_COUNTER_GROUP, table + ' ' + group.name).increment(group.entriesWritten);
+                context.getCounter(BYTES_COUNTER_GROUP, table + ' ' + group.name).increment(group.bytesWritten);
+            }
+        }
+    }
+    
+    /**
+     * The in memory buffer and the spilled sorted runs of one locality group
+     */
+    private class GroupBuffer {
+        private final String name;
+        private final List<Map.Entry<Key,Value>> entries = new ArrayList<>();
+        private final List<File> runs = new ArrayList<>();
+        private long entriesWritten = 0;
+        private long bytesWritten = 0;
+        
+        GroupBuffer(String name) {
+            this.name = name;
+        }
+        
+        long add(Key key, Value value) {
+            entries.add(new AbstractMap.SimpleImmutableEntry<>(key, value));
+            return key.getSize() + value.getSize() + ENTRY_OVERHEAD;
+        }
+        
+        void spill() throws IOException {
+            if (entries.isEmpty()) {
+                return;
+            }
+            entries.sort(KEY_COMPARATOR);
+            File run = File.createTempFile("lgbuffer-" + table + '-', ".run", spillDir);
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(run), 64 * 1024))) {
+                for (Map.Entry<Key,Value> entry : entries) {
+                    entry.getKey().write(out);
+                    entry.getValue().write(out);
+                }
+            }
+            runs.add(run);
+            entries.clear();
+        }
+        
+        void writeTo(FileSKVWriter writer) throws IOException {
+            Iterator<Map.Entry<Key,Value>> it;
+            List<RunReader> readers = new ArrayList<>();
+            if (runs.isEmpty()) {
+                entries.sort(KEY_COMPARATOR);
+                it = entries.iterator();
+            } else {
+                spill();
+                for (File run : runs) {
+                    readers.add(new RunReader(run));
+                }
+                it = new MergingIterator(readers);
+            }
+            
+            try {
+                while (it.hasNext()) {
+                    Map.Entry<Key,Value> entry = it.next();
+                    writer.append(entry.getKey(), entry.getValue());
+                    entriesWritten++;
+                    bytesWritten += entry.getKey().getLength() + entry.getValue().getSize();
+                }
+            } finally {
+                for (RunReader reader : readers) {
+                    reader.close();
+                }
+                // the runs have been merged, so free the disk now rather than when the whole file is closed
+                cleanup();
+            }
+        }
+        
+        void cleanup() {
+            entries.clear();
+            for (File run : runs) {
+                if (!run.delete()) {
+                    log.warn("Unable to delete sorted run " + run);
+                }
+            }
+            runs.clear();
+        }
+    }
+    
+    /**
+     * Reads back one sorted run
+     */
+    private static class RunReader {
+        private final DataInputStream in;
+        private Map.Entry<Key,Value> top;
+        
+        RunReader(File run) throws IOException {
+            this.in = new DataInputStream(new BufferedInputStream(new FileInputStream(run), 64 * 1024));
+            advance();
+        }
+        
+        void advance() throws IOException {
+            Key key = new Key();
+            Value value = new Value();
+            try {
+                key.readFields(in);
+            } catch (EOFException e) {
+                top = null;
+                return;
+            }
+            value.readFields(in);
+            top = new AbstractMap.SimpleImmutableEntry<>(key, value);
+        }
+        
+        void close() throws IOException {
+            in.close();
+        }
+    }
+    
+    /**
+     * Merges sorted runs into a single sorted iteration
+     */
+    private static class MergingIterator implements Iterator<Map.Entry<Key,Value>> {
+        private final PriorityQueue<RunReader> queue;
+        
+        MergingIterator(List<RunReader> readers) {
+            queue = new PriorityQueue<>(Math.max(1, readers.size()), (r1, r2) -> r1.top.getKey().compareTo(r2.top.getKey()));
+            for (RunReader reader : readers) {
+                if (reader.top != null) {
+                    queue.add(reader);
+                }
+            }
+        }
+        
+        @Override
+        public boolean hasNext() {
+            return !queue.isEmpty();
+        }
+        
+        @Override
+        public Map.Entry<Key,Value> next() {
+            RunReader reader = queue.poll();
+            if (reader == null) {
+                throw new NoSuchElementException();
+            }
+            Map.Entry<Key,Value> next = reader.top;
+            try {
+                reader.advance();
+            } catch (IOException e) {
+                throw new RuntimeException("Unable to read sorted run", e);
+            }
+            if (reader.top != null) {
+                queue.add(reader);
+            }
+            return next;
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package datawave.ingest.mapreduce.job;
 
 import java.io.DataOutputStream;
+import java.io.File;
 import java.io.IOException;
 import java.util.Arrays;
 import java.util.Collections;
@@ -35,6 +36,7 @@ import org.apache.accumulo.core.file.FileSKVWriter;
 import org.apache.accumulo.core.file.rfile.RFile;
 import org.apache.accumulo.core.file.rfile.bcfile.Compression;
 import org.apache.commons.codec.binary.Base64;
+import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang.mutable.MutableInt;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FileStatus;
@@ -77,6 +79,12 @@ public class MultiRFileOutputFormatter extends FileOutputFormat<BulkIngestKey,Va
     protected static final String MAX_RFILE_UNDEDUPPED_ENTRIES = PREFIX + ".maxRFileUndeduppedEntries";
     protected static final String GENERATE_MAP_FILE_ROW_KEYS = PREFIX + ".generateMapFileRowKeys";
     protected static final String GENERATE_MAP_FILE_PER_SHARD_LOCATION = PREFIX + ".generateMapFilePerShardLocation";
+    protected static final String LOCALITY_GROUP_BUFFERING = PREFIX + ".localityGroupBuffering";
+    protected static final String LOCALITY_GROUP_BUFFER_SIZE = PREFIX + ".localityGroupBufferSize";
+    protected static final String LOCALITY_GROUP_SPILL_DIR = PREFIX + ".localityGroupSpillDir";
+    protected static final String INDEX_BLOCK_SIZE = PREFIX + ".indexBlockSize";
+    
+    protected static final long DEFAULT_LOCALITY_GROUP_BUFFER_SIZE = 64L * 1024L * 1024L;
     
     protected static final String BASE = "bulk.output.partition.count.";
     public static final String CONFIGURE_LOCALITY_GROUPS = PREFIX + ".tables";
@@ -102,6 +110,11 @@ public class MultiRFileOutputFormatter extends FileOutputFormat<BulkIngestKey,Va
     protected int maxRFileEntries = 0;
     protected boolean generateMapFileRowKeys = false;
     protected boolean generateMapFilePerShardLocation = false;
+    protected boolean localityGroupBuffering = false;
+    protected long localityGroupBufferSize = DEFAULT_LOCALITY_GROUP_BUFFER_SIZE;
+    protected File localityGroupSpillDir = null;
+    protected LocalityGroupBufferBudget localityGroupBudget = null;
+    protected TaskAttemptContext taskContext = null;
     private long startWriteTime = 0L;
     
     protected Map<String,Map<Text,String>> columnFamilyToLocalityGroup;
@@ -166,6 +179,30 @@ public class MultiRFileOutputFormatter extends FileOutputFormat<BulkIngestKey,Va
         conf.set(ZOOKEEPERS, conf.get(AccumuloHelper.ZOOKEEPERS));
     }
     
+    /**
+     * Enable buffering of the entries written to each file by locality group. Each locality group is then written contiguously and in sorted order when the
+     * file is rolled or closed, so the reducer no longer has to deliver the keys in order.
+     * 
+     * @param conf
+     * @param enabled
+     * @param bufferSize
+     *            the number of bytes buffered in memory by all of the open files of a task together before the largest buffers are spilled to local disk
+     */
+    public static void setLocalityGroupBuffering(Configuration conf, boolean enabled, long bufferSize) {
+        conf.setBoolean(LOCALITY_GROUP_BUFFERING, enabled);
+        conf.setLong(LOCALITY_GROUP_BUFFER_SIZE, bufferSize);
+    }
+    
+    /**
+     * Set the index block size for the generated RFiles, overriding the table's {@code table.file.compress.blocksize.index} setting
+     * 
+     * @param conf
+     * @param indexBlockSize
+     */
+    public static void setIndexBlockSize(Configuration conf, long indexBlockSize) {
+        conf.setLong(INDEX_BLOCK_SIZE, indexBlockSize);
+    }
+    
     public static void setRFileLimits(Configuration conf, int maxEntries, long maxSize) {
         conf.setInt(MAX_RFILE_UNDEDUPPED_ENTRIES, maxEntries);
         conf.setLong(MAX_RFILE_UNCOMPRESSED_SIZE, maxSize);
@@ -231,6 +268,10 @@ public class MultiRFileOutputFormatter extends FileOutputFormat<BulkIngestKey,Va
         
         // now create and register the writer
         SizeTrackingWriter writer = openWriter(filename.toString(), tableConf);
+        if (localityGroupBuffering) {
+            writer = new SizeTrackingWriter(new LocalityGroupBufferingWriter(writer, table, columnFamilyToLocalityGroup.get(table),
+                            localityGroupToColumnFamilies.get(table), localityGroupBudget, localityGroupSpillDir, taskContext));
+        }
         writer.startDefaultLocalityGroup();
         writers.put(key, writer);
         unusedWriterPaths.put(key, filename);
@@ -388,10 +429,14 @@ public class MultiRFileOutputFormatter extends FileOutputFormat<BulkIngestKey,Va
             tableIds = connector.tableOperations().tableIdMap();
             Set<String> compressionTableBlackList = getCompressionTableBlackList(conf);
             String compressionType = getCompressionType(conf);
+            long indexBlockSize = conf.getLong(INDEX_BLOCK_SIZE, 0);
             for (String tableName : tableIds.keySet()) {
                 ConfigurationCopy tableConfig = new ConfigurationCopy(connector.tableOperations().getProperties(tableName));
                 tableConfig.set(Property.TABLE_FILE_COMPRESSION_TYPE.getKey(), (compressionTableBlackList.contains(tableName) ? Compression.COMPRESSION_NONE
                                 : compressionType));
+                if (indexBlockSize > 0) {
+                    tableConfig.set(Property.TABLE_FILE_COMPRESSED_BLOCK_SIZE_INDEX.getKey(), Long.toString(indexBlockSize));
+                }
                 if (Iterables.contains(localityGroupTables, tableName)) {
                     Map<String,Set<Text>> localityGroups = connector.tableOperations().getLocalityGroups(tableName);
                     // pull the locality groups for this table.
@@ -435,14 +480,16 @@ public class MultiRFileOutputFormatter extends FileOutputFormat<BulkIngestKey,Va
         FileOutputCommitter committer = (FileOutputCommitter) getOutputCommitter(context);
         workDir = committer.getWorkPath();
         conf = context.getConfiguration();
+        taskContext = context;
+        
+        // these are populated by setTableIdsAndConfigs
+        columnFamilyToLocalityGroup = Maps.newHashMap();
+        localityGroupToColumnFamilies = Maps.newHashMap();
         
         setTableIdsAndConfigs();
         
         fs = workDir.getFileSystem(conf);
         
-        columnFamilyToLocalityGroup = Maps.newHashMap();
-        localityGroupToColumnFamilies = Maps.newHashMap();
-        
         extension = conf.get(FILE_TYPE);
         if (extension == null || extension.isEmpty())
             extension = RFile.EXTENSION;
@@ -473,6 +520,18 @@ public class MultiRFileOutputFormatter extends FileOutputFormat<BulkIngestKey,Va
         generateMapFileRowKeys = conf.getBoolean(GENERATE_MAP_FILE_ROW_KEYS, generateMapFileRowKeys);
         generateMapFilePerShardLocation = conf.getBoolean(GENERATE_MAP_FILE_PER_SHARD_LOCATION, generateMapFilePerShardLocation);
         
+        localityGroupBuffering = conf.getBoolean(LOCALITY_GROUP_BUFFERING, localityGroupBuffering);
+        localityGroupBufferSize = Math.max(1L, conf.getLong(LOCALITY_GROUP_BUFFER_SIZE, localityGroupBufferSize));
+        if (localityGroupBuffering && localityGroupBudget == null) {
+            // one budget for all of the writers of the task, and a spill directory of its own under the task's working directory
+            localityGroupBudget = new LocalityGroupBufferBudget(localityGroupBufferSize);
+            File spillBase = new File(conf.get(LOCALITY_GROUP_SPILL_DIR, System.getProperty("user.dir")));
+            localityGroupSpillDir = new File(spillBase, "lgbuffer-" + context.getTaskAttemptID());
+            if (!localityGroupSpillDir.isDirectory() && !localityGroupSpillDir.mkdirs()) {
+                throw new IOException("Unable to create locality group spill directory " + localityGroupSpillDir);
+            }
+        }
+        
         // Only do this once.
         if (null == writers) {
             writers = new HashMap<>();
@@ -507,7 +566,6 @@ public class MultiRFileOutputFormatter extends FileOutputFormat<BulkIngestKey,Va
         }
         
         return new RecordWriter<BulkIngestKey,Value>() {
-            private String currentLocalityGroup = null;
             
             @Override
             public void write(BulkIngestKey key, Value value) throws IOException {
@@ -522,23 +580,9 @@ public class MultiRFileOutputFormatter extends FileOutputFormat<BulkIngestKey,Va
                     log.trace("Appending " + key.getKey());
                 }
                 
-                final Text keyCf = key.getKey().getColumnFamily();
-                final Map<Text,String> cftlg = columnFamilyToLocalityGroup.get(tableName);
-                if (null != cftlg) {
-                    String localityGroup = cftlg.get(keyCf);
-                    boolean create = false;
-                    if (null == currentLocalityGroup) // defaultLocalityGroup
-                    {
-                        create = true;
-                    } else if (currentLocalityGroup.compareTo(localityGroup) <= 0) {
-                        create = true;
-                    }
-                    
-                    if (create) {
-                        writer.startNewLocalityGroup(localityGroup, localityGroupToColumnFamilies.get(tableName).get(localityGroup));
-                        currentLocalityGroup = localityGroup;
-                    }
-                }
+                // When locality group buffering is enabled, the writer routes each entry to its locality group from the column family.
+                // Otherwise everything is written to the default locality group: the RFile writer does not allow a locality group to be
+                // started after the default group, nor a group to be revisited, so we cannot switch groups as the column families change.
                 writer.append(key.getKey(), value);
                 
             }
@@ -546,8 +590,14 @@ public class MultiRFileOutputFormatter extends FileOutputFormat<BulkIngestKey,Va
             @Override
             public void close(TaskAttemptContext context) throws IOException, InterruptedException {
                 // Close all of the Map File Writers
-                for (SizeTrackingWriter writer : writers.values()) {
-                    writer.close();
+                try {
+                    for (SizeTrackingWriter writer : writers.values()) {
+                        writer.close();
+                    }
+                } finally {
+                    if (localityGroupSpillDir != null) {
+                        FileUtils.deleteQuietly(localityGroupSpillDir);
+                    }
                 }
                 // To verify the file was actually written successfully, we need to reopen it which will reread
                 // the index at the end and verify its integrity.
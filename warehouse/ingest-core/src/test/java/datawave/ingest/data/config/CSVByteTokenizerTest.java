@@ -0,0 +1,70 @@
+package datawave.ingest.data.config;
+
+import org.apache.commons.lang.text.StrMatcher;
+import org.apache.commons.lang.text.StrTokenizer;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+
+public class CSVByteTokenizerTest {
+    
+    private static final String[] CSV_LINES = {"", "a", "a,b,c", "a,,c", ",", ",,", "a,b,", " a , b ,c ", "\"a\",\"b,c\",d", "\"a \"\"quoted\"\" value\",b",
+            "\"unterminated,b", "x\"y\",z", "\"a\"b\"c\",d", "\" padded \" ,e", "été,中文,\"ü\"", "a,\t,b", "\"\",\"\"\"\""};
+    
+    private static final String[] TSV_LINES = {"a\tb\tc", "a\t\tc", " a \t\"b\tc\"\t", "\t"};
+    
+    @Test
+    public void testCsvMatchesStrTokenizer() {
+        CSVByteTokenizer tokenizer = new CSVByteTokenizer(",", true, true);
+        for (String line : CSV_LINES) {
+            assertTokens(line, StrTokenizer.getCSVInstance(), tokenizer);
+        }
+    }
+    
+    @Test
+    public void testTsvMatchesStrTokenizer() {
+        CSVByteTokenizer tokenizer = new CSVByteTokenizer("\t", true, true);
+        for (String line : TSV_LINES) {
+            assertTokens(line, StrTokenizer.getTSVInstance(), tokenizer);
+        }
+    }
+    
+    @Test
+    public void testDelimiterStringMatchesStrTokenizer() {
+        CSVByteTokenizer tokenizer = new CSVByteTokenizer("||", false, false);
+        for (String line : new String[] {"a||b||c", "a|b||c", "||", " a || \"b\" ||", "a|||b"}) {
+            StrTokenizer strTokenizer = new StrTokenizer();
+            strTokenizer.setDelimiterString("||");
+            assertTokens(line, strTokenizer, tokenizer);
+        }
+    }
+    
+    @Test
+    public void testUntrimmedCsvMatchesStrTokenizer() {
+        CSVByteTokenizer tokenizer = new CSVByteTokenizer(",", true, false);
+        for (String line : CSV_LINES) {
+            StrTokenizer strTokenizer = StrTokenizer.getCSVInstance();
+            strTokenizer.setTrimmerMatcher(StrMatcher.noneMatcher());
+            assertTokens(line, strTokenizer, tokenizer);
+        }
+    }
+    
+    @Test
+    public void testOffsetAndSkipLeadingWhitespace() {
+        byte[] buffer = "xxx  a,b, c yyy".getBytes(StandardCharsets.UTF_8);
+        CSVByteTokenizer tokenizer = new CSVByteTokenizer(",", true, false).setSkipLeadingWhitespace(true);
+        Assert.assertEquals(3, tokenizer.reset(buffer, 3, 9));
+        Assert.assertArrayEquals(new String[] {"a", "b", " c"}, tokenizer.getTokenArray());
+        Assert.assertFalse(tokenizer.isNull(2));
+        Assert.assertTrue(tokenizer.isNull(3));
+    }
+    
+    private void assertTokens(String line, StrTokenizer expected, CSVByteTokenizer actual) {
+        expected.setIgnoreEmptyTokens(false);
+        expected.setEmptyTokenAsNull(true);
+        expected.reset(line);
+        Assert.assertEquals(line, expected.size(), actual.reset(line.getBytes(StandardCharsets.UTF_8)));
+        Assert.assertArrayEquals(line, expected.getTokenArray(), actual.getTokenArray());
+    }
+}
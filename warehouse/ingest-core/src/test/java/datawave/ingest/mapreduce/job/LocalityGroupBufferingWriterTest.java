@@ -0,0 +1,186 @@
+package datawave.ingest.mapreduce.job;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.accumulo.core.data.ArrayByteSequence;
+import org.apache.accumulo.core.data.ByteSequence;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.file.FileSKVWriter;
+import org.apache.hadoop.io.Text;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class LocalityGroupBufferingWriterTest {
+    
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+    
+    private RecordingWriter delegate;
+    private Map<Text,String> cfToLg;
+    private Map<String,Set<ByteSequence>> lgToCf;
+    
+    @Before
+    public void setup() {
+        delegate = new RecordingWriter();
+        cfToLg = new HashMap<>();
+        cfToLg.put(new Text("tf"), "termfrequency");
+        cfToLg.put(new Text("d"), "content");
+        lgToCf = new HashMap<>();
+        lgToCf.put("termfrequency", Collections.singleton(new ArrayByteSequence("tf")));
+        lgToCf.put("content", Collections.singleton(new ArrayByteSequence("d")));
+    }
+    
+    @Test
+    public void testGroupsWrittenContiguously() throws IOException {
+        LocalityGroupBufferingWriter writer = new LocalityGroupBufferingWriter(delegate, "shard", cfToLg, lgToCf, 1024 * 1024, temporaryFolder.getRoot(), null);
+        writeEntries(writer);
+        writer.close();
+        assertOutput();
+        Assert.assertEquals(0, temporaryFolder.getRoot().listFiles().length);
+    }
+    
+    @Test
+    public void testSpilledRunsAreMerged() throws IOException {
+        // a tiny buffer forces a sorted run to be spilled on every append
+        LocalityGroupBufferingWriter writer = new LocalityGroupBufferingWriter(delegate, "shard", cfToLg, lgToCf, 1, temporaryFolder.getRoot(), null);
+        writeEntries(writer);
+        Assert.assertTrue(temporaryFolder.getRoot().listFiles().length > 0);
+        writer.close();
+        assertOutput();
+        Assert.assertEquals(0, temporaryFolder.getRoot().listFiles().length);
+    }
+    
+    @Test
+    public void testNoLocalityGroups() throws IOException {
+        LocalityGroupBufferingWriter writer = new LocalityGroupBufferingWriter(delegate, "shardIndex", null, null, 1024, temporaryFolder.getRoot(), null);
+        writeEntries(writer);
+        writer.close();
+        Assert.assertEquals(Collections.singletonList("default"), delegate.groups);
+        Assert.assertEquals(9, delegate.keys.size());
+        List<Key> sorted = new ArrayList<>(delegate.keys);
+        Collections.sort(sorted);
+        Assert.assertEquals(sorted, delegate.keys);
+    }
+    
+    @Test
+    public void testSharedBudgetSpillsLargestWriter() throws IOException {
+        LocalityGroupBufferBudget budget = new LocalityGroupBufferBudget(4096);
+        RecordingWriter largeDelegate = new RecordingWriter();
+        LocalityGroupBufferingWriter small = new LocalityGroupBufferingWriter(delegate, "shard", cfToLg, lgToCf, budget, temporaryFolder.getRoot(), null);
+        LocalityGroupBufferingWriter large = new LocalityGroupBufferingWriter(largeDelegate, "shardIndex", null, null, budget, temporaryFolder.getRoot(),
+                        null);
+        
+        writeEntries(small);
+        long smallBytes = small.getBufferedBytes();
+        Assert.assertTrue(smallBytes > 0);
+        
+        // fill the other writer, in reverse order, until the shared budget forces a spill
+        int entries = 0;
+        while (temporaryFolder.getRoot().listFiles().length == 0) {
+            large.append(new Key(String.format("row%05d", 10000 - entries), "cf", "cq"), new Value(new byte[100]));
+            entries++;
+            Assert.assertTrue(budget.getBufferedBytes() < budget.getSize());
+            Assert.assertEquals(smallBytes + large.getBufferedBytes(), budget.getBufferedBytes());
+        }
+        
+        // only the writer buffering the most was spilled
+        Assert.assertEquals(smallBytes, small.getBufferedBytes());
+        Assert.assertEquals(0, large.getBufferedBytes());
+        
+        // a second run for the large writer
+        for (int i = 0; i < entries; i++) {
+            large.append(new Key(String.format("row%05d", 20000 - i), "cf", "cq"), new Value(new byte[100]));
+        }
+        Assert.assertTrue(temporaryFolder.getRoot().listFiles().length >= 2);
+        
+        large.close();
+        Assert.assertEquals(smallBytes, budget.getBufferedBytes());
+        Assert.assertEquals(0, temporaryFolder.getRoot().listFiles().length);
+        Assert.assertEquals(2 * entries, largeDelegate.keys.size());
+        List<Key> sorted = new ArrayList<>(largeDelegate.keys);
+        Collections.sort(sorted);
+        Assert.assertEquals(sorted, largeDelegate.keys);
+        
+        small.close();
+        Assert.assertEquals(0, budget.getBufferedBytes());
+        assertOutput();
+    }
+    
+    private void writeEntries(FileSKVWriter writer) throws IOException {
+        // written out of order and interleaving the locality groups
+        for (String row : new String[] {"20100101_3", "20100101_1", "20100101_2"}) {
+            writer.append(new Key(row, "tf", "datatype\0uid\0value\0FIELD"), new Value(new byte[] {1}));
+            writer.append(new Key(row, "datatype\0uid", "FIELD\0value"), new Value(new byte[0]));
+            writer.append(new Key(row, "d", "datatype\0uid\0view"), new Value("content".getBytes()));
+        }
+    }
+    
+    private void assertOutput() {
+        Assert.assertEquals(3, delegate.groups.size());
+        Assert.assertEquals("content", delegate.groups.get(0));
+        Assert.assertEquals("termfrequency", delegate.groups.get(1));
+        Assert.assertEquals("default", delegate.groups.get(2));
+        Assert.assertEquals(9, delegate.keys.size());
+        
+        String[] expectedCfs = {"d", "d", "d", "tf", "tf", "tf", "datatype\0uid", "datatype\0uid", "datatype\0uid"};
+        for (int i = 0; i < expectedCfs.length; i++) {
+            Key key = delegate.keys.get(i);
+            Assert.assertEquals(expectedCfs[i], key.getColumnFamily().toString());
+            Assert.assertEquals("20100101_" + (i % 3 + 1), key.getRow().toString());
+        }
+        Assert.assertEquals("content", new String(delegate.values.get(0).get()));
+    }
+    
+    private static class RecordingWriter implements FileSKVWriter {
+        private final List<String> groups = new ArrayList<>();
+        private final List<Key> keys = new ArrayList<>();
+        private final List<Value> values = new ArrayList<>();
+        
+        @Override
+        public boolean supportsLocalityGroups() {
+            return true;
+        }
+        
+        @Override
+        public void startNewLocalityGroup(String name, Set<ByteSequence> columnFamilies) throws IOException {
+            Assert.assertNotNull(columnFamilies);
+            groups.add(name);
+        }
+        
+        @Override
+        public void startDefaultLocalityGroup() throws IOException {
+            groups.add("default");
+        }
+        
+        @Override
+        public void append(Key key, Value value) throws IOException {
+            keys.add(key);
+            values.add(value);
+        }
+        
+        @Override
+        public DataOutputStream createMetaStore(String name) throws IOException {
+            return null;
+        }
+        
+        @Override
+        public void close() throws IOException {}
+        
+        @Override
+        public long getLength() throws IOException {
+            return 0;
+        }
+    }
+}
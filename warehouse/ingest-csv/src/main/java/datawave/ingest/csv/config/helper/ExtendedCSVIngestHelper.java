@@ -4,6 +4,7 @@ import com.google.common.collect.HashMultimap;
 import com.google.common.collect.Multimap;
 import datawave.data.type.Type;
 import datawave.ingest.data.RawRecordContainer;
+import datawave.ingest.data.config.CSVByteTokenizer;
 import datawave.ingest.data.config.CSVHelper;
 import datawave.ingest.data.config.NormalizedContentInterface;
 import datawave.ingest.data.config.NormalizedFieldAndValue;
@@ -138,6 +139,19 @@ public class ExtendedCSVIngestHelper extends CSVIngestHelper {
         return tokenizer.setTrimmerMatcher(StrMatcher.noneMatcher());
     }
     
+    @Override
+    protected boolean supportsByteTokenizer() {
+        // configureByteTokenizer below makes the changes of configureTokenizer and preProcessRawData, but those of a subclass are not known
+        return getClass() == ExtendedCSVIngestHelper.class;
+    }
+    
+    @Override
+    protected CSVByteTokenizer configureByteTokenizer(CSVByteTokenizer tokenizer) {
+        // Same as the StrTokenizer configuration above: skip the leading whitespace
+        // of the record, but keep any trailing whitespace on the tokens
+        return tokenizer.setTrim(false).setSkipLeadingWhitespace(true);
+    }
+    
     @Override
     protected String preProcessRawData(byte[] data) {
         String buf = new String(data);
@@ -1,6 +1,7 @@
 package datawave.ingest.csv.mr.input;
 
 import datawave.ingest.data.RawRecordContainer;
+import datawave.ingest.data.config.CSVByteTokenizer;
 import datawave.ingest.data.config.CSVHelper;
 import datawave.data.hash.UID;
 import datawave.ingest.input.reader.EventRecordReader;
@@ -19,6 +20,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.util.Arrays;
 
 /**
  * RecordReader that reads events from "Comma"-Separated-Value formats. Here the "Comma" can be any separator.
@@ -45,6 +47,9 @@ public class CSVReaderBase extends LongLineEventRecordReader implements EventRec
     /** Splits raw input records Strings according to the configured separator. */
     private StrTokenizer _tokenizer;
     
+    /** Splits raw input record bytes in place when the byte tokenizer is enabled; null otherwise. */
+    private CSVByteTokenizer byteTokenizer;
+    
     /** Super class returns the position in bytes in the file as the key. This returns the record number. */
     @Override
     public LongWritable getCurrentKey() {
@@ -100,6 +105,7 @@ public class CSVReaderBase extends LongLineEventRecordReader implements EventRec
     
     public void initializeTokenizer() {
         _tokenizer = createTokenizer();
+        byteTokenizer = csvHelper.useByteTokenizer() ? CSVByteTokenizer.create(csvHelper) : null;
     }
     
     /** Creates a CVSHelper for the RecordReader. */
@@ -119,10 +125,21 @@ public class CSVReaderBase extends LongLineEventRecordReader implements EventRec
         
         processedSize += value.getLength();
         
-        final String rawEventRecordStr = value.toString();
-        _tokenizer.reset(rawEventRecordStr);
-        
-        final String[] rawEventFields = _tokenizer.getTokenArray();
+        final int rawEventFieldCount;
+        final String[] rawEventFields;
+        final byte[] rawEventRecord;
+        if (byteTokenizer != null) {
+            // tokenize the line buffer in place; fields are only decoded as they are processed
+            rawEventFieldCount = byteTokenizer.reset(value.getBytes(), 0, value.getLength());
+            rawEventFields = null;
+            rawEventRecord = Arrays.copyOf(value.getBytes(), value.getLength());
+        } else {
+            final String rawEventRecordStr = value.toString();
+            rawEventRecord = rawEventRecordStr.getBytes();
+            _tokenizer.reset(rawEventRecordStr);
+            rawEventFields = _tokenizer.getTokenArray();
+            rawEventFieldCount = rawEventFields.length;
+        }
         final String[] header = csvHelper.getHeader();
         
         // If the event date field name is not specified in the configuration, then set the event date to the file modification time.
@@ -130,12 +147,16 @@ public class CSVReaderBase extends LongLineEventRecordReader implements EventRec
             event.setDate(fileModificationTime);
         
         // We still try to process the event record.
-        final int fields = Math.min(rawEventFields.length, header.length);
+        final int fields = Math.min(rawEventFieldCount, header.length);
         String field, fieldName;
         int i;
         
         for (i = 0; i < fields; i++) {
-            field = StringEscapeUtils.unescapeCsv(rawEventFields[i]);
+            if (rawEventFields == null && byteTokenizer.isNull(i)) {
+                // an empty field is always cleaned to null, so skip decoding it
+                continue;
+            }
+            field = StringEscapeUtils.unescapeCsv(getRawEventField(rawEventFields, i));
             fieldName = header[i];
             
             field = csvHelper.clean(fieldName, field);
@@ -144,9 +165,9 @@ public class CSVReaderBase extends LongLineEventRecordReader implements EventRec
         }
         
         // Check to see if we have data beyond the header specification that should be processed. This is the case for the CSV logs
-        if (csvHelper.processExtraFields() && rawEventFields.length > header.length) {
-            while (i < rawEventFields.length) {
-                processExtraField(rawEventFields[i]);
+        if (csvHelper.processExtraFields() && rawEventFieldCount > header.length) {
+            while (i < rawEventFieldCount) {
+                processExtraField(getRawEventField(rawEventFields, i));
                 i++;
             }
         }
@@ -154,7 +175,7 @@ public class CSVReaderBase extends LongLineEventRecordReader implements EventRec
         // decorate with additional data (used by overriding classes)
         decorateEvent();
         
-        event.setRawData(rawEventRecordStr.getBytes());
+        event.setRawData(rawEventRecord);
         
         // Check to see if we need to override the UID. The use case for this is that some of the hashes are "enrichment" and the same
         // values will be loaded over and over again. By default, the UID is calculated on the raw byte[]
@@ -167,17 +188,22 @@ public class CSVReaderBase extends LongLineEventRecordReader implements EventRec
         
         enforcePolicy(event);
         
-        if (header.length > rawEventFields.length) {
+        if (header.length > rawEventFieldCount) {
             event.addError(RawDataErrorNames.NOT_ENOUGH_FIELDS);
-            log.error("More fields in header than in data. Header fields: {}, data fields: {}", header.length, rawEventFields.length);
-        } else if ((!csvHelper.processExtraFields()) && (header.length < rawEventFields.length)) {
+            log.error("More fields in header than in data. Header fields: {}, data fields: {}", header.length, rawEventFieldCount);
+        } else if ((!csvHelper.processExtraFields()) && (header.length < rawEventFieldCount)) {
             event.addError(RawDataErrorNames.TOO_MANY_FIELDS);
-            log.error("More fields in data than in header. Header fields: {}, data fields: {}", header.length, rawEventFields.length);
+            log.error("More fields in data than in header. Header fields: {}, data fields: {}", header.length, rawEventFieldCount);
         }
         
         return event;
     }
     
+    /** Gets a raw field from the tokenized String array, or decodes it from the byte tokenizer when the array is null. */
+    private String getRawEventField(final String[] rawEventFields, final int index) {
+        return rawEventFields == null ? byteTokenizer.getString(index) : rawEventFields[index];
+    }
+    
     /** Decorate the event with additional info post field processing but prior to event validation */
     protected void decorateEvent() { /* default is noop */}
     
@@ -249,7 +275,7 @@ public class CSVReaderBase extends LongLineEventRecordReader implements EventRec
     protected void processPreSplitField(String fieldName, final String fieldValue) {
         if (csvHelper.isMultiValuedField(fieldName)) {
             // Value can be multiple parts, need to break on semi-colon
-            final String[] values = fieldValue.split(csvHelper.getEscapeSafeMultiValueSeparatorPattern());
+            final String[] values = csvHelper.splitMultiValuedField(fieldValue);
             
             // Can be renamed if specified in multivalued fields, but not if using blacklist
             if (!csvHelper.usingMultiValuedFieldsBlacklist()) {
@@ -279,6 +305,10 @@ public class CSVReaderBase extends LongLineEventRecordReader implements EventRec
         return Math.min(1f, (float) processedSize / (float) totalSize);
     }
     
+    public CSVByteTokenizer getByteTokenizer() {
+        return byteTokenizer;
+    }
+    
     public StrTokenizer getTokenizer() {
         return _tokenizer;
     }
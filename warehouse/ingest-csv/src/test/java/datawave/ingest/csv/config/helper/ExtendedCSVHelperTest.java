@@ -1,5 +1,6 @@
 package datawave.ingest.csv.config.helper;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
@@ -43,4 +44,22 @@ public class ExtendedCSVHelperTest {
         assertFalse(helper.getParsers().isEmpty());
         assertEquals(1, helper.getParsers().size());
     }
+    
+    @Test
+    public void testSplitMultiValuedField() throws Exception {
+        Configuration conf = new Configuration();
+        conf.addResource(this.getClass().getClassLoader().getResource("config/ingest/all-config.xml"));
+        conf.addResource(this.getClass().getClassLoader().getResource("config/ingest/csv-ingest-config.xml"));
+        
+        TypeRegistry.reset();
+        TypeRegistry.getInstance(conf);
+        
+        ExtendedCSVHelper helper = new ExtendedCSVHelper();
+        helper.setup(conf);
+        
+        String[] values = {"a;b;c", "a\\;b;c", ";a;;b;", "no separator", "", ";;", "trailing\\;"};
+        for (String value : values) {
+            assertArrayEquals(value, value.split(helper.getEscapeSafeMultiValueSeparatorPattern()), helper.splitMultiValuedField(value));
+        }
+    }
 }
@@ -0,0 +1,151 @@
+package datawave.ingest.csv.mr.input;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.TimeZone;
+import java.util.TreeSet;
+
+import datawave.ingest.csv.config.helper.ExtendedCSVIngestHelper;
+import datawave.ingest.csv.mr.handler.ColumnBasedHandlerTestUtil;
+import datawave.ingest.data.RawRecordContainer;
+import datawave.ingest.data.TypeRegistry;
+import datawave.ingest.data.config.CSVHelper;
+import datawave.ingest.data.config.NormalizedContentInterface;
+import datawave.ingest.mapreduce.handler.shard.ShardedDataTypeHandler;
+
+import org.apache.commons.lang.text.StrTokenizer;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.TaskAttemptID;
+import org.apache.hadoop.mapreduce.task.TaskAttemptContextImpl;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Reads the same file with and without the byte tokenizer, and checks the reader and ingest helper produce the same events and fields either way.
+ */
+public class CSVByteTokenizerReaderTest {
+    
+    private static final String BYTE_TOKENIZER_ENABLED = "mycsv" + CSVHelper.BYTE_TOKENIZER_ENABLED;
+    
+    private Configuration conf;
+    
+    @BeforeClass
+    public static void setupSystemSettings() {
+        TimeZone.setDefault(TimeZone.getTimeZone("GMT"));
+    }
+    
+    @Before
+    public void setup() {
+        TypeRegistry.reset();
+        conf = new Configuration();
+        conf.setInt(ShardedDataTypeHandler.NUM_SHARDS, 131);
+        conf.set(ShardedDataTypeHandler.SHARD_TNAME, "shard");
+        conf.set(ShardedDataTypeHandler.SHARD_GIDX_TNAME, "shardIndex");
+        conf.set(ShardedDataTypeHandler.SHARD_GRIDX_TNAME, "shardReverseIndex");
+        conf.addResource(ClassLoader.getSystemResource("config/ingest/all-config.xml"));
+        conf.addResource(ClassLoader.getSystemResource("config/ingest/csv-ingest-config.xml"));
+        conf.addResource(ClassLoader.getSystemResource("config/ingest/metadata-config.xml"));
+    }
+    
+    private List<String> readEvents(boolean byteTokenizer, ExtendedCSVIngestHelper ingestHelper) throws Exception {
+        Configuration readerConf = new Configuration(conf);
+        readerConf.setBoolean(BYTE_TOKENIZER_ENABLED, byteTokenizer);
+        TaskAttemptContext ctx = new TaskAttemptContextImpl(readerConf, new TaskAttemptID());
+        TypeRegistry.reset();
+        TypeRegistry.getInstance(readerConf);
+        ingestHelper.setup(readerConf);
+        
+        CSVRecordReader reader = new CSVRecordReader();
+        reader.initialize(ColumnBasedHandlerTestUtil.getSplit("/input/my.csv"), ctx);
+        Assert.assertEquals(byteTokenizer, reader.getByteTokenizer() != null);
+        
+        List<String> events = new ArrayList<>();
+        try {
+            while (reader.nextKeyValue()) {
+                RawRecordContainer event = reader.getEvent();
+                StringBuilder builder = new StringBuilder();
+                builder.append(new String(event.getRawData())).append('\n');
+                builder.append(event.getId()).append(' ').append(event.getDate()).append(' ').append(event.getVisibility()).append('\n');
+                builder.append(event.getSecurityMarkings()).append(' ').append(new TreeSet<>(event.getErrors())).append('\n');
+                builder.append(new TreeSet<>(event.getAltIds())).append('\n');
+                builder.append(getFields(ingestHelper, event));
+                events.add(builder.toString());
+            }
+        } finally {
+            reader.close();
+        }
+        return events;
+    }
+    
+    private TreeSet<String> getFields(ExtendedCSVIngestHelper ingestHelper, RawRecordContainer event) {
+        TreeSet<String> fields = new TreeSet<>();
+        for (Entry<String,NormalizedContentInterface> field : ingestHelper.getEventFields(event).entries()) {
+            fields.add("field " + field.getKey() + '=' + field.getValue().getEventFieldValue() + '/' + field.getValue().getIndexedFieldValue());
+        }
+        return fields;
+    }
+    
+    @Test
+    public void testByteAndStringTokenizersMatch() throws Exception {
+        List<String> expected = readEvents(false, new ExtendedCSVIngestHelper());
+        List<String> actual = readEvents(true, new ExtendedCSVIngestHelper());
+        
+        Assert.assertFalse(expected.isEmpty());
+        Assert.assertEquals(expected, actual);
+    }
+    
+    @Test
+    public void testPreProcessRawDataOverrideDisablesByteTokenizer() throws Exception {
+        // a helper which rewrites the raw data, but does not tell the byte tokenizer how
+        List<String> events = readEvents(true, new ExtendedCSVIngestHelper() {
+            @Override
+            protected String preProcessRawData(byte[] data) {
+                return super.preProcessRawData(data).replace("MYFOO", "REWRITTEN");
+            }
+        });
+        
+        Assert.assertFalse(events.isEmpty());
+        for (String event : events) {
+            // the values may have been normalized to lower case
+            Assert.assertFalse(event, event.toUpperCase().contains("FIELD FOO_FIELD=MYFOO"));
+        }
+        Assert.assertTrue(events.get(0), events.get(0).toUpperCase().contains("FIELD FOO_FIELD=REWRITTEN"));
+    }
+    
+    /**
+     * A helper which stops the StrTokenizer splitting records, as their fields are never separated by a pipe
+     */
+    private static class UnsplitIngestHelper extends ExtendedCSVIngestHelper {
+        @Override
+        protected StrTokenizer configureTokenizer(StrTokenizer tokenizer) {
+            return super.configureTokenizer(tokenizer).setDelimiterChar('|');
+        }
+    }
+    
+    @Test
+    public void testConfigureTokenizerOverrideDisablesByteTokenizer() throws Exception {
+        List<String> unsplit = readEvents(false, new UnsplitIngestHelper());
+        Assert.assertNotEquals(readEvents(false, new ExtendedCSVIngestHelper()), unsplit);
+        
+        // the subclass did not opt in, so its tokenizer is still used when the byte tokenizer is enabled
+        Assert.assertEquals(unsplit, readEvents(true, new UnsplitIngestHelper()));
+    }
+    
+    @Test
+    public void testSubclassOptsIntoByteTokenizer() throws Exception {
+        List<String> expected = readEvents(false, new ExtendedCSVIngestHelper());
+        
+        // a subclass which claims its byte tokenizer configuration matches is taken at its word, so its StrTokenizer changes are not applied
+        List<String> actual = readEvents(true, new UnsplitIngestHelper() {
+            @Override
+            protected boolean supportsByteTokenizer() {
+                return true;
+            }
+        });
+        Assert.assertEquals(expected, actual);
+    }
+}
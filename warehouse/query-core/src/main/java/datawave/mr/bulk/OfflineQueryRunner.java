@@ -0,0 +1,198 @@
+package datawave.mr.bulk;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import datawave.ingest.data.config.ingest.AccumuloHelper;
+import datawave.query.config.ShardQueryConfiguration;
+import datawave.webservice.query.configuration.QueryData;
+
+import org.apache.accumulo.core.client.BatchScanner;
+import org.apache.accumulo.core.client.Connector;
+import org.apache.accumulo.core.client.IteratorSetting;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.security.Authorizations;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.SequenceFile;
+import org.apache.hadoop.io.SequenceFile.CompressionType;
+import org.apache.log4j.Logger;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Runs a planned query directly against the RFiles of the shard table instead of through the tablet servers, so that large exports do not take scan threads
+ * away from interactive queries.
+ * <p>
+ * Each {@link QueryData} of the plan is read through an {@link RfileScanner}, which resolves the files of the tablets its ranges cover and runs the
+ * iterators of the plan, including the query iterator, over them. The query data are shared out among a pool of threads, each of which writes the keys and
+ * values it returns to its own block compressed sequence file in the output directory.
+ * <p>
+ * The query runs on the threads of the calling JVM only: it is not distributed over map tasks, so the host running it must be able to read the files of the
+ * table and write the output directory through the given configuration, and its throughput is bounded by that host.
+ */
+public class OfflineQueryRunner {
+    
+    private static final Logger log = Logger.getLogger(OfflineQueryRunner.class);
+    
+    private final Connector connector;
+    private final byte[] password;
+    private final Configuration conf;
+    private final int numThreads;
+    
+    /**
+     * @param connector
+     *            a connector to the instance, used to read the metadata and configuration of the table
+     * @param password
+     *            the password of the connector's user, which the file readers need
+     * @param conf
+     *            the configuration of the file system holding the tables and the output
+     * @param numThreads
+     *            the number of query data read at once
+     */
+    public OfflineQueryRunner(Connector connector, byte[] password, Configuration conf, int numThreads) {
+        this.connector = connector;
+        this.password = password;
+        this.numThreads = Math.max(1, numThreads);
+        this.conf = new Configuration(conf);
+        
+        String instanceName = connector.getInstance().getInstanceName();
+        String zookeepers = connector.getInstance().getZooKeepers();
+        AccumuloHelper.setInstanceName(this.conf, instanceName);
+        AccumuloHelper.setUsername(this.conf, connector.whoami());
+        AccumuloHelper.setPassword(this.conf, password);
+        AccumuloHelper.setZooKeepers(this.conf, zookeepers);
+        BulkInputFormat.setZooKeeperInstance(this.conf, instanceName, zookeepers);
+        this.conf.set(MultiRfileInputformat.CACHE_METADATA, "true");
+    }
+    
+    /**
+     * Runs a planned query.
+     *
+     * @param config
+     *            the configuration of the query, as initialized by the query logic
+     * @param outputDir
+     *            the directory to write the sequence files to, which must not exist
+     * @return the number of results written
+     * @throws IOException
+     *             if the output could not be written, or the files could not be read
+     * @throws InterruptedException
+     *             if interrupted while waiting for the query to complete
+     */
+    public long run(ShardQueryConfiguration config, Path outputDir) throws IOException, InterruptedException {
+        return run(config.getShardTableName(), config.getAuthorizations(), config.getQueries(), outputDir);
+    }
+    
+    /**
+     * Runs a planned query.
+     *
+     * @param tableName
+     *            the table the query reads
+     * @param auths
+     *            the authorizations of the query
+     * @param queries
+     *            the ranges and iterators of the query
+     * @param outputDir
+     *            the directory to write the sequence files to, which must not exist
+     * @return the number of results written
+     * @throws IOException
+     *             if the output could not be written, or the files could not be read
+     * @throws InterruptedException
+     *             if interrupted while waiting for the query to complete
+     */
+    public long run(String tableName, Set<Authorizations> auths, Iterator<QueryData> queries, Path outputDir) throws IOException, InterruptedException {
+        FileSystem fs = outputDir.getFileSystem(conf);
+        if (fs.exists(outputDir)) {
+            throw new IOException("Output directory " + outputDir + " already exists");
+        }
+        fs.mkdirs(outputDir);
+        
+        Configuration tableConf = new Configuration(conf);
+        BulkInputFormat.setMemoryInput(tableConf, connector.whoami(), password, tableName, auths.iterator().next());
+        
+        long start = System.currentTimeMillis();
+        ExecutorService executor = Executors.newFixedThreadPool(numThreads, new ThreadFactoryBuilder().setNameFormat("OfflineQueryRunner-%d").setDaemon(true)
+                        .build());
+        try {
+            List<Future<Long>> futures = new ArrayList<>(numThreads);
+            for (int i = 0; i < numThreads; i++) {
+                Path file = new Path(outputDir, String.format("part-%05d", i));
+                futures.add(executor.submit(() -> runQueries(file, tableConf, tableName, auths, queries)));
+            }
+            
+            long results = 0;
+            for (Future<Long> future : futures) {
+                try {
+                    results += future.get();
+                } catch (ExecutionException e) {
+                    throw new IOException("Offline query against " + tableName + " failed", e.getCause());
+                }
+            }
+            log.info("Wrote " + results + " results of offline query against " + tableName + " to " + outputDir + " in "
+                            + (System.currentTimeMillis() - start) + "ms");
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+    
+    private long runQueries(Path file, Configuration tableConf, String tableName, Set<Authorizations> auths, Iterator<QueryData> queries)
+                    throws IOException {
+        long results = 0;
+        SequenceFile.Writer writer = null;
+        try {
+            QueryData queryData;
+            while (!Thread.currentThread().isInterrupted() && (queryData = next(queries)) != null) {
+                BatchScanner scanner = createScanner(tableConf, tableName, auths);
+                try {
+                    scanner.setRanges(queryData.getRanges());
+                    for (IteratorSetting setting : queryData.getSettings()) {
+                        scanner.addScanIterator(setting);
+                    }
+                    for (Entry<Key,Value> entry : scanner) {
+                        if (writer == null) {
+                            writer = SequenceFile.createWriter(tableConf, SequenceFile.Writer.file(file), SequenceFile.Writer.keyClass(Key.class),
+                                            SequenceFile.Writer.valueClass(Value.class), SequenceFile.Writer.compression(CompressionType.BLOCK));
+                        }
+                        writer.append(entry.getKey(), entry.getValue());
+                        results++;
+                    }
+                } finally {
+                    scanner.close();
+                }
+                if (log.isDebugEnabled()) {
+                    log.debug("Completed offline query of " + queryData.getRanges().size() + " ranges, " + results + " results written to " + file);
+                }
+            }
+        } finally {
+            if (writer != null) {
+                writer.close();
+            }
+        }
+        return results;
+    }
+    
+    /**
+     * @return a scanner which reads the files of the table directly
+     */
+    protected BatchScanner createScanner(Configuration tableConf, String tableName, Set<Authorizations> auths) {
+        return new RfileScanner(connector, tableConf, tableName, auths, 1);
+    }
+    
+    private static QueryData next(Iterator<QueryData> queries) {
+        // the plan may be computed lazily, so only one thread at a time may advance it
+        synchronized (queries) {
+            return queries.hasNext() ? queries.next() : null;
+        }
+    }
+}
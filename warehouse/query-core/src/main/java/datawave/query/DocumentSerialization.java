@@ -4,12 +4,28 @@ import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.text.MessageFormat;
+import java.util.zip.DataFormatException;
 import java.util.zip.Deflater;
 import java.util.zip.DeflaterOutputStream;
 import java.util.zip.Inflater;
 import java.util.zip.InflaterInputStream;
 
+import datawave.data.type.DateType;
+import datawave.data.type.GeometryType;
+import datawave.data.type.IpAddressType;
+import datawave.data.type.LcNoDiacriticsType;
+import datawave.data.type.LcType;
+import datawave.data.type.NoOpType;
+import datawave.data.type.NumberType;
+import datawave.query.attributes.Attributes;
+import datawave.query.attributes.Content;
+import datawave.query.attributes.DateContent;
+import datawave.query.attributes.DocumentKey;
+import datawave.query.attributes.Numeric;
+import datawave.query.attributes.PreNormalizedAttribute;
+import datawave.query.attributes.TypeAttribute;
 import datawave.query.function.deserializer.DocumentDeserializer;
 import datawave.query.function.serializer.KryoDocumentSerializer;
 import datawave.query.exceptions.InvalidDocumentHeader;
@@ -25,6 +41,8 @@ import datawave.webservice.query.exception.DatawaveErrorCode;
 import datawave.webservice.query.exception.NotFoundQueryException;
 import datawave.webservice.query.exception.QueryException;
 
+import com.esotericsoftware.kryo.io.Output;
+
 /**
  *
  */
@@ -40,9 +58,21 @@ public class DocumentSerialization {
     
     public static final byte NONE = 0;
     public static final byte GZIP = 1;
+    public static final byte DICTIONARY = 2;
     
     public static final int ZLIB_NUMBER = 2;
     
+    /**
+     * Strings which a Kryo serialized document repeats for nearly every attribute, most frequent last so that they are the closest matches. Small documents
+     * share little with themselves, but a great deal with each other; deflating them against these lets them compress regardless.
+     */
+    private static final String[] DICTIONARY_STRINGS = {"HIT_TERM", "RECORD_ID", GeometryType.class.getName(), IpAddressType.class.getName(),
+            DateType.class.getName(), NumberType.class.getName(), NoOpType.class.getName(), LcType.class.getName(), LcNoDiacriticsType.class.getName(),
+            DocumentKey.class.getName(), DateContent.class.getName(), Numeric.class.getName(), PreNormalizedAttribute.class.getName(),
+            Content.class.getName(), Attributes.class.getName(), TypeAttribute.class.getName()};
+    
+    private static final byte[] PRESET_DICTIONARY = createPresetDictionary();
+    
     /**
      * If a user-supplied ReturnType is specified, use it; otherwise, use the default ReturnType of {@link #DEFAULT_RETURN_TYPE}
      *
@@ -115,6 +145,25 @@ public class DocumentSerialization {
                 QueryException qe = new QueryException(DatawaveErrorCode.GZIP_STREAM_WRITE_ERROR, e);
                 throw new InvalidDocumentHeader(qe);
             }
+        } else if (DICTIONARY == compression) {
+            // the raw length leads the body so that the reader can inflate it in one pass into an array of the right size
+            Deflater deflater = new Deflater(Deflater.BEST_SPEED, true);
+            try {
+                deflater.setDictionary(PRESET_DICTIONARY);
+                deflater.setInput(data);
+                deflater.finish();
+                
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream(data.length / 2 + 16);
+                bytes.write(ByteBuffer.allocate(4).putInt(data.length).array(), 0, 4);
+                byte[] buffer = new byte[1024];
+                while (!deflater.finished()) {
+                    int len = deflater.deflate(buffer);
+                    bytes.write(buffer, 0, len);
+                }
+                return bytes.toByteArray();
+            } finally {
+                deflater.end();
+            }
         } else {
             BadRequestQueryException qe = new BadRequestQueryException(DatawaveErrorCode.UNKNOWN_COMPRESSION_SCHEME, MessageFormat.format("{0}", compression));
             throw new InvalidDocumentHeader(qe);
@@ -143,12 +192,58 @@ public class DocumentSerialization {
         } else if (GZIP == compression) {
             ByteArrayInputStream bytes = new ByteArrayInputStream(data, 3, data.length - 3);
             return new InflaterInputStream(bytes, new Inflater(), 1024);
+        } else if (DICTIONARY == compression) {
+            return new ByteArrayInputStream(readDictionaryBody(data, 3));
         } else {
             BadRequestQueryException qe = new BadRequestQueryException(DatawaveErrorCode.UNKNOWN_COMPRESSION_SCHEME, MessageFormat.format("{0}", compression));
             throw new InvalidDocumentHeader(qe);
         }
     }
     
+    private static byte[] readDictionaryBody(byte[] data, int offset) throws InvalidDocumentHeader {
+        if (data.length < offset + 4) {
+            QueryException qe = new QueryException(DatawaveErrorCode.DATA_INVALID_ERROR, MessageFormat.format("Length: {0}", data.length));
+            throw new InvalidDocumentHeader(qe);
+        }
+        
+        byte[] document = new byte[ByteBuffer.wrap(data, offset, 4).getInt()];
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setDictionary(PRESET_DICTIONARY);
+            inflater.setInput(data, offset + 4, data.length - offset - 4);
+            int read = 0;
+            while (read < document.length) {
+                int len = inflater.inflate(document, read, document.length - read);
+                if (len == 0 && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                read += len;
+            }
+            if (read != document.length) {
+                QueryException qe = new QueryException(DatawaveErrorCode.BUFFER_READ_ERROR, MessageFormat.format("Inflated {0} of {1} bytes", read,
+                                document.length));
+                throw new InvalidDocumentHeader(qe);
+            }
+            return document;
+        } catch (DataFormatException e) {
+            QueryException qe = new QueryException(DatawaveErrorCode.BUFFER_READ_ERROR, e);
+            throw new InvalidDocumentHeader(qe);
+        } finally {
+            inflater.end();
+        }
+    }
+    
+    /*
+     * Kryo writes the strings of a document with its own encoding, so the dictionary is written the same way
+     */
+    private static byte[] createPresetDictionary() {
+        Output output = new Output(1024, -1);
+        for (String string : DICTIONARY_STRINGS) {
+            output.writeString(string);
+        }
+        return output.toBytes();
+    }
+    
     /*
      * Reads unsigned short in Intel byte order.
      */
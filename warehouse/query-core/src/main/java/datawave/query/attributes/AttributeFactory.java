@@ -1,6 +1,8 @@
 package datawave.query.attributes;
 
+import java.lang.reflect.Constructor;
 import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
@@ -17,6 +19,7 @@ import datawave.data.type.NoOpType;
 import datawave.data.type.Type;
 import datawave.query.util.TypeMetadata;
 
+import org.apache.accumulo.core.data.ByteSequence;
 import org.apache.accumulo.core.data.Key;
 import org.apache.hadoop.io.Text;
 import org.apache.log4j.Logger;
@@ -39,8 +42,19 @@ public class AttributeFactory {
                         }
                     });
     
+    // the no-arg constructors of the types, looked up once and shared by every query rather than resolved reflectively for each value
+    protected static LoadingCache<Class<?>,Constructor<?>> typeConstructorCache = CacheBuilder.newBuilder().maximumSize(128)
+                    .expireAfterAccess(1, TimeUnit.HOURS).build(new CacheLoader<Class<?>,Constructor<?>>() {
+                        @Override
+                        public Constructor<?> load(Class<?> clazz) throws Exception {
+                            return clazz.getConstructor();
+                        }
+                    });
+    
     private final TypeMetadata typeMetadata;
     
+    private boolean lazy = false;
+    
     private String defaultType = NoOpType.class.getName();
     private Class<?> mostGeneralType = LcNoDiacriticsType.class;
     private static final List<Class<?>> mostGeneralTypes = Collections
@@ -55,6 +69,21 @@ public class AttributeFactory {
         this.defaultType = defaultType;
     }
     
+    /**
+     * Sets whether attributes created from raw values are lazy, holding on to the value and only parsing it when read. See
+     * {@link TypeAttribute#TypeAttribute(Class, String, ByteSequence, Key, boolean)}.
+     *
+     * @param lazy
+     *            whether to create lazy attributes
+     */
+    public void setLazy(boolean lazy) {
+        this.lazy = lazy;
+    }
+    
+    public boolean isLazy() {
+        return lazy;
+    }
+    
     private String extractIngestDataTypeFromKey(Key key) {
         Text cf = new Text();
         key.getColumnFamily(cf);
@@ -84,18 +113,47 @@ public class AttributeFactory {
     }
     
     public Attribute<?> create(String fieldName, String data, Key key, String ingestType, boolean toKeep, boolean isComposite) {
+        return create(fieldName, data, null, key, ingestType, toKeep, isComposite);
+    }
+    
+    /**
+     * Creates the attribute for a raw value, which when this factory is lazy will only be parsed once the attribute is read.
+     *
+     * @param fieldName
+     *            the name of the field
+     * @param data
+     *            the raw value, which must not be modified afterwards
+     * @param key
+     *            the key of the value
+     * @param toKeep
+     *            whether to keep the attribute
+     * @return the attribute
+     */
+    public Attribute<?> create(String fieldName, ByteSequence data, Key key, boolean toKeep) {
+        if (!lazy) {
+            return create(fieldName, decode(data), key, toKeep);
+        }
+        return create(fieldName, null, data, key, extractIngestDataTypeFromKey(key), toKeep, false);
+    }
+    
+    private Attribute<?> create(String fieldName, String data, ByteSequence rawData, Key key, String ingestType, boolean toKeep, boolean isComposite) {
         
         Collection<String> dataTypes = (isComposite) ? Arrays.asList(NoOpType.class.getName()) : this.typeMetadata.getTypeMetadata(fieldName, ingestType);
         
         try {
             if (null == dataTypes || dataTypes.isEmpty()) {
                 Class<?> dataTypeClass = clazzCache.get(this.defaultType);
-                return getAttribute(dataTypeClass, fieldName, data, key, toKeep);
+                return getAttribute(dataTypeClass, fieldName, data, rawData, key, toKeep);
             } else if (1 == dataTypes.size()) {
                 String dataType = dataTypes.iterator().next();
                 Class<?> dataTypeClass = clazzCache.get(dataType);
-                return getAttribute(dataTypeClass, fieldName, data, key, toKeep);
+                return getAttribute(dataTypeClass, fieldName, data, rawData, key, toKeep);
             } else {
+                // the attributes of each type are put in a set, which means hashing and so parsing them right away
+                if (data == null) {
+                    data = decode(rawData);
+                    rawData = null;
+                }
                 
                 Iterable<Class<?>> typeClasses = Iterables.transform(dataTypes, new Function<String,Class<?>>() {
                     @Nullable
@@ -115,7 +173,7 @@ public class AttributeFactory {
                 
                 for (String dataType : dataTypes) {
                     Class<?> dataTypeClass = clazzCache.get(dataType);
-                    Attribute<?> attribute = getAttribute(dataTypeClass, fieldName, data, key, toKeep);
+                    Attribute<?> attribute = getAttribute(dataTypeClass, fieldName, data, rawData, key, toKeep);
                     // if there is more than one dataType, mark the mostGeneral one as toKeep=false, leaving the more specific type(s)
                     // if the class is not a member of 'keepers', then set toKeep to false
                     if (!keepers.contains(dataTypeClass)) {
@@ -127,21 +185,52 @@ public class AttributeFactory {
                 return new Attributes(attrSet, toKeep);
             }
         } catch (Exception ex) {
-            log.error("Could not create Attribute for " + fieldName + " and " + data, ex);
-            throw new RuntimeException("Could not create Attribute for " + fieldName + " and " + data, ex);
+            String value = (data == null && rawData != null) ? rawData.toString() : data;
+            log.error("Could not create Attribute for " + fieldName + " and " + value, ex);
+            throw new RuntimeException("Could not create Attribute for " + fieldName + " and " + value, ex);
         }
     }
     
+    private Attribute<?> getAttribute(Class<?> dataTypeClass, String fieldName, String data, ByteSequence rawData, Key key, boolean toKeep)
+                    throws Exception {
+        if (rawData != null) {
+            return new TypeAttribute(dataTypeClass, fieldName, rawData, key, toKeep);
+        }
+        return getAttribute(dataTypeClass, fieldName, data, key, toKeep);
+    }
+    
     protected Attribute<?> getAttribute(Class<?> dataTypeClass, String fieldName, String data, Key key, boolean toKeep) throws Exception {
-        Type<?> type = (Type<?>) dataTypeClass.newInstance();
+        return new TypeAttribute(createType(dataTypeClass, fieldName, data), key, toKeep);
+    }
+    
+    /**
+     * Creates a type holding a raw value, falling back to a {@link NoOpType} if the value cannot be parsed as the type.
+     *
+     * @param dataTypeClass
+     *            the class of the type
+     * @param fieldName
+     *            the name of the field, for logging
+     * @param data
+     *            the raw value
+     * @return the type
+     * @throws IllegalArgumentException
+     *             if the type could not be created
+     */
+    public static Type<?> createType(Class<?> dataTypeClass, String fieldName, String data) {
+        Type<?> type;
+        try {
+            type = (Type<?>) typeConstructorCache.get(dataTypeClass).newInstance();
+        } catch (Exception ex) {
+            throw new IllegalArgumentException("Could not create a " + dataTypeClass.getName() + " for " + fieldName, ex);
+        }
         try {
             type.setDelegateFromString(data);
-            return new TypeAttribute(type, key, toKeep);
+            return type;
         } catch (Exception ex) {
             
             if (ex instanceof IllegalArgumentException) {
                 log.warn("Could not parse " + fieldName + " = '" + data + "', resorting to a NoOpType");
-                return new TypeAttribute(new NoOpType(data), key, toKeep);
+                return new NoOpType(data);
             } else {
                 log.error("Could not create Attribute for " + fieldName + " and " + data, ex);
                 throw new IllegalArgumentException("Could not create Attribute for " + fieldName + " and " + data, ex);
@@ -150,6 +239,21 @@ public class AttributeFactory {
         }
     }
     
+    /**
+     * @see #createType(Class, String, String)
+     */
+    static Type<?> createType(Class<?> dataTypeClass, String fieldName, ByteSequence data) {
+        return createType(dataTypeClass, fieldName, decode(data));
+    }
+    
+    protected static String decode(ByteSequence data) {
+        try {
+            return Text.decode(data.getBackingArray(), data.offset(), data.length());
+        } catch (CharacterCodingException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+    
     public static Collection<Class<?>> getKeepers(Iterable<Class<?>> finders) {
         Collection<Class<?>> keepers = Sets.newHashSet(finders);
         List<Class<?>> losers = AttributeFactory.mostGeneralTypes;
@@ -2,6 +2,7 @@ package datawave.query.attributes;
 
 import datawave.query.util.TypeMetadata;
 
+import org.apache.accumulo.core.data.ByteSequence;
 import org.apache.accumulo.core.data.Key;
 
 public class PreNormalizedAttributeFactory extends AttributeFactory {
@@ -14,4 +15,9 @@ public class PreNormalizedAttributeFactory extends AttributeFactory {
     public Attribute<?> create(String fieldName, String data, Key key, boolean toKeep) {
         return new PreNormalizedAttribute(data, key, toKeep);
     }
+    
+    @Override
+    public Attribute<?> create(String fieldName, ByteSequence data, Key key, boolean toKeep) {
+        return new PreNormalizedAttribute(decode(data), key, toKeep);
+    }
 }
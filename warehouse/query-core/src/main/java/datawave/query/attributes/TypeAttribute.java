@@ -3,6 +3,7 @@ package datawave.query.attributes;
 import java.io.DataInput;
 import java.io.DataOutput;
 import java.io.IOException;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.util.Collection;
 import java.util.Set;
@@ -14,6 +15,7 @@ import datawave.query.jexl.DatawaveJexlContext;
 import datawave.query.collections.FunctionalSet;
 
 import datawave.webservice.query.data.ObjectSizeOf;
+import org.apache.accumulo.core.data.ByteSequence;
 import org.apache.accumulo.core.data.Key;
 import org.apache.commons.lang.builder.HashCodeBuilder;
 import org.apache.hadoop.io.WritableUtils;
@@ -31,6 +33,12 @@ public class TypeAttribute<T extends Comparable<T>> extends Attribute<TypeAttrib
     
     private Type<T> datawaveType;
     
+    // when lazy, the type class, field name and raw value that datawaveType is created from the first time it is needed
+    private transient Class<?> lazyTypeClass;
+    private transient String lazyFieldName;
+    private transient ByteSequence lazyData;
+    private transient long lazySizeInBytes;
+    
     protected TypeAttribute() {
         super(null, true);
     }
@@ -40,13 +48,55 @@ public class TypeAttribute<T extends Comparable<T>> extends Attribute<TypeAttrib
         this.datawaveType = datawaveType;
     }
     
+    /**
+     * Creates a lazy attribute, which holds on to the raw value and only parses and normalizes it into the given type when the type is first needed, i.e.
+     * when the attribute is evaluated, serialized or compared. Fields which are never read, e.g. those later dropped by a projection, are never parsed.
+     *
+     * @param typeClass
+     *            the class of the type to parse the value into
+     * @param fieldName
+     *            the name of the field, for logging
+     * @param data
+     *            the raw value, which must not be modified afterwards
+     * @param docKey
+     *            the key of the attribute
+     * @param toKeep
+     *            whether to keep the attribute
+     */
+    public TypeAttribute(Class<?> typeClass, String fieldName, ByteSequence data, Key docKey, boolean toKeep) {
+        super(docKey, toKeep);
+        this.lazyTypeClass = typeClass;
+        this.lazyFieldName = fieldName;
+        this.lazyData = data;
+        this.lazySizeInBytes = super.sizeInBytes(28) + roundUp(12 + data.length());
+        // 28 for the references to the type class, field name and data, and the offset and length of the data
+    }
+    
+    /**
+     * @return true if the value of this attribute has not been parsed yet
+     */
+    public boolean isLazy() {
+        return lazyData != null;
+    }
+    
     @Override
     public long sizeInBytes() {
+        if (lazySizeInBytes > 0) {
+            // documents account for the size of an attribute when it is added and removed, so a lazy attribute keeps its size once parsed
+            return lazySizeInBytes;
+        }
         return ObjectSizeOf.Sizer.getObjectSize(datawaveType) + super.sizeInBytes(4);
         // 4 for datawaveType reference
     }
     
+    @SuppressWarnings("unchecked")
     public Type<T> getType() {
+        if (isLazy()) {
+            this.datawaveType = (Type<T>) AttributeFactory.createType(lazyTypeClass, lazyFieldName, lazyData);
+            this.lazyTypeClass = null;
+            this.lazyFieldName = null;
+            this.lazyData = null;
+        }
         return this.datawaveType;
     }
     
@@ -62,7 +112,7 @@ public class TypeAttribute<T extends Comparable<T>> extends Attribute<TypeAttrib
     
     @Override
     public void write(DataOutput out, boolean reducedResponse) throws IOException {
-        WritableUtils.writeString(out, datawaveType.getClass().toString());
+        WritableUtils.writeString(out, getType().getClass().toString());
         writeMetadata(out, reducedResponse);
         WritableUtils.writeString(out, datawaveType.getDelegateAsString());
     }
@@ -82,7 +132,7 @@ public class TypeAttribute<T extends Comparable<T>> extends Attribute<TypeAttrib
     
     @Override
     public int compareTo(TypeAttribute<T> other) {
-        int cmp = datawaveType.compareTo(other.getType());
+        int cmp = getType().compareTo(other.getType());
         
         if (0 == cmp) {
             // Compare the ColumnVisibility as well
@@ -109,12 +159,13 @@ public class TypeAttribute<T extends Comparable<T>> extends Attribute<TypeAttrib
     @Override
     public int hashCode() {
         HashCodeBuilder hcb = new HashCodeBuilder(2099, 2129);
-        hcb.append(datawaveType.getDelegateAsString()).append(super.hashCode());
+        hcb.append(getType().getDelegateAsString()).append(super.hashCode());
         return hcb.toHashCode();
     }
     
     @Override
     public Collection<ValueTuple> visit(Collection<String> fieldNames, DatawaveJexlContext context) {
+        getType();
         if (this.datawaveType instanceof OneToManyNormalizerType) {
             Set<ValueTuple> set = new FunctionalSet<>();
             for (String norm : ((OneToManyNormalizerType<?>) this.datawaveType).getNormalizedValues()) {
@@ -132,7 +183,7 @@ public class TypeAttribute<T extends Comparable<T>> extends Attribute<TypeAttrib
     
     @Override
     public void write(Kryo kryo, Output output, Boolean reducedResponse) {
-        output.writeString(datawaveType.getClass().getName());
+        output.writeString(getType().getClass().getName());
         super.writeMetadata(kryo, output, reducedResponse);
         
         output.writeString(this.datawaveType.getDelegateAsString());
@@ -160,6 +211,12 @@ public class TypeAttribute<T extends Comparable<T>> extends Attribute<TypeAttrib
         }
     }
     
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        // the raw value of a lazy attribute is not serializable
+        getType();
+        out.defaultWriteObject();
+    }
+    
     private void setDatawaveType(String datawaveTypeString) throws InstantiationException, IllegalAccessException, ClassNotFoundException {
         this.datawaveType = (Type<T>) Class.forName(datawaveTypeString).newInstance();
     }
@@ -171,12 +228,15 @@ public class TypeAttribute<T extends Comparable<T>> extends Attribute<TypeAttrib
      */
     @Override
     public TypeAttribute copy() {
+        if (isLazy()) {
+            return new TypeAttribute(lazyTypeClass, lazyFieldName, lazyData, this.getMetadata(), this.isToKeep());
+        }
         return new TypeAttribute(this.getType(), this.getMetadata(), this.isToKeep());
     }
     
     @Override
     public String toString() {
-        if (datawaveType.getDelegate() != null) {
+        if (getType().getDelegate() != null) {
             return datawaveType.getDelegateAsString();
         } else {
             return this.getClass() + " with null delegate";
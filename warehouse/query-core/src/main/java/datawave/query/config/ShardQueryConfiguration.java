@@ -75,6 +75,8 @@ public class ShardQueryConfiguration extends GenericQueryConfiguration implement
     private boolean allTermsIndexOnly;
     private String accumuloPassword = "";
     private long maxIndexScanTimeMillis = Long.MAX_VALUE;
+    // how long global index lookups may be reused by other queries on this server, or 0 to always scan the global index
+    private long indexLookupCacheTimeMillis = 0;
     private boolean collapseUids = false;
     private boolean sequentialScheduler = false;
     private boolean collectTimingDetails = false;
@@ -135,6 +137,8 @@ public class ShardQueryConfiguration extends GenericQueryConfiguration implement
     private String metadataTableName = "DatawaveMetadata";
     private String dateIndexTableName = "DateIndex";
     private String indexStatsTableName = "shardIndexStats";
+    // the table of per-day term dictionaries used to expand regexes and ranges, or null to always scan the global indexes
+    private String termDictionaryTableName = null;
     private String defaultDateTypeName = "EVENT";
     // should we cleanup the shards and days hints that are sent to the tservers?
     private boolean cleanupShardsAndDaysQueryHints = true;
@@ -188,6 +192,12 @@ public class ShardQueryConfiguration extends GenericQueryConfiguration implement
     private Set<String> queryTermFrequencyFields = Collections.emptySet();
     // Are we required to get term frequencies (i.e. does the query contain content functions)
     private boolean termFrequenciesRequired = false;
+    // The number of documents for which term frequencies are gathered together on the tservers
+    private int termFrequencyBatchSize = 1;
+    // The number of documents evaluated together against the compiled query on the tservers, 1 to interpret the query per document
+    private int evaluationBatchSize = 1;
+    // Whether event values are only parsed and normalized on the tservers once they are read by the evaluation, a projection or the serializer
+    private boolean lazyAttributes = false;
     // Limit count of returned values for arbitrary fields.
     private Set<String> limitFields = Collections.emptySet();
     /**
@@ -232,6 +242,18 @@ public class ShardQueryConfiguration extends GenericQueryConfiguration implement
      * By default don't use speculative scanning.
      */
     private boolean speculativeScanning = false;
+    /**
+     * By default each query's scans run on threads of its own rather than on the shared, demand driven scan executor. Speculative and hedged scanning are not
+     * supported with demand driven scanning, and are ignored when it is enabled.
+     */
+    private boolean demandDrivenScanning = false;
+    /**
+     * By default don't hedge slow chunks. When enabled, a chunk which takes longer than hedgedScanPercentile of the completed chunks, and has yet to return a
+     * result, is scanned again through the alternate resource, for up to hedgedScanMaxRate of the chunks.
+     */
+    private boolean hedgedScanning = false;
+    private double hedgedScanPercentile = 0.95;
+    private double hedgedScanMaxRate = 0.05;
     private boolean disableEvaluation = false;
     private boolean containsIndexOnlyTerms = false;
     private boolean containsCompositeTerms = false;
@@ -278,6 +300,8 @@ public class ShardQueryConfiguration extends GenericQueryConfiguration implement
     private boolean shouldLimitTermExpansionToModel = false;
     private Query query = null;
     private boolean compressServerSideResults = false;
+    // compress the results against a preset dictionary, which pays off for small documents too. Webservers must be able to read it before enabling
+    private boolean dictionaryCompressServerSideResults = false;
     private boolean indexOnlyFilterFunctionsEnabled = false;
     private boolean compositeFilterFunctionsEnabled = false;
     
@@ -317,6 +341,7 @@ public class ShardQueryConfiguration extends GenericQueryConfiguration implement
         this.setAllTermsIndexOnly(other.isAllTermsIndexOnly());
         this.setAccumuloPassword(other.getAccumuloPassword());
         this.setMaxIndexScanTimeMillis(other.getMaxIndexScanTimeMillis());
+        this.setIndexLookupCacheTimeMillis(other.getIndexLookupCacheTimeMillis());
         this.setCollapseUids(other.getCollapseUids());
         this.setSequentialScheduler(other.getSequentialScheduler());
         this.setCollectTimingDetails(other.getCollectTimingDetails());
@@ -344,6 +369,7 @@ public class ShardQueryConfiguration extends GenericQueryConfiguration implement
         this.setMetadataTableName(other.getMetadataTableName());
         this.setDateIndexTableName(other.getDateIndexTableName());
         this.setIndexStatsTableName(other.getIndexStatsTableName());
+        this.setTermDictionaryTableName(other.getTermDictionaryTableName());
         this.setDefaultDateTypeName(other.getDefaultDateTypeName());
         this.setCleanupShardsAndDaysQueryHints(other.isCleanupShardsAndDaysQueryHints());
         this.setNumQueryThreads(other.getNumQueryThreads());
@@ -381,6 +407,9 @@ public class ShardQueryConfiguration extends GenericQueryConfiguration implement
         this.setSortedUIDs(other.isSortedUIDs());
         this.setQueryTermFrequencyFields(null == other.getQueryTermFrequencyFields() ? null : Sets.newHashSet(other.getQueryTermFrequencyFields()));
         this.setTermFrequenciesRequired(other.isTermFrequenciesRequired());
+        this.setTermFrequencyBatchSize(other.getTermFrequencyBatchSize());
+        this.setEvaluationBatchSize(other.getEvaluationBatchSize());
+        this.setLazyAttributes(other.isLazyAttributes());
         this.setLimitFields(null == other.getLimitFields() ? null : Sets.newHashSet(other.getLimitFields()));
         this.setLimitFieldsPreQueryEvaluation(other.isLimitFieldsPreQueryEvaluation());
         this.setLimitFieldsField(other.getLimitFieldsField());
@@ -402,6 +431,10 @@ public class ShardQueryConfiguration extends GenericQueryConfiguration implement
         this.setAllowShortcutEvaluation(other.getAllowShortcutEvaluation());
         this.setBypassAccumulo(other.getBypassAccumulo());
         this.setSpeculativeScanning(other.getSpeculativeScanning());
+        this.setDemandDrivenScanning(other.getDemandDrivenScanning());
+        this.setHedgedScanning(other.getHedgedScanning());
+        this.setHedgedScanPercentile(other.getHedgedScanPercentile());
+        this.setHedgedScanMaxRate(other.getHedgedScanMaxRate());
         this.setDisableEvaluation(other.isDisableEvaluation());
         this.setContainsIndexOnlyTerms(other.isContainsIndexOnlyTerms());
         this.setContainsCompositeTerms(other.isContainsCompositeTerms());
@@ -437,6 +470,7 @@ public class ShardQueryConfiguration extends GenericQueryConfiguration implement
         this.setLimitTermExpansionToModel(other.isExpansionLimitedToModelContents());
         this.setQuery(null == other.getQuery() ? null : other.getQuery().duplicate(other.getQuery().getQueryName()));
         this.setCompressServerSideResults(other.isCompressServerSideResults());
+        this.setDictionaryCompressServerSideResults(other.isDictionaryCompressServerSideResults());
         this.setIndexOnlyFilterFunctionsEnabled(other.isIndexOnlyFilterFunctionsEnabled());
         this.setCompositeFilterFunctionsEnabled(other.isCompositeFilterFunctionsEnabled());
         this.setGroupFieldsBatchSize(other.getGroupFieldsBatchSize());
@@ -635,6 +669,14 @@ public class ShardQueryConfiguration extends GenericQueryConfiguration implement
         this.indexStatsTableName = statsTableName;
     }
     
+    public String getTermDictionaryTableName() {
+        return termDictionaryTableName;
+    }
+    
+    public void setTermDictionaryTableName(String termDictionaryTableName) {
+        this.termDictionaryTableName = termDictionaryTableName;
+    }
+    
     public Integer getNumQueryThreads() {
         return numQueryThreads;
     }
@@ -1617,6 +1659,14 @@ public class ShardQueryConfiguration extends GenericQueryConfiguration implement
         this.compressServerSideResults = compressServerSideResults;
     }
     
+    public boolean isDictionaryCompressServerSideResults() {
+        return dictionaryCompressServerSideResults;
+    }
+    
+    public void setDictionaryCompressServerSideResults(boolean dictionaryCompressServerSideResults) {
+        this.dictionaryCompressServerSideResults = dictionaryCompressServerSideResults;
+    }
+    
     /**
      * Returns a value indicating whether index-only filter functions (e.g., #INCLUDE, #EXCLUDE) should be enabled. If true, the use of such filters can
      * potentially consume a LOT of memory.
@@ -1670,6 +1720,30 @@ public class ShardQueryConfiguration extends GenericQueryConfiguration implement
         this.termFrequenciesRequired = termFrequenciesRequired;
     }
     
+    public int getTermFrequencyBatchSize() {
+        return termFrequencyBatchSize;
+    }
+    
+    public void setTermFrequencyBatchSize(int termFrequencyBatchSize) {
+        this.termFrequencyBatchSize = termFrequencyBatchSize;
+    }
+    
+    public int getEvaluationBatchSize() {
+        return evaluationBatchSize;
+    }
+    
+    public void setEvaluationBatchSize(int evaluationBatchSize) {
+        this.evaluationBatchSize = evaluationBatchSize;
+    }
+    
+    public boolean isLazyAttributes() {
+        return lazyAttributes;
+    }
+    
+    public void setLazyAttributes(boolean lazyAttributes) {
+        this.lazyAttributes = lazyAttributes;
+    }
+    
     public void setLimitTermExpansionToModel(boolean shouldLimitTermExpansionToModel) {
         this.shouldLimitTermExpansionToModel = shouldLimitTermExpansionToModel;
     }
@@ -1686,6 +1760,14 @@ public class ShardQueryConfiguration extends GenericQueryConfiguration implement
         this.maxIndexScanTimeMillis = maxTime;
     }
     
+    public long getIndexLookupCacheTimeMillis() {
+        return indexLookupCacheTimeMillis;
+    }
+    
+    public void setIndexLookupCacheTimeMillis(long indexLookupCacheTimeMillis) {
+        this.indexLookupCacheTimeMillis = indexLookupCacheTimeMillis;
+    }
+    
     public boolean getCollapseUids() {
         return collapseUids;
     }
@@ -1852,6 +1934,38 @@ public class ShardQueryConfiguration extends GenericQueryConfiguration implement
         this.speculativeScanning = speculativeScanning;
     }
     
+    public boolean getDemandDrivenScanning() {
+        return demandDrivenScanning;
+    }
+    
+    public void setDemandDrivenScanning(boolean demandDrivenScanning) {
+        this.demandDrivenScanning = demandDrivenScanning;
+    }
+    
+    public boolean getHedgedScanning() {
+        return hedgedScanning;
+    }
+    
+    public void setHedgedScanning(boolean hedgedScanning) {
+        this.hedgedScanning = hedgedScanning;
+    }
+    
+    public double getHedgedScanPercentile() {
+        return hedgedScanPercentile;
+    }
+    
+    public void setHedgedScanPercentile(double hedgedScanPercentile) {
+        this.hedgedScanPercentile = hedgedScanPercentile;
+    }
+    
+    public double getHedgedScanMaxRate() {
+        return hedgedScanMaxRate;
+    }
+    
+    public void setHedgedScanMaxRate(double hedgedScanMaxRate) {
+        this.hedgedScanMaxRate = hedgedScanMaxRate;
+    }
+    
     public boolean getSerializeQueryIterator() {
         return serializeQueryIterator;
     }
@@ -33,6 +33,11 @@ public class Aggregation implements Function<Entry<DocumentData,Document>,Entry<
      */
     private boolean trackSizes = true;
     
+    /**
+     * should attribute values only be parsed when read
+     */
+    private boolean lazyAttributes = false;
+    
     // Need to provide the mapping
     @SuppressWarnings("unused")
     private Aggregation() {}
@@ -56,6 +61,12 @@ public class Aggregation implements Function<Entry<DocumentData,Document>,Entry<
         this.trackSizes = trackSizes;
     }
     
+    public Aggregation(TimeFilter timeFilter, TypeMetadata typeMetadata, CompositeMetadata compositeMetadata, boolean includeGroupingContext,
+                    boolean includeRecordId, boolean disableIndexOnlyDocuments, EventDataQueryFilter attrFilter, boolean trackSizes, boolean lazyAttributes) {
+        this(timeFilter, typeMetadata, compositeMetadata, includeGroupingContext, includeRecordId, disableIndexOnlyDocuments, attrFilter, trackSizes);
+        this.lazyAttributes = lazyAttributes;
+    }
+    
     @Override
     public Entry<Key,Document> apply(Entry<DocumentData,Document> from) {
         DocumentData docData = from.getKey();
@@ -67,7 +78,8 @@ public class Aggregation implements Function<Entry<DocumentData,Document>,Entry<
         
         // Only load attributes for this document that fall within the expected date range
         Document d = new Document(docData.getKey(), docData.getDocKeys(), Iterators.filter(docData.getData().iterator(), timeFilter.getKeyValueTimeFilter()),
-                        this.typeMetadata, this.compositeMetadata, this.includeGroupingContext, this.includeRecordId, this.attrFilter, true, trackSizes);
+                        this.typeMetadata, this.compositeMetadata, this.includeGroupingContext, this.includeRecordId, this.attrFilter, true, trackSizes,
+                        lazyAttributes);
         
         if (log.isTraceEnabled()) {
             log.trace("disable index only docs? " + disableIndexOnlyDocuments + " , size is " + d.size());
@@ -0,0 +1,61 @@
+package datawave.query.function;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Queue;
+
+import datawave.query.attributes.Document;
+import datawave.query.jexl.DatawaveJexlContext;
+import datawave.query.util.Tuple3;
+
+import org.apache.accumulo.core.data.Key;
+
+/**
+ * The batched counterpart of filtering documents with a {@link JexlEvaluation}. Up to batchSize documents are read ahead from the underlying iterator and
+ * evaluated together through {@link CompiledJexlEvaluation#apply(List)}. The documents that match are returned in the order they were read.
+ */
+public class BatchedJexlEvaluationIterator implements Iterator<Tuple3<Key,Document,DatawaveJexlContext>> {
+    
+    private final Iterator<Tuple3<Key,Document,DatawaveJexlContext>> documents;
+    private final CompiledJexlEvaluation evaluation;
+    private final int batchSize;
+    private final Queue<Tuple3<Key,Document,DatawaveJexlContext>> matched = new LinkedList<>();
+    
+    public BatchedJexlEvaluationIterator(Iterator<Tuple3<Key,Document,DatawaveJexlContext>> documents, CompiledJexlEvaluation evaluation, int batchSize) {
+        this.documents = documents;
+        this.evaluation = evaluation;
+        this.batchSize = Math.max(1, batchSize);
+    }
+    
+    @Override
+    public boolean hasNext() {
+        // a batch may not match at all, so keep reading until one does or the documents run out
+        while (matched.isEmpty() && documents.hasNext()) {
+            fillBatch();
+        }
+        return !matched.isEmpty();
+    }
+    
+    @Override
+    public Tuple3<Key,Document,DatawaveJexlContext> next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return matched.poll();
+    }
+    
+    private void fillBatch() {
+        List<Tuple3<Key,Document,DatawaveJexlContext>> batch = new ArrayList<>(batchSize);
+        while (batch.size() < batchSize && documents.hasNext()) {
+            batch.add(documents.next());
+        }
+        BitSet hits = evaluation.apply(batch);
+        for (int i = hits.nextSetBit(0); i >= 0; i = hits.nextSetBit(i + 1)) {
+            matched.add(batch.get(i));
+        }
+    }
+}
@@ -0,0 +1,411 @@
+package datawave.query.function;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import datawave.query.attributes.Document;
+import datawave.query.jexl.DatawaveJexlContext;
+import datawave.query.jexl.StatefulArithmetic;
+import datawave.query.jexl.visitors.JexlStringBuildingVisitor;
+import datawave.query.util.Tuple3;
+
+import org.apache.accumulo.core.data.Key;
+import org.apache.commons.jexl2.JexlArithmetic;
+import org.apache.commons.jexl2.JexlException;
+import org.apache.commons.jexl2.Script;
+import org.apache.commons.jexl2.parser.ASTAndNode;
+import org.apache.commons.jexl2.parser.ASTAssignment;
+import org.apache.commons.jexl2.parser.ASTEQNode;
+import org.apache.commons.jexl2.parser.ASTERNode;
+import org.apache.commons.jexl2.parser.ASTFalseNode;
+import org.apache.commons.jexl2.parser.ASTGENode;
+import org.apache.commons.jexl2.parser.ASTGTNode;
+import org.apache.commons.jexl2.parser.ASTIdentifier;
+import org.apache.commons.jexl2.parser.ASTJexlScript;
+import org.apache.commons.jexl2.parser.ASTLENode;
+import org.apache.commons.jexl2.parser.ASTLTNode;
+import org.apache.commons.jexl2.parser.ASTNENode;
+import org.apache.commons.jexl2.parser.ASTNRNode;
+import org.apache.commons.jexl2.parser.ASTNotNode;
+import org.apache.commons.jexl2.parser.ASTNullLiteral;
+import org.apache.commons.jexl2.parser.ASTNumberLiteral;
+import org.apache.commons.jexl2.parser.ASTOrNode;
+import org.apache.commons.jexl2.parser.ASTReference;
+import org.apache.commons.jexl2.parser.ASTReferenceExpression;
+import org.apache.commons.jexl2.parser.ASTStringLiteral;
+import org.apache.commons.jexl2.parser.ASTTrueNode;
+import org.apache.commons.jexl2.parser.JexlNode;
+import org.apache.log4j.Logger;
+
+/**
+ * A {@link JexlEvaluation} that compiles the query once into a tree of evaluators instead of interpreting it for every document.
+ * <p>
+ * Conjunctions, disjunctions, negations and the equality and regex comparisons of a field against a literal are compiled. The comparisons are made by the same
+ * {@link JexlArithmetic} the interpreter uses, so a document matches exactly when it would have matched through the interpreter. Anything else, such as
+ * functions, methods and bounded ranges, is left to the interpreter, one subtree at a time.
+ * <p>
+ * A batch of documents is evaluated a node at a time rather than a document at a time: each node is given the set of documents that are still undecided, so a
+ * conjunction only evaluates its later terms against the documents that matched its earlier ones, and each field is fetched once per batch however many terms
+ * test it.
+ */
+public class CompiledJexlEvaluation extends JexlEvaluation {
+    private static final Logger log = Logger.getLogger(CompiledJexlEvaluation.class);
+    
+    private final Evaluator evaluator;
+    
+    public CompiledJexlEvaluation(String query, JexlArithmetic arithmetic) {
+        super(query, arithmetic);
+        ASTJexlScript tree = parse(query);
+        this.evaluator = tree.jjtGetNumChildren() == 1 ? compile(tree.jjtGetChild(0)) : new Interpreted(query);
+        if (log.isDebugEnabled()) {
+            log.debug("Compiled " + query + " to " + evaluator);
+        }
+    }
+    
+    @Override
+    protected boolean evaluate(DatawaveJexlContext context) {
+        return evaluator.evaluate(context);
+    }
+    
+    /**
+     * Evaluates a batch of documents.
+     *
+     * @param batch
+     *            the documents
+     * @return the positions in the batch of the documents that match the query
+     */
+    public BitSet apply(List<Tuple3<Key,Document,DatawaveJexlContext>> batch) {
+        BitSet matched = new BitSet(batch.size());
+        if (getArithmetic() instanceof StatefulArithmetic) {
+            // the arithmetic gathers the hits of the document being evaluated, so the documents must be evaluated one at a time
+            for (int i = 0; i < batch.size(); i++) {
+                matched.set(i, apply(batch.get(i)));
+            }
+            return matched;
+        }
+        
+        List<DatawaveJexlContext> contexts = new ArrayList<>(batch.size());
+        for (Tuple3<Key,Document,DatawaveJexlContext> document : batch) {
+            contexts.add(document.third());
+        }
+        BitSet candidates = new BitSet(batch.size());
+        candidates.set(0, batch.size());
+        evaluator.evaluate(new Batch(contexts), candidates, matched);
+        return matched;
+    }
+    
+    private Evaluator compile(JexlNode node) {
+        if ((node instanceof ASTReference || node instanceof ASTReferenceExpression) && node.jjtGetNumChildren() == 1) {
+            return compile(node.jjtGetChild(0));
+        } else if (node instanceof ASTAndNode) {
+            // the interpreter evaluates a bounded range as a whole, so the bounds must not be evaluated separately
+            for (int i = 0; i < node.jjtGetNumChildren(); i++) {
+                if (isBound(dereference(node.jjtGetChild(i)))) {
+                    return new Interpreted(node);
+                }
+            }
+            return new And(compileChildren(node));
+        } else if (node instanceof ASTOrNode) {
+            return new Or(compileChildren(node));
+        } else if (node instanceof ASTNotNode && node.jjtGetNumChildren() == 1) {
+            return new Not(compile(node.jjtGetChild(0)));
+        } else if (node instanceof ASTTrueNode) {
+            return new Constant(true);
+        } else if (node instanceof ASTFalseNode) {
+            return new Constant(false);
+        } else if (node instanceof ASTAssignment && node.jjtGetNumChildren() == 2 && node.jjtGetChild(1) instanceof ASTTrueNode) {
+            // a marker such as ASTDelayedPredicate = true, which only labels the subtree it is joined with
+            return new Constant(true);
+        } else if (node instanceof ASTEQNode || node instanceof ASTNENode || node instanceof ASTERNode || node instanceof ASTNRNode) {
+            JexlNode field = dereference(node.jjtGetChild(0));
+            JexlNode literal = node.jjtGetChild(1);
+            if (field instanceof ASTIdentifier && isLiteral(literal)) {
+                return new Comparison(node, field.image, literalValue(literal));
+            }
+        }
+        return new Interpreted(node);
+    }
+    
+    private List<Evaluator> compileChildren(JexlNode node) {
+        List<Evaluator> children = new ArrayList<>(node.jjtGetNumChildren());
+        for (int i = 0; i < node.jjtGetNumChildren(); i++) {
+            children.add(compile(node.jjtGetChild(i)));
+        }
+        return children;
+    }
+    
+    private static JexlNode dereference(JexlNode node) {
+        while (node.jjtGetNumChildren() == 1 && (node instanceof ASTReference || node instanceof ASTReferenceExpression)) {
+            node = node.jjtGetChild(0);
+        }
+        return node;
+    }
+    
+    private static boolean isBound(JexlNode node) {
+        return node instanceof ASTLTNode || node instanceof ASTLENode || node instanceof ASTGTNode || node instanceof ASTGENode;
+    }
+    
+    private static boolean isLiteral(JexlNode node) {
+        return node instanceof ASTStringLiteral || node instanceof ASTNumberLiteral || node instanceof ASTNullLiteral;
+    }
+    
+    private static Object literalValue(JexlNode node) {
+        if (node instanceof ASTStringLiteral) {
+            return ((ASTStringLiteral) node).getLiteral();
+        } else if (node instanceof ASTNumberLiteral) {
+            return ((ASTNumberLiteral) node).getLiteral();
+        }
+        return null;
+    }
+    
+    /**
+     * The contexts of a batch of documents, along with the values of each field fetched so far
+     */
+    private static class Batch {
+        private final List<DatawaveJexlContext> contexts;
+        private final Map<String,Object[]> columns = new HashMap<>();
+        
+        Batch(List<DatawaveJexlContext> contexts) {
+            this.contexts = contexts;
+        }
+        
+        Object[] column(String field) {
+            Object[] column = columns.get(field);
+            if (column == null) {
+                column = new Object[contexts.size()];
+                for (int i = 0; i < column.length; i++) {
+                    column[i] = contexts.get(i).get(field);
+                }
+                columns.put(field, column);
+            }
+            return column;
+        }
+        
+        DatawaveJexlContext context(int i) {
+            return contexts.get(i);
+        }
+    }
+    
+    private static abstract class Evaluator {
+        
+        abstract boolean evaluate(DatawaveJexlContext context);
+        
+        /**
+         * Sets in matched those of the candidates that match.
+         */
+        abstract void evaluate(Batch batch, BitSet candidates, BitSet matched);
+    }
+    
+    private static class And extends Evaluator {
+        private final List<Evaluator> children;
+        
+        And(List<Evaluator> children) {
+            this.children = children;
+        }
+        
+        @Override
+        boolean evaluate(DatawaveJexlContext context) {
+            for (Evaluator child : children) {
+                if (!child.evaluate(context)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        
+        @Override
+        void evaluate(Batch batch, BitSet candidates, BitSet matched) {
+            BitSet remaining = candidates;
+            for (Evaluator child : children) {
+                BitSet childMatched = new BitSet();
+                child.evaluate(batch, remaining, childMatched);
+                remaining = childMatched;
+                if (remaining.isEmpty()) {
+                    return;
+                }
+            }
+            matched.or(remaining);
+        }
+        
+        @Override
+        public String toString() {
+            return "And" + children;
+        }
+    }
+    
+    private static class Or extends Evaluator {
+        private final List<Evaluator> children;
+        
+        Or(List<Evaluator> children) {
+            this.children = children;
+        }
+        
+        @Override
+        boolean evaluate(DatawaveJexlContext context) {
+            for (Evaluator child : children) {
+                if (child.evaluate(context)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        
+        @Override
+        void evaluate(Batch batch, BitSet candidates, BitSet matched) {
+            BitSet remaining = (BitSet) candidates.clone();
+            for (Evaluator child : children) {
+                BitSet childMatched = new BitSet();
+                child.evaluate(batch, remaining, childMatched);
+                matched.or(childMatched);
+                remaining.andNot(childMatched);
+                if (remaining.isEmpty()) {
+                    return;
+                }
+            }
+        }
+        
+        @Override
+        public String toString() {
+            return "Or" + children;
+        }
+    }
+    
+    private static class Not extends Evaluator {
+        private final Evaluator child;
+        
+        Not(Evaluator child) {
+            this.child = child;
+        }
+        
+        @Override
+        boolean evaluate(DatawaveJexlContext context) {
+            return !child.evaluate(context);
+        }
+        
+        @Override
+        void evaluate(Batch batch, BitSet candidates, BitSet matched) {
+            BitSet childMatched = new BitSet();
+            child.evaluate(batch, candidates, childMatched);
+            BitSet notMatched = (BitSet) candidates.clone();
+            notMatched.andNot(childMatched);
+            matched.or(notMatched);
+        }
+        
+        @Override
+        public String toString() {
+            return "Not[" + child + "]";
+        }
+    }
+    
+    private static class Constant extends Evaluator {
+        private final boolean value;
+        
+        Constant(boolean value) {
+            this.value = value;
+        }
+        
+        @Override
+        boolean evaluate(DatawaveJexlContext context) {
+            return value;
+        }
+        
+        @Override
+        void evaluate(Batch batch, BitSet candidates, BitSet matched) {
+            if (value) {
+                matched.or(candidates);
+            }
+        }
+        
+        @Override
+        public String toString() {
+            return String.valueOf(value);
+        }
+    }
+    
+    /**
+     * A field compared against a literal with ==, !=, =~ or !~
+     */
+    private class Comparison extends Evaluator {
+        private final JexlNode node;
+        private final String field;
+        private final Object value;
+        private final boolean regex;
+        private final boolean negated;
+        
+        Comparison(JexlNode node, String field, Object value) {
+            this.node = node;
+            this.field = field;
+            this.value = value;
+            this.regex = node instanceof ASTERNode || node instanceof ASTNRNode;
+            this.negated = node instanceof ASTNENode || node instanceof ASTNRNode;
+        }
+        
+        private boolean compare(Object fieldValue) {
+            try {
+                boolean result = regex ? getArithmetic().matches(fieldValue, value) : getArithmetic().equals(fieldValue, value);
+                return result != negated;
+            } catch (ArithmeticException e) {
+                throw new JexlException(node, "comparison error", e);
+            }
+        }
+        
+        @Override
+        boolean evaluate(DatawaveJexlContext context) {
+            return compare(context.get(field));
+        }
+        
+        @Override
+        void evaluate(Batch batch, BitSet candidates, BitSet matched) {
+            Object[] column = batch.column(field);
+            for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) {
+                if (compare(column[i])) {
+                    matched.set(i);
+                }
+            }
+        }
+        
+        @Override
+        public String toString() {
+            return field + (negated ? (regex ? " !~ " : " != ") : (regex ? " =~ " : " == ")) + value;
+        }
+    }
+    
+    /**
+     * A subtree evaluated by the interpreter
+     */
+    private class Interpreted extends Evaluator {
+        private final String query;
+        private final Script script;
+        
+        Interpreted(JexlNode node) {
+            this(JexlStringBuildingVisitor.buildQueryWithoutParse(node));
+        }
+        
+        Interpreted(String query) {
+            this.query = query;
+            this.script = getEngine().createScript(query);
+        }
+        
+        @Override
+        boolean evaluate(DatawaveJexlContext context) {
+            return isMatched(script.execute(context));
+        }
+        
+        @Override
+        void evaluate(Batch batch, BitSet candidates, BitSet matched) {
+            for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) {
+                if (evaluate(batch.context(i))) {
+                    matched.set(i);
+                }
+            }
+        }
+        
+        @Override
+        public String toString() {
+            return "Interpreted[" + query + "]";
+        }
+    }
+}
@@ -65,13 +65,7 @@ public class JexlEvaluation implements Predicate<Tuple3<Key,Document,DatawaveJex
     @Override
     public boolean apply(Tuple3<Key,Document,DatawaveJexlContext> input) {
         
-        Object o = script.execute(input.third());
-        
-        if (log.isTraceEnabled()) {
-            log.trace("Evaluation of " + query + " against " + input.third() + " returned " + o);
-        }
-        
-        boolean matched = isMatched(o);
+        boolean matched = evaluate(input.third());
         
         if (arithmetic instanceof HitListArithmetic) {
             HitListArithmetic hitListArithmetic = (HitListArithmetic) arithmetic;
@@ -104,4 +98,25 @@ public class JexlEvaluation implements Predicate<Tuple3<Key,Document,DatawaveJex
         
     }
     
+    /**
+     * Evaluates the query against the context of a single document
+     *
+     * @param context
+     *            the context of the document
+     * @return true if the document matches the query
+     */
+    protected boolean evaluate(DatawaveJexlContext context) {
+        Object o = script.execute(context);
+        
+        if (log.isTraceEnabled()) {
+            log.trace("Evaluation of " + query + " against " + context + " returned " + o);
+        }
+        
+        return isMatched(o);
+    }
+    
+    public String getQuery() {
+        return query;
+    }
+    
 }
@@ -22,13 +22,22 @@ public abstract class DocumentSerializer implements Function<Entry<Key,Document>
     
     public static final int DEFAULT_MIN_COMPRESS_SIZE = 1024 * 10;
     
+    /**
+     * The preset dictionary makes even small documents worth compressing
+     */
+    public static final int DEFAULT_MIN_DICTIONARY_COMPRESS_SIZE = 128;
+    
     public DocumentSerializer(boolean reducedResponse, boolean allowCompression) {
         this(reducedResponse, allowCompression, DEFAULT_MIN_COMPRESS_SIZE);
     }
     
     public DocumentSerializer(boolean reducedResponse, boolean allowCompression, int minCompressionSize) {
+        this(reducedResponse, allowCompression ? DocumentSerialization.GZIP : DocumentSerialization.NONE, minCompressionSize);
+    }
+    
+    public DocumentSerializer(boolean reducedResponse, int compression, int minCompressionSize) {
         this.reducedResponse = reducedResponse;
-        this.compression = allowCompression ? DocumentSerialization.GZIP : DocumentSerialization.NONE;
+        this.compression = compression;
         this.minCompressionSize = minCompressionSize;
         this.concreteName = this.getClass().getSimpleName();
     }
@@ -65,17 +74,19 @@ public abstract class DocumentSerializer implements Function<Entry<Key,Document>
     public abstract byte[] serialize(Document d);
     
     protected Value getValue(byte[] document, Span span) {
-        byte[] header;
-        byte[] dataToWrite;
+        byte[] header = DocumentSerialization.getHeader();
+        byte[] dataToWrite = document;
         
         // Only compress the data if it's greater than minCompressionSize in size (bytes)
         if (DocumentSerialization.NONE != this.compression && document.length > minCompressionSize) {
-            header = DocumentSerialization.getHeader(compression);
-            dataToWrite = DocumentSerialization.writeBody(document, this.compression);
-            span.data("Compressed size", Integer.toString(dataToWrite.length));
-        } else {
-            header = DocumentSerialization.getHeader();
-            dataToWrite = document;
+            byte[] compressed = DocumentSerialization.writeBody(document, this.compression);
+            span.data("Compressed size", Integer.toString(compressed.length));
+            
+            // the dictionary is applied to small documents, some of which do not shrink
+            if (DocumentSerialization.DICTIONARY != this.compression || compressed.length < document.length) {
+                header = DocumentSerialization.getHeader(compression);
+                dataToWrite = compressed;
+            }
         }
         
         ByteBuffer buf = ByteBuffer.allocate(header.length + dataToWrite.length);
@@ -2,6 +2,7 @@ package datawave.query.function.serializer;
 
 import java.io.ByteArrayOutputStream;
 
+import datawave.query.DocumentSerialization;
 import datawave.query.attributes.Attribute;
 import datawave.query.attributes.Document;
 import datawave.query.function.KryoCVAwareSerializableSerializer;
@@ -35,6 +36,20 @@ public class KryoDocumentSerializer extends DocumentSerializer {
         kryo.addDefaultSerializer(Attribute.class, new KryoCVAwareSerializableSerializer(reducedResponse));
     }
     
+    /**
+     * @param reducedResponse
+     *            whether to leave the visibilities and timestamps of the attributes out
+     * @param compress
+     *            whether to compress the documents
+     * @param dictionary
+     *            whether to compress the documents against the preset dictionary of {@link DocumentSerialization#DICTIONARY} rather than on their own
+     */
+    public KryoDocumentSerializer(boolean reducedResponse, boolean compress, boolean dictionary) {
+        super(reducedResponse, !compress ? DocumentSerialization.NONE : (dictionary ? DocumentSerialization.DICTIONARY : DocumentSerialization.GZIP),
+                        dictionary ? DEFAULT_MIN_DICTIONARY_COMPRESS_SIZE : DEFAULT_MIN_COMPRESS_SIZE);
+        kryo.addDefaultSerializer(Attribute.class, new KryoCVAwareSerializableSerializer(reducedResponse));
+    }
+    
     @Override
     public byte[] serialize(Document doc) {
         baos.reset();
@@ -0,0 +1,179 @@
+package datawave.query.index.lookup;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.accumulo.core.client.IteratorSetting;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.security.Authorizations;
+import org.apache.log4j.Logger;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.Weigher;
+import com.google.common.collect.Maps;
+
+/**
+ * Caches the global index entries read for a term, so that queries planned shortly after one another on the same server, such as those run by dashboards and
+ * scheduled queries, share a single scan of the global index.
+ * <p>
+ * A lookup is identified by everything that determines the entries it returns: the index table, the authorizations, the range (which holds the term and the
+ * date range), the field, the kind of scanner and the settings of the datatype filter and uid iterators. The raw entries are cached rather than the parsed
+ * {@link IndexInfo}s, which carry the query node they were found for, so every query parses them against its own node. A lookup is only cached once it has been
+ * read in full, and only if it is small enough, so large lookups are still streamed from the index.
+ */
+public class IndexLookupCache {
+    private static final Logger log = Logger.getLogger(IndexLookupCache.class);
+    
+    private static final long MAX_CACHED_BYTES = 256L * 1024 * 1024;
+    private static final long MAX_LOOKUP_BYTES = 1024L * 1024;
+    // an upper bound on the time to live, which each query may shorten
+    private static final long MAX_CACHE_TIME_MINUTES = 60;
+    
+    private static final Cache<String,CachedLookup> lookups = CacheBuilder.newBuilder().maximumWeight(MAX_CACHED_BYTES)
+                    .weigher(new Weigher<String,CachedLookup>() {
+                        @Override
+                        public int weigh(String key, CachedLookup lookup) {
+                            return key.length() + lookup.sizeInBytes;
+                        }
+                    }).expireAfterWrite(MAX_CACHE_TIME_MINUTES, TimeUnit.MINUTES).concurrencyLevel(10).build();
+    
+    private IndexLookupCache() {}
+    
+    /**
+     * Builds the key of a lookup.
+     *
+     * @param tableName
+     *            the index table
+     * @param auths
+     *            the authorizations of the query
+     * @param range
+     *            the range scanned
+     * @param fieldName
+     *            the field, which is the column family fetched
+     * @param scanType
+     *            how the index is scanned, where that changes the entries returned, such as the shards per day threshold of a range stream scanner
+     * @param settings
+     *            the iterators that filter and aggregate the entries, but not those that only annotate the scan, such as the query info iterator
+     * @return the key
+     */
+    public static String key(String tableName, Iterable<Authorizations> auths, Range range, String fieldName, String scanType,
+                    IteratorSetting... settings) {
+        // the same authorizations may come in any order
+        Set<String> sortedAuths = new TreeSet<>();
+        for (Authorizations auth : auths) {
+            sortedAuths.add(auth.toString());
+        }
+        StringBuilder key = new StringBuilder(tableName);
+        key.append('\u0000').append(sortedAuths).append('\u0000').append(range).append('\u0000').append(fieldName).append('\u0000').append(scanType);
+        for (IteratorSetting setting : settings) {
+            key.append('\u0000').append(setting);
+        }
+        return key.toString();
+    }
+    
+    /**
+     * Gets the entries of a lookup, if it was cached recently enough.
+     *
+     * @param key
+     *            the key of the lookup
+     * @param maxAgeMillis
+     *            how old the cached entries may be
+     * @return the entries, or null if the lookup must be scanned
+     */
+    public static Iterator<Entry<Key,Value>> get(String key, long maxAgeMillis) {
+        CachedLookup lookup = lookups.getIfPresent(key);
+        if (lookup == null || System.currentTimeMillis() - lookup.timestamp > maxAgeMillis) {
+            return null;
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Reusing " + lookup.entries.size() + " cached index entries for " + key.replace('\u0000', ' '));
+        }
+        return lookup.entries.iterator();
+    }
+    
+    /**
+     * Wraps the entries of a lookup as they are scanned, caching them once the scan is complete.
+     *
+     * @param key
+     *            the key of the lookup
+     * @param source
+     *            the entries scanned from the index
+     * @return the same entries
+     */
+    public static Iterator<Entry<Key,Value>> record(String key, Iterator<Entry<Key,Value>> source) {
+        return new RecordingIterator(key, source);
+    }
+    
+    /**
+     * Drops every cached lookup
+     */
+    public static void clear() {
+        lookups.invalidateAll();
+    }
+    
+    private static class CachedLookup {
+        private final List<Entry<Key,Value>> entries;
+        private final int sizeInBytes;
+        private final long timestamp;
+        
+        CachedLookup(List<Entry<Key,Value>> entries, int sizeInBytes, long timestamp) {
+            this.entries = entries;
+            this.sizeInBytes = sizeInBytes;
+            this.timestamp = timestamp;
+        }
+    }
+    
+    private static class RecordingIterator implements Iterator<Entry<Key,Value>> {
+        private final String key;
+        private final Iterator<Entry<Key,Value>> source;
+        private final long timestamp = System.currentTimeMillis();
+        private List<Entry<Key,Value>> entries = new ArrayList<>();
+        private long sizeInBytes = 0;
+        
+        RecordingIterator(String key, Iterator<Entry<Key,Value>> source) {
+            this.key = key;
+            this.source = source;
+        }
+        
+        @Override
+        public boolean hasNext() {
+            boolean hasNext = source.hasNext();
+            if (!hasNext && entries != null) {
+                lookups.put(key, new CachedLookup(Collections.unmodifiableList(entries), (int) sizeInBytes, timestamp));
+                entries = null;
+            }
+            return hasNext;
+        }
+        
+        @Override
+        public Entry<Key,Value> next() {
+            Entry<Key,Value> entry = source.next();
+            if (entries != null) {
+                Key k = new Key(entry.getKey());
+                Value v = new Value(entry.getValue().get(), true);
+                sizeInBytes += k.getSize() + v.getSize();
+                if (sizeInBytes > MAX_LOOKUP_BYTES) {
+                    // too large to be worth keeping, so stop recording
+                    entries = null;
+                } else {
+                    entries.add(Maps.immutableEntry(k, v));
+                }
+            }
+            return entry;
+        }
+        
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -85,6 +85,7 @@ import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Set;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ExecutorService;
@@ -468,9 +469,10 @@ public class RangeStream extends BaseVisitor implements CloseableIterable<QueryP
             Iterator<Tuple2<String,IndexInfo>> itr = null;
             int stackStart = config.getBaseIteratorPriority();
             
+            Range range = rangeForTerm(literal, fieldName, config);
+            IteratorSetting dataTypeFilter = makeDataTypeFilter(config, stackStart++);
+            
             if (limitScanners) {
-                RangeStreamScanner scanSession = null;
-                
                 // configuration class
                 Class<? extends SortedKeyValueIterator<Key,Value>> iterClazz = createUidsIteratorClass;
                 
@@ -480,25 +482,8 @@ public class RangeStream extends BaseVisitor implements CloseableIterable<QueryP
                     if (createUidsIteratorClass == CreateTLDUidsIterator.class) {
                         condensedTld = true;
                     }
-                    scanSession = scanners.newCondensedRangeScanner(config.getIndexTableName(), config.getAuthorizations(), config.getQuery(),
-                                    config.getShardsPerDayThreshold());
-                    
-                } else {
-                    scanSession = scanners.newRangeScanner(config.getIndexTableName(), config.getAuthorizations(), config.getQuery(),
-                                    config.getShardsPerDayThreshold());
                 }
                 
-                scanSession.setMaxResults(config.getMaxIndexBatchSize());
-                
-                scanSession.setExecutor(streamExecutor);
-                
-                if (log.isTraceEnabled()) {
-                    log.trace("Provided new object " + scanSession.hashCode());
-                }
-                SessionOptions options = new SessionOptions();
-                options.fetchColumnFamily(new Text(fieldName));
-                options.addScanIterator(makeDataTypeFilter(config, stackStart++));
-                
                 final IteratorSetting uidSetting = new IteratorSetting(stackStart++, iterClazz);
                 
                 if (setCondenseUids) {
@@ -512,28 +497,78 @@ public class RangeStream extends BaseVisitor implements CloseableIterable<QueryP
                 }
                 uidSetting.addOption(CreateUidsIterator.COLLAPSE_UIDS, Boolean.valueOf(config.getCollapseUids()).toString());
                 
-                options.addScanIterator(uidSetting);
-                StringBuilder queryString = new StringBuilder(fieldName);
-                queryString.append("=='").append(literal).append("'");
-                options.addScanIterator(QueryScannerHelper.getQueryInfoIterator(config.getQuery(), false, queryString.toString()));
+                String cacheKey = null;
+                Iterator<Entry<Key,Value>> entries = null;
+                if (config.getIndexLookupCacheTimeMillis() > 0) {
+                    String scanType = "range:" + config.getShardsPerDayThreshold();
+                    cacheKey = IndexLookupCache.key(config.getIndexTableName(), config.getAuthorizations(), range, fieldName, scanType, dataTypeFilter,
+                                    uidSetting);
+                    entries = IndexLookupCache.get(cacheKey, config.getIndexLookupCacheTimeMillis());
+                }
                 
-                scanSession.setRanges(Collections.singleton(rangeForTerm(literal, fieldName, config))).setOptions(options);
+                if (entries == null) {
+                    RangeStreamScanner scanSession = null;
+                    if (setCondenseUids) {
+                        scanSession = scanners.newCondensedRangeScanner(config.getIndexTableName(), config.getAuthorizations(), config.getQuery(),
+                                        config.getShardsPerDayThreshold());
+                    } else {
+                        scanSession = scanners.newRangeScanner(config.getIndexTableName(), config.getAuthorizations(), config.getQuery(),
+                                        config.getShardsPerDayThreshold());
+                    }
+                    
+                    scanSession.setMaxResults(config.getMaxIndexBatchSize());
+                    
+                    scanSession.setExecutor(streamExecutor);
+                    
+                    if (log.isTraceEnabled()) {
+                        log.trace("Provided new object " + scanSession.hashCode());
+                    }
+                    SessionOptions options = new SessionOptions();
+                    options.fetchColumnFamily(new Text(fieldName));
+                    options.addScanIterator(dataTypeFilter);
+                    options.addScanIterator(uidSetting);
+                    StringBuilder queryString = new StringBuilder(fieldName);
+                    queryString.append("=='").append(literal).append("'");
+                    options.addScanIterator(QueryScannerHelper.getQueryInfoIterator(config.getQuery(), false, queryString.toString()));
+                    
+                    scanSession.setRanges(Collections.singleton(range)).setOptions(options);
+                    
+                    entries = scanSession;
+                    if (cacheKey != null) {
+                        entries = IndexLookupCache.record(cacheKey, entries);
+                    }
+                }
                 
-                itr = Iterators.transform(scanSession, new EntryParser(node, fieldName, literal, indexOnlyFields));
+                itr = Iterators.transform(entries, new EntryParser(node, fieldName, literal, indexOnlyFields));
                 
             } else {
                 
-                BatchScanner scanner = scanners.newScanner(config.getIndexTableName(), config.getAuthorizations(), 1, config.getQuery());
-                
-                scanner.setRanges(Collections.singleton(rangeForTerm(literal, fieldName, config)));
-                scanner.fetchColumnFamily(new Text(fieldName));
-                scanner.addScanIterator(makeDataTypeFilter(config, stackStart++));
-                
                 final IteratorSetting uidSetting = new IteratorSetting(stackStart++, createUidsIteratorClass);
                 uidSetting.addOption(CreateUidsIterator.COLLAPSE_UIDS, Boolean.valueOf(config.getCollapseUids()).toString());
-                scanner.addScanIterator(uidSetting);
                 
-                itr = Iterators.transform(scanner.iterator(), new EntryParser(node, fieldName, literal, indexOnlyFields));
+                String cacheKey = null;
+                Iterator<Entry<Key,Value>> entries = null;
+                if (config.getIndexLookupCacheTimeMillis() > 0) {
+                    cacheKey = IndexLookupCache.key(config.getIndexTableName(), config.getAuthorizations(), range, fieldName, "batch", dataTypeFilter,
+                                    uidSetting);
+                    entries = IndexLookupCache.get(cacheKey, config.getIndexLookupCacheTimeMillis());
+                }
+                
+                if (entries == null) {
+                    BatchScanner scanner = scanners.newScanner(config.getIndexTableName(), config.getAuthorizations(), 1, config.getQuery());
+                    
+                    scanner.setRanges(Collections.singleton(range));
+                    scanner.fetchColumnFamily(new Text(fieldName));
+                    scanner.addScanIterator(dataTypeFilter);
+                    scanner.addScanIterator(uidSetting);
+                    
+                    entries = scanner.iterator();
+                    if (cacheKey != null) {
+                        entries = IndexLookupCache.record(cacheKey, entries);
+                    }
+                }
+                
+                itr = Iterators.transform(entries, new EntryParser(node, fieldName, literal, indexOnlyFields));
             }
             
             /**
@@ -3,16 +3,19 @@ package datawave.query.iterator;
 import datawave.query.attributes.Document;
 import org.apache.accumulo.core.data.Key;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 
 /**
- * 
+ * Iterates over a given document, or a given batch of documents in key order
  */
 public class DocumentSpecificNestedIterator extends NestedQueryIterator<Key> {
-    private Map.Entry<Key,Document> documentKey;
-    private Map.Entry<Key,Document> next;
+    private List<Map.Entry<Key,Document>> documentKeys = Collections.emptyList();
+    private int nextIndex = 0;
+    private int currentIndex = -1;
     private Map.Entry<Key,Document> current;
     
     public DocumentSpecificNestedIterator(Map.Entry<Key,Document> documentKey) {
@@ -20,12 +23,30 @@ public class DocumentSpecificNestedIterator extends NestedQueryIterator<Key> {
     }
     
     public void setDocumentKey(Map.Entry<Key,Document> documentKey) {
-        this.documentKey = documentKey;
-        this.next = documentKey;
+        setDocumentKeys(documentKey == null ? Collections.emptyList() : Collections.singletonList(documentKey));
     }
     
+    /**
+     * Set a batch of documents to iterate over
+     *
+     * @param documentKeys
+     *            the document keys and documents, in key order
+     */
+    public void setDocumentKeys(List<Map.Entry<Key,Document>> documentKeys) {
+        this.documentKeys = new ArrayList<>(documentKeys);
+        this.nextIndex = 0;
+        this.currentIndex = -1;
+    }
+    
+    /**
+     * @return the first document of the batch, or null if there is none
+     */
     public Map.Entry<Key,Document> getDocumentKey() {
-        return documentKey;
+        return documentKeys.isEmpty() ? null : documentKeys.get(0);
+    }
+    
+    public List<Map.Entry<Key,Document>> getDocumentKeys() {
+        return Collections.unmodifiableList(documentKeys);
     }
     
     @Override
@@ -33,12 +54,11 @@ public class DocumentSpecificNestedIterator extends NestedQueryIterator<Key> {
     
     @Override
     public Key move(Key minimum) {
-        if (minimum.compareTo(this.documentKey.getKey()) <= 0) {
-            this.next = documentKey;
-        } else {
-            this.next = null;
+        nextIndex = 0;
+        while (nextIndex < documentKeys.size() && minimum.compareTo(documentKeys.get(nextIndex).getKey()) > 0) {
+            nextIndex++;
         }
-        return this.next.getKey();
+        return (nextIndex < documentKeys.size() ? documentKeys.get(nextIndex).getKey() : null);
     }
     
     @Override
@@ -58,20 +78,27 @@ public class DocumentSpecificNestedIterator extends NestedQueryIterator<Key> {
     
     @Override
     public boolean hasNext() {
-        return (this.next != null && this.next.getKey() != null);
+        return (nextIndex < documentKeys.size() && documentKeys.get(nextIndex).getKey() != null);
     }
     
     @Override
     public Key next() {
-        this.current = this.next;
-        this.next = null;
+        if (nextIndex < documentKeys.size()) {
+            currentIndex = nextIndex++;
+            this.current = documentKeys.get(currentIndex);
+        } else {
+            currentIndex = -1;
+            this.current = null;
+        }
         return (this.current == null ? null : this.current.getKey());
     }
     
     @Override
     public void remove() {
-        if (this.current == this.documentKey) {
-            this.documentKey = null;
+        if (currentIndex >= 0) {
+            documentKeys.remove(currentIndex);
+            nextIndex = currentIndex;
+            currentIndex = -1;
         }
     }
 }
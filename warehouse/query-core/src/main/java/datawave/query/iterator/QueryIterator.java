@@ -20,6 +20,8 @@ import datawave.query.attributes.Document;
 import datawave.query.attributes.ValueTuple;
 import datawave.query.composite.CompositeMetadata;
 import datawave.query.function.Aggregation;
+import datawave.query.function.BatchedJexlEvaluationIterator;
+import datawave.query.function.CompiledJexlEvaluation;
 import datawave.query.function.DataTypeAsField;
 import datawave.query.function.DocumentMetadata;
 import datawave.query.function.DocumentPermutation;
@@ -56,9 +58,12 @@ import datawave.query.jexl.StatefulArithmetic;
 import datawave.query.jexl.functions.IdentityAggregator;
 import datawave.query.jexl.functions.KeyAdjudicator;
 import datawave.query.jexl.visitors.IteratorBuildingVisitor;
+import datawave.query.jexl.visitors.RebuildingVisitor;
 import datawave.query.jexl.visitors.SatisfactionVisitor;
 import datawave.query.jexl.visitors.VariableNameVisitor;
+import datawave.query.postprocessing.tf.BatchedTermOffsetIterator;
 import datawave.query.postprocessing.tf.TFFactory;
+import datawave.query.postprocessing.tf.TermOffsetFunction;
 import datawave.query.predicate.EmptyDocumentFilter;
 import datawave.query.statsd.QueryStatsDClient;
 import datawave.query.transformer.GroupingTransform;
@@ -208,6 +213,8 @@ public class QueryIterator extends QueryOptions implements YieldingKeyValueItera
             log.trace("QueryIterator init()");
         }
         
+        long start = System.currentTimeMillis();
+        
         if (!validateOptions(new SourcedOptions<>(source, env, options))) {
             throw new IllegalArgumentException("Could not initialize QueryIterator with " + options);
         }
@@ -221,7 +228,9 @@ public class QueryIterator extends QueryOptions implements YieldingKeyValueItera
         // Parse the query
         try {
             
-            script = JexlASTHelper.parseJexlQuery(this.getQuery());
+            // the parsed query is shared across inits, so take a copy of it
+            final String queryString = this.getQuery();
+            script = (ASTJexlScript) RebuildingVisitor.copy(QueryOptionsCache.get(QUERY, false, queryString, () -> JexlASTHelper.parseJexlQuery(queryString)));
             myEvaluationFunction = new JexlEvaluation(this.getQuery(), arithmetic);
             
         } catch (Exception e) {
@@ -246,6 +255,10 @@ public class QueryIterator extends QueryOptions implements YieldingKeyValueItera
         }
         
         this.sourceForDeepCopies = this.source.deepCopy(this.myEnvironment);
+        
+        if (trackingSpan != null) {
+            trackingSpan.addStageTimer(QuerySpan.Stage.Initialization, System.currentTimeMillis() - start);
+        }
     }
     
     @Override
@@ -363,12 +376,7 @@ public class QueryIterator extends QueryOptions implements YieldingKeyValueItera
             
             // Create the pipeline iterator for document aggregation and
             // evaluation within a thread pool
-            PipelineIterator pipelineIter = PipelineFactory.createIterator(this.seekKeySource, getMaxEvaluationPipelines(), getMaxPipelineCachedResults(),
-                            getSerialPipelineRequest(), querySpanCollector, trackingSpan, this, sourceForDeepCopies.deepCopy(myEnvironment), myEnvironment,
-                            yield, yieldThresholdMs);
-            
-            pipelineIter.setCollectTimingDetails(collectTimingDetails);
-            // TODO pipelineIter.setStatsdHostAndPort(statsdHostAndPort);
+            PipelineIterator pipelineIter = createPipelineIterator(this.seekKeySource, trackingSpan);
             
             pipelineIter.startPipeline();
             
@@ -406,7 +414,8 @@ public class QueryIterator extends QueryOptions implements YieldingKeyValueItera
             
             if (this.getReturnType() == ReturnType.kryo) {
                 // Serialize the Document using Kryo
-                this.serializedDocuments = Iterators.transform(pipelineDocuments, new KryoDocumentSerializer(isReducedResponse(), isCompressResults()));
+                this.serializedDocuments = Iterators.transform(pipelineDocuments, new KryoDocumentSerializer(isReducedResponse(), isCompressResults(),
+                                isDictionaryCompressResults()));
             } else if (this.getReturnType() == ReturnType.writable) {
                 // Use the Writable interface to serialize the Document
                 this.serializedDocuments = Iterators.transform(pipelineDocuments, new WritableDocumentSerializer(isReducedResponse()));
@@ -648,6 +657,60 @@ public class QueryIterator extends QueryOptions implements YieldingKeyValueItera
         
     }
     
+    /**
+     * Create the pipeline iterator which aggregates and evaluates the documents
+     * 
+     * @param documents
+     *            the document keys to evaluate
+     * @param trackingSpan
+     *            query span
+     * @return the pipeline iterator
+     */
+    protected PipelineIterator createPipelineIterator(NestedIterator<Key> documents, QuerySpan trackingSpan) {
+        PipelineIterator pipelineIter = PipelineFactory.createIterator(documents, getMaxEvaluationPipelines(), getMaxPipelineCachedResults(),
+                        getSerialPipelineRequest(), querySpanCollector, trackingSpan, this, sourceForDeepCopies.deepCopy(myEnvironment), myEnvironment, yield,
+                        yieldThresholdMs);
+        
+        pipelineIter.setCollectTimingDetails(collectTimingDetails);
+        pipelineIter.setDocumentBatchSize(getDocumentBatchSize());
+        // TODO pipelineIter.setStatsdHostAndPort(statsdHostAndPort);
+        return pipelineIter;
+    }
+    
+    /**
+     * Whether the documents are evaluated by a single serial pipeline, mirroring the choice made by the {@link PipelineFactory}
+     * 
+     * @return true if the pipeline is serial
+     */
+    protected boolean isSerialPipeline() {
+        return getMaxEvaluationPipelines() <= 1 || getSerialPipelineRequest();
+    }
+    
+    /**
+     * The number of documents the serial pipeline hands to the document pipeline at a time, so that the term frequencies and evaluation of several documents
+     * can be done together. The parallel pipelines each evaluate a single document, so the batch sizes do not apply to them.
+     * 
+     * @return the number of documents to evaluate together
+     */
+    protected int getDocumentBatchSize() {
+        int batchSize = 1;
+        if (!this.disableEvaluation && isSerialPipeline()) {
+            batchSize = Math.max(batchSize, getEvaluationBatchSize());
+            if (isTermFrequenciesRequired()) {
+                batchSize = Math.max(batchSize, getTermFrequencyBatchSize());
+            }
+        }
+        return batchSize;
+    }
+    
+    /**
+     * Whether the evaluation of a document source may see more than one document at a time. This is the case for the serial pipeline, and for callers which
+     * evaluate a stream of documents without a document source.
+     */
+    private boolean isBatchingDocuments(NestedQueryIterator<Key> documentSource) {
+        return documentSource == null || isSerialPipeline();
+    }
+    
     /**
      * There was a request to create a serial pipeline. The factory may not choose to honor this.
      * 
@@ -759,7 +822,7 @@ public class QueryIterator extends QueryOptions implements YieldingKeyValueItera
         // which do not fall within the expected time range
         Iterator<Entry<Key,Document>> documents = null;
         Aggregation a = new Aggregation(this.getTimeFilter(), this.typeMetadataWithNonIndexed, compositeMetadata, this.isIncludeGroupingContext(),
-                        this.includeRecordId, this.disableIndexOnlyDocuments(), getEvaluationFilter(), isTrackSizes());
+                        this.includeRecordId, this.disableIndexOnlyDocuments(), getEvaluationFilter(), isTrackSizes(), isLazyAttributes());
         if (gatherTimingDetails()) {
             documents = Iterators.transform(sourceIterator, new EvaluationTrackingFunction<>(QuerySpan.Stage.Aggregation, trackingSpan, a));
         } else {
@@ -907,7 +970,12 @@ public class QueryIterator extends QueryOptions implements YieldingKeyValueItera
                 tfFunction = TFFactory.getFunction(getScript(documentSource), getContentExpansionFields(), getTermFrequencyFields(), this.getTypeMetadata(),
                                 super.equality, getEvaluationFilter(), sourceDeepCopy.deepCopy(myEnvironment));
                 
-                itrWithContext = TraceIterators.transform(tupleItr, tfFunction, "Term Frequency Lookup");
+                if (getTermFrequencyBatchSize() > 1 && isBatchingDocuments(documentSource) && tfFunction instanceof TermOffsetFunction) {
+                    itrWithContext = new BatchedTermOffsetIterator(tupleItr, ((TermOffsetFunction) tfFunction).getPopulator(), getTermFrequencyBatchSize(),
+                                    "Term Frequency Lookup");
+                } else {
+                    itrWithContext = TraceIterators.transform(tupleItr, tfFunction, "Term Frequency Lookup");
+                }
             } else {
                 itrWithContext = Iterators.transform(tupleItr, new EmptyContext<>());
             }
@@ -916,7 +984,13 @@ public class QueryIterator extends QueryOptions implements YieldingKeyValueItera
                             compositeMetadata, this, variables, QueryIterator.this);
             
             final Iterator<Tuple3<Key,Document,DatawaveJexlContext>> itrWithDatawaveJexlContext = Iterators.transform(itrWithContext, contextCreator);
-            Iterator<Tuple3<Key,Document,DatawaveJexlContext>> matchedDocuments = statelessFilter(itrWithDatawaveJexlContext, jexlEvaluationFunction);
+            Iterator<Tuple3<Key,Document,DatawaveJexlContext>> matchedDocuments;
+            if (getEvaluationBatchSize() > 1 && jexlEvaluationFunction instanceof CompiledJexlEvaluation) {
+                matchedDocuments = new BatchedJexlEvaluationIterator(itrWithDatawaveJexlContext, (CompiledJexlEvaluation) jexlEvaluationFunction,
+                                getEvaluationBatchSize());
+            } else {
+                matchedDocuments = statelessFilter(itrWithDatawaveJexlContext, jexlEvaluationFunction);
+            }
             if (log.isTraceEnabled()) {
                 log.trace("arithmetic:" + arithmetic + " range:" + getDocumentRange(documentSource) + ", thread:" + Thread.currentThread());
             }
@@ -942,21 +1016,29 @@ public class QueryIterator extends QueryOptions implements YieldingKeyValueItera
     protected JexlEvaluation getJexlEvaluation(NestedQueryIterator<Key> documentSource) {
         
         if (null == documentSource) {
-            return new JexlEvaluation(query, getArithmetic());
+            return newJexlEvaluation(documentSource);
         }
         JexlEvaluation jexlEvaluationFunction = null;
         NestedQuery<Key> nestedQuery = documentSource.getNestedQuery();
         if (null == nestedQuery) {
-            jexlEvaluationFunction = new JexlEvaluation(query, getArithmetic());
+            jexlEvaluationFunction = newJexlEvaluation(documentSource);
         } else {
             jexlEvaluationFunction = nestedQuery.getEvaluation();
             if (null == jexlEvaluationFunction) {
-                return new JexlEvaluation(query, getArithmetic());
+                return newJexlEvaluation(documentSource);
             }
         }
         return jexlEvaluationFunction;
     }
     
+    protected JexlEvaluation newJexlEvaluation(NestedQueryIterator<Key> documentSource) {
+        // the query is compiled when documents are evaluated in batches, and interpreted per document otherwise
+        if (getEvaluationBatchSize() > 1 && isBatchingDocuments(documentSource)) {
+            return new CompiledJexlEvaluation(query, getArithmetic());
+        }
+        return new JexlEvaluation(query, getArithmetic());
+    }
+    
     @Override
     public JexlArithmetic getArithmetic() {
         JexlArithmetic myArithmetic = this.arithmetic;
@@ -996,7 +1078,7 @@ public class QueryIterator extends QueryOptions implements YieldingKeyValueItera
                             documents,
                             new GetDocument(docMapper, new Aggregation(this.getTimeFilter(), typeMetadataWithNonIndexed, compositeMetadata, this
                                             .isIncludeGroupingContext(), this.includeRecordId, this.disableIndexOnlyDocuments(), getEvaluationFilter(),
-                                            isTrackSizes())));
+                                            isTrackSizes(), isLazyAttributes())));
             
             Iterator<Entry<Key,Document>> retDocuments = Iterators.transform(mappedDocuments, new TupleToEntry<>());
             
@@ -118,6 +118,10 @@ public class QueryOptions implements OptionDescriber {
     public static final String DOCUMENT_PERMUTATION_CLASSES = "document.permutation.classes";
     public static final String TERM_FREQUENCY_FIELDS = "term.frequency.fields";
     public static final String TERM_FREQUENCIES_REQUIRED = "term.frequencies.are.required";
+    
+    public static final String TERM_FREQUENCY_BATCH_SIZE = "term.frequency.batch.size";
+    public static final String EVALUATION_BATCH_SIZE = "evaluation.batch.size";
+    public static final String LAZY_ATTRIBUTES = "lazy.attributes";
     public static final String CONTENT_EXPANSION_FIELDS = "content.expansion.fields";
     public static final String LIMIT_FIELDS = "limit.fields";
     public static final String LIMIT_FIELDS_PRE_QUERY_EVALUATION = "limit.fields.pre.query.evaluation";
@@ -203,6 +207,8 @@ public class QueryOptions implements OptionDescriber {
     
     public static final String COMPRESS_SERVER_SIDE_RESULTS = "compress.server.side.results";
     
+    public static final String DICTIONARY_COMPRESS_SERVER_SIDE_RESULTS = "dictionary.compress.server.side.results";
+    
     public static final String MAX_EVALUATION_PIPELINES = "max.evaluation.pipelines";
     
     public static final String SERIAL_EVALUATION_PIPELINE = "serial.evaluation.pipeline";
@@ -318,11 +324,16 @@ public class QueryOptions implements OptionDescriber {
     protected Map<String,Set<String>> nonIndexedDataTypeMap = Maps.newHashMap();
     
     protected boolean termFrequenciesRequired = false;
+    protected int termFrequencyBatchSize = 1;
+    protected int evaluationBatchSize = 1;
+    protected boolean lazyAttributes = false;
     protected Set<String> termFrequencyFields = Collections.emptySet();
     protected Set<String> contentExpansionFields;
     
     protected boolean compressResults = false;
     
+    protected boolean dictionaryCompressResults = false;
+    
     protected Boolean compressedMappings = false;
     protected boolean limitOverride = false;
     
@@ -430,6 +441,7 @@ public class QueryOptions implements OptionDescriber {
         this.yieldThresholdMs = other.yieldThresholdMs;
         
         this.compressResults = other.compressResults;
+        this.dictionaryCompressResults = other.dictionaryCompressResults;
         this.limitFieldsMap = other.limitFieldsMap;
         this.limitFieldsPreQueryEvaluation = other.limitFieldsPreQueryEvaluation;
         this.limitFieldsField = other.limitFieldsField;
@@ -458,6 +470,9 @@ public class QueryOptions implements OptionDescriber {
         this.sortedUIDs = other.sortedUIDs;
         
         this.termFrequenciesRequired = other.termFrequenciesRequired;
+        this.termFrequencyBatchSize = other.termFrequencyBatchSize;
+        this.evaluationBatchSize = other.evaluationBatchSize;
+        this.lazyAttributes = other.lazyAttributes;
         this.termFrequencyFields = other.termFrequencyFields;
         this.contentExpansionFields = other.contentExpansionFields;
         
@@ -888,6 +903,14 @@ public class QueryOptions implements OptionDescriber {
         this.compressResults = compressResults;
     }
     
+    public boolean isDictionaryCompressResults() {
+        return dictionaryCompressResults;
+    }
+    
+    public void setDictionaryCompressResults(boolean dictionaryCompressResults) {
+        this.dictionaryCompressResults = dictionaryCompressResults;
+    }
+    
     public Map<String,Integer> getLimitFieldsMap() {
         return limitFieldsMap;
     }
@@ -1026,6 +1049,9 @@ public class QueryOptions implements OptionDescriber {
                         "Allow the evaluation to occur purely on values pulled from the field index for queries only accessing indexed fields (default is true)");
         options.put(ALLOW_TERM_FREQUENCY_LOOKUP, "Allow the evaluation to use the term frequencies in lieu of the field index when appropriate");
         options.put(TERM_FREQUENCIES_REQUIRED, "Does the query require gathering term frequencies");
+        options.put(TERM_FREQUENCY_BATCH_SIZE, "The number of documents for which term frequencies are gathered together, 1 to gather them per document");
+        options.put(EVALUATION_BATCH_SIZE, "The number of documents evaluated together against the compiled query, 1 to interpret the query per document");
+        options.put(LAZY_ATTRIBUTES, "Only parse and normalize event values once they are read by the evaluation, a projection or the serializer");
         options.put(TERM_FREQUENCY_FIELDS, "comma-delimited list of fields that contain term frequencies");
         options.put(CONTENT_EXPANSION_FIELDS, "comma-delimited list of fields used for content function expansions");
         options.put(HDFS_SITE_CONFIG_URLS, "URLs (comma delimited) of where to find the hadoop hdfs and core site configuration files");
@@ -1045,6 +1071,8 @@ public class QueryOptions implements OptionDescriber {
         options.put(YIELD_THRESHOLD_MS,
                         "The threshold in milliseconds that the query iterator will evaluate consecutive documents to false before yielding the scan.");
         options.put(COMPRESS_SERVER_SIDE_RESULTS, "GZIP compress the serialized Documents before returning to the webserver");
+        options.put(DICTIONARY_COMPRESS_SERVER_SIDE_RESULTS,
+                        "When compressing results, deflate even small Documents against a dictionary of the strings common to all Documents instead");
         options.put(MAX_EVALUATION_PIPELINES, "The max number of evaluation pipelines");
         options.put(SERIAL_EVALUATION_PIPELINE, "Forces us to use the serial pipeline. Allows us to still have a single thread for evaluation");
         options.put(MAX_PIPELINE_CACHED_RESULTS, "The max number of non-null evaluated results to cache beyond the evaluation pipelines in queue");
@@ -1122,9 +1150,16 @@ public class QueryOptions implements OptionDescriber {
         this.validateTypeMetadata(options);
         
         if (options.containsKey(COMPOSITE_METADATA)) {
-            String compositeMetadataString = options.get(COMPOSITE_METADATA);
-            if (compositeMetadataString != null && !compositeMetadataString.isEmpty())
-                this.compositeMetadata = CompositeMetadata.fromBytes(java.util.Base64.getDecoder().decode(compositeMetadataString));
+            final String compositeMetadataString = options.get(COMPOSITE_METADATA);
+            if (compositeMetadataString != null && !compositeMetadataString.isEmpty()) {
+                try {
+                    // nothing modifies the composite metadata once it is set, so the cached instance is shared
+                    this.compositeMetadata = QueryOptionsCache.get(COMPOSITE_METADATA, false, compositeMetadataString,
+                                    () -> CompositeMetadata.fromBytes(java.util.Base64.getDecoder().decode(compositeMetadataString)));
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            }
             
             if (log.isTraceEnabled()) {
                 log.trace("Using compositeMetadata: " + this.compositeMetadata);
@@ -1356,12 +1391,12 @@ public class QueryOptions implements OptionDescriber {
         if (options.containsKey(NON_INDEXED_DATATYPES)) {
             try {
                 
-                String nonIndexedDataTypes = options.get(NON_INDEXED_DATATYPES);
-                if (compressedMappings) {
-                    nonIndexedDataTypes = decompressOption(nonIndexedDataTypes, QueryOptions.UTF8);
-                }
+                final String nonIndexedDataTypes = options.get(NON_INDEXED_DATATYPES);
+                final boolean compressed = compressedMappings;
+                Map<String,Set<String>> nonIndexedDataTypeMap = QueryOptionsCache.get(NON_INDEXED_DATATYPES, compressed, nonIndexedDataTypes,
+                                () -> buildFieldDataTypeMap(compressed ? decompressOption(nonIndexedDataTypes, QueryOptions.UTF8) : nonIndexedDataTypes));
                 
-                this.setNonIndexedDataTypeMap(buildFieldDataTypeMap(nonIndexedDataTypes));
+                this.setNonIndexedDataTypeMap(copyFieldDataTypeMap(nonIndexedDataTypeMap));
             } catch (IOException e) {
                 throw new RuntimeException(e);
             }
@@ -1427,6 +1462,10 @@ public class QueryOptions implements OptionDescriber {
             this.setCompressResults(Boolean.parseBoolean(options.get(COMPRESS_SERVER_SIDE_RESULTS)));
         }
         
+        if (options.containsKey(DICTIONARY_COMPRESS_SERVER_SIDE_RESULTS)) {
+            this.setDictionaryCompressResults(Boolean.parseBoolean(options.get(DICTIONARY_COMPRESS_SERVER_SIDE_RESULTS)));
+        }
+        
         if (options.containsKey(MAX_EVALUATION_PIPELINES)) {
             this.setMaxEvaluationPipelines(Integer.parseInt(options.get(MAX_EVALUATION_PIPELINES)));
         }
@@ -1442,6 +1481,18 @@ public class QueryOptions implements OptionDescriber {
         if (options.containsKey(TERM_FREQUENCIES_REQUIRED)) {
             this.setTermFrequenciesRequired(Boolean.parseBoolean(options.get(TERM_FREQUENCIES_REQUIRED)));
         }
+        
+        if (options.containsKey(TERM_FREQUENCY_BATCH_SIZE)) {
+            this.setTermFrequencyBatchSize(Integer.parseInt(options.get(TERM_FREQUENCY_BATCH_SIZE)));
+        }
+        
+        if (options.containsKey(EVALUATION_BATCH_SIZE)) {
+            this.setEvaluationBatchSize(Integer.parseInt(options.get(EVALUATION_BATCH_SIZE)));
+        }
+        
+        if (options.containsKey(LAZY_ATTRIBUTES)) {
+            this.setLazyAttributes(Boolean.parseBoolean(options.get(LAZY_ATTRIBUTES)));
+        }
         this.setTermFrequencyFields(parseTermFrequencyFields(options));
         this.setContentExpansionFields(parseContentExpansionFields(options));
         
@@ -1516,12 +1567,12 @@ public class QueryOptions implements OptionDescriber {
         }
         // Serialized version of a mapping from field name to DataType used
         if (options.containsKey(TYPE_METADATA)) {
-            String typeMetadataString = options.get(TYPE_METADATA);
+            final String typeMetadataString = options.get(TYPE_METADATA);
+            final boolean compressed = compressedMappings;
             try {
-                if (compressedMappings) {
-                    typeMetadataString = decompressOption(typeMetadataString, QueryOptions.UTF8);
-                }
-                this.typeMetadata = buildTypeMetadata(typeMetadataString);
+                TypeMetadata cached = QueryOptionsCache.get(TYPE_METADATA, compressed, typeMetadataString,
+                                () -> buildTypeMetadata(compressed ? decompressOption(typeMetadataString, QueryOptions.UTF8) : typeMetadataString));
+                this.typeMetadata = new TypeMetadata(cached);
             } catch (IOException e) {
                 throw new RuntimeException(e);
             }
@@ -1589,6 +1640,14 @@ public class QueryOptions implements OptionDescriber {
         return mapping;
     }
     
+    protected static Map<String,Set<String>> copyFieldDataTypeMap(Map<String,Set<String>> mapping) {
+        Map<String,Set<String>> copy = new HashMap<>();
+        for (Entry<String,Set<String>> entry : mapping.entrySet()) {
+            copy.put(entry.getKey(), new HashSet<>(entry.getValue()));
+        }
+        return copy;
+    }
+    
     public static Set<String> fetchDatatypeKeys(String data) {
         Set<String> keys = Sets.newHashSet();
         if (data != null) {
@@ -1780,6 +1839,30 @@ public class QueryOptions implements OptionDescriber {
         this.termFrequenciesRequired = termFrequenciesRequired;
     }
     
+    public int getTermFrequencyBatchSize() {
+        return termFrequencyBatchSize;
+    }
+    
+    public void setTermFrequencyBatchSize(int termFrequencyBatchSize) {
+        this.termFrequencyBatchSize = termFrequencyBatchSize;
+    }
+    
+    public int getEvaluationBatchSize() {
+        return evaluationBatchSize;
+    }
+    
+    public void setEvaluationBatchSize(int evaluationBatchSize) {
+        this.evaluationBatchSize = evaluationBatchSize;
+    }
+    
+    public boolean isLazyAttributes() {
+        return lazyAttributes;
+    }
+    
+    public void setLazyAttributes(boolean lazyAttributes) {
+        this.lazyAttributes = lazyAttributes;
+    }
+    
     public Set<String> parseTermFrequencyFields(Map<String,String> options) {
         String val = options.get(TERM_FREQUENCY_FIELDS);
         if (val == null) {
@@ -0,0 +1,111 @@
+package datawave.query.iterator;
+
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Logger;
+
+import com.google.common.base.Objects;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.Weigher;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+/**
+ * A JVM wide cache of the artifacts that the QueryIterator parses from its options. Accumulo tears down and re-initializes the iterator stack for every scan
+ * batch, tablet and yield, each time with the same query, type metadata and mappings, so these are decompressed and parsed once per tablet server rather than
+ * once per init.
+ * <p>
+ * Entries are keyed by the option name and its serialized value, weighed by the length of that value, and expire when they have not been used for a while.
+ * Cached values are shared, so callers must copy any value they intend to modify.
+ */
+public class QueryOptionsCache {
+    
+    private static final Logger log = Logger.getLogger(QueryOptionsCache.class);
+    
+    /**
+     * total length of the cached option values, in characters
+     */
+    private static final long MAX_WEIGHT = 64l * 1024 * 1024;
+    
+    private static Cache<OptionKey,Object> OPTIONS_CACHE = CacheBuilder.newBuilder().maximumWeight(MAX_WEIGHT).weigher(new Weigher<OptionKey,Object>() {
+        @Override
+        public int weigh(OptionKey key, Object value) {
+            return key.value.length();
+        }
+    }).expireAfterAccess(30, TimeUnit.MINUTES).concurrencyLevel(10).build();
+    
+    /**
+     * Returns the artifact parsed from an option value, parsing and caching it if it has not been seen recently.
+     *
+     * @param option
+     *            the option name
+     * @param compressed
+     *            whether the value is compressed
+     * @param value
+     *            the option value
+     * @param loader
+     *            parses the value
+     * @return the cached artifact, which must not be modified
+     * @throws IOException
+     *             if the value could not be parsed
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> T get(String option, boolean compressed, String value, Callable<T> loader) throws IOException {
+        if (value == null) {
+            try {
+                return loader.call();
+            } catch (IOException | RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new IOException("Unable to parse " + option, e);
+            }
+        }
+        try {
+            return (T) OPTIONS_CACHE.get(new OptionKey(option, compressed, value), loader);
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            Throwable cause = e.getCause();
+            if (log.isDebugEnabled()) {
+                log.debug("Unable to parse " + option, cause);
+            }
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException("Unable to parse " + option, cause);
+        }
+    }
+    
+    public static void clear() {
+        OPTIONS_CACHE.invalidateAll();
+    }
+    
+    private static class OptionKey {
+        private final String option;
+        private final boolean compressed;
+        private final String value;
+        
+        OptionKey(String option, boolean compressed, String value) {
+            this.option = option;
+            this.compressed = compressed;
+            this.value = value;
+        }
+        
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(option, compressed, value);
+        }
+        
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof OptionKey)) {
+                return false;
+            }
+            OptionKey other = (OptionKey) obj;
+            return compressed == other.compressed && option.equals(other.option) && value.equals(other.value);
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package datawave.query.iterator.pipeline;
 
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 
@@ -49,6 +50,13 @@ public class Pipeline implements Runnable {
         this.documentSpecificSource.setDocumentKey(documentKey);
     }
     
+    /**
+     * Set a batch of documents, in key order, as the source. Each call to {@link #run()} then returns the next result of the batch, until it returns null.
+     */
+    public void setSources(List<Map.Entry<Key,Document>> documentKeys) {
+        this.documentSpecificSource.setDocumentKeys(documentKeys);
+    }
+    
     public Map.Entry<Key,Document> getSource() {
         return this.documentSpecificSource.getDocumentKey();
     }
@@ -44,6 +44,7 @@ public class PipelineIterator implements Iterator<Entry<Key,Document>> {
     protected final QuerySpanCollector querySpanCollector;
     protected final QuerySpan querySpan;
     protected boolean collectTimingDetails = false;
+    protected int documentBatchSize = 1;
     protected IteratorEnvironment env;
     
     public PipelineIterator(NestedIterator<Key> documents, int maxPipelines, int maxCachedResults, QuerySpanCollector querySpanCollector, QuerySpan querySpan,
@@ -65,6 +66,17 @@ public class PipelineIterator implements Iterator<Entry<Key,Document>> {
         this.collectTimingDetails = collectTimingDetails;
     }
     
+    /**
+     * Set the number of documents handed to a pipeline at a time. The parallel pipelines each evaluate a single document, so only the {@link SerialIterator}
+     * evaluates batches of documents.
+     * 
+     * @param documentBatchSize
+     *            the number of documents to evaluate together
+     */
+    public void setDocumentBatchSize(int documentBatchSize) {
+        this.documentBatchSize = Math.max(1, documentBatchSize);
+    }
+    
     /*
      * (non-Javadoc)
      * 
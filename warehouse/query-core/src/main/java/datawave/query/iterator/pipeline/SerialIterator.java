@@ -12,6 +12,8 @@ import org.apache.accumulo.core.iterators.IteratorEnvironment;
 import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
 import org.apache.accumulo.core.iterators.YieldCallback;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map.Entry;
 
 public class SerialIterator extends PipelineIterator {
@@ -30,12 +32,18 @@ public class SerialIterator extends PipelineIterator {
     public boolean hasNext() {
         if (null == result) {
             long start = System.currentTimeMillis();
-            while (this.docSource.hasNext()) {
+            result = results.poll();
+            while (null == result && this.docSource.hasNext()) {
                 Key docKey = this.docSource.next();
                 Document doc = this.docSource.document();
-                currentPipeline.setSource(Maps.immutableEntry(docKey, doc));
-                currentPipeline.run();
-                result = currentPipeline.getResult();
+                if (documentBatchSize > 1) {
+                    docKey = runBatch(Maps.immutableEntry(docKey, doc));
+                    result = results.poll();
+                } else {
+                    currentPipeline.setSource(Maps.immutableEntry(docKey, doc));
+                    currentPipeline.run();
+                    result = currentPipeline.getResult();
+                }
                 if (null != result)
                     break;
                 if (yield != null && ((System.currentTimeMillis() - start) > yieldThresholdMs)) {
@@ -60,11 +68,37 @@ public class SerialIterator extends PipelineIterator {
         
     }
     
+    /**
+     * Hand the pipeline a batch of documents starting with the given one, and queue up all of the results of the batch
+     * 
+     * @return the key of the last document in the batch
+     */
+    protected Key runBatch(Entry<Key,Document> first) {
+        List<Entry<Key,Document>> batch = new ArrayList<>(documentBatchSize);
+        batch.add(first);
+        while (batch.size() < documentBatchSize && this.docSource.hasNext()) {
+            Key docKey = this.docSource.next();
+            batch.add(Maps.immutableEntry(docKey, this.docSource.document()));
+        }
+        currentPipeline.setSources(batch);
+        for (currentPipeline.run(); currentPipeline.getResult() != null; currentPipeline.run()) {
+            results.add(currentPipeline.getResult());
+        }
+        return batch.get(batch.size() - 1).getKey();
+    }
+    
     public void startPipeline() {
         if (this.docSource.hasNext()) {
-            currentPipeline = pipelines.checkOut(this.docSource.next(), this.docSource.document(), null);
-            currentPipeline.run();
-            result = currentPipeline.getResult();
+            Key docKey = this.docSource.next();
+            Document doc = this.docSource.document();
+            currentPipeline = pipelines.checkOut(docKey, doc, null);
+            if (documentBatchSize > 1) {
+                runBatch(Maps.immutableEntry(docKey, doc));
+                result = results.poll();
+            } else {
+                currentPipeline.run();
+                result = currentPipeline.getResult();
+            }
             if (null == result) {
                 hasNext();
             }
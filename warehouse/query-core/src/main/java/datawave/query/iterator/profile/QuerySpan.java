@@ -33,6 +33,7 @@ public class QuerySpan {
     private long stageTimerTotal = 0;
     
     public enum Stage {
+        Initialization,
         EmptyTree,
         DocumentSpecificTree,
         FieldIndexTree,
@@ -0,0 +1,142 @@
+package datawave.query.jexl;
+
+import java.util.regex.Pattern;
+
+import datawave.query.parser.JavaRegexAnalyzer;
+import datawave.query.parser.JavaRegexAnalyzer.JavaRegexParseException;
+
+import org.apache.log4j.Logger;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * A regex as used by the evaluation phase filter functions, analyzed and compiled once. The regex is matched against entire values, case insensitively (for
+ * US-ASCII letters) unless it turns case sensitivity back on with an inline flag, exactly as a {@link JexlPatternCache} pattern would match them. Depending on
+ * what the regex contains the match is done by
+ * <ul>
+ * <li>a string comparison when the regex is a plain literal,</li>
+ * <li>a {@link RegexAutomaton} when the regex only uses constructs it supports, after rejecting values that do not start with the leading literal,</li>
+ * <li>the cached java.util.regex Pattern otherwise.</li>
+ * </ul>
+ * Instances are immutable and are cached for the JVM by regex.
+ */
+public class CompiledRegex {
+    
+    private static final Logger log = Logger.getLogger(CompiledRegex.class);
+    
+    /**
+     * Matches a regex which turns case insensitivity off with an embedded flag, e.g. {@code (?-i)}
+     */
+    public static final String CASE_SENSITIVE_EXPRESSION = ".*\\(\\?[idmsux]*-[dmsux]*i[idmsux]*\\).*";
+    
+    private static final Pattern CASE_SENSITIVE_PATTERN = Pattern.compile(CASE_SENSITIVE_EXPRESSION);
+    
+    private static Cache<String,CompiledRegex> REGEX_CACHE = CacheBuilder.newBuilder().maximumSize(10000l).initialCapacity(100).concurrencyLevel(10).build();
+    
+    private final String regex;
+    private final Pattern pattern;
+    private final boolean caseSensitive;
+    private final String literal;
+    private final String leadingLiteral;
+    private final RegexAutomaton automaton;
+    
+    private CompiledRegex(String regex) {
+        this.regex = regex;
+        // compile the pattern first so that an invalid regex fails the same way it always has
+        this.pattern = JexlPatternCache.getPattern(regex);
+        this.caseSensitive = CASE_SENSITIVE_PATTERN.matcher(regex).matches();
+        
+        String literal = null;
+        String leadingLiteral = null;
+        // the analyzer skips over flags and non-capturing groups, so only trust it when there are none
+        if (!regex.contains("(?")) {
+            try {
+                JavaRegexAnalyzer analyzer = new JavaRegexAnalyzer(regex);
+                if (!analyzer.hasWildCard()) {
+                    literal = (analyzer.getLeadingLiteral() == null ? "" : analyzer.getLeadingLiteral());
+                } else if (analyzer.isLeadingLiteral() && regex.indexOf('|') < 0) {
+                    // the analyzer can miss an alternation that follows a group, so only use the prefix without one
+                    leadingLiteral = analyzer.getLeadingLiteral();
+                }
+            } catch (JavaRegexParseException | RuntimeException e) {
+                if (log.isDebugEnabled()) {
+                    log.debug("Unable to analyze regex " + regex + ", falling back to the pattern", e);
+                }
+            }
+        }
+        this.literal = literal;
+        this.leadingLiteral = leadingLiteral;
+        this.automaton = (literal == null ? RegexAutomaton.compile(regex, !caseSensitive) : null);
+    }
+    
+    /**
+     * Returns a cached CompiledRegex
+     *
+     * @param regex
+     * @return the compiled regex
+     */
+    public static CompiledRegex get(String regex) {
+        CompiledRegex compiled = REGEX_CACHE.getIfPresent(regex);
+        if (null != compiled) {
+            return compiled;
+        }
+        
+        compiled = new CompiledRegex(regex);
+        REGEX_CACHE.put(regex, compiled);
+        
+        return compiled;
+    }
+    
+    public String getRegex() {
+        return regex;
+    }
+    
+    public Pattern getPattern() {
+        return pattern;
+    }
+    
+    /**
+     * @return true if the regex turns case sensitivity back on with an inline flag, in which case only the un-normalized value should be matched
+     */
+    public boolean isCaseSensitive() {
+        return caseSensitive;
+    }
+    
+    /**
+     * @param value
+     *            the value to match
+     * @return true if the entire value matches the regex
+     */
+    public boolean matches(String value) {
+        if (literal != null) {
+            return value.length() == literal.length() && regionMatches(value, literal);
+        }
+        if (leadingLiteral != null && (value.length() < leadingLiteral.length() || !regionMatches(value, leadingLiteral))) {
+            return false;
+        }
+        if (automaton != null) {
+            return automaton.matches(value);
+        }
+        return pattern.matcher(value).matches();
+    }
+    
+    /**
+     * Compare the start of a value with a literal the same way a case insensitive Pattern would, folding only US-ASCII letters
+     */
+    private static boolean regionMatches(String value, String literal) {
+        for (int i = 0; i < literal.length(); i++) {
+            char c1 = value.charAt(i);
+            char c2 = literal.charAt(i);
+            if (c1 != c2 && (c1 >= 128 || c2 >= 128 || Character.toLowerCase(c1) != Character.toLowerCase(c2))) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    @Override
+    public String toString() {
+        return regex;
+    }
+}
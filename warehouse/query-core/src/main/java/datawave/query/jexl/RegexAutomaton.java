@@ -0,0 +1,650 @@
+package datawave.query.jexl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntPredicate;
+
+/**
+ * A linear time matcher for the subset of the java regex syntax that is commonly used in query regexes. The regex is compiled into a Thompson NFA which is
+ * simulated one code point at a time, so a full match costs O(value length * regex size) and never backtracks.
+ * <p>
+ * The supported constructs are literals, escaped punctuation, '.', character classes with ranges and negation, the predefined classes \d \D \w \W \s \S, the
+ * \t \n \r \f escapes, capturing and non-capturing groups, alternation, and the greedy or reluctant * + ? {n} {n,} {n,m} quantifiers. A '^' at the start or a
+ * '$' at the end of the regex is accepted since the whole value is always matched. Anything else (flags, back references, boundaries, possessive quantifiers,
+ * unicode properties, class intersections, ...) is not supported and {@link #compile(String, boolean)} returns null so the caller can fall back to
+ * java.util.regex.
+ * <p>
+ * Case insensitivity mirrors {@link java.util.regex.Pattern#CASE_INSENSITIVE} without UNICODE_CASE, i.e. only US-ASCII letters are folded.
+ * <p>
+ * Instances are immutable and thread safe.
+ */
+public class RegexAutomaton {
+    
+    // limits the size of the program produced by expanding counted repetitions
+    private static final int MAX_INSTRUCTIONS = 5000;
+    
+    private static final int CHAR = 0;
+    private static final int SPLIT = 1;
+    private static final int JMP = 2;
+    private static final int MATCH = 3;
+    
+    private static final IntPredicate DIGIT = c -> c >= '0' && c <= '9';
+    private static final IntPredicate WORD = c -> (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_';
+    private static final IntPredicate SPACE = c -> c == ' ' || c == '\t' || c == '\n' || c == 0x0B || c == '\f' || c == '\r';
+    private static final IntPredicate DOT = c -> c != '\n' && c != '\r' && c != 0x85 && c != 0x2028 && c != 0x2029;
+    
+    private final int[] ops;
+    private final int[] x;
+    private final int[] y;
+    private final IntPredicate[] predicates;
+    
+    private RegexAutomaton(Program program) {
+        int size = program.ops.size();
+        this.ops = new int[size];
+        this.x = new int[size];
+        this.y = new int[size];
+        this.predicates = new IntPredicate[size];
+        for (int i = 0; i < size; i++) {
+            ops[i] = program.ops.get(i);
+            x[i] = program.x.get(i);
+            y[i] = program.y.get(i);
+            predicates[i] = program.predicates.get(i);
+        }
+    }
+    
+    /**
+     * Compile a regex into an automaton
+     *
+     * @param regex
+     *            the regex
+     * @param caseInsensitive
+     *            whether US-ASCII letters are matched without regard to case
+     * @return the automaton, or null if the regex uses a construct that is not supported
+     */
+    public static RegexAutomaton compile(String regex, boolean caseInsensitive) {
+        try {
+            Node node = new Parser(regex, caseInsensitive).parse();
+            Program program = new Program();
+            node.emit(program);
+            program.emit(MATCH, 0, 0, null);
+            return new RegexAutomaton(program);
+        } catch (UnsupportedRegexException e) {
+            return null;
+        }
+    }
+    
+    /**
+     * @param value
+     *            the value to match
+     * @return true if the entire value matches the regex
+     */
+    public boolean matches(CharSequence value) {
+        final int size = ops.length;
+        int[] current = new int[size];
+        int[] next = new int[size];
+        final int[] marks = new int[size];
+        final int[] stack = new int[size];
+        int generation = 1;
+        
+        int currentSize = addState(0, current, 0, marks, generation, stack);
+        final int length = value.length();
+        int i = 0;
+        while (i < length && currentSize > 0) {
+            final int c = Character.codePointAt(value, i);
+            i += Character.charCount(c);
+            generation++;
+            int nextSize = 0;
+            for (int s = 0; s < currentSize; s++) {
+                final int pc = current[s];
+                if (ops[pc] == CHAR && predicates[pc].test(c)) {
+                    nextSize = addState(pc + 1, next, nextSize, marks, generation, stack);
+                }
+            }
+            int[] swap = current;
+            current = next;
+            next = swap;
+            currentSize = nextSize;
+        }
+        
+        if (i < length) {
+            return false;
+        }
+        for (int s = 0; s < currentSize; s++) {
+            if (ops[current[s]] == MATCH) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * @return the states before any character has been consumed, for walking the automaton one code point at a time
+     */
+    public int[] start() {
+        int[] list = new int[ops.length];
+        int size = addState(0, list, 0, new int[ops.length], 1, new int[ops.length]);
+        return Arrays.copyOf(list, size);
+    }
+    
+    /**
+     * @param states
+     *            the current states
+     * @param c
+     *            the next code point
+     * @return the states after consuming the code point, empty if no value with the consumed prefix can match
+     */
+    public int[] step(int[] states, int c) {
+        int[] list = new int[ops.length];
+        int[] marks = new int[ops.length];
+        int[] stack = new int[ops.length];
+        int size = 0;
+        for (int pc : states) {
+            if (ops[pc] == CHAR && predicates[pc].test(c)) {
+                size = addState(pc + 1, list, size, marks, 1, stack);
+            }
+        }
+        return Arrays.copyOf(list, size);
+    }
+    
+    /**
+     * @param states
+     *            the current states
+     * @return true if the code points consumed so far match the regex
+     */
+    public boolean isMatch(int[] states) {
+        for (int pc : states) {
+            if (ops[pc] == MATCH) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Add a state and everything reachable from it without consuming a character to a state list
+     */
+    private int addState(int start, int[] list, int listSize, int[] marks, int generation, int[] stack) {
+        if (marks[start] == generation) {
+            return listSize;
+        }
+        marks[start] = generation;
+        int top = 0;
+        stack[top++] = start;
+        while (top > 0) {
+            final int pc = stack[--top];
+            switch (ops[pc]) {
+                case JMP:
+                    if (marks[x[pc]] != generation) {
+                        marks[x[pc]] = generation;
+                        stack[top++] = x[pc];
+                    }
+                    break;
+                case SPLIT:
+                    if (marks[y[pc]] != generation) {
+                        marks[y[pc]] = generation;
+                        stack[top++] = y[pc];
+                    }
+                    if (marks[x[pc]] != generation) {
+                        marks[x[pc]] = generation;
+                        stack[top++] = x[pc];
+                    }
+                    break;
+                default:
+                    list[listSize++] = pc;
+            }
+        }
+        return listSize;
+    }
+    
+    private static class UnsupportedRegexException extends Exception {
+        private static final long serialVersionUID = 1L;
+    }
+    
+    /**
+     * The instructions being built
+     */
+    private static class Program {
+        private final List<Integer> ops = new ArrayList<>();
+        private final List<Integer> x = new ArrayList<>();
+        private final List<Integer> y = new ArrayList<>();
+        private final List<IntPredicate> predicates = new ArrayList<>();
+        
+        int emit(int op, int xTarget, int yTarget, IntPredicate predicate) throws UnsupportedRegexException {
+            if (ops.size() >= MAX_INSTRUCTIONS) {
+                throw new UnsupportedRegexException();
+            }
+            ops.add(op);
+            x.add(xTarget);
+            y.add(yTarget);
+            predicates.add(predicate);
+            return ops.size() - 1;
+        }
+        
+        int size() {
+            return ops.size();
+        }
+        
+        void patch(int pc, int xTarget, int yTarget) {
+            x.set(pc, xTarget);
+            y.set(pc, yTarget);
+        }
+    }
+    
+    private interface Node {
+        void emit(Program program) throws UnsupportedRegexException;
+    }
+    
+    private static class CharNode implements Node {
+        private final IntPredicate predicate;
+        
+        CharNode(IntPredicate predicate) {
+            this.predicate = predicate;
+        }
+        
+        @Override
+        public void emit(Program program) throws UnsupportedRegexException {
+            program.emit(CHAR, 0, 0, predicate);
+        }
+    }
+    
+    private static class ConcatNode implements Node {
+        private final List<Node> nodes;
+        
+        ConcatNode(List<Node> nodes) {
+            this.nodes = nodes;
+        }
+        
+        @Override
+        public void emit(Program program) throws UnsupportedRegexException {
+            for (Node node : nodes) {
+                node.emit(program);
+            }
+        }
+    }
+    
+    private static class AlternationNode implements Node {
+        private final List<Node> nodes;
+        
+        AlternationNode(List<Node> nodes) {
+            this.nodes = nodes;
+        }
+        
+        @Override
+        public void emit(Program program) throws UnsupportedRegexException {
+            List<Integer> jumps = new ArrayList<>();
+            for (int i = 0; i < nodes.size() - 1; i++) {
+                int split = program.emit(SPLIT, 0, 0, null);
+                nodes.get(i).emit(program);
+                jumps.add(program.emit(JMP, 0, 0, null));
+                program.patch(split, split + 1, program.size());
+            }
+            nodes.get(nodes.size() - 1).emit(program);
+            for (int jump : jumps) {
+                program.patch(jump, program.size(), 0);
+            }
+        }
+    }
+    
+    private static class RepeatNode implements Node {
+        private final Node node;
+        private final int min;
+        // -1 for unbounded
+        private final int max;
+        
+        RepeatNode(Node node, int min, int max) {
+            this.node = node;
+            this.min = min;
+            this.max = max;
+        }
+        
+        @Override
+        public void emit(Program program) throws UnsupportedRegexException {
+            for (int i = 0; i < min; i++) {
+                node.emit(program);
+            }
+            if (max < 0) {
+                // L: split L+1, end; node; jmp L
+                int split = program.emit(SPLIT, 0, 0, null);
+                node.emit(program);
+                program.emit(JMP, split, 0, null);
+                program.patch(split, split + 1, program.size());
+            } else {
+                for (int i = min; i < max; i++) {
+                    int split = program.emit(SPLIT, 0, 0, null);
+                    node.emit(program);
+                    program.patch(split, split + 1, program.size());
+                }
+            }
+        }
+    }
+    
+    /**
+     * A recursive descent parser for the supported subset of the regex syntax
+     */
+    private static class Parser {
+        private final String regex;
+        private final boolean caseInsensitive;
+        private int pos = 0;
+        
+        Parser(String regex, boolean caseInsensitive) {
+            this.regex = regex;
+            this.caseInsensitive = caseInsensitive;
+        }
+        
+        Node parse() throws UnsupportedRegexException {
+            // a leading ^ always matches as the whole value is matched
+            if (regex.startsWith("^")) {
+                pos++;
+                if (pos < regex.length() && "*+?{".indexOf(regex.charAt(pos)) >= 0) {
+                    throw new UnsupportedRegexException();
+                }
+            }
+            Node node = parseAlternation();
+            if (pos != regex.length()) {
+                // an unbalanced ')'
+                throw new UnsupportedRegexException();
+            }
+            return node;
+        }
+        
+        private Node parseAlternation() throws UnsupportedRegexException {
+            List<Node> alternatives = new ArrayList<>();
+            alternatives.add(parseConcatenation());
+            while (pos < regex.length() && regex.charAt(pos) == '|') {
+                pos++;
+                alternatives.add(parseConcatenation());
+            }
+            return alternatives.size() == 1 ? alternatives.get(0) : new AlternationNode(alternatives);
+        }
+        
+        private Node parseConcatenation() throws UnsupportedRegexException {
+            List<Node> nodes = new ArrayList<>();
+            while (pos < regex.length()) {
+                char c = regex.charAt(pos);
+                if (c == '|' || c == ')') {
+                    break;
+                }
+                // a trailing $ always matches as the whole value is matched
+                if (c == '$' && pos == regex.length() - 1) {
+                    pos++;
+                    break;
+                }
+                nodes.add(parseRepetition());
+            }
+            return nodes.size() == 1 ? nodes.get(0) : new ConcatNode(nodes);
+        }
+        
+        private Node parseRepetition() throws UnsupportedRegexException {
+            Node atom = parseAtom();
+            if (pos >= regex.length()) {
+                return atom;
+            }
+            int min;
+            int max;
+            char c = regex.charAt(pos);
+            if (c == '*') {
+                min = 0;
+                max = -1;
+                pos++;
+            } else if (c == '+') {
+                min = 1;
+                max = -1;
+                pos++;
+            } else if (c == '?') {
+                min = 0;
+                max = 1;
+                pos++;
+            } else if (c == '{') {
+                pos++;
+                min = parseNumber();
+                if (pos < regex.length() && regex.charAt(pos) == ',') {
+                    pos++;
+                    max = (pos < regex.length() && regex.charAt(pos) == '}') ? -1 : parseNumber();
+                } else {
+                    max = min;
+                }
+                if (pos >= regex.length() || regex.charAt(pos) != '}' || (max >= 0 && max < min)) {
+                    throw new UnsupportedRegexException();
+                }
+                pos++;
+            } else {
+                return atom;
+            }
+            
+            if (pos < regex.length()) {
+                c = regex.charAt(pos);
+                if (c == '?') {
+                    // a reluctant quantifier accepts the same values when the whole value is matched
+                    pos++;
+                } else if (c == '+') {
+                    // possessive quantifiers can reject values that a greedy one accepts
+                    throw new UnsupportedRegexException();
+                }
+                if (pos < regex.length() && "*+?{".indexOf(regex.charAt(pos)) >= 0) {
+                    throw new UnsupportedRegexException();
+                }
+            }
+            return new RepeatNode(atom, min, max);
+        }
+        
+        private int parseNumber() throws UnsupportedRegexException {
+            int start = pos;
+            while (pos < regex.length() && pos - start < 4 && Character.isDigit(regex.charAt(pos)) && regex.charAt(pos) < 128) {
+                pos++;
+            }
+            if (pos == start || (pos < regex.length() && Character.isDigit(regex.charAt(pos)))) {
+                throw new UnsupportedRegexException();
+            }
+            return Integer.parseInt(regex.substring(start, pos));
+        }
+        
+        private Node parseAtom() throws UnsupportedRegexException {
+            int c = regex.codePointAt(pos);
+            switch (c) {
+                case '(':
+                    pos++;
+                    if (pos < regex.length() && regex.charAt(pos) == '?') {
+                        if (pos + 1 < regex.length() && regex.charAt(pos + 1) == ':') {
+                            pos += 2;
+                        } else {
+                            throw new UnsupportedRegexException();
+                        }
+                    }
+                    Node group = parseAlternation();
+                    if (pos >= regex.length() || regex.charAt(pos) != ')') {
+                        throw new UnsupportedRegexException();
+                    }
+                    pos++;
+                    return group;
+                case '[':
+                    pos++;
+                    return new CharNode(parseClass());
+                case '.':
+                    pos++;
+                    return new CharNode(DOT);
+                case '\\':
+                    pos++;
+                    IntPredicate predefined = parsePredefined();
+                    if (predefined != null) {
+                        return new CharNode(predefined);
+                    }
+                    return new CharNode(literal(parseEscapedChar()));
+                case '*':
+                case '+':
+                case '?':
+                case '{':
+                case '^':
+                case '$':
+                    throw new UnsupportedRegexException();
+                default:
+                    pos += Character.charCount(c);
+                    return new CharNode(literal(c));
+            }
+        }
+        
+        /**
+         * Parse a predefined character class following a backslash, leaving the position unchanged if the escape is not one
+         */
+        private IntPredicate parsePredefined() throws UnsupportedRegexException {
+            if (pos >= regex.length()) {
+                throw new UnsupportedRegexException();
+            }
+            IntPredicate predicate;
+            switch (regex.charAt(pos)) {
+                case 'd':
+                    predicate = DIGIT;
+                    break;
+                case 'D':
+                    predicate = DIGIT.negate();
+                    break;
+                case 'w':
+                    predicate = WORD;
+                    break;
+                case 'W':
+                    predicate = WORD.negate();
+                    break;
+                case 's':
+                    predicate = SPACE;
+                    break;
+                case 'S':
+                    predicate = SPACE.negate();
+                    break;
+                default:
+                    return null;
+            }
+            pos++;
+            return predicate;
+        }
+        
+        /**
+         * Parse a character escape following a backslash
+         */
+        private int parseEscapedChar() throws UnsupportedRegexException {
+            if (pos >= regex.length()) {
+                throw new UnsupportedRegexException();
+            }
+            int c = regex.codePointAt(pos);
+            pos += Character.charCount(c);
+            switch (c) {
+                case 't':
+                    return '\t';
+                case 'n':
+                    return '\n';
+                case 'r':
+                    return '\r';
+                case 'f':
+                    return '\f';
+                default:
+                    // any other letter or digit is a construct we do not support
+                    if (c < 128 && Character.isLetterOrDigit(c)) {
+                        throw new UnsupportedRegexException();
+                    }
+                    return c;
+            }
+        }
+        
+        private IntPredicate parseClass() throws UnsupportedRegexException {
+            boolean negated = false;
+            if (pos < regex.length() && regex.charAt(pos) == '^') {
+                negated = true;
+                pos++;
+            }
+            if (pos < regex.length() && regex.charAt(pos) == ']') {
+                throw new UnsupportedRegexException();
+            }
+            
+            List<int[]> ranges = new ArrayList<>();
+            List<IntPredicate> predefined = new ArrayList<>();
+            while (true) {
+                if (pos >= regex.length()) {
+                    throw new UnsupportedRegexException();
+                }
+                int c = regex.codePointAt(pos);
+                if (c == ']') {
+                    pos++;
+                    break;
+                }
+                if (c == '[' || (c == '&' && regex.startsWith("&&", pos))) {
+                    throw new UnsupportedRegexException();
+                }
+                int low;
+                if (c == '\\') {
+                    pos++;
+                    IntPredicate predicate = parsePredefined();
+                    if (predicate != null) {
+                        if (regex.startsWith("-", pos) && !regex.startsWith("-]", pos)) {
+                            throw new UnsupportedRegexException();
+                        }
+                        predefined.add(predicate);
+                        continue;
+                    }
+                    low = parseEscapedChar();
+                } else {
+                    pos += Character.charCount(c);
+                    low = c;
+                }
+                int high = low;
+                if (regex.startsWith("-", pos) && !regex.startsWith("-]", pos)) {
+                    pos++;
+                    int h = regex.codePointAt(pos);
+                    if (h == '[' || h == '&') {
+                        throw new UnsupportedRegexException();
+                    }
+                    if (h == '\\') {
+                        pos++;
+                        if (parsePredefined() != null) {
+                            throw new UnsupportedRegexException();
+                        }
+                        high = parseEscapedChar();
+                    } else {
+                        pos += Character.charCount(h);
+                        high = h;
+                    }
+                    if (high < low || (regex.startsWith("-", pos) && !regex.startsWith("-]", pos))) {
+                        throw new UnsupportedRegexException();
+                    }
+                }
+                ranges.add(new int[] {low, high});
+            }
+            
+            final int[][] rangeArray = ranges.toArray(new int[ranges.size()][]);
+            final IntPredicate[] predefinedArray = predefined.toArray(new IntPredicate[predefined.size()]);
+            IntPredicate members = ch -> {
+                for (int[] range : rangeArray) {
+                    if (ch >= range[0] && ch <= range[1]) {
+                        return true;
+                    }
+                }
+                for (IntPredicate predicate : predefinedArray) {
+                    if (predicate.test(ch)) {
+                        return true;
+                    }
+                }
+                return false;
+            };
+            
+            IntPredicate predicate = members;
+            if (caseInsensitive) {
+                predicate = ch -> members.test(ch) || (isAsciiLetter(ch) && members.test(swapCase(ch)));
+            }
+            return negated ? predicate.negate() : predicate;
+        }
+        
+        private IntPredicate literal(final int c) {
+            if (caseInsensitive && isAsciiLetter(c)) {
+                final int other = swapCase(c);
+                return ch -> ch == c || ch == other;
+            }
+            return ch -> ch == c;
+        }
+    }
+    
+    private static boolean isAsciiLetter(int c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+    
+    private static int swapCase(int c) {
+        return (c >= 'a' && c <= 'z') ? c - ('a' - 'A') : c + ('a' - 'A');
+    }
+}
@@ -1,13 +1,10 @@
 package datawave.query.jexl.functions;
 
 import java.util.Collection;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
 import java.util.PriorityQueue;
 import java.util.Set;
 
@@ -77,59 +74,96 @@ public class ContentUnorderedEvaluator extends ContentFunctionEvaluator {
         }
     }
     
+    /**
+     * The offsets of a term as parallel int arrays of the lowest offsets, with respect to skips, and the offsets. The offsets are consumed through a shared
+     * cursor, so that a term repeated in the function never matches the same offset twice.
+     */
+    private static class TermOffsets {
+        private final int[] lowOffsets;
+        private final int[] offsets;
+        private int next = 0;
+        
+        TermOffsets(List<TermWeightPosition> positions) {
+            lowOffsets = new int[positions.size()];
+            offsets = new int[positions.size()];
+            int i = 0;
+            for (TermWeightPosition position : positions) {
+                lowOffsets[i] = position.getLowOffset();
+                offsets[i++] = position.getOffset();
+            }
+        }
+        
+        boolean isEmpty() {
+            return next >= offsets.length;
+        }
+        
+        /**
+         * @return the highest offset which has not been consumed yet
+         */
+        int getMaxOffset() {
+            // offsets with skip words will sort based on min so for max we need to loop over all offsets
+            int max = Integer.MIN_VALUE;
+            for (int i = next; i < offsets.length; i++) {
+                max = Math.max(max, offsets[i]);
+            }
+            return max;
+        }
+    }
+    
     private static class OffsetList implements Comparable<OffsetList> {
         private final String term;
-        private final List<TermWeightPosition> offsets;
-        private TermWeightPosition minOffset;
-        private TermWeightPosition maxOffset = null;
+        private final TermOffsets termOffsets;
+        private final int maxOffset;
+        private int current = -1;
         
-        public OffsetList(String term, List<TermWeightPosition> o) {
+        public OffsetList(String term, TermOffsets termOffsets) {
             this.term = term;
-            this.offsets = o;
-            
-            // as long as there is at least one term, grab the last item for a max
-            if (!o.isEmpty()) {
-                // offsets with skip words will sort based on min so for max we need to loop over all offsets
-                maxOffset = Collections.max(offsets, new TermWeightPosition.MaxOffsetComparator());
-            }
-            
+            this.termOffsets = termOffsets;
+            this.maxOffset = termOffsets.getMaxOffset();
             nextOffset();
         }
         
-        public TermWeightPosition getMinOffset() {
-            return minOffset;
+        public int getLowOffset() {
+            return termOffsets.lowOffsets[current];
+        }
+        
+        public int getOffset() {
+            return termOffsets.offsets[current];
         }
         
         /**
          * 
          * @return the highest value in this list
          */
-        public TermWeightPosition getMaxOffset() {
+        public int getMaxOffset() {
             return maxOffset;
         }
         
-        public Optional<TermWeightPosition> nextOffset() {
-            if (offsets.isEmpty()) {
-                return Optional.empty();
-            } else {
-                minOffset = offsets.remove(0);
-                return Optional.of(minOffset);
+        public boolean nextOffset() {
+            if (termOffsets.isEmpty()) {
+                return false;
             }
+            current = termOffsets.next++;
+            return true;
         }
         
         @Override
         public int compareTo(OffsetList o) {
-            return this.getMinOffset().compareTo(o.getMinOffset());
+            int result = Integer.compare(getLowOffset(), o.getLowOffset());
+            if (result != 0) {
+                return result;
+            }
+            return Integer.compare(getOffset(), o.getOffset());
         }
         
         @Override
         public boolean equals(Object o) {
-            return minOffset == ((OffsetList) o).minOffset;
+            return this == o;
         }
         
         @Override
         public String toString() {
-            return term + ";" + minOffset + ":" + maxOffset;
+            return term + ";" + getLowOffset() + "-" + getOffset() + ":" + maxOffset;
         }
     }
     
@@ -139,14 +173,14 @@ public class ContentUnorderedEvaluator extends ContentFunctionEvaluator {
         final String[] terms;
         
         final PriorityQueue<OffsetList> offsetQueue = new PriorityQueue<>();
-        Optional<TermWeightPosition> maxOffset = Optional.empty();
+        
+        // the lowest offset, with respect to skips, and the offset of the highest current offset of all the terms
+        boolean hasMaxOffset = false;
+        int maxLowOffset;
+        int maxOffset;
         
         /**
-         * At the end of this method, terms will contain the query terms. currentOffsets will contain the minimum offset for each term and offsetLists will
-         * contain the remaining offsets for each term.
-         * 
-         * The indexes of terms, offsetLists and currentOffsets are parallel in that the i'th item in currentOffsets corresponds to the i'th item in offsetLists
-         * and term[i].
+         * At the end of this method, terms will contain the query terms and offsetQueue will contain each term positioned on its minimum offset.
          *
          * @param distance
          *            the maximum acceptable distance between terms.
@@ -170,24 +204,19 @@ public class ContentUnorderedEvaluator extends ContentFunctionEvaluator {
             
             int termPos = 0;
             
-            // holds the (canonical) offset list for of each term
-            final Map<String,List<TermWeightPosition>> termsSeen = new HashMap<>();
+            // holds the (canonical) offsets of each term
+            final Map<String,TermOffsets> termsSeen = new HashMap<>();
             
             for (List<TermWeightPosition> offsetList : termOffsets) {
                 String term = terms[termPos++];
                 
+                TermOffsets offsets = null;
                 if (offsetList != null) {
-                    if (!termsSeen.containsKey(term)) {
-                        // new term, create a defensive copy that's safe to modify.
-                        offsetList = new LinkedList<>(offsetList);
-                        termsSeen.put(term, offsetList);
-                    } else {
-                        // already seen term, all matching terms should reference the same list.
-                        offsetList = termsSeen.get(term);
-                    }
+                    // all matching terms should reference the same offsets.
+                    offsets = termsSeen.computeIfAbsent(term, t -> new TermOffsets(offsetList));
                 }
                 
-                if (offsetList == null || offsetList.isEmpty()) {
+                if (offsets == null || offsets.isEmpty()) {
                     if (log.isTraceEnabled()) {
                         log.trace("The offset list for " + term + " is null or has no elements: " + offsetList + ". Exiting");
                     }
@@ -196,41 +225,44 @@ public class ContentUnorderedEvaluator extends ContentFunctionEvaluator {
                     return;
                 }
                 
-                OffsetList entry = new OffsetList(term, offsetList);
-                if ((!maxOffset.isPresent()) || (entry.getMinOffset().compareTo(maxOffset.get()) > 0)) {
-                    maxOffset = Optional.of(entry.getMinOffset());
-                }
+                OffsetList entry = new OffsetList(term, offsets);
+                updateMaxOffset(entry);
                 offsetQueue.add(entry);
             }
         }
         
+        private void updateMaxOffset(OffsetList entry) {
+            if (!hasMaxOffset || entry.getLowOffset() > maxLowOffset || (entry.getLowOffset() == maxLowOffset && entry.getOffset() > maxOffset)) {
+                hasMaxOffset = true;
+                maxLowOffset = entry.getLowOffset();
+                maxOffset = entry.getOffset();
+            }
+        }
+        
         public boolean findMatch() {
             // Quick short-circuit -- if we have fewer offsets than terms in the phrase/adjacency/within
             // we're evaluating, we know there are no results
-            if (terms.length > offsetQueue.size() || (!maxOffset.isPresent())) {
+            if (terms.length > offsetQueue.size() || !hasMaxOffset) {
                 return false;
             }
             
             while (true) {
                 OffsetList o = offsetQueue.remove();
                 
-                if (maxOffset.get().getLowOffset() - o.getMinOffset().getOffset() <= distance) {
+                if (maxLowOffset - o.getOffset() <= distance) {
                     return true;
                 }
                 
                 // if the maxOffset is more than distance from the largest value in this list, there is no way to satisfy
-                if (maxOffset.get().getLowOffset() - o.getMaxOffset().getOffset() > distance) {
+                if (maxLowOffset - o.getMaxOffset() > distance) {
                     return false;
                 }
                 
-                Optional<TermWeightPosition> nextOffset = o.nextOffset();
-                if (!nextOffset.isPresent()) { // no more offsets from this list
+                if (!o.nextOffset()) { // no more offsets from this list
                     return false;
                 }
                 
-                if (nextOffset.get().compareTo(maxOffset.get()) > 0) {
-                    maxOffset = nextOffset;
-                }
+                updateMaxOffset(o);
                 
                 offsetQueue.add(o);
             }
@@ -238,7 +270,7 @@ public class ContentUnorderedEvaluator extends ContentFunctionEvaluator {
         
         @Override
         public String toString() {
-            return "MultiOffsetMatcher; dis:" + distance + " max: " + maxOffset + " queue: " + offsetQueue;
+            return "MultiOffsetMatcher; dis:" + distance + " max: " + maxLowOffset + "-" + maxOffset + " queue: " + offsetQueue;
         }
     }
 }
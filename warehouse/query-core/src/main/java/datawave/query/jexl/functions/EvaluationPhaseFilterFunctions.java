@@ -5,7 +5,7 @@ import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import datawave.data.type.Type;
 import datawave.query.attributes.ValueTuple;
-import datawave.query.jexl.JexlPatternCache;
+import datawave.query.jexl.CompiledRegex;
 import datawave.query.collections.FunctionalSet;
 import org.apache.log4j.Logger;
 
@@ -19,8 +19,6 @@ import java.util.Date;
 import java.util.List;
 import java.util.Map;
 import java.util.TimeZone;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  * NOTE: The JexlFunctionArgumentDescriptorFactory is implemented by EvaluationPhaseFilterFunctionsDescriptor. This is kept as a separate class to reduce
@@ -34,7 +32,7 @@ import java.util.regex.Pattern;
 @JexlFunctions(descriptorFactory = "datawave.query.jexl.functions.EvaluationPhaseFilterFunctionsDescriptor")
 public class EvaluationPhaseFilterFunctions {
     public static final String EVAL_PHASE_FUNCTION_NAMESPACE = "filter";
-    public static final String CASE_SENSITIVE_EXPRESSION = ".*\\(\\?[idmsux]*-[dmsux]*i[idmsux]*\\).*";
+    public static final String CASE_SENSITIVE_EXPRESSION = CompiledRegex.CASE_SENSITIVE_EXPRESSION;
     
     protected static Logger log = Logger.getLogger(EvaluationPhaseFilterFunctions.class);
     
@@ -220,10 +218,12 @@ public class EvaluationPhaseFilterFunctions {
     // Evaluate a regex. Note this is being done against the un-normalized value unless the regex is not case sensitive.
     public static FunctionalSet<ValueTuple> includeRegex(Object fieldValue, String regex) {
         FunctionalSet<ValueTuple> matches = FunctionalSet.emptySet();
-        if (fieldValue != null
-                        && (JexlPatternCache.getPattern(regex).matcher(ValueTuple.getStringValue(fieldValue)).matches() || (JexlPatternCache.getPattern(regex)
-                                        .matcher(ValueTuple.getNormalizedStringValue(fieldValue)).matches() && !regex.matches(CASE_SENSITIVE_EXPRESSION)))) {
-            matches = FunctionalSet.singleton(getHitTerm(fieldValue));
+        if (fieldValue != null) {
+            final CompiledRegex compiled = CompiledRegex.get(regex);
+            if (compiled.matches(ValueTuple.getStringValue(fieldValue))
+                            || (!compiled.isCaseSensitive() && compiled.matches(ValueTuple.getNormalizedStringValue(fieldValue)))) {
+                matches = FunctionalSet.singleton(getHitTerm(fieldValue));
+            }
         }
         return matches;
     }
@@ -238,33 +238,18 @@ public class EvaluationPhaseFilterFunctions {
             return matches;
         }
         
-        final Pattern pattern = JexlPatternCache.getPattern(regex);
-        final boolean caseSensitiveExpression = regex.matches(CASE_SENSITIVE_EXPRESSION);
+        final CompiledRegex compiled = CompiledRegex.get(regex);
+        final boolean caseSensitiveExpression = compiled.isCaseSensitive();
         
-        Matcher m = null;
         for (Object value : values) {
             if (null == value)
                 continue;
             
-            if (null == m) {
-                m = pattern.matcher(ValueTuple.getStringValue(value));
-            } else {
-                m.reset(ValueTuple.getStringValue(value));
-            }
-            
-            if (m.matches()) {
+            if (compiled.matches(ValueTuple.getStringValue(value))
+                            || (!caseSensitiveExpression && compiled.matches(ValueTuple.getNormalizedStringValue(value)))) {
                 matches = FunctionalSet.singleton(getHitTerm(value));
                 return matches;
             }
-            
-            if (!caseSensitiveExpression) {
-                m.reset(ValueTuple.getNormalizedStringValue(value));
-                
-                if (m.matches()) {
-                    matches = FunctionalSet.singleton(getHitTerm(value));
-                    return matches;
-                }
-            }
         }
         return matches;
     }
@@ -281,33 +266,16 @@ public class EvaluationPhaseFilterFunctions {
             return FunctionalSet.unmodifiableSet(matches);
         }
         
-        final Pattern pattern = JexlPatternCache.getPattern(regex);
-        final boolean caseSensitiveExpression = regex.matches(CASE_SENSITIVE_EXPRESSION);
+        final CompiledRegex compiled = CompiledRegex.get(regex);
         
-        Matcher m = null;
         for (Object value : values) {
             if (null == value)
                 continue;
             
-            if (null == m) {
-                m = pattern.matcher(ValueTuple.getStringValue(value));
-            } else {
-                m.reset(ValueTuple.getStringValue(value));
-            }
-            
-            if (m.matches()) {
-                matches.add(getHitTerm(value));
-            } else if (pattern.matcher(ValueTuple.getNormalizedStringValue(value)).matches()) {
+            // the normalized value is checked here regardless of the case sensitivity of the regex
+            if (compiled.matches(ValueTuple.getStringValue(value)) || compiled.matches(ValueTuple.getNormalizedStringValue(value))) {
                 matches.add(getHitTerm(value));
             }
-            
-            if (!caseSensitiveExpression) {
-                m.reset(ValueTuple.getNormalizedStringValue(value));
-                
-                if (m.matches()) {
-                    matches.add(getHitTerm(value));
-                }
-            }
         }
         return FunctionalSet.unmodifiableSet(matches);
     }
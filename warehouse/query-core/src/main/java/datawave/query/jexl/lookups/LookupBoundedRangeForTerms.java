@@ -33,6 +33,7 @@ import java.io.IOException;
 import java.text.MessageFormat;
 import java.util.Collections;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.SortedMap;
@@ -103,6 +104,15 @@ public class LookupBoundedRangeForTerms extends IndexLookup {
         }
         
         log.debug("Range: " + range);
+        
+        // composite ranges are filtered on each of their components, which the dictionaries cannot do
+        if (config.getTermDictionaryTableName() != null && config.getCompositeToFieldMap().get(literalRange.getFieldName()) == null) {
+            IndexLookupMap fromDictionaries = lookupInTermDictionaries(config, scannerFactory, lower, upper);
+            if (fromDictionaries != null) {
+                return fromDictionaries;
+            }
+        }
+        
         BatchScanner bs = null;
         try {
             bs = scannerFactory.newScanner(config.getIndexTableName(), config.getAuthorizations(), config.getNumQueryThreads(), config.getQuery());
@@ -188,6 +198,42 @@ public class LookupBoundedRangeForTerms extends IndexLookup {
         return fieldToUniqueTerms;
     }
     
+    /**
+     * Expands the range against the term dictionaries of the field for each day of the query rather than scanning the global index.
+     *
+     * @return the expansion, or null if a dictionary is missing and the index must be scanned instead
+     */
+    protected IndexLookupMap lookupInTermDictionaries(ShardQueryConfiguration config, ScannerFactory scannerFactory, String lower, String upper) {
+        final String field = literalRange.getFieldName();
+        List<TermDictionary> dictionaries;
+        try {
+            dictionaries = TermDictionaries.get(config, scannerFactory, config.getIndexTableName(), field);
+        } catch (TableNotFoundException e) {
+            log.warn("Term dictionary table " + config.getTermDictionaryTableName() + " does not exist, scanning the index instead");
+            return null;
+        }
+        if (dictionaries == null) {
+            return null;
+        }
+        
+        final IndexLookupMap fieldToUniqueTerms = new IndexLookupMap(config.getMaxUnfieldedExpansionThreshold(), config.getMaxValueExpansionThreshold());
+        final Set<String> datatypes = config.getDatatypeFilter();
+        for (TermDictionary dictionary : dictionaries) {
+            boolean completed = dictionary.forEachInRange(lower, literalRange.isLowerInclusive(), upper, literalRange.isUpperInclusive(), datatypes, term -> {
+                fieldToUniqueTerms.put(field, term);
+                return !fieldToUniqueTerms.get(field).isThresholdExceeded();
+            });
+            if (!completed) {
+                break;
+            }
+        }
+        
+        if (log.isDebugEnabled()) {
+            log.debug("Found " + fieldToUniqueTerms.size() + " matching terms in term dictionaries for range: " + fieldToUniqueTerms);
+        }
+        return fieldToUniqueTerms;
+    }
+    
     protected Callable<Boolean> createTimedCallable(final Iterator<Entry<Key,Value>> iter, final IndexLookupMap fieldsToValues, ShardQueryConfiguration config,
                     Set<String> datatypeFilter, final Set<Text> fields, boolean isReverse, long timeout) {
         final Set<String> myDatatypeFilter = datatypeFilter;
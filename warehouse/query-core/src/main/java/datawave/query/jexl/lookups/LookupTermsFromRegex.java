@@ -4,15 +4,19 @@ import java.text.MessageFormat;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
+import java.util.regex.Pattern;
 
 import datawave.core.iterators.TimeoutExceptionIterator;
 import datawave.core.iterators.TimeoutIterator;
 import datawave.query.exceptions.DatawaveFatalQueryException;
 import datawave.query.exceptions.DoNotPerformOptimizedQueryException;
+import datawave.query.jexl.RegexAutomaton;
 import datawave.query.parser.JavaRegexAnalyzer.JavaRegexParseException;
 import datawave.query.Constants;
 import datawave.query.config.ShardQueryConfiguration;
@@ -36,6 +40,7 @@ import org.apache.log4j.Logger;
 import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.Iterators;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.Sets;
 
@@ -140,6 +145,13 @@ public class LookupTermsFromRegex extends RegexIndexLookup {
             }
         }
         
+        if (config.getTermDictionaryTableName() != null) {
+            IndexLookupMap fromDictionaries = lookupInTermDictionaries(config, scannerFactory, forwardMap, reverseMap, performReverseLookup);
+            if (fromDictionaries != null) {
+                return fromDictionaries;
+            }
+        }
+        
         for (String key : forwardMap.keySet()) {
             Collection<Range> ranges = forwardMap.get(key);
             try {
@@ -219,6 +231,84 @@ public class LookupTermsFromRegex extends RegexIndexLookup {
         return fieldsToValues;
     }
     
+    /**
+     * Expands the patterns against the term dictionaries of the fields for each day of the query rather than scanning the global indexes.
+     *
+     * @return the expansion, or null if a dictionary is missing and the indexes must be scanned instead
+     */
+    protected IndexLookupMap lookupInTermDictionaries(ShardQueryConfiguration config, ScannerFactory scannerFactory, Multimap<String,Range> forwardMap,
+                    Multimap<String,Range> reverseMap, boolean performReverseLookup) {
+        // an unfielded lookup would need the dictionaries of every field
+        if (fields.isEmpty()) {
+            return null;
+        }
+        
+        IndexLookupMap fieldsToValues = new IndexLookupMap(config.getMaxUnfieldedExpansionThreshold(), config.getMaxValueExpansionThreshold());
+        fieldsToValues.setPatterns(patterns);
+        try {
+            if (!expandFromTermDictionaries(config, scannerFactory, config.getIndexTableName(), fields, forwardMap, false, fieldsToValues)) {
+                return null;
+            }
+            if (performReverseLookup
+                            && !expandFromTermDictionaries(config, scannerFactory, config.getReverseIndexTableName(), reversefields, reverseMap, true,
+                                            fieldsToValues)) {
+                return null;
+            }
+        } catch (TableNotFoundException e) {
+            log.warn("Term dictionary table " + config.getTermDictionaryTableName() + " does not exist, scanning the index instead");
+            return null;
+        }
+        return fieldsToValues;
+    }
+    
+    /**
+     * @return false if a dictionary is missing
+     */
+    private boolean expandFromTermDictionaries(ShardQueryConfiguration config, ScannerFactory scannerFactory, String indexTableName, Set<Text> lookupFields,
+                    Multimap<String,Range> patternRanges, final boolean isReverse, final IndexLookupMap fieldsToValues) throws TableNotFoundException {
+        if (patternRanges.isEmpty()) {
+            return true;
+        }
+        
+        // load every dictionary before expanding anything so that a missing one costs nothing but the load
+        Map<String,List<TermDictionary>> dictionaries = Maps.newHashMap();
+        for (Text fieldText : lookupFields) {
+            List<TermDictionary> fieldDictionaries = TermDictionaries.get(config, scannerFactory, indexTableName, fieldText.toString());
+            if (fieldDictionaries == null) {
+                return false;
+            }
+            dictionaries.put(fieldText.toString(), fieldDictionaries);
+        }
+        
+        for (String pattern : patternRanges.keySet()) {
+            final Pattern regex = Pattern.compile(pattern);
+            // the reverse dictionaries hold reversed terms, so only the prefix can be matched while walking them
+            final RegexAutomaton automaton = (isReverse ? null : RegexAutomaton.compile(pattern, false));
+            for (Range range : patternRanges.get(pattern)) {
+                String prefix = (range.isInfiniteStartKey() ? "" : range.getStartKey().getRow().toString());
+                for (Entry<String,List<TermDictionary>> entry : dictionaries.entrySet()) {
+                    final String field = entry.getKey();
+                    for (TermDictionary dictionary : entry.getValue()) {
+                        boolean completed = dictionary.forEachMatch(prefix, automaton, datatypeFilter, indexTerm -> {
+                            String term = (isReverse ? new StringBuilder(indexTerm).reverse().toString() : indexTerm);
+                            if (automaton == null && !regex.matcher(term).matches()) {
+                                return true;
+                            }
+                            fieldsToValues.put(field, term);
+                            return !(fieldsToValues.isKeyThresholdExceeded() || (fields.size() == 1 && fieldsToValues.get(field).isThresholdExceeded()));
+                        });
+                        if (!completed) {
+                            if (log.isTraceEnabled())
+                                log.trace("We've passed term expansion threshold");
+                            return true;
+                        }
+                    }
+                }
+            }
+        }
+        return true;
+    }
+    
     @Override
     protected Callable<Boolean> createTimedCallable(final Iterator<Entry<Key,Value>> iter, final IndexLookupMap fieldsToValues, ShardQueryConfiguration config,
                     Set<String> datatypeFilter, final Set<Text> fields, final boolean isReverse, long timeout) {
@@ -0,0 +1,193 @@
+package datawave.query.jexl.lookups;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+import datawave.query.config.ShardQueryConfiguration;
+import datawave.query.tables.ScannerFactory;
+import datawave.util.time.DateHelper;
+
+import org.apache.commons.lang.time.DateUtils;
+
+import org.apache.accumulo.core.client.Scanner;
+import org.apache.accumulo.core.client.TableNotFoundException;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.Value;
+import org.apache.hadoop.io.Text;
+import org.apache.log4j.Logger;
+
+import com.google.common.base.Optional;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.Weigher;
+
+/**
+ * Loads the {@link TermDictionary} of a field for each day of a query from the term dictionary table, and caches them.
+ * <p>
+ * The term dictionary table holds one dictionary per day, field and index table: the row is the day (yyyyMMdd), the column family is the field, the column
+ * qualifier is the name of the index table the terms were read from, and the value is the serialized dictionary. A dictionary built from the reverse index
+ * holds the reversed terms. The visibility of each dictionary is the conjunction of the visibilities of the index entries it was built from, so a user only
+ * sees the dictionaries of fields and days whose index entries they can see in full.
+ * <p>
+ * The timestamp of each dictionary is its build watermark: the time the index was read to build it. Only a dictionary built after its day had ended is final
+ * and used, so the current day, and any day whose dictionary was built while it was still being ingested, is always read from the index. Entries ingested for
+ * a day after its final dictionary was built are only seen once the dictionary is rebuilt.
+ */
+public class TermDictionaries {
+    private static final Logger log = Logger.getLogger(TermDictionaries.class);
+    
+    private static final long MAX_CACHED_BYTES = 256L * 1024 * 1024;
+    
+    // a missing dictionary is cached as absent so that lookups against days without one fall back to the index quickly
+    private static final Cache<DictionaryKey,Optional<TermDictionary>> dictionaries = CacheBuilder.newBuilder().maximumWeight(MAX_CACHED_BYTES)
+                    .weigher(new Weigher<DictionaryKey,Optional<TermDictionary>>() {
+                        @Override
+                        public int weigh(DictionaryKey key, Optional<TermDictionary> dictionary) {
+                            return 1 + (dictionary.isPresent() ? dictionary.get().getSizeInBytes() : 0);
+                        }
+                    }).expireAfterWrite(30, TimeUnit.MINUTES).concurrencyLevel(10).build();
+    
+    private TermDictionaries() {}
+    
+    /**
+     * Gets the dictionaries of a field for every day of the query.
+     *
+     * @param config
+     *            the query configuration, which supplies the term dictionary table, the date range and the authorizations
+     * @param scannerFactory
+     *            the scanner factory used to read dictionaries that are not cached
+     * @param indexTableName
+     *            the index table the dictionaries were built from
+     * @param field
+     *            the field
+     * @return the dictionaries in day order, or null if any day has no final dictionary visible to the user, in which case the index must be scanned
+     * @throws TableNotFoundException
+     *             if the term dictionary table does not exist
+     */
+    public static List<TermDictionary> get(ShardQueryConfiguration config, ScannerFactory scannerFactory, String indexTableName, String field)
+                    throws TableNotFoundException {
+        String tableName = config.getTermDictionaryTableName();
+        String auths = String.valueOf(config.getAuthorizations());
+        String endDay = DateHelper.format(config.getEndDate());
+        
+        List<DictionaryKey> keys = new ArrayList<>();
+        Map<DictionaryKey,Optional<TermDictionary>> found = new HashMap<>();
+        String firstMissing = null;
+        String lastMissing = null;
+        for (String day = DateHelper.format(config.getBeginDate()); day.compareTo(endDay) <= 0; day = DateHelper.format(DateHelper.addDays(
+                        DateHelper.parse(day), 1))) {
+            DictionaryKey key = new DictionaryKey(tableName, indexTableName, field, day, auths);
+            keys.add(key);
+            Optional<TermDictionary> dictionary = dictionaries.getIfPresent(key);
+            if (dictionary == null) {
+                if (firstMissing == null) {
+                    firstMissing = day;
+                }
+                lastMissing = day;
+            } else if (!dictionary.isPresent()) {
+                return null;
+            } else {
+                found.put(key, dictionary);
+            }
+        }
+        
+        if (firstMissing != null) {
+            Scanner scanner = scannerFactory.newSingleScanner(tableName, config.getAuthorizations(), config.getQuery());
+            try {
+                scanner.setRange(new Range(firstMissing, true, lastMissing, true));
+                scanner.fetchColumn(new Text(field), new Text(indexTableName));
+                for (Entry<Key,Value> entry : scanner) {
+                    String day = entry.getKey().getRow().toString();
+                    DictionaryKey key = new DictionaryKey(tableName, indexTableName, field, day, auths);
+                    Optional<TermDictionary> dictionary = Optional.absent();
+                    if (!isFinal(day, entry.getKey().getTimestamp())) {
+                        if (log.isDebugEnabled()) {
+                            log.debug("The term dictionary for " + field + " in " + indexTableName + " on " + day + " was built before the day ended");
+                        }
+                    } else {
+                        try {
+                            dictionary = Optional.of(TermDictionary.fromBytes(entry.getValue().get()));
+                        } catch (RuntimeException e) {
+                            log.warn("Unable to read the term dictionary for " + field + " in " + indexTableName + " on " + day, e);
+                        }
+                    }
+                    dictionaries.put(key, dictionary);
+                    found.put(key, dictionary);
+                }
+            } finally {
+                scannerFactory.close(scanner);
+            }
+        }
+        
+        List<TermDictionary> result = new ArrayList<>(keys.size());
+        for (DictionaryKey key : keys) {
+            Optional<TermDictionary> dictionary = found.get(key);
+            if (dictionary == null) {
+                if (log.isDebugEnabled()) {
+                    log.debug("No term dictionary for " + field + " in " + indexTableName + " on " + key.day);
+                }
+                dictionaries.put(key, Optional.<TermDictionary> absent());
+                return null;
+            } else if (!dictionary.isPresent()) {
+                return null;
+            }
+            result.add(dictionary.get());
+        }
+        return result;
+    }
+    
+    /**
+     * @param day
+     *            the day of a dictionary, yyyyMMdd
+     * @param watermark
+     *            the time the dictionary was built
+     * @return true if the dictionary was built after the day had ended
+     */
+    static boolean isFinal(String day, long watermark) {
+        return watermark >= DateHelper.parse(day).getTime() + DateUtils.MILLIS_PER_DAY;
+    }
+    
+    /**
+     * Drops every cached dictionary
+     */
+    public static void clear() {
+        dictionaries.invalidateAll();
+    }
+    
+    private static class DictionaryKey {
+        private final String tableName;
+        private final String indexTableName;
+        private final String field;
+        private final String day;
+        private final String auths;
+        
+        DictionaryKey(String tableName, String indexTableName, String field, String day, String auths) {
+            this.tableName = tableName;
+            this.indexTableName = indexTableName;
+            this.field = field;
+            this.day = day;
+            this.auths = auths;
+        }
+        
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof DictionaryKey)) {
+                return false;
+            }
+            DictionaryKey other = (DictionaryKey) o;
+            return tableName.equals(other.tableName) && indexTableName.equals(other.indexTableName) && field.equals(other.field) && day.equals(other.day)
+                            && auths.equals(other.auths);
+        }
+        
+        @Override
+        public int hashCode() {
+            return Objects.hash(tableName, indexTableName, field, day, auths);
+        }
+    }
+}
@@ -0,0 +1,536 @@
+package datawave.query.jexl.lookups;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Predicate;
+
+import datawave.query.jexl.RegexAutomaton;
+
+/**
+ * A compact, immutable dictionary of the distinct terms of one field on one day, as found in the global index or the global reverse index.
+ * <p>
+ * Terms are kept in code point order (the order of the UTF-8 row ids in the index), front coded in blocks: each term is stored as the length of the prefix it
+ * shares with the previous term followed by the UTF-8 bytes of the rest, and the first term of every block is stored whole so that a lookup can binary search
+ * the blocks and decode from there. Each term also lists the datatypes it was indexed under, so that lookups can apply a query's datatype filter.
+ * <p>
+ * A regex lookup walks the terms and the {@link RegexAutomaton} of the regex together. As soon as a prefix cannot lead to a match, every term that starts with
+ * it is skipped with a seek, so the cost of a lookup depends on the number of matching terms and prefixes rather than the number of terms in the dictionary.
+ */
+public class TermDictionary {
+    
+    private static final byte VERSION = 2;
+    
+    private static final int DEFAULT_BLOCK_SIZE = 32;
+    
+    private final byte[] data;
+    private final int size;
+    private final int blockSize;
+    private final int[] blockOffsets;
+    private final String[] blockFirstTerms;
+    private final String[] datatypes;
+    
+    private TermDictionary(byte[] data) {
+        this.data = data;
+        int[] pos = {0};
+        if (data.length == 0 || data[pos[0]++] != VERSION) {
+            throw new IllegalArgumentException("Unsupported term dictionary version");
+        }
+        this.size = readVInt(data, pos);
+        this.blockSize = readVInt(data, pos);
+        this.datatypes = new String[readVInt(data, pos)];
+        for (int i = 0; i < datatypes.length; i++) {
+            int length = readVInt(data, pos);
+            datatypes[i] = new String(data, pos[0], length, StandardCharsets.UTF_8);
+            pos[0] += length;
+        }
+        
+        int blocks = (size + blockSize - 1) / blockSize;
+        this.blockOffsets = new int[blocks];
+        this.blockFirstTerms = new String[blocks];
+        for (int i = 0; i < size; i++) {
+            int offset = pos[0];
+            readVInt(data, pos);
+            int length = readVInt(data, pos);
+            if (i % blockSize == 0) {
+                blockOffsets[i / blockSize] = offset;
+                blockFirstTerms[i / blockSize] = new String(data, pos[0], length, StandardCharsets.UTF_8);
+            }
+            pos[0] += length;
+            for (int types = readVInt(data, pos); types > 0; types--) {
+                readVInt(data, pos);
+            }
+        }
+    }
+    
+    public static TermDictionary fromBytes(byte[] data) {
+        return new TermDictionary(data);
+    }
+    
+    public static Builder builder() {
+        return new Builder(DEFAULT_BLOCK_SIZE);
+    }
+    
+    public static Builder builder(int blockSize) {
+        return new Builder(blockSize);
+    }
+    
+    public byte[] toBytes() {
+        return data;
+    }
+    
+    /**
+     * @return the number of terms
+     */
+    public int size() {
+        return size;
+    }
+    
+    /**
+     * @return the serialized size of this dictionary
+     */
+    public int getSizeInBytes() {
+        return data.length;
+    }
+    
+    /**
+     * @return every datatype the terms were indexed under
+     */
+    public List<String> getDatatypes() {
+        return Collections.unmodifiableList(Arrays.asList(datatypes));
+    }
+    
+    /**
+     * @return which of the datatypes pass the filter, or null if they all do
+     */
+    private boolean[] getAllowedDatatypes(Set<String> datatypeFilter) {
+        if (datatypeFilter == null || datatypeFilter.isEmpty()) {
+            return null;
+        }
+        boolean[] allowed = new boolean[datatypes.length];
+        for (int i = 0; i < datatypes.length; i++) {
+            allowed[i] = datatypeFilter.contains(datatypes[i]);
+        }
+        return allowed;
+    }
+    
+    /**
+     * Visits the terms that start with a prefix and match a regex, whatever their datatypes, in order.
+     */
+    public boolean forEachMatch(String prefix, RegexAutomaton automaton, Predicate<String> visitor) {
+        return forEachMatch(prefix, automaton, null, visitor);
+    }
+    
+    /**
+     * Visits the terms that start with a prefix and match a regex, in order.
+     *
+     * @param prefix
+     *            the prefix every visited term starts with, may be empty
+     * @param automaton
+     *            the regex the visited terms must match, or null to visit every term with the prefix
+     * @param datatypeFilter
+     *            the visited terms must have been indexed under one of these datatypes, or null or empty for any datatype
+     * @param visitor
+     *            called with each term, returns false to stop
+     * @return false if the visitor stopped the walk
+     */
+    public boolean forEachMatch(String prefix, RegexAutomaton automaton, Set<String> datatypeFilter, Predicate<String> visitor) {
+        boolean[] allowed = getAllowedDatatypes(datatypeFilter);
+        Cursor cursor = new Cursor();
+        if (!cursor.seek(prefix)) {
+            return true;
+        }
+        
+        // states[i] holds the automaton states after the first i chars of the current term, valid up to validLength
+        int[][] states = new int[16][];
+        int validLength = 0;
+        if (automaton != null) {
+            states[0] = automaton.start();
+        }
+        String previous = "";
+        
+        while (startsWith(cursor.term, prefix)) {
+            String term = cursor.term.toString();
+            
+            if (automaton == null) {
+                if (cursor.hasDatatype(allowed) && !visitor.test(term)) {
+                    return false;
+                }
+                if (!cursor.next()) {
+                    return true;
+                }
+                continue;
+            }
+            
+            int pos = Math.min(commonPrefix(previous, term), validLength);
+            while (states[pos] == null) {
+                // never resume from between the chars of a surrogate pair
+                pos--;
+            }
+            int[] current = states[pos];
+            boolean dead = false;
+            while (pos < term.length()) {
+                int c = term.codePointAt(pos);
+                int next = pos + Character.charCount(c);
+                current = automaton.step(current, c);
+                if (current.length == 0) {
+                    // nothing that starts with this prefix can match
+                    validLength = pos;
+                    previous = term;
+                    if (!cursor.seekPast(term.substring(0, next))) {
+                        return true;
+                    }
+                    dead = true;
+                    break;
+                }
+                if (next >= states.length) {
+                    states = Arrays.copyOf(states, Math.max(states.length * 2, next + 1));
+                }
+                if (next - pos == 2) {
+                    states[pos + 1] = null;
+                }
+                states[next] = current;
+                pos = next;
+            }
+            if (dead) {
+                continue;
+            }
+            
+            validLength = term.length();
+            previous = term;
+            if (automaton.isMatch(current) && cursor.hasDatatype(allowed) && !visitor.test(term)) {
+                return false;
+            }
+            if (!cursor.next()) {
+                return true;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Visits the terms within a range, whatever their datatypes, in order.
+     */
+    public boolean forEachInRange(String lower, boolean lowerInclusive, String upper, boolean upperInclusive, Predicate<String> visitor) {
+        return forEachInRange(lower, lowerInclusive, upper, upperInclusive, null, visitor);
+    }
+    
+    /**
+     * Visits the terms within a range, in order.
+     *
+     * @param lower
+     *            the lower bound, or null for none
+     * @param lowerInclusive
+     *            whether the lower bound is included
+     * @param upper
+     *            the upper bound, or null for none
+     * @param upperInclusive
+     *            whether the upper bound is included
+     * @param datatypeFilter
+     *            the visited terms must have been indexed under one of these datatypes, or null or empty for any datatype
+     * @param visitor
+     *            called with each term, returns false to stop
+     * @return false if the visitor stopped the walk
+     */
+    public boolean forEachInRange(String lower, boolean lowerInclusive, String upper, boolean upperInclusive, Set<String> datatypeFilter,
+                    Predicate<String> visitor) {
+        boolean[] allowed = getAllowedDatatypes(datatypeFilter);
+        Cursor cursor = new Cursor();
+        if (!cursor.seek(lower == null ? "" : lower)) {
+            return true;
+        }
+        if (lower != null && !lowerInclusive && compare(cursor.term, lower) == 0 && !cursor.next()) {
+            return true;
+        }
+        do {
+            if (upper != null) {
+                int c = compare(cursor.term, upper);
+                if (c > 0 || (c == 0 && !upperInclusive)) {
+                    return true;
+                }
+            }
+            if (cursor.hasDatatype(allowed) && !visitor.test(cursor.term.toString())) {
+                return false;
+            }
+        } while (cursor.next());
+        return true;
+    }
+    
+    /**
+     * Compares two strings by code point, which is the order of their UTF-8 encodings
+     */
+    static int compare(CharSequence a, CharSequence b) {
+        int length = Math.min(a.length(), b.length());
+        for (int i = 0; i < length; i++) {
+            char ca = a.charAt(i);
+            char cb = b.charAt(i);
+            if (ca != cb) {
+                if (ca >= Character.MIN_SURROGATE && cb >= Character.MIN_SURROGATE) {
+                    // surrogates are supplementary code points, so they sort after the rest of the basic plane
+                    ca = fixup(ca);
+                    cb = fixup(cb);
+                }
+                return ca - cb;
+            }
+        }
+        return a.length() - b.length();
+    }
+    
+    private static char fixup(char c) {
+        return (char) (c >= 0xE000 ? c - 0x800 : c + 0x2000);
+    }
+    
+    private static boolean startsWith(CharSequence term, String prefix) {
+        if (term.length() < prefix.length()) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length(); i++) {
+            if (term.charAt(i) != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private static int commonPrefix(String a, String b) {
+        int length = Math.min(a.length(), b.length());
+        int i = 0;
+        while (i < length && a.charAt(i) == b.charAt(i)) {
+            i++;
+        }
+        if (i > 0 && Character.isHighSurrogate(a.charAt(i - 1))) {
+            i--;
+        }
+        return i;
+    }
+    
+    private static int readVInt(byte[] data, int[] pos) {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = data[pos[0]++];
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+    
+    private static void writeVInt(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+    
+    /**
+     * Decodes the terms in order from a position in the dictionary
+     */
+    private class Cursor {
+        private final StringBuilder term = new StringBuilder();
+        private int[] termDatatypes = new int[4];
+        private int termDatatypeCount;
+        private int index;
+        private int offset;
+        
+        private void seekBlock(int block) {
+            index = block * blockSize;
+            offset = blockOffsets[block];
+            term.setLength(0);
+        }
+        
+        /**
+         * @return false if there are no more terms
+         */
+        private boolean next() {
+            if (index >= size) {
+                return false;
+            }
+            int[] pos = {offset};
+            int shared = readVInt(data, pos);
+            int length = readVInt(data, pos);
+            term.setLength(shared);
+            term.append(new String(data, pos[0], length, StandardCharsets.UTF_8));
+            pos[0] += length;
+            termDatatypeCount = readVInt(data, pos);
+            if (termDatatypeCount > termDatatypes.length) {
+                termDatatypes = new int[termDatatypeCount];
+            }
+            for (int i = 0; i < termDatatypeCount; i++) {
+                termDatatypes[i] = readVInt(data, pos);
+            }
+            offset = pos[0];
+            index++;
+            return true;
+        }
+        
+        /**
+         * @return true if the current term was indexed under one of the allowed datatypes, or was added without any datatype
+         */
+        private boolean hasDatatype(boolean[] allowed) {
+            if (allowed == null || termDatatypeCount == 0) {
+                return true;
+            }
+            for (int i = 0; i < termDatatypeCount; i++) {
+                if (allowed[termDatatypes[i]]) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        
+        /**
+         * Positions the cursor on the first term that is not less than the target.
+         *
+         * @return false if there is no such term
+         */
+        private boolean seek(String target) {
+            return seek(target, false);
+        }
+        
+        /**
+         * Positions the cursor on the first term that is greater than every term starting with the prefix.
+         *
+         * @return false if there is no such term
+         */
+        private boolean seekPast(String prefix) {
+            return seek(prefix, true);
+        }
+        
+        private boolean seek(String target, boolean pastPrefix) {
+            if (size == 0) {
+                return false;
+            }
+            // find the last block that starts before the target
+            int low = 0;
+            int high = blockFirstTerms.length - 1;
+            while (low < high) {
+                int mid = (low + high + 1) >>> 1;
+                if (before(blockFirstTerms[mid], target, pastPrefix)) {
+                    low = mid;
+                } else {
+                    high = mid - 1;
+                }
+            }
+            seekBlock(low);
+            while (next()) {
+                if (!before(term, target, pastPrefix)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        
+        private boolean before(CharSequence candidate, String target, boolean pastPrefix) {
+            int c = compare(candidate, target);
+            return c < 0 || (pastPrefix && startsWith(candidate, target));
+        }
+    }
+    
+    /**
+     * Builds a dictionary from terms added in code point order. A term added more than once is stored once, with every datatype it was added with.
+     */
+    public static class Builder {
+        private final int blockSize;
+        private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        private final Map<String,Integer> datatypeIds = new LinkedHashMap<>();
+        private String previous = null;
+        private String pending = null;
+        private final Set<Integer> pendingDatatypes = new TreeSet<>();
+        private int size = 0;
+        
+        private Builder(int blockSize) {
+            if (blockSize < 1) {
+                throw new IllegalArgumentException("The block size must be positive");
+            }
+            this.blockSize = blockSize;
+        }
+        
+        /**
+         * Adds a term without a datatype, which passes every datatype filter
+         */
+        public Builder add(String term) {
+            return add(term, null);
+        }
+        
+        /**
+         * @param term
+         *            the term, which may not sort before the last term added
+         * @param datatype
+         *            a datatype the term was indexed under, or null
+         */
+        public Builder add(String term, String datatype) {
+            if (pending != null) {
+                int c = compare(pending, term);
+                if (c > 0) {
+                    throw new IllegalArgumentException("Terms must be added in order: " + term + " after " + pending);
+                } else if (c != 0) {
+                    write();
+                }
+            }
+            if (pending == null) {
+                pending = term;
+            }
+            if (datatype != null) {
+                Integer id = datatypeIds.get(datatype);
+                if (id == null) {
+                    id = datatypeIds.size();
+                    datatypeIds.put(datatype, id);
+                }
+                pendingDatatypes.add(id);
+            }
+            return this;
+        }
+        
+        /**
+         * Writes the pending term, once all of its datatypes are known
+         */
+        private void write() {
+            int shared = 0;
+            if (previous != null && size % blockSize != 0) {
+                shared = commonPrefix(previous, pending);
+            }
+            byte[] suffix = pending.substring(shared).getBytes(StandardCharsets.UTF_8);
+            writeVInt(out, shared);
+            writeVInt(out, suffix.length);
+            out.write(suffix, 0, suffix.length);
+            writeVInt(out, pendingDatatypes.size());
+            for (int id : pendingDatatypes) {
+                writeVInt(out, id);
+            }
+            previous = pending;
+            pending = null;
+            pendingDatatypes.clear();
+            size++;
+        }
+        
+        public int size() {
+            return size + (pending == null ? 0 : 1);
+        }
+        
+        public TermDictionary build() {
+            if (pending != null) {
+                write();
+            }
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(out.size() + 16);
+            bytes.write(VERSION);
+            writeVInt(bytes, size);
+            writeVInt(bytes, blockSize);
+            writeVInt(bytes, datatypeIds.size());
+            for (String datatype : datatypeIds.keySet()) {
+                byte[] name = datatype.getBytes(StandardCharsets.UTF_8);
+                writeVInt(bytes, name.length);
+                bytes.write(name, 0, name.length);
+            }
+            bytes.write(out.toByteArray(), 0, out.size());
+            return new TermDictionary(bytes.toByteArray());
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package datawave.query.jexl.lookups;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import datawave.common.cl.OptionBuilder;
+import datawave.core.iterators.ColumnQualifierRangeIterator;
+import datawave.query.Constants;
+import datawave.security.util.ScannerHelper;
+import datawave.util.cli.PasswordConverter;
+import datawave.util.time.DateHelper;
+
+import org.apache.accumulo.core.client.BatchWriter;
+import org.apache.accumulo.core.client.BatchWriterConfig;
+import org.apache.accumulo.core.client.Connector;
+import org.apache.accumulo.core.client.IteratorSetting;
+import org.apache.accumulo.core.client.Scanner;
+import org.apache.accumulo.core.client.ZooKeeperInstance;
+import org.apache.accumulo.core.client.security.tokens.PasswordToken;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Mutation;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.security.Authorizations;
+import org.apache.accumulo.core.security.ColumnVisibility;
+import org.apache.commons.cli.BasicParser;
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import org.apache.commons.lang.StringUtils;
+import org.apache.hadoop.io.Text;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+
+/**
+ * Builds the {@link TermDictionary} of every field for each day of a date range from the global index (or the global reverse index), and writes them to the
+ * term dictionary table in the layout read by {@link TermDictionaries}. Each dictionary is written with the time the index was read as its timestamp, and is
+ * only used by queries if that is after the end of its day. Run it once a day has stopped receiving data, and again if that day is re-ingested.
+ */
+public class TermDictionaryJob {
+    
+    private static final String ZOOKEEPERS = "zookeepers";
+    private static final String INSTANCE = "instance";
+    private static final String USERNAME = "username";
+    private static final String PASSWORD = "password";
+    private static final String AUTHS = "auths";
+    
+    private static final String INDEX_TABLE = "indexTable";
+    private static final String DICTIONARY_TABLE = "dictionaryTable";
+    private static final String D_OPT = "date";
+    private static final String F_OPT = "field";
+    
+    private static final String HELP_OPT = "help";
+    
+    private static final Logger log = Logger.getLogger(TermDictionaryJob.class);
+    
+    private final Connector connector;
+    private final Collection<Authorizations> auths;
+    private final String indexTableName;
+    private final String dictionaryTableName;
+    
+    public static void main(String[] args) {
+        
+        Logger.getRootLogger().setLevel(Level.ERROR);
+        
+        Options opts = getConfigurationOptions();
+        CommandLine cl = null;
+        try {
+            cl = new BasicParser().parse(opts, args);
+            if (cl.hasOption(HELP_OPT)) {
+                new HelpFormatter().printHelp(TermDictionaryJob.class.getName() + ":", opts, true);
+                return;
+            }
+        } catch (ParseException pe) {
+            System.out.println(pe.getMessage());
+            new HelpFormatter().printHelp(TermDictionaryJob.class.getName() + ":", opts, true);
+            return;
+        }
+        
+        try {
+            ZooKeeperInstance instance = new ZooKeeperInstance(cl.getOptionValue(INSTANCE), cl.getOptionValue(ZOOKEEPERS));
+            Connector connector = instance.getConnector(cl.getOptionValue(USERNAME),
+                            new PasswordToken(PasswordConverter.parseArg(cl.getOptionValue(PASSWORD))));
+            Collection<Authorizations> auths = Collections.singleton(new Authorizations(cl.getOptionValue(AUTHS).split(",")));
+            TermDictionaryJob job = new TermDictionaryJob(connector, auths, cl.getOptionValue(INDEX_TABLE), cl.getOptionValue(DICTIONARY_TABLE));
+            
+            String beginDay = cl.getOptionValue(D_OPT).trim();
+            String endDay = beginDay;
+            if (beginDay.indexOf("-") != -1) {
+                String[] splits = StringUtils.split(beginDay, '-');
+                beginDay = splits[0].trim();
+                endDay = splits[1].trim();
+            }
+            Set<String> fields = new HashSet<>();
+            if (cl.getOptionValues(F_OPT) != null) {
+                Collections.addAll(fields, cl.getOptionValues(F_OPT));
+            }
+            
+            for (String day = beginDay; day.compareTo(endDay) <= 0; day = DateHelper.format(DateHelper.addDays(DateHelper.parse(day), 1))) {
+                int written = job.build(day, fields);
+                System.out.println(day + ": wrote " + written + " term dictionaries");
+            }
+        } catch (Exception e) {
+            log.error(e.getMessage(), e);
+        }
+    }
+    
+    public static Options getConfigurationOptions() {
+        
+        final OptionBuilder builder = new OptionBuilder();
+        final Options opt = new Options();
+        
+        opt.addOption(builder.create(HELP_OPT, null, "show help"));
+        
+        builder.args = 1;
+        builder.type = String.class;
+        builder.required = true;
+        
+        opt.addOption(builder.create(ZOOKEEPERS, null, "list of Zookeepers host[:port],host[:port]"));
+        opt.addOption(builder.create(INSTANCE, null, "accumulo instance name"));
+        opt.addOption(builder.create(USERNAME, null, "accumulo user name"));
+        opt.addOption(builder.create(PASSWORD, null, "accumulo password"));
+        opt.addOption(builder.create(AUTHS, null, "authorizations, which must include every visibility in the index"));
+        
+        opt.addOption(builder.create(INDEX_TABLE, null, "read terms from this global index or global reverse index table"));
+        opt.addOption(builder.create(DICTIONARY_TABLE, null, "write term dictionaries to this accumulo table"));
+        opt.addOption(builder.create(D_OPT, null, "date or date range (yyyyMMdd, yyyyMMdd-yyyyMMdd)"));
+        
+        builder.required = false;
+        opt.addOption(builder.create(F_OPT, null, "field(s), defaults to all"));
+        
+        return opt;
+    }
+    
+    public TermDictionaryJob(Connector connector, Collection<Authorizations> auths, String indexTableName, String dictionaryTableName) {
+        this.connector = connector;
+        this.auths = auths;
+        this.indexTableName = indexTableName;
+        this.dictionaryTableName = dictionaryTableName;
+    }
+    
+    /**
+     * Builds and writes the dictionaries of one day.
+     *
+     * @param day
+     *            the day, yyyyMMdd
+     * @param fields
+     *            the fields to build dictionaries for, or empty for all of them
+     * @return the number of dictionaries written
+     */
+    public int build(String day, Set<String> fields) throws Exception {
+        Map<String,TermDictionary.Builder> builders = new TreeMap<>();
+        Map<String,Set<String>> visibilities = new TreeMap<>();
+        // anything ingested after the index has been read is not in the dictionaries
+        long watermark = System.currentTimeMillis();
+        
+        Scanner scanner = ScannerHelper.createScanner(connector, indexTableName, auths);
+        try {
+            IteratorSetting cfg = new IteratorSetting(50, "DateFilter", ColumnQualifierRangeIterator.class);
+            // index column qualifiers start with the shard id, which starts with the day
+            String end = day + Constants.MAX_UNICODE_STRING;
+            cfg.addOption(ColumnQualifierRangeIterator.RANGE_NAME, ColumnQualifierRangeIterator.encodeRange(new Range(day, end)));
+            scanner.addScanIterator(cfg);
+            for (String field : fields) {
+                scanner.fetchColumnFamily(new Text(field));
+            }
+            
+            // the rows are the terms in order, so each field's terms arrive in order as well
+            for (Map.Entry<Key,Value> entry : scanner) {
+                Key key = entry.getKey();
+                String field = key.getColumnFamily().toString();
+                TermDictionary.Builder builder = builders.get(field);
+                if (builder == null) {
+                    builder = TermDictionary.builder();
+                    builders.put(field, builder);
+                    visibilities.put(field, new TreeSet<>());
+                }
+                // index column qualifiers are the shard id and the datatype
+                String columnQualifier = key.getColumnQualifier().toString();
+                int separator = columnQualifier.indexOf(Constants.NULL);
+                builder.add(key.getRow().toString(), separator < 0 ? null : columnQualifier.substring(separator + 1));
+                if (key.getColumnVisibilityData().length() > 0) {
+                    visibilities.get(field).add(key.getColumnVisibility().toString());
+                }
+            }
+        } finally {
+            scanner.close();
+        }
+        
+        BatchWriter writer = connector.createBatchWriter(dictionaryTableName, new BatchWriterConfig());
+        try {
+            for (Map.Entry<String,TermDictionary.Builder> entry : builders.entrySet()) {
+                Mutation m = new Mutation(day);
+                m.put(new Text(entry.getKey()), new Text(indexTableName), combine(visibilities.get(entry.getKey())), watermark, new Value(entry.getValue()
+                                .build().toBytes()));
+                writer.addMutation(m);
+            }
+        } finally {
+            writer.close();
+        }
+        return builders.size();
+    }
+    
+    /**
+     * A dictionary reveals that each of its terms exists, so it may only be seen by users who can see every index entry it was built from.
+     */
+    static ColumnVisibility combine(Set<String> visibilities) {
+        StringBuilder expression = new StringBuilder();
+        for (String visibility : visibilities) {
+            if (expression.length() > 0) {
+                expression.append('&');
+            }
+            expression.append('(').append(visibility).append(')');
+        }
+        return new ColumnVisibility(expression.toString());
+    }
+}
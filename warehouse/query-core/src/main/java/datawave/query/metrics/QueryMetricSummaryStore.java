@@ -0,0 +1,385 @@
+package datawave.query.metrics;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import datawave.security.util.ScannerHelper;
+import datawave.webservice.query.dashboard.DashboardSummary;
+import datawave.webservice.query.metric.BaseQueryMetric;
+import datawave.webservice.query.metric.BaseQueryMetric.PageMetric;
+import datawave.webservice.query.metric.QueryMetricSummary;
+import datawave.webservice.query.metric.QueryMetricsSummaryResponse;
+
+import org.apache.accumulo.core.client.AccumuloException;
+import org.apache.accumulo.core.client.AccumuloSecurityException;
+import org.apache.accumulo.core.client.BatchScanner;
+import org.apache.accumulo.core.client.Connector;
+import org.apache.accumulo.core.client.IteratorSetting;
+import org.apache.accumulo.core.client.TableExistsException;
+import org.apache.accumulo.core.client.TableNotFoundException;
+import org.apache.accumulo.core.client.admin.TableOperations;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Mutation;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.Combiner;
+import org.apache.accumulo.core.iterators.LongCombiner;
+import org.apache.accumulo.core.iterators.user.MaxCombiner;
+import org.apache.accumulo.core.iterators.user.SummingCombiner;
+import org.apache.accumulo.core.security.Authorizations;
+import org.apache.accumulo.core.security.ColumnVisibility;
+import org.apache.commons.lang.time.DateUtils;
+import org.apache.hadoop.io.Text;
+
+/**
+ * Pre-aggregated summaries of the query metrics, so that the summary pages do not have to read every metric of the period they cover.
+ * <p>
+ * Each metric update adds the query, the first time it is seen, and its new pages to the buckets of the minute, hour and day the query was created in. The
+ * rows are the buckets ({@code m201901011230}, {@code h2019010112} and {@code d20190101}), the column families the statistics and the column qualifiers the
+ * user and query logic. Combiners on the table keep the totals and maxima, so a summary of any period is read from a few ranges of rows: whole days, with whole
+ * hours and then minutes at its ends.
+ * <p>
+ * The counts of the metrics dashboard are kept in the same buckets, under the {@link #DASHBOARD} column family with the name of the count ahead of the user and
+ * query logic in the column qualifier. As the latency, results and errors of a query change over its life, each update takes away what the stored metric
+ * counted for and adds what the updated one does.
+ */
+public class QueryMetricSummaryStore {
+    
+    public static final String QUERIES = "QUERIES";
+    public static final String PAGES = "PAGES";
+    public static final String PAGE_RESULTS = "PAGE_RESULTS";
+    public static final String PAGE_TIME = "PAGE_TIME";
+    public static final String MAX_PAGE_RESULTS = "MAX_PAGE_RESULTS";
+    public static final String MAX_PAGE_TIME = "MAX_PAGE_TIME";
+    public static final String DASHBOARD = "DASHBOARD";
+    
+    private static final String DASHBOARD_COMBINER = "dashboard";
+    
+    private static final String NULL_BYTE = "\0";
+    private static final long MINUTE = DateUtils.MILLIS_PER_MINUTE;
+    private static final long HOUR = DateUtils.MILLIS_PER_HOUR;
+    private static final long DAY = DateUtils.MILLIS_PER_DAY;
+    
+    private static final DateTimeFormatter MINUTE_FORMAT = DateTimeFormatter.ofPattern("'m'yyyyMMddHHmm").withZone(ZoneOffset.UTC);
+    private static final DateTimeFormatter HOUR_FORMAT = DateTimeFormatter.ofPattern("'h'yyyyMMddHH").withZone(ZoneOffset.UTC);
+    private static final DateTimeFormatter DAY_FORMAT = DateTimeFormatter.ofPattern("'d'yyyyMMdd").withZone(ZoneOffset.UTC);
+    
+    private final String tableName;
+    
+    private final Clock clock;
+    
+    public QueryMetricSummaryStore(String tableName) {
+        this(tableName, Clock.systemUTC());
+    }
+    
+    /**
+     * @param clock
+     *            the clock the periods of the summaries end at
+     */
+    public QueryMetricSummaryStore(String tableName, Clock clock) {
+        this.tableName = tableName;
+        this.clock = clock;
+    }
+    
+    public String getTableName() {
+        return tableName;
+    }
+    
+    /**
+     * Creates the table with the combiners which aggregate the buckets, unless it already exists, and adds the combiner of the dashboard counts to tables
+     * created before them
+     */
+    public void createTableIfNecessary(TableOperations tops) throws AccumuloException, AccumuloSecurityException, TableNotFoundException {
+        if (!tops.exists(tableName)) {
+            try {
+                tops.create(tableName);
+            } catch (TableExistsException e) {
+                // somebody else created and is configuring the table
+                return;
+            }
+            
+            IteratorSetting totals = new IteratorSetting(10, "totals", SummingCombiner.class);
+            LongCombiner.setEncodingType(totals, LongCombiner.Type.VARLEN);
+            Combiner.setColumns(totals, getColumns(QUERIES, PAGES, PAGE_RESULTS, PAGE_TIME));
+            tops.attachIterator(tableName, totals);
+            
+            IteratorSetting maxima = new IteratorSetting(11, "maxima", MaxCombiner.class);
+            LongCombiner.setEncodingType(maxima, LongCombiner.Type.VARLEN);
+            Combiner.setColumns(maxima, getColumns(MAX_PAGE_RESULTS, MAX_PAGE_TIME));
+            tops.attachIterator(tableName, maxima);
+        }
+        
+        if (!tops.listIterators(tableName).containsKey(DASHBOARD_COMBINER)) {
+            IteratorSetting dashboard = new IteratorSetting(12, DASHBOARD_COMBINER, SummingCombiner.class);
+            LongCombiner.setEncodingType(dashboard, LongCombiner.Type.VARLEN);
+            Combiner.setColumns(dashboard, getColumns(DASHBOARD));
+            tops.attachIterator(tableName, dashboard);
+        }
+    }
+    
+    private static List<IteratorSetting.Column> getColumns(String... families) {
+        List<IteratorSetting.Column> columns = new ArrayList<>(families.length);
+        for (String family : families) {
+            columns.add(new IteratorSetting.Column(family));
+        }
+        return columns;
+    }
+    
+    /**
+     * @param user
+     *            the user who ran the query
+     * @param logic
+     *            the query logic of the query
+     * @param createDate
+     *            when the query was created, which decides its buckets
+     * @param newQuery
+     *            whether the query has not been counted yet
+     * @param newPages
+     *            the pages of the query which have not been counted yet
+     * @param storedMetric
+     *            the metric of the query which the dashboard counts include, or null if they do not include the query yet
+     * @param updatedMetric
+     *            the metric of the query which the dashboard counts are to include
+     * @param visibility
+     *            the visibility of the metrics
+     * @return the mutations which add the query and pages to their buckets
+     */
+    public List<Mutation> getMutations(String user, String logic, Date createDate, boolean newQuery, Collection<PageMetric> newPages,
+                    BaseQueryMetric storedMetric, BaseQueryMetric updatedMetric, ColumnVisibility visibility) {
+        Map<String,Integer> dashboardChanges = getDashboardCounts(updatedMetric);
+        if (storedMetric != null) {
+            for (Entry<String,Integer> count : getDashboardCounts(storedMetric).entrySet()) {
+                dashboardChanges.merge(count.getKey(), -count.getValue(), Integer::sum);
+            }
+        }
+        dashboardChanges.values().removeIf(change -> change == 0);
+        
+        if (!newQuery && newPages.isEmpty() && dashboardChanges.isEmpty()) {
+            return Collections.emptyList();
+        }
+        
+        long results = 0;
+        long time = 0;
+        long maxResults = 0;
+        long maxTime = 0;
+        for (PageMetric page : newPages) {
+            results += page.getPagesize();
+            time += page.getReturnTime();
+            maxResults = Math.max(maxResults, page.getPagesize());
+            maxTime = Math.max(maxTime, page.getReturnTime());
+        }
+        
+        Text column = new Text(user + NULL_BYTE + (logic == null ? "" : logic));
+        Instant created = createDate.toInstant();
+        List<Mutation> mutations = new ArrayList<>(3);
+        for (DateTimeFormatter bucket : new DateTimeFormatter[] {MINUTE_FORMAT, HOUR_FORMAT, DAY_FORMAT}) {
+            Mutation m = new Mutation(bucket.format(created));
+            if (newQuery) {
+                put(m, QUERIES, column, visibility, 1);
+            }
+            if (!newPages.isEmpty()) {
+                put(m, PAGES, column, visibility, newPages.size());
+                put(m, PAGE_RESULTS, column, visibility, results);
+                put(m, PAGE_TIME, column, visibility, time);
+                put(m, MAX_PAGE_RESULTS, column, visibility, maxResults);
+                put(m, MAX_PAGE_TIME, column, visibility, maxTime);
+            }
+            for (Entry<String,Integer> change : dashboardChanges.entrySet()) {
+                put(m, DASHBOARD, new Text(change.getKey() + NULL_BYTE + column), visibility, change.getValue());
+            }
+            mutations.add(m);
+        }
+        return mutations;
+    }
+    
+    private static void put(Mutation m, String family, Text column, ColumnVisibility visibility, long value) {
+        m.put(new Text(family), column, visibility, new Value(LongCombiner.VAR_LEN_ENCODER.encode(value)));
+    }
+    
+    /**
+     * @return the counts the metric adds to the dashboard, as the dashboard query logic counts the metric when it reads it from the metrics table
+     */
+    static Map<String,Integer> getDashboardCounts(BaseQueryMetric metric) {
+        List<PageMetric> pages = metric.getPageTimes();
+        long firstPageTime = (pages == null || pages.isEmpty()) ? 0 : pages.get(0).getReturnTime();
+        int selectors = (metric.getPositiveSelectors() == null ? 0 : metric.getPositiveSelectors().size())
+                        + (metric.getNegativeSelectors() == null ? 0 : metric.getNegativeSelectors().size());
+        
+        DashboardSummary summary = new DashboardSummary(metric.getCreateDate());
+        summary.addQuery(metric.getCreateCallTime() + firstPageTime + metric.getSetupTime(), metric.getErrorMessage() != null, (int) metric.getNumResults(),
+                        selectors);
+        return new LinkedHashMap<>(summary.getCounts());
+    }
+    
+    /**
+     * Fills in the summaries of the periods of the response, as {@link BaseQueryMetricHandler#binSummary} does from the metrics themselves.
+     *
+     * @param response
+     *            the response to fill in
+     * @param connector
+     *            the connector to read the table with
+     * @param auths
+     *            the authorizations of the caller
+     * @param begin
+     *            the earliest creation date of the queries to include, or null for no limit
+     * @param end
+     *            the latest creation date of the queries to include, or null for now
+     * @param user
+     *            the only user to include, or null for all of them
+     * @return the response
+     */
+    public <T extends QueryMetricsSummaryResponse> T getSummaries(T response, Connector connector, Collection<Authorizations> auths, Date begin, Date end,
+                    String user) throws TableNotFoundException {
+        long now = clock.millis();
+        long from = (begin == null) ? 0 : begin.getTime();
+        long to = (end == null) ? now : end.getTime();
+        
+        addSummary(response.getHour1(), connector, auths, Math.max(from, now - HOUR), to, user);
+        addSummary(response.getHour6(), connector, auths, Math.max(from, now - 6 * HOUR), to, user);
+        addSummary(response.getHour12(), connector, auths, Math.max(from, now - 12 * HOUR), to, user);
+        addSummary(response.getDay1(), connector, auths, Math.max(from, now - DAY), to, user);
+        addSummary(response.getDay7(), connector, auths, Math.max(from, now - 7 * DAY), to, user);
+        addSummary(response.getDay30(), connector, auths, Math.max(from, now - 30 * DAY), to, user);
+        addSummary(response.getDay60(), connector, auths, Math.max(from, now - 60 * DAY), to, user);
+        addSummary(response.getDay90(), connector, auths, Math.max(from, now - 90 * DAY), to, user);
+        addSummary(response.getAll(), connector, auths, from, to, user);
+        return response;
+    }
+    
+    /**
+     * Reads the dashboard counts of the queries created in the minutes from the one containing begin through the one containing end
+     *
+     * @param connector
+     *            the connector to read the table with
+     * @param auths
+     *            the authorizations of the caller
+     * @param begin
+     *            the earliest creation date of the queries to include
+     * @param end
+     *            the latest creation date of the queries to include, or null for now
+     * @return the summary of the queries, dated at the end of the period
+     */
+    public DashboardSummary getDashboardSummary(Connector connector, Collection<Authorizations> auths, Date begin, Date end) throws TableNotFoundException {
+        Date to = (end == null) ? new Date(clock.millis()) : end;
+        DashboardSummary summary = new DashboardSummary(to);
+        List<Range> ranges = getRanges(begin.getTime(), to.getTime());
+        if (ranges.isEmpty()) {
+            return summary;
+        }
+        
+        Map<String,Integer> names = summary.getCounts();
+        BatchScanner scanner = ScannerHelper.createBatchScanner(connector, tableName, auths, 4);
+        try {
+            scanner.setRanges(ranges);
+            scanner.fetchColumnFamily(new Text(DASHBOARD));
+            for (Entry<Key,Value> entry : scanner) {
+                String qualifier = entry.getKey().getColumnQualifier().toString();
+                String name = qualifier.substring(0, Math.max(0, qualifier.indexOf(NULL_BYTE)));
+                // counts this version of the dashboard does not know of are left out
+                if (names.containsKey(name)) {
+                    summary.addCount(name, LongCombiner.VAR_LEN_ENCODER.decode(entry.getValue().get()).intValue());
+                }
+            }
+        } finally {
+            scanner.close();
+        }
+        return summary;
+    }
+    
+    private void addSummary(QueryMetricSummary summary, Connector connector, Collection<Authorizations> auths, long from, long to, String user)
+                    throws TableNotFoundException {
+        List<Range> ranges = getRanges(from, to);
+        if (ranges.isEmpty()) {
+            return;
+        }
+        
+        String prefix = (user == null) ? null : user + NULL_BYTE;
+        BatchScanner scanner = ScannerHelper.createBatchScanner(connector, tableName, auths, 4);
+        try {
+            scanner.setRanges(ranges);
+            for (Entry<Key,Value> entry : scanner) {
+                if (prefix != null && !entry.getKey().getColumnQualifier().toString().startsWith(prefix)) {
+                    continue;
+                }
+                
+                long value = LongCombiner.VAR_LEN_ENCODER.decode(entry.getValue().get());
+                switch (entry.getKey().getColumnFamily().toString()) {
+                    case QUERIES:
+                        summary.setQueryCount(summary.getQueryCount() + value);
+                        break;
+                    case PAGES:
+                        summary.setTotalPages(summary.getTotalPages() + value);
+                        break;
+                    case PAGE_RESULTS:
+                        summary.setTotalPageResultSize(summary.getTotalPageResultSize() + value);
+                        break;
+                    case PAGE_TIME:
+                        summary.setTotalPageResponseTime(summary.getTotalPageResponseTime() + value);
+                        break;
+                    case MAX_PAGE_RESULTS:
+                        summary.setMaxPageResultSize(Math.max(summary.getMaxPageResultSize(), value));
+                        break;
+                    case MAX_PAGE_TIME:
+                        summary.setMaxPageResponseTime(Math.max(summary.getMaxPageResponseTime(), value));
+                        break;
+                    default:
+                        break;
+                }
+            }
+        } finally {
+            scanner.close();
+        }
+    }
+    
+    /*
+     * The buckets which cover the minutes from the one containing from through the one containing to, using the largest buckets possible. Consecutive buckets
+     * of the same size sort next to each other, so there are at most five ranges: minutes, hours, days, hours and minutes.
+     */
+    private static List<Range> getRanges(long from, long to) {
+        List<Range> ranges = new ArrayList<>();
+        long end = to - (to % MINUTE) + MINUTE;
+        long time = from - (from % MINUTE);
+        DateTimeFormatter run = null;
+        long runStart = time;
+        while (time < end) {
+            DateTimeFormatter bucket;
+            long size;
+            if (time % DAY == 0 && time + DAY <= end) {
+                bucket = DAY_FORMAT;
+                size = DAY;
+            } else if (time % HOUR == 0 && time + HOUR <= end) {
+                bucket = HOUR_FORMAT;
+                size = HOUR;
+            } else {
+                bucket = MINUTE_FORMAT;
+                size = MINUTE;
+            }
+            if (bucket != run) {
+                if (run != null) {
+                    ranges.add(getRange(run, runStart, time));
+                }
+                run = bucket;
+                runStart = time;
+            }
+            time += size;
+        }
+        if (run != null) {
+            ranges.add(getRange(run, runStart, time));
+        }
+        return ranges;
+    }
+    
+    private static Range getRange(DateTimeFormatter bucket, long start, long end) {
+        return new Range(bucket.format(Instant.ofEpochMilli(start)), true, bucket.format(Instant.ofEpochMilli(end)), false);
+    }
+}
@@ -9,6 +9,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -53,6 +54,7 @@ import datawave.webservice.query.QueryImpl;
 import datawave.webservice.query.QueryImpl.Parameter;
 import datawave.webservice.query.cache.QueryMetricFactory;
 import datawave.webservice.query.cache.ResultsPage;
+import datawave.webservice.query.dashboard.DashboardSummary;
 import datawave.webservice.query.exception.QueryException;
 import datawave.webservice.query.exception.QueryExceptionType;
 import datawave.webservice.query.logic.QueryLogic;
@@ -83,6 +85,7 @@ import org.apache.accumulo.core.client.admin.TableOperations;
 import org.apache.accumulo.core.data.Key;
 import org.apache.accumulo.core.data.Mutation;
 import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.security.Authorizations;
 import org.apache.accumulo.core.security.ColumnVisibility;
 import org.apache.commons.codec.binary.Base64;
 import org.apache.commons.collections4.map.LRUMap;
@@ -140,6 +143,7 @@ public class ShardTableQueryMetricHandler extends BaseQueryMetricHandler<QueryMe
     @SuppressWarnings("FieldCanBeLocal")
     private static final String NULL_BYTE = "\0";
     public static final String CONTEXT_WRITER_MAX_CACHE_SIZE = "context.writer.max.cache.size";
+    public static final String SUMMARY_TABLE_NAME = "querymetrics.summary.table.name";
     
     // static to share the cache across instances of this class held by QueryExecutorBean, CachedResultsBean, QueryMetricsEnrichmentInterceptor, etc
     @SuppressWarnings("unchecked")
@@ -149,6 +153,7 @@ public class ShardTableQueryMetricHandler extends BaseQueryMetricHandler<QueryMe
     private final StatusReporter reporter = new MockStatusReporter();
     private final AtomicBoolean tablesChecked = new AtomicBoolean(false);
     private AccumuloRecordWriter recordWriter = null;
+    private QueryMetricSummaryStore summaryStore = null;
     
     private UIDBuilder<UID> uidBuilder = UID.builder();
     
@@ -161,6 +166,12 @@ public class ShardTableQueryMetricHandler extends BaseQueryMetricHandler<QueryMe
         String accumuloPassword = conf.get("AccumuloRecordWriter.password");
         byte[] encodedAccumuloPassword = Base64.encodeBase64(accumuloPassword.getBytes());
         conf.set("AccumuloRecordWriter.password", new String(encodedAccumuloPassword));
+        
+        // the summaries are read from the metrics themselves unless a summary table is configured
+        String summaryTableName = conf.get(SUMMARY_TABLE_NAME);
+        if (StringUtils.isNotBlank(summaryTableName)) {
+            summaryStore = new QueryMetricSummaryStore(summaryTableName);
+        }
     }
     
     @PostConstruct
@@ -206,6 +217,9 @@ public class ShardTableQueryMetricHandler extends BaseQueryMetricHandler<QueryMe
             connector = this.connectionFactory.getConnection(Priority.ADMIN, new HashMap<>());
             AbstractColumnBasedHandler<Key> handler = new ContentQueryMetricsHandler<>();
             createAndConfigureTablesIfNecessary(handler.getTableNames(conf), connector.tableOperations(), conf);
+            if (summaryStore != null) {
+                summaryStore.createTableIfNecessary(connector.tableOperations());
+            }
         } catch (Exception e) {
             log.error("Error verifying table configuration", e);
         } finally {
@@ -441,11 +455,99 @@ public class ShardTableQueryMetricHandler extends BaseQueryMetricHandler<QueryMe
             
             // write new entry
             writeMetrics(updatedQueryMetric, Collections.singletonList(updatedQueryMetric), lastUpdated, false);
+            
+            if (summaryStore != null) {
+                writeSummary(updatedQueryMetric, queryMetrics, sid);
+            }
         } finally {
             enableLogs(true);
         }
     }
     
+    /**
+     * Adds the query, if it had not been stored before, and the pages which the stored metrics did not have yet to the summary table, and moves its dashboard
+     * counts from those of the latest stored metric to those of the updated one
+     */
+    private void writeSummary(QueryMetric updatedQueryMetric, List<QueryMetric> storedQueryMetrics, String sid) throws IOException {
+        QueryMetric latestQueryMetric = null;
+        Set<Long> storedPages = new HashSet<>();
+        for (QueryMetric storedQueryMetric : storedQueryMetrics) {
+            // the placeholder for a metric which was never stored has no query id
+            if (storedQueryMetric.getQueryId() != null) {
+                if (latestQueryMetric == null || storedQueryMetric.getNumUpdates() > latestQueryMetric.getNumUpdates()) {
+                    latestQueryMetric = storedQueryMetric;
+                }
+                if (storedQueryMetric.getPageTimes() != null) {
+                    for (PageMetric p : storedQueryMetric.getPageTimes()) {
+                        storedPages.add(p.getPageNumber());
+                    }
+                }
+            }
+        }
+        
+        List<PageMetric> newPages = new ArrayList<>();
+        for (PageMetric p : updatedQueryMetric.getPageTimes()) {
+            if (!storedPages.contains(p.getPageNumber())) {
+                newPages.add(p);
+            }
+        }
+        
+        ColumnVisibility visibility = new ColumnVisibility(visibilityString != null ? visibilityString : DEFAULT_SECURITY_MARKING);
+        Text tableName = new Text(summaryStore.getTableName());
+        for (Mutation m : summaryStore.getMutations(sid, updatedQueryMetric.getQueryLogic(), updatedQueryMetric.getCreateDate(), latestQueryMetric == null,
+                        newPages, latestQueryMetric, updatedQueryMetric, visibility)) {
+            recordWriter.write(tableName, m);
+        }
+    }
+    
+    private <T extends QueryMetricsSummaryResponse> T getSummaries(T response, Date begin, Date end, String user, DatawavePrincipal datawavePrincipal) {
+        Connector connector = null;
+        try {
+            Map<String,String> trackingMap = this.connectionFactory.getTrackingMap(Thread.currentThread().getStackTrace());
+            connector = this.connectionFactory.getConnection(Priority.ADMIN, trackingMap);
+            Set<Authorizations> auths = AuthorizationsUtil.buildAuthorizations(datawavePrincipal.getAuthorizations());
+            summaryStore.getSummaries(response, connector, auths, begin, end, user);
+        } catch (Exception e) {
+            log.error(e.getMessage(), e);
+            response.addExceptions(new QueryException(e).getQueryExceptionsInStack());
+        } finally {
+            if (null != connector) {
+                try {
+                    this.connectionFactory.returnConnection(connector);
+                } catch (Exception e) {
+                    log.warn("Could not return connector to factory", e);
+                }
+            }
+        }
+        return response;
+    }
+    
+    @Override
+    public DashboardSummary getDashboardSummary(Date begin, Date end, DatawavePrincipal datawavePrincipal) {
+        if (summaryStore == null) {
+            return null;
+        }
+        Connector connector = null;
+        try {
+            Map<String,String> trackingMap = this.connectionFactory.getTrackingMap(Thread.currentThread().getStackTrace());
+            connector = this.connectionFactory.getConnection(Priority.ADMIN, trackingMap);
+            Set<Authorizations> auths = AuthorizationsUtil.buildAuthorizations(datawavePrincipal.getAuthorizations());
+            return summaryStore.getDashboardSummary(connector, auths, begin, end);
+        } catch (Exception e) {
+            // the dashboard falls back to reading the metrics
+            log.error(e.getMessage(), e);
+            return null;
+        } finally {
+            if (null != connector) {
+                try {
+                    this.connectionFactory.returnConnection(connector);
+                } catch (Exception e) {
+                    log.warn("Could not return connector to factory", e);
+                }
+            }
+        }
+    }
+    
     private List<QueryMetric> getQueryMetrics(BaseResponse response, Query query, DatawavePrincipal datawavePrincipal) {
         List<QueryMetric> queryMetrics = new ArrayList<>();
         RunningQuery runningQuery = null;
@@ -569,6 +671,10 @@ public class ShardTableQueryMetricHandler extends BaseQueryMetricHandler<QueryMe
             // this method is open to any user
             datawavePrincipal = callerPrincipal;
             
+            if (summaryStore != null) {
+                return getSummaries(response, begin, end, null, datawavePrincipal);
+            }
+            
             Collection<? extends Collection<String>> authorizations = datawavePrincipal.getAuthorizations();
             QueryImpl query = new QueryImpl();
             query.setBeginDate(begin);
@@ -605,6 +711,10 @@ public class ShardTableQueryMetricHandler extends BaseQueryMetricHandler<QueryMe
             // this method is open to any user
             datawavePrincipal = callerPrincipal;
             
+            if (summaryStore != null) {
+                return getSummaries(response, begin, end, user, datawavePrincipal);
+            }
+            
             Collection<? extends Collection<String>> authorizations = datawavePrincipal.getAuthorizations();
             QueryImpl query = new QueryImpl();
             query.setBeginDate(begin);
@@ -901,6 +1011,10 @@ public class ShardTableQueryMetricHandler extends BaseQueryMetricHandler<QueryMe
             // this method is open to any user
             datawavePrincipal = callerPrincipal;
             
+            if (summaryStore != null) {
+                return getSummaries(response, begin, end, null, datawavePrincipal);
+            }
+            
             Collection<? extends Collection<String>> authorizations = datawavePrincipal.getAuthorizations();
             QueryImpl query = new QueryImpl();
             query.setBeginDate(begin);
@@ -101,6 +101,8 @@ import org.apache.accumulo.core.data.Key;
 import org.apache.accumulo.core.data.Range;
 import org.apache.accumulo.core.data.Value;
 import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
+import org.apache.accumulo.core.security.Authorizations;
+import org.apache.commons.jexl2.parser.ASTDelayedPredicate;
 import org.apache.commons.jexl2.parser.ASTJexlScript;
 import org.apache.commons.jexl2.parser.JexlNode;
 import org.apache.commons.jexl2.parser.ParseException;
@@ -127,6 +129,7 @@ import java.util.Map.Entry;
 import java.util.Random;
 import java.util.Set;
 import java.util.TimeZone;
+import java.util.TreeSet;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -177,6 +180,11 @@ public class DefaultQueryPlanner extends QueryPlanner {
      */
     protected boolean cacheDataTypes = false;
     
+    /**
+     * Caches the rewritten query trees of queries that differ only in their values, see {@link QueryPlanTemplates}
+     */
+    protected boolean cachePlanTemplates = false;
+    
     /**
      * Overrides behavior with doc specific ranges
      */
@@ -276,6 +284,7 @@ public class DefaultQueryPlanner extends QueryPlanner {
         this(other.maxRangesPerQueryPiece, other.limitScanners);
         setRangeStreamClass(other.getRangeStreamClass());
         setCacheDataTypes(other.getCacheDataTypes());
+        setCachePlanTemplates(other.getCachePlanTemplates());
         setDisableAnyFieldLookup(other.disableAnyFieldLookup);
         setDisableBoundedLookup(other.disableBoundedLookup);
         setDisableCompositeFields(other.disableCompositeFields);
@@ -489,6 +498,9 @@ public class DefaultQueryPlanner extends QueryPlanner {
         addOption(cfg, QueryOptions.TYPE_METADATA_IN_HDFS, Boolean.toString(config.isTypeMetadataInHdfs()), true);
         addOption(cfg, QueryOptions.TERM_FREQUENCY_FIELDS, Joiner.on(',').join(config.getQueryTermFrequencyFields()), false);
         addOption(cfg, QueryOptions.TERM_FREQUENCIES_REQUIRED, Boolean.toString(config.isTermFrequenciesRequired()), true);
+        addOption(cfg, QueryOptions.TERM_FREQUENCY_BATCH_SIZE, Integer.toString(config.getTermFrequencyBatchSize()), false);
+        addOption(cfg, QueryOptions.EVALUATION_BATCH_SIZE, Integer.toString(config.getEvaluationBatchSize()), false);
+        addOption(cfg, QueryOptions.LAZY_ATTRIBUTES, Boolean.toString(config.isLazyAttributes()), false);
         addOption(cfg, QueryOptions.QUERY, newQueryString, false);
         addOption(cfg, QueryOptions.QUERY_ID, config.getQuery().getId().toString(), false);
         addOption(cfg, QueryOptions.FULL_TABLE_SCAN_ONLY, Boolean.toString(isFullTable), false);
@@ -658,46 +670,6 @@ public class DefaultQueryPlanner extends QueryPlanner {
         
         validateQuerySize("initial parse", queryTree, config);
         
-        stopwatch = timers.newStartedStopwatch("DefaultQueryPlanner - initial re-write");
-        
-        queryTree = applyRules(queryTree, scannerFactory, metadataHelper, config);
-        
-        if (log.isDebugEnabled()) {
-            logQuery(queryTree, "Query after applying pushdown rules:");
-        }
-        
-        stopwatch.stop();
-        stopwatch = timers.newStartedStopwatch("DefaultQueryPlanner - Restructure negative numbers");
-        
-        queryTree = FixNegativeNumbersVisitor.fix(queryTree);
-        
-        if (log.isDebugEnabled()) {
-            logQuery(queryTree, "Query after restructuring negative numbers:");
-        }
-        
-        stopwatch.stop();
-        stopwatch = timers.newStartedStopwatch("DefaultQueryPlanner - Uppercase all field names");
-        
-        // Ensure that all ASTIdentifier nodes (field names) are upper-case, as
-        // this
-        // is enforced at ingest time
-        CaseSensitivityVisitor.upperCaseIdentifiers(config, metadataHelper, queryTree);
-        
-        if (log.isDebugEnabled()) {
-            logQuery(queryTree, "Query after uppercase'ing field names:");
-        }
-        
-        stopwatch.stop();
-        stopwatch = timers.newStartedStopwatch("DefaultQueryPlanner - Rewrite negated equality operators.");
-        
-        Negations.rewrite(queryTree);
-        if (log.isDebugEnabled()) {
-            logQuery(queryTree, "Query after rewriting negated equality operators:");
-        }
-        
-        stopwatch.stop();
-        stopwatch = timers.newStartedStopwatch("DefaultQueryPlanner - Apply query model");
-        
         QueryModel queryModel = null;
         QueryModelProvider queryModelProvider = this.queryModelProviderFactory.createQueryModelProvider();
         if (queryModelProvider instanceof MetadataHelperQueryModelProvider) {
@@ -706,16 +678,12 @@ public class DefaultQueryPlanner extends QueryPlanner {
         }
         queryModel = queryModelProvider.getQueryModel();
         
-        if (null != queryModel) {
-            queryTree = applyQueryModel(metadataHelper, config, stopwatch, queryTree, queryModel);
-        }
-        
-        if (log.isDebugEnabled()) {
-            logQuery(queryTree, "Query after applying query model:");
+        if (cachePlanTemplates) {
+            queryTree = rewriteQueryTemplate(scannerFactory, metadataHelper, config, queryTree, queryModel);
+        } else {
+            queryTree = rewriteQueryTree(scannerFactory, metadataHelper, config, queryTree, queryModel);
         }
         
-        stopwatch.stop();
-        
         Set<String> indexOnlyFields;
         try {
             indexOnlyFields = metadataHelper.getIndexOnlyFields(config.getDatatypeFilter());
@@ -1204,10 +1172,169 @@ public class DefaultQueryPlanner extends QueryPlanner {
         }
     }
     
+    /**
+     * Applies the rewrites that depend only on the structure of the query, from the push down rules through the query model.
+     */
+    protected ASTJexlScript rewriteQueryTree(ScannerFactory scannerFactory, MetadataHelper metadataHelper, ShardQueryConfiguration config,
+                    ASTJexlScript queryTree, QueryModel queryModel) {
+        final QueryStopwatch timers = config.getTimers();
+        
+        TraceStopwatch stopwatch = timers.newStartedStopwatch("DefaultQueryPlanner - initial re-write");
+        
+        queryTree = applyRules(queryTree, scannerFactory, metadataHelper, config);
+        
+        if (log.isDebugEnabled()) {
+            logQuery(queryTree, "Query after applying pushdown rules:");
+        }
+        
+        stopwatch.stop();
+        stopwatch = timers.newStartedStopwatch("DefaultQueryPlanner - Restructure negative numbers");
+        
+        queryTree = FixNegativeNumbersVisitor.fix(queryTree);
+        
+        if (log.isDebugEnabled()) {
+            logQuery(queryTree, "Query after restructuring negative numbers:");
+        }
+        
+        stopwatch.stop();
+        stopwatch = timers.newStartedStopwatch("DefaultQueryPlanner - Uppercase all field names");
+        
+        // Ensure that all ASTIdentifier nodes (field names) are upper-case, as
+        // this
+        // is enforced at ingest time
+        CaseSensitivityVisitor.upperCaseIdentifiers(config, metadataHelper, queryTree);
+        
+        if (log.isDebugEnabled()) {
+            logQuery(queryTree, "Query after uppercase'ing field names:");
+        }
+        
+        stopwatch.stop();
+        stopwatch = timers.newStartedStopwatch("DefaultQueryPlanner - Rewrite negated equality operators.");
+        
+        Negations.rewrite(queryTree);
+        if (log.isDebugEnabled()) {
+            logQuery(queryTree, "Query after rewriting negated equality operators:");
+        }
+        
+        stopwatch.stop();
+        stopwatch = timers.newStartedStopwatch("DefaultQueryPlanner - Apply query model");
+        
+        if (null != queryModel) {
+            queryTree = applyQueryModel(metadataHelper, config, stopwatch, queryTree, queryModel);
+        }
+        
+        if (log.isDebugEnabled()) {
+            logQuery(queryTree, "Query after applying query model:");
+        }
+        
+        stopwatch.stop();
+        
+        return queryTree;
+    }
+    
+    /**
+     * Applies the same rewrites as {@link #rewriteQueryTree}, reusing the rewritten tree of an earlier query that differed only in its values if there is one.
+     */
+    protected ASTJexlScript rewriteQueryTemplate(ScannerFactory scannerFactory, MetadataHelper metadataHelper, ShardQueryConfiguration config,
+                    ASTJexlScript queryTree, QueryModel queryModel) {
+        TraceStopwatch stopwatch = config.getTimers().newStartedStopwatch("DefaultQueryPlanner - Bind cached plan template");
+        
+        QueryPlanTemplates.Parameterized parameterized = QueryPlanTemplates.parameterize(queryTree);
+        String key = planTemplateKey(config, parameterized.getSignature());
+        ASTJexlScript bound = QueryPlanTemplates.get(key, parameterized.getValues());
+        
+        stopwatch.stop();
+        
+        if (null != bound) {
+            // the query model also remaps the fields of the query parameters, which are not part of the template
+            if (null != queryModel) {
+                applyQueryModelToParameters(config, queryModel);
+            }
+            if (log.isDebugEnabled()) {
+                logQuery(bound, "Query after binding values into cached plan template:");
+            }
+            return bound;
+        }
+        
+        ASTJexlScript rewritten = rewriteQueryTree(scannerFactory, metadataHelper, config, parameterized.getTree(), queryModel);
+        return QueryPlanTemplates.put(key, rewritten, parameterized.getValues());
+    }
+    
+    /**
+     * Builds the key of a plan template from the signature of the query and everything else the rewrites depend on.
+     */
+    protected String planTemplateKey(ShardQueryConfiguration config, String signature) {
+        StringBuilder key = new StringBuilder(signature);
+        key.append('\u0000').append(getClass().getName());
+        for (PushDownRule rule : rules) {
+            key.append('\u0000').append(rule.getClass().getName());
+        }
+        key.append('\u0000').append(new TreeSet<>(config.getDatatypeFilter()));
+        key.append('\u0000').append(config.getModelName()).append('\u0000').append(config.getModelTableName());
+        Set<String> auths = new TreeSet<>();
+        for (Authorizations auth : config.getAuthorizations()) {
+            auths.add(auth.toString());
+        }
+        key.append('\u0000').append(auths);
+        // the push down rules estimate the cost of terms over the date range of the query
+        if (!rules.isEmpty() || signature.contains(ASTDelayedPredicate.class.getSimpleName())) {
+            key.append('\u0000').append(config.getBeginDate().getTime()).append('\u0000').append(config.getEndDate().getTime());
+        }
+        return key.toString();
+    }
+    
     // Overwrite projection and blacklist properties if the query model is
     // being used
     protected ASTJexlScript applyQueryModel(MetadataHelper metadataHelper, ShardQueryConfiguration config, TraceStopwatch stopwatch, ASTJexlScript queryTree,
                     QueryModel queryModel) {
+        applyQueryModelToParameters(config, queryModel);
+        
+        Set<String> dataTypes = config.getDatatypeFilter();
+        Set<String> allFields = null;
+        try {
+            String dataTypeHash = String.valueOf(dataTypes.hashCode());
+            if (cacheDataTypes) {
+                allFields = allFieldTypeMap.getIfPresent(dataTypeHash);
+            }
+            if (null == allFields) {
+                allFields = metadataHelper.getAllFields(dataTypes);
+                if (cacheDataTypes)
+                    allFieldTypeMap.put(dataTypeHash, allFields);
+            }
+            
+            if (log.isTraceEnabled()) {
+                StringBuilder builder = new StringBuilder();
+                for (String dataType : dataTypes) {
+                    if (builder.length() > 0) {
+                        builder.append(',');
+                    }
+                    builder.append(dataType);
+                }
+                log.trace("Datatypes: " + builder);
+                builder.delete(0, builder.length());
+                
+                for (String field : allFields) {
+                    if (builder.length() > 0) {
+                        builder.append(',');
+                    }
+                    builder.append(field);
+                }
+                log.trace("allFields: " + builder);
+            }
+        } catch (TableNotFoundException e) {
+            stopwatch.stop();
+            QueryException qe = new QueryException(DatawaveErrorCode.FIELD_FETCH_ERROR, e);
+            log.error(qe);
+            throw new DatawaveFatalQueryException(qe);
+        }
+        queryTree = QueryModelVisitor.applyModel(queryTree, queryModel, allFields);
+        if (log.isTraceEnabled())
+            log.trace("queryTree:" + PrintingVisitor.formattedQueryString(queryTree));
+        return queryTree;
+    }
+    
+    // Overwrite the projection, grouping, unique, blacklist and limit fields with the fields the query model maps them to
+    protected void applyQueryModelToParameters(ShardQueryConfiguration config, QueryModel queryModel) {
         // generate the inverse of the reverse mapping; {display field name
         // => db field name}
         // a reverse mapping is always many to one, therefore the inverted
@@ -1260,49 +1387,6 @@ public class DefaultQueryPlanner extends QueryPlanner {
             }
             config.setLimitFields(Sets.newHashSet(limitFields));
         }
-        
-        Set<String> dataTypes = config.getDatatypeFilter();
-        Set<String> allFields = null;
-        try {
-            String dataTypeHash = String.valueOf(dataTypes.hashCode());
-            if (cacheDataTypes) {
-                allFields = allFieldTypeMap.getIfPresent(dataTypeHash);
-            }
-            if (null == allFields) {
-                allFields = metadataHelper.getAllFields(dataTypes);
-                if (cacheDataTypes)
-                    allFieldTypeMap.put(dataTypeHash, allFields);
-            }
-            
-            if (log.isTraceEnabled()) {
-                StringBuilder builder = new StringBuilder();
-                for (String dataType : dataTypes) {
-                    if (builder.length() > 0) {
-                        builder.append(',');
-                    }
-                    builder.append(dataType);
-                }
-                log.trace("Datatypes: " + builder);
-                builder.delete(0, builder.length());
-                
-                for (String field : allFields) {
-                    if (builder.length() > 0) {
-                        builder.append(',');
-                    }
-                    builder.append(field);
-                }
-                log.trace("allFields: " + builder);
-            }
-        } catch (TableNotFoundException e) {
-            stopwatch.stop();
-            QueryException qe = new QueryException(DatawaveErrorCode.FIELD_FETCH_ERROR, e);
-            log.error(qe);
-            throw new DatawaveFatalQueryException(qe);
-        }
-        queryTree = QueryModelVisitor.applyModel(queryTree, queryModel, allFields);
-        if (log.isTraceEnabled())
-            log.trace("queryTree:" + PrintingVisitor.formattedQueryString(queryTree));
-        return queryTree;
     }
     
     /**
@@ -1821,6 +1905,7 @@ public class DefaultQueryPlanner extends QueryPlanner {
         addOption(cfg, QueryOptions.ALLOW_FIELD_INDEX_EVALUATION, Boolean.toString(config.isAllowFieldIndexEvaluation()), false);
         addOption(cfg, QueryOptions.ALLOW_TERM_FREQUENCY_LOOKUP, Boolean.toString(config.isAllowTermFrequencyLookup()), false);
         addOption(cfg, QueryOptions.COMPRESS_SERVER_SIDE_RESULTS, Boolean.toString(config.isCompressServerSideResults()), false);
+        addOption(cfg, QueryOptions.DICTIONARY_COMPRESS_SERVER_SIDE_RESULTS, Boolean.toString(config.isDictionaryCompressServerSideResults()), false);
     }
     
     /**
@@ -2026,6 +2111,14 @@ public class DefaultQueryPlanner extends QueryPlanner {
         this.cacheDataTypes = cacheDataTypes;
     }
     
+    public boolean getCachePlanTemplates() {
+        return cachePlanTemplates;
+    }
+    
+    public void setCachePlanTemplates(boolean cachePlanTemplates) {
+        this.cachePlanTemplates = cachePlanTemplates;
+    }
+    
     private Multimap<String,String> invertMultimap(Map<String,String> multi) {
         Multimap<String,String> inverse = HashMultimap.create();
         for (Entry<String,String> entry : multi.entrySet()) {
@@ -0,0 +1,171 @@
+package datawave.query.planner;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import datawave.query.jexl.visitors.JexlStringBuildingVisitor;
+import datawave.query.jexl.visitors.RebuildingVisitor;
+
+import org.apache.commons.jexl2.parser.ASTEQNode;
+import org.apache.commons.jexl2.parser.ASTGENode;
+import org.apache.commons.jexl2.parser.ASTGTNode;
+import org.apache.commons.jexl2.parser.ASTJexlScript;
+import org.apache.commons.jexl2.parser.ASTLENode;
+import org.apache.commons.jexl2.parser.ASTLTNode;
+import org.apache.commons.jexl2.parser.ASTNENode;
+import org.apache.commons.jexl2.parser.ASTReference;
+import org.apache.commons.jexl2.parser.ASTStringLiteral;
+import org.apache.commons.jexl2.parser.JexlNode;
+import org.apache.commons.jexl2.parser.JexlNodes;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * Caches the query trees produced by the structural rewrites of the {@link DefaultQueryPlanner} (flattening, the push down rules, upper casing of fields,
+ * negation rewriting and the query model), so that queries that differ only in the values they compare fields against are only rewritten once.
+ * <p>
+ * A query is parameterized by replacing each string literal that a field is compared against with a numbered slot. The rewritten tree of the parameterized
+ * query is cached by its signature, and later queries with the same signature bind their own values into a copy of it. Literals whose value can change the
+ * rewrite, such as regexes and function arguments, are left in place and so are part of the signature.
+ */
+public class QueryPlanTemplates {
+    
+    private static final char SLOT_MARKER = '\uE000';
+    
+    private static final Cache<String,ASTJexlScript> templates = CacheBuilder.newBuilder().maximumSize(1000).expireAfterWrite(10, TimeUnit.MINUTES)
+                    .concurrencyLevel(10).build();
+    
+    private QueryPlanTemplates() {}
+    
+    /**
+     * A query with its compared values replaced by slots.
+     */
+    public static class Parameterized {
+        private final ASTJexlScript tree;
+        private final List<String> values;
+        private final String signature;
+        
+        Parameterized(ASTJexlScript tree, List<String> values) {
+            this.tree = tree;
+            this.values = Collections.unmodifiableList(values);
+            this.signature = JexlStringBuildingVisitor.buildQueryWithoutParse(tree);
+        }
+        
+        /**
+         * @return the query tree with slots in place of the values
+         */
+        public ASTJexlScript getTree() {
+            return tree;
+        }
+        
+        /**
+         * @return the values, in the order of their slots
+         */
+        public List<String> getValues() {
+            return values;
+        }
+        
+        /**
+         * @return the query string of the parameterized tree
+         */
+        public String getSignature() {
+            return signature;
+        }
+    }
+    
+    /**
+     * Replaces the values compared against in a copy of a query tree with slots.
+     */
+    public static Parameterized parameterize(ASTJexlScript queryTree) {
+        ASTJexlScript tree = (ASTJexlScript) RebuildingVisitor.copy(queryTree);
+        List<String> values = new ArrayList<>();
+        parameterize(tree, values);
+        return new Parameterized(tree, values);
+    }
+    
+    private static void parameterize(JexlNode node, List<String> values) {
+        if (node instanceof ASTStringLiteral && isComparedValue(node)) {
+            ASTStringLiteral literal = (ASTStringLiteral) node;
+            JexlNodes.setLiteral(literal, slot(values.size()));
+            values.add(literal.image == null ? null : literal.getLiteral());
+            return;
+        }
+        for (int i = 0; i < node.jjtGetNumChildren(); i++) {
+            parameterize(node.jjtGetChild(i), values);
+        }
+    }
+    
+    private static boolean isComparedValue(JexlNode literal) {
+        JexlNode parent = literal.jjtGetParent();
+        if (parent instanceof ASTReference) {
+            parent = parent.jjtGetParent();
+        }
+        return parent instanceof ASTEQNode || parent instanceof ASTNENode || parent instanceof ASTLTNode || parent instanceof ASTGTNode
+                        || parent instanceof ASTLENode || parent instanceof ASTGENode;
+    }
+    
+    private static String slot(int index) {
+        return SLOT_MARKER + Integer.toString(index) + SLOT_MARKER;
+    }
+    
+    /**
+     * Gets a copy of a cached rewritten tree with the values bound into its slots.
+     *
+     * @param key
+     *            the signature of the query, along with everything else the rewrite depends on
+     * @param values
+     *            the values of the query
+     * @return the bound tree, or null if there is no cached tree for the key
+     */
+    public static ASTJexlScript get(String key, List<String> values) {
+        ASTJexlScript template = templates.getIfPresent(key);
+        return template == null ? null : bind(template, values);
+    }
+    
+    /**
+     * Caches the rewritten tree of a parameterized query, and binds its values.
+     *
+     * @param key
+     *            the signature of the query, along with everything else the rewrite depends on
+     * @param rewritten
+     *            the rewritten tree of the parameterized query, which is not modified
+     * @param values
+     *            the values of the query
+     * @return a copy of the rewritten tree with the values bound into its slots
+     */
+    public static ASTJexlScript put(String key, ASTJexlScript rewritten, List<String> values) {
+        templates.put(key, (ASTJexlScript) RebuildingVisitor.copy(rewritten));
+        return bind(rewritten, values);
+    }
+    
+    /**
+     * Drops every cached template
+     */
+    public static void clear() {
+        templates.invalidateAll();
+    }
+    
+    private static ASTJexlScript bind(ASTJexlScript template, List<String> values) {
+        ASTJexlScript tree = (ASTJexlScript) RebuildingVisitor.copy(template);
+        bind((JexlNode) tree, values);
+        return tree;
+    }
+    
+    private static void bind(JexlNode node, List<String> values) {
+        if (node instanceof ASTStringLiteral) {
+            String image = node.image;
+            // a rewrite may copy a slot, for instance into every field a model maps a field to, so every copy is bound
+            if (image != null && image.length() > 2 && image.charAt(0) == SLOT_MARKER && image.charAt(image.length() - 1) == SLOT_MARKER) {
+                int index = Integer.parseInt(image.substring(1, image.length() - 1));
+                JexlNodes.setLiteral((ASTStringLiteral) node, values.get(index));
+            }
+            return;
+        }
+        for (int i = 0; i < node.jjtGetNumChildren(); i++) {
+            bind(node.jjtGetChild(i), values);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package datawave.query.postprocessing.tf;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Queue;
+import java.util.Set;
+
+import datawave.query.attributes.Document;
+import datawave.query.util.Tuple2;
+import datawave.query.util.Tuple3;
+import datawave.query.util.Tuples;
+
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.trace.instrument.Span;
+import org.apache.accumulo.trace.instrument.Trace;
+
+/**
+ * The batched counterpart of {@link TermOffsetFunction}. Up to batchSize documents are read ahead from the underlying iterator and their term offsets are
+ * loaded together through {@link TermOffsetPopulator#getContextMaps(Map)}, which reads the term frequencies of each shard with a single seek instead of one
+ * seek per document. Documents are returned in the order they were read, and each batch is loaded within a trace span.
+ */
+public class BatchedTermOffsetIterator implements Iterator<Tuple3<Key,Document,Map<String,Object>>> {
+    
+    private final Iterator<Tuple2<Key,Document>> documents;
+    private final TermOffsetPopulator tfPopulator;
+    private final int batchSize;
+    private final String description;
+    private final Queue<Tuple3<Key,Document,Map<String,Object>>> batch = new LinkedList<>();
+    
+    public BatchedTermOffsetIterator(Iterator<Tuple2<Key,Document>> documents, TermOffsetPopulator tfPopulator, int batchSize) {
+        this(documents, tfPopulator, batchSize, "Batched Term Frequency Lookup");
+    }
+    
+    /**
+     * @param description
+     *            the description of the trace span of each batch
+     */
+    public BatchedTermOffsetIterator(Iterator<Tuple2<Key,Document>> documents, TermOffsetPopulator tfPopulator, int batchSize, String description) {
+        this.documents = documents;
+        this.tfPopulator = tfPopulator;
+        this.batchSize = Math.max(1, batchSize);
+        this.description = description;
+    }
+    
+    @Override
+    public boolean hasNext() {
+        if (batch.isEmpty()) {
+            fillBatch();
+        }
+        return !batch.isEmpty();
+    }
+    
+    @Override
+    public Tuple3<Key,Document,Map<String,Object>> next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return batch.poll();
+    }
+    
+    private void fillBatch() {
+        List<Tuple2<Key,Document>> pending = new ArrayList<>(batchSize);
+        Map<Key,Set<Key>> docKeys = new LinkedHashMap<>();
+        while (pending.size() < batchSize && documents.hasNext()) {
+            Tuple2<Key,Document> from = documents.next();
+            pending.add(from);
+            docKeys.put(from.first(), TermOffsetFunction.getDocKeys(from));
+        }
+        if (pending.isEmpty()) {
+            return;
+        }
+        
+        Map<Key,Tuple2<Document,Map<String,Object>>> contextMaps;
+        Span s = null;
+        try {
+            s = Trace.start(description + ": batch");
+            contextMaps = tfPopulator.getContextMaps(docKeys);
+        } finally {
+            if (s != null) {
+                s.stop();
+            }
+        }
+        for (Tuple2<Key,Document> from : pending) {
+            Tuple2<Document,Map<String,Object>> context = contextMaps.get(from.first());
+            Document merged = from.second();
+            merged.putAll(context.first(), false);
+            Map<String,Object> map = new HashMap<>();
+            if (context.second() != null) {
+                map.putAll(context.second());
+            }
+            batch.add(Tuples.tuple(from.first(), merged, map));
+        }
+    }
+}
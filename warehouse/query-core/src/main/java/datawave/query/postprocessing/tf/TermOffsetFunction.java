@@ -22,10 +22,29 @@ public class TermOffsetFunction implements com.google.common.base.Function<Tuple
         this.tfPopulator = tfPopulator;
     }
     
+    public TermOffsetPopulator getPopulator() {
+        return tfPopulator;
+    }
+    
     @Override
     public Tuple3<Key,Document,Map<String,Object>> apply(Tuple2<Key,Document> from) {
         Document merged = from.second();
         Map<String,Object> map = new HashMap<>();
+        
+        map.putAll(tfPopulator.getContextMap(from.first(), getDocKeys(from)));
+        merged.putAll(tfPopulator.document(), false);
+        return Tuples.tuple(from.first(), merged, map);
+    }
+    
+    /**
+     * Gather the keys of the events that make up a document
+     *
+     * @param from
+     *            the document key and document
+     * @return the set of doc keys
+     */
+    public static Set<Key> getDocKeys(Tuple2<Key,Document> from) {
+        Document merged = from.second();
         Attribute<?> docKeyAttr = merged.get(Document.DOCKEY_FIELD_NAME);
         
         // gather the set of doc keys
@@ -45,9 +64,6 @@ public class TermOffsetFunction implements com.google.common.base.Function<Tuple
         } else {
             throw new IllegalStateException("Unexpected Attribute type for " + Document.DOCKEY_FIELD_NAME + ": " + docKeys.getClass());
         }
-        
-        map.putAll(tfPopulator.getContextMap(from.first(), docKeys));
-        merged.putAll(tfPopulator.document(), false);
-        return Tuples.tuple(from.first(), merged, map);
+        return docKeys;
     }
 }
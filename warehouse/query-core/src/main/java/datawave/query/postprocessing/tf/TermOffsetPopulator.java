@@ -4,12 +4,15 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.TreeMap;
 
 import datawave.core.iterators.TermFrequencyIterator;
 import datawave.core.iterators.TermFrequencyIterator.FieldValue;
@@ -24,6 +27,8 @@ import datawave.query.attributes.Content;
 import datawave.query.attributes.Document;
 import datawave.query.jexl.functions.ContentFunctions;
 import datawave.query.jexl.visitors.LiteralNodeSubsetVisitor;
+import datawave.query.util.Tuple2;
+import datawave.query.util.Tuples;
 
 import org.apache.accumulo.core.data.Key;
 import org.apache.accumulo.core.data.Range;
@@ -130,70 +135,173 @@ public class TermOffsetPopulator {
     }
     
     public Map<String,Object> getContextMap(Key docKey, Set<Key> keys) {
-        document = new Document();
+        Tuple2<Document,Map<String,Object>> result = getContextMaps(Collections.singletonMap(docKey, keys)).get(docKey);
+        document = result.first();
+        return result.second();
+    }
+    
+    /**
+     * Load the term offsets for a batch of documents. The documents are grouped by shard and the term frequencies of each shard are read with a single seek
+     * that spans all of the candidate documents in that shard, skipping ahead over the documents in between. Documents whose term frequencies overlap, such as
+     * a document and its children, are read in separate passes so that the evaluation filter is started once for each document.
+     *
+     * @param documents
+     *            the document keys of each document in the batch, mapped to the keys of the events making up the document
+     * @return the document of term frequency attributes and the context map for each document key. The context map is null if the term frequencies of the
+     *         document could not be read.
+     */
+    public Map<Key,Tuple2<Document,Map<String,Object>>> getContextMaps(Map<Key,Set<Key>> documents) {
+        // group the documents by shard, each document covering the term frequencies from its first to its last datatype\0uid
+        Map<Text,List<DocumentOffsets>> documentsByRow = new TreeMap<>();
+        Map<Key,DocumentOffsets> results = new LinkedHashMap<>();
+        for (Map.Entry<Key,Set<Key>> entry : documents.entrySet()) {
+            DocumentOffsets offsets = new DocumentOffsets(entry.getKey(), entry.getValue());
+            results.put(entry.getKey(), offsets);
+            documentsByRow.computeIfAbsent(offsets.row, row -> new ArrayList<>()).add(offsets);
+        }
         
         TermFrequencyIterator tfSource = new TermFrequencyIterator(termFrequencyFieldValues);
-        
-        Range range = getRange(keys);
         try {
             tfSource.init(source, null, null);
-            tfSource.seek(getRange(keys), null, false);
         } catch (IOException e) {
-            log.error("Seek to the range failed: " + range, e);
+            log.error("Unable to initialize the term frequency source", e);
         }
         
-        // set the document context on the filter
-        if (evaluationFilter != null) {
-            evaluationFilter.startNewDocument(docKey);
+        for (Map.Entry<Text,List<DocumentOffsets>> entry : documentsByRow.entrySet()) {
+            for (List<DocumentOffsets> pass : getPasses(entry.getValue())) {
+                loadRow(tfSource, entry.getKey(), pass);
+            }
         }
         
-        Map<String,TermFrequencyList> termOffsetMap = Maps.newHashMap();
+        Map<Key,Tuple2<Document,Map<String,Object>>> contextMaps = new LinkedHashMap<>();
+        for (Map.Entry<Key,DocumentOffsets> entry : results.entrySet()) {
+            DocumentOffsets offsets = entry.getValue();
+            Map<String,Object> map = null;
+            if (!offsets.failed) {
+                // Load the actual map into map that will be put into the JexlContext
+                map = new HashMap<>();
+                map.put(Constants.TERM_OFFSET_MAP_JEXL_VARIABLE_NAME, offsets.termOffsetMap);
+            }
+            contextMaps.put(entry.getKey(), Tuples.tuple(offsets.document, map));
+        }
+        return contextMaps;
+    }
+    
+    /**
+     * Split the documents of a shard into passes of documents which do not overlap, each pass in datatype\0uid order
+     */
+    private static List<List<DocumentOffsets>> getPasses(List<DocumentOffsets> rowDocuments) {
+        rowDocuments.sort(Comparator.comparing(d -> d.firstDataTypeUid));
+        List<List<DocumentOffsets>> passes = new ArrayList<>();
+        for (DocumentOffsets offsets : rowDocuments) {
+            List<DocumentOffsets> pass = null;
+            for (List<DocumentOffsets> candidate : passes) {
+                if (candidate.get(candidate.size() - 1).lastDataTypeUid.compareTo(offsets.firstDataTypeUid) < 0) {
+                    pass = candidate;
+                    break;
+                }
+            }
+            if (pass == null) {
+                pass = new ArrayList<>();
+                passes.add(pass);
+            }
+            pass.add(offsets);
+        }
+        return passes;
+    }
+    
+    /**
+     * Read the term frequencies for documents of a single shard which do not overlap, in datatype\0uid order
+     */
+    private void loadRow(TermFrequencyIterator tfSource, Text row, List<DocumentOffsets> rowDocuments) {
+        String lastDataTypeUid = rowDocuments.get(rowDocuments.size() - 1).lastDataTypeUid;
+        Key endKey = new Key(row, Constants.TERM_FREQUENCY_COLUMN_FAMILY, new Text(lastDataTypeUid + '\1'));
+        
+        Range range = getRowRange(row, rowDocuments.get(0).firstDataTypeUid, endKey);
+        try {
+            tfSource.seek(range, null, false);
+        } catch (IOException e) {
+            log.error("Seek to the range failed: " + range, e);
+        }
+        
+        // the documents that may contain the current datatype\0uid, and the index of the next document to become active
+        List<DocumentOffsets> active = new ArrayList<>();
+        int nextDocument = 0;
+        DocumentOffsets lastFiltered = null;
         
         while (tfSource.hasTop()) {
             Key key = tfSource.getTopKey();
-            FieldValue fv = FieldValue.getFieldValue(key);
+            String dataTypeUid = TermFrequencyIterator.getDataTypeUid(key.getColumnQualifier().toString());
             
-            // add the zone and term to our internal document
-            Content attr = new Content(fv.getValue(), source.getTopKey(), evaluationFilter == null || evaluationFilter.keep(key));
+            active.removeIf(d -> d.lastDataTypeUid.compareTo(dataTypeUid) < 0);
+            while (nextDocument < rowDocuments.size() && rowDocuments.get(nextDocument).firstDataTypeUid.compareTo(dataTypeUid) <= 0) {
+                DocumentOffsets offsets = rowDocuments.get(nextDocument++);
+                if (offsets.lastDataTypeUid.compareTo(dataTypeUid) >= 0) {
+                    active.add(offsets);
+                }
+            }
             
-            // no need to apply the evaluation filter here as the TermFrequencyIterator above is already doing more filtering than we can do here.
-            // So this filter is simply extraneous. However if the an EventDataQueryFilter implementation gets smarter somehow, then it can be added back in
-            // here.
-            // For example the AncestorQueryLogic may require this....
-            // if (evaluationFilter == null || evaluationFilter.apply(Maps.immutableEntry(key, StringUtils.EMPTY_STRING))) {
+            if (active.isEmpty()) {
+                if (nextDocument >= rowDocuments.size()) {
+                    break;
+                }
+                // between documents, skip ahead to the next one
+                range = getRowRange(row, rowDocuments.get(nextDocument).firstDataTypeUid, endKey);
+                try {
+                    tfSource.seek(range, null, false);
+                } catch (IOException e) {
+                    log.error("Seek to the range failed: " + range, e);
+                    break;
+                }
+                continue;
+            }
             
-            this.document.put(fv.getField(), attr);
+            FieldValue fv = FieldValue.getFieldValue(key);
+            
+            // if no content expansion fields then assume every field is permitted for unfielded content functions
+            TermFrequencyList.Zone twZone = new TermFrequencyList.Zone(fv.getField(),
+                            (contentExpansionFields == null || contentExpansionFields.isEmpty() || contentExpansionFields.contains(fv.getField())),
+                            TermFrequencyList.getEventId(key));
             
-            TreeMultimap<TermFrequencyList.Zone,TermWeightPosition> offsets = TreeMultimap.create();
+            List<TermWeightPosition> positions = null;
             try {
-                TermWeight.Info twInfo = TermWeight.Info.parseFrom(tfSource.getTopValue().get());
-                
-                // if no content expansion fields then assume every field is permitted for unfielded content functions
-                TermFrequencyList.Zone twZone = new TermFrequencyList.Zone(fv.getField(),
-                                (contentExpansionFields == null || contentExpansionFields.isEmpty() || contentExpansionFields.contains(fv.getField())),
-                                TermFrequencyList.getEventId(key));
+                positions = getPositions(TermWeight.Info.parseFrom(tfSource.getTopValue().get()));
+            } catch (InvalidProtocolBufferException e) {
+                log.error("Could not deserialize TermWeight protocol buffer for: " + key);
+            }
+            
+            for (DocumentOffsets offsets : active) {
+                if (positions == null) {
+                    offsets.failed = true;
+                    continue;
+                }
                 
-                TermWeightPosition.Builder position = new TermWeightPosition.Builder();
-                for (int i = 0; i < twInfo.getTermOffsetCount(); i++) {
-                    position.setTermWeightOffsetInfo(twInfo, i);
-                    offsets.put(twZone, position.build());
-                    position.reset();
+                // set the document context on the filter
+                if (evaluationFilter != null && lastFiltered != offsets) {
+                    evaluationFilter.startNewDocument(offsets.docKey);
+                    lastFiltered = offsets;
                 }
                 
-            } catch (InvalidProtocolBufferException e) {
-                log.error("Could not deserialize TermWeight protocol buffer for: " + source.getTopKey());
+                // add the zone and term to our internal document
+                Content attr = new Content(fv.getValue(), key, evaluationFilter == null || evaluationFilter.keep(key));
                 
-                return null;
-            }
-            
-            // First time looking up this term in a field
-            TermFrequencyList tfl = termOffsetMap.get(fv.getValue());
-            if (null == tfl) {
-                termOffsetMap.put(fv.getValue(), new TermFrequencyList(offsets));
-            } else {
+                // no need to apply the evaluation filter here as the TermFrequencyIterator above is already doing more filtering than we can do here.
+                // So this filter is simply extraneous. However if the an EventDataQueryFilter implementation gets smarter somehow, then it can be added back
+                // in here.
+                // For example the AncestorQueryLogic may require this....
+                // if (evaluationFilter == null || evaluationFilter.apply(Maps.immutableEntry(key, StringUtils.EMPTY_STRING))) {
+                
+                offsets.document.put(fv.getField(), attr);
+                
+                // First time looking up this term in a field
+                TermFrequencyList tfl = offsets.termOffsetMap.get(fv.getValue());
+                if (null == tfl) {
+                    tfl = new TermFrequencyList(TreeMultimap.<TermFrequencyList.Zone,TermWeightPosition> create());
+                    offsets.termOffsetMap.put(fv.getValue(), tfl);
+                }
                 // Merge in the offsets for the current field+term with all previous
                 // offsets from other fields in the same term
-                tfl.addOffsets(offsets);
+                tfl.addOffsets(twZone, positions);
             }
             
             try {
@@ -203,12 +311,54 @@ public class TermOffsetPopulator {
                 break;
             }
         }
+    }
+    
+    private static Range getRowRange(Text row, String dataTypeUid, Key endKey) {
+        Key startKey = new Key(row, Constants.TERM_FREQUENCY_COLUMN_FAMILY, new Text(dataTypeUid));
+        return new Range(startKey, true, endKey, true);
+    }
+    
+    /**
+     * Decode the offsets of a term frequency value
+     */
+    private static List<TermWeightPosition> getPositions(TermWeight.Info twInfo) {
+        List<TermWeightPosition> positions = new ArrayList<>(twInfo.getTermOffsetCount());
+        TermWeightPosition.Builder position = new TermWeightPosition.Builder();
+        for (int i = 0; i < twInfo.getTermOffsetCount(); i++) {
+            position.setTermWeightOffsetInfo(twInfo, i);
+            positions.add(position.build());
+            position.reset();
+        }
+        return positions;
+    }
+    
+    /**
+     * The term frequencies being gathered for one document
+     */
+    private static class DocumentOffsets {
+        private final Key docKey;
+        private final Text row;
+        private final String firstDataTypeUid;
+        private final String lastDataTypeUid;
+        private final Document document = new Document();
+        private final Map<String,TermFrequencyList> termOffsetMap = Maps.newHashMap();
+        private boolean failed = false;
         
-        // Load the actual map into map that will be put into the JexlContext
-        Map<String,Object> map = new HashMap<>();
-        map.put(Constants.TERM_OFFSET_MAP_JEXL_VARIABLE_NAME, termOffsetMap);
-        
-        return map;
+        DocumentOffsets(Key docKey, Set<Key> keys) {
+            this.docKey = docKey;
+            // building a range from the begining of the term frequencies for the first datatype\0uid
+            // to the end of the term frequencies for the last datatype\0uid
+            List<String> dataTypeUids = new ArrayList<>();
+            Text row = null;
+            for (Key key : keys) {
+                row = key.getRow();
+                dataTypeUids.add(key.getColumnFamily().toString());
+            }
+            Collections.sort(dataTypeUids);
+            this.row = row;
+            this.firstDataTypeUid = dataTypeUids.get(0);
+            this.lastDataTypeUid = dataTypeUids.get(dataTypeUids.size() - 1);
+        }
     }
     
     public static boolean isContentFunctionTerm(String functionName) {
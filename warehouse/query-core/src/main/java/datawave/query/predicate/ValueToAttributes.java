@@ -19,9 +19,9 @@ import datawave.query.attributes.TypeAttribute;
 import datawave.query.composite.CompositeMetadata;
 import datawave.query.jexl.JexlASTHelper;
 import datawave.query.util.TypeMetadata;
+import org.apache.accumulo.core.data.ByteSequence;
 import org.apache.accumulo.core.data.Key;
 import org.apache.accumulo.core.security.ColumnVisibility;
-import org.apache.commons.collections4.map.LRUMap;
 import org.apache.hadoop.io.Text;
 import org.apache.log4j.Logger;
 
@@ -42,7 +42,7 @@ import java.util.Map.Entry;
 public class ValueToAttributes implements Function<Entry<Key,String>,Iterable<Entry<String,Attribute<? extends Comparable<?>>>>> {
     private static final Logger log = Logger.getLogger(ValueToAttributes.class);
     
-    private final Text holder = new Text(), cvHolder = new Text();
+    private final Text holder = new Text();
     
     private AttributeFactory attrFactory;
     
@@ -53,10 +53,14 @@ public class ValueToAttributes implements Function<Entry<Key,String>,Iterable<En
     
     private EventDataQueryFilter attrFilter;
     
-    private LRUMap cvCache = new LRUMap(256);
-    
     public ValueToAttributes(CompositeMetadata compositeMetadata, TypeMetadata typeMetadata, EventDataQueryFilter attrFilter, MarkingFunctions markingFunctions) {
+        this(compositeMetadata, typeMetadata, attrFilter, markingFunctions, false);
+    }
+    
+    public ValueToAttributes(CompositeMetadata compositeMetadata, TypeMetadata typeMetadata, EventDataQueryFilter attrFilter,
+                    MarkingFunctions markingFunctions, boolean lazyAttributes) {
         this.attrFactory = new AttributeFactory(typeMetadata);
+        this.attrFactory.setLazy(lazyAttributes);
         this.markingFunctions = markingFunctions;
         this.attrFilter = attrFilter;
         if (compositeMetadata != null) {
@@ -78,7 +82,7 @@ public class ValueToAttributes implements Function<Entry<Key,String>,Iterable<En
         list.add(Maps.<String,Attribute<? extends Comparable<?>>> immutableEntry(origFieldName, curAttr));
         
         // check to see if we can create any composite attributes using this entry
-        String ingestDatatype = this.getDatatypeFromKey(key);
+        String ingestDatatype = (this.compositeToFieldMap != null) ? this.getDatatypeFromKey(key) : null;
         Multimap<String,String> compToFieldMap = (this.compositeToFieldMap != null) ? this.compositeToFieldMap.get(ingestDatatype) : null;
         if (compToFieldMap != null && !compToFieldMap.isEmpty()) {
             Multimap<String,String> inverted = Multimaps.invertFrom(compToFieldMap, ArrayListMultimap.create());
@@ -156,6 +160,10 @@ public class ValueToAttributes implements Function<Entry<Key,String>,Iterable<En
     }
     
     public Attribute<?> getFieldValue(String fieldName, Key k) {
+        if (attrFactory.isLazy()) {
+            return getLazyFieldValue(fieldName, k);
+        }
+        
         k.getColumnQualifier(holder);
         int index = holder.find(Constants.NULL);
         
@@ -166,23 +174,45 @@ public class ValueToAttributes implements Function<Entry<Key,String>,Iterable<En
         try {
             String data = Text.decode(holder.getBytes(), index + 1, (holder.getLength() - (index + 1)));
             
-            ColumnVisibility cv = getCV(k);
-            
-            Attribute<?> attr = this.attrFactory.create(fieldName, data, k, (attrFilter == null || attrFilter.keep(k)));
-            if (attrFilter != null) {
-                attr.setToKeep(attrFilter.keep(k));
-            }
-            
-            if (log.isTraceEnabled()) {
-                log.trace("Created " + attr.getClass().getName() + " for " + fieldName);
-            }
-            
-            return attr;
+            return createAttribute(fieldName, this.attrFactory.create(fieldName, data, k, (attrFilter == null || attrFilter.keep(k))), k);
         } catch (CharacterCodingException e) {
             throw new IllegalArgumentException(e);
         }
     }
     
+    /*
+     * The value is not copied or decoded, the attribute refers to the bytes of the column qualifier of the key and parses them when first read
+     */
+    private Attribute<?> getLazyFieldValue(String fieldName, Key k) {
+        ByteSequence cq = k.getColumnQualifierData();
+        int index = -1;
+        for (int i = 0; i < cq.length(); i++) {
+            if (cq.byteAt(i) == '\0') {
+                index = i;
+                break;
+            }
+        }
+        
+        if (0 > index) {
+            throw new IllegalArgumentException("Could not find null-byte contained in columnqualifier for key: " + k);
+        }
+        
+        ByteSequence data = cq.subSequence(index + 1, cq.length());
+        return createAttribute(fieldName, this.attrFactory.create(fieldName, data, k, (attrFilter == null || attrFilter.keep(k))), k);
+    }
+    
+    private Attribute<?> createAttribute(String fieldName, Attribute<?> attr, Key k) {
+        if (attrFilter != null) {
+            attr.setToKeep(attrFilter.keep(k));
+        }
+        
+        if (log.isTraceEnabled()) {
+            log.trace("Created " + attr.getClass().getName() + " for " + fieldName);
+        }
+        
+        return attr;
+    }
+    
     public Attribute<?> joinAttributes(String compositeName, Collection<Attribute<?>> in, boolean isOverloadedComposite, String separator) throws Exception {
         Collection<ColumnVisibility> columnVisibilities = Sets.newHashSet();
         List<String> dataList = new ArrayList<>();
@@ -281,17 +311,6 @@ public class ValueToAttributes implements Function<Entry<Key,String>,Iterable<En
         }
     }
     
-    private ColumnVisibility getCV(Key k) {
-        Text expr = k.getColumnVisibility(cvHolder);
-        ColumnVisibility vis = (ColumnVisibility) cvCache.get(expr);
-        if (vis == null) {
-            // the column visibility needs to take ownership of the expression
-            vis = new ColumnVisibility(new Text(expr));
-            cvCache.put(expr, vis);
-        }
-        return vis;
-    }
-    
     protected String getDatatypeFromKey(Key key) {
         String colf = key.getColumnFamily().toString();
         int indexOfNull = colf.indexOf("\0");
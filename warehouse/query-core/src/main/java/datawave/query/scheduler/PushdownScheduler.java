@@ -154,6 +154,12 @@ public class PushdownScheduler extends Scheduler {
                 session.setSpeculativeScanning(true);
             }
             
+            if (config.getHedgedScanning()) {
+                session.setHedgedScanning(true);
+                session.setHedgedScanPercentile(config.getHedgedScanPercentile());
+                session.setHedgedScanMaxRate(config.getHedgedScanMaxRate());
+            }
+            
             session.addVisitor(new VisitorFunction(config, metadataHelper));
         } catch (Exception e) {
             throw new RuntimeException(e);
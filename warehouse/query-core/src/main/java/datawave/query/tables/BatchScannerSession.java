@@ -16,6 +16,8 @@ import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 import com.google.common.base.Throwables;
 import org.apache.accumulo.core.client.impl.ScannerOptions;
@@ -41,6 +43,7 @@ import com.google.common.util.concurrent.MoreExecutors;
 import com.google.common.util.concurrent.Service;
 
 import datawave.mr.bulk.RfileResource;
+import datawave.query.tables.async.ChunkLatencyTracker;
 import datawave.query.tables.async.Scan;
 import datawave.query.tables.async.ScannerChunk;
 import datawave.query.tables.async.SessionArbiter;
@@ -58,6 +61,13 @@ public class BatchScannerSession extends ScannerSession implements Iterator<Entr
     
     private static final double QUEUE_MULTIPLIER = 25;
     
+    /**
+     * Chunks are never hedged before they have been running this long, however quickly the others complete
+     */
+    private static final long MIN_HEDGE_DELAY = 1000;
+    
+    private static final long HEDGE_CHECK_INTERVAL = 100;
+    
     /**
      * Delegates scanners to us, blocking if none are available or used by other sources.
      */
@@ -106,6 +116,44 @@ public class BatchScannerSession extends ScannerSession implements Iterator<Entr
     
     protected int threadCount = 5;
     
+    protected boolean hedgedScanning = false;
+    
+    protected double hedgedScanPercentile = 0.95;
+    
+    protected double hedgedScanMaxRate = 0.05;
+    
+    /**
+     * The chunks which may be hedged, by each scan running one
+     */
+    protected Map<Scan,HedgedChunk> hedgeableChunks = Maps.newConcurrentMap();
+    
+    protected ChunkLatencyTracker chunkLatencies = new ChunkLatencyTracker();
+    
+    protected AtomicLong hedgeableChunkCount = new AtomicLong(0);
+    
+    protected AtomicLong hedgeCount = new AtomicLong(0);
+    
+    protected long lastHedgeCheck = 0;
+    
+    protected ExecutorService hedgeService = null;
+    
+    /**
+     * A chunk whose scan may be duplicated against another resource if it takes much longer than the other chunks. Both scans share a claim on the chunk, so
+     * only the first one to find a result returns any.
+     */
+    protected static class HedgedChunk {
+        protected final long start = System.currentTimeMillis();
+        protected final ScannerChunk chunk;
+        protected final Scan primary;
+        protected volatile Scan hedge = null;
+        
+        public HedgedChunk(Scan primary, ScannerChunk chunk) {
+            this.primary = primary;
+            // copied before the scan starts taking ranges from it
+            this.chunk = new ScannerChunk(chunk);
+        }
+    }
+    
     private class BatchReaderThreadFactory implements ThreadFactory {
         
         private ThreadFactory dtf = Executors.defaultThreadFactory();
@@ -276,6 +324,7 @@ public class BatchScannerSession extends ScannerSession implements Iterator<Entr
             while (scannerBatches.hasNext())
             
             {
+                hedgeStragglers();
                 if (runnableCount.get() < (threadCount * RANGE_MULTIPLIER)) {
                     if (currentBatch.isEmpty()) {
                         List<ScannerChunk> chunks = scannerBatches.next();
@@ -308,6 +357,7 @@ public class BatchScannerSession extends ScannerSession implements Iterator<Entr
             submitTasks();
             while (runnableCount.get() > 0) {
                 Thread.sleep(1);
+                hedgeStragglers();
                 // if a failure did not occur, let's check the interrupted status
                 if (isRunning()) {
                     
@@ -323,7 +373,16 @@ public class BatchScannerSession extends ScannerSession implements Iterator<Entr
                 }
             }
             service.shutdown();
-            while (!service.awaitTermination(250, TimeUnit.MILLISECONDS)) {}
+            while (!service.awaitTermination(250, TimeUnit.MILLISECONDS)) {
+                if (hedgeCount.get() > 0) {
+                    // every chunk is complete, so anything still running is a scan which lost to its hedge, and is stuck on a slow server
+                    service.shutdownNow();
+                    break;
+                }
+            }
+            if (null != hedgeService) {
+                hedgeService.shutdownNow();
+            }
         } catch (Exception e) {
             uncaughtExceptionHandler.uncaughtException(Thread.currentThread().currentThread(), e);
             Throwables.propagate(e);
@@ -390,6 +449,11 @@ public class BatchScannerSession extends ScannerSession implements Iterator<Entr
             }
             scan.setVisitors(visitorFunctions);
             scan.setTimeout(scanLimitTimeout);
+            if (hedgedScanning && !(scan instanceof SpeculativeScan)) {
+                scan.setClaim(new AtomicReference<>());
+                hedgeableChunks.put(scan, new HedgedChunk(scan, chunk));
+                hedgeableChunkCount.incrementAndGet();
+            }
             if (log.isTraceEnabled()) {
                 log.trace("Adding scanner " + chunk);
             }
@@ -440,6 +504,11 @@ public class BatchScannerSession extends ScannerSession implements Iterator<Entr
             }
             scan.setVisitors(visitorFunctions);
             scan.setTimeout(scanLimitTimeout);
+            if (hedgedScanning && !(scan instanceof SpeculativeScan)) {
+                scan.setClaim(new AtomicReference<>());
+                hedgeableChunks.put(scan, new HedgedChunk(scan, chunk));
+                hedgeableChunkCount.incrementAndGet();
+            }
             if (log.isTraceEnabled()) {
                 log.trace("Adding scanner " + chunk);
             }
@@ -455,6 +524,130 @@ public class BatchScannerSession extends ScannerSession implements Iterator<Entr
         Futures.addCallback(future, this);
     }
     
+    /**
+     * Launches a second scan of each chunk which has been running longer than the hedging percentile of the completed chunks and has yet to return a result.
+     * The second scan reads through the alternate resource, so that it avoids the tablet server holding up the first. The number of hedges is capped at the
+     * configured rate of the chunks submitted.
+     */
+    protected void hedgeStragglers() {
+        if (!hedgedScanning || hedgeableChunks.isEmpty()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        if (now - lastHedgeCheck < HEDGE_CHECK_INTERVAL) {
+            return;
+        }
+        lastHedgeCheck = now;
+        
+        long threshold = chunkLatencies.getPercentile(hedgedScanPercentile);
+        if (threshold < 0) {
+            return;
+        }
+        threshold = Math.max(threshold, MIN_HEDGE_DELAY);
+        
+        long maxHedges = Math.max(1, (long) (hedgedScanMaxRate * hedgeableChunkCount.get()));
+        for (HedgedChunk hedged : hedgeableChunks.values()) {
+            if (hedgeCount.get() >= maxHedges) {
+                return;
+            }
+            if (null == hedged.hedge && null == hedged.primary.getClaim().get() && now - hedged.start > threshold) {
+                hedge(hedged, now - hedged.start, threshold);
+            }
+        }
+    }
+    
+    protected void hedge(HedgedChunk hedged, long elapsed, long threshold) {
+        Class<? extends AccumuloResource> alternate = getHedgeResource();
+        if (log.isDebugEnabled()) {
+            log.debug("Hedging chunk on " + hedged.chunk.getLastKnownLocation() + " with " + alternate.getSimpleName() + " after " + elapsed
+                            + "ms, threshold is " + threshold + "ms");
+        }
+        
+        Scan hedge = new Scan(localTableName, localAuths, new ScannerChunk(hedged.chunk), delegatorReference, alternate, resultQueue, listenerService);
+        hedge.setVisitors(visitorFunctions);
+        hedge.setClaim(hedged.primary.getClaim());
+        hedge.disableStats();
+        hedged.hedge = hedge;
+        hedgeableChunks.put(hedge, hedged);
+        hedgeCount.incrementAndGet();
+        if (null != stats) {
+            synchronized (stats) {
+                stats.incrementHedgedScans(1);
+            }
+        }
+        
+        ListenableFuture<Scan> future = (ListenableFuture<Scan>) getHedgeService().submit(hedge);
+        Futures.addCallback(future, new HedgeCallback(hedge));
+    }
+    
+    /**
+     * @return the resource hedges read through, which is the files of the table for scans through the tablet servers and the reverse
+     */
+    protected Class<? extends AccumuloResource> getHedgeResource() {
+        return (delegatedResourceInitializer == RfileResource.class ? BatchResource.class : RfileResource.class);
+    }
+    
+    protected ExecutorService getHedgeService() {
+        if (null == hedgeService) {
+            int threads = Math.max(1, (int) Math.ceil(threadCount * hedgedScanMaxRate));
+            hedgeService = MoreExecutors.listeningDecorator(new ThreadPoolExecutor(threads, threads, 120, TimeUnit.MINUTES, new LinkedBlockingQueue<>(),
+                            new BatchReaderThreadFactory(threadId, this)));
+        }
+        return hedgeService;
+    }
+    
+    /**
+     * Called as a scan of a chunk which may be hedged finishes.
+     * 
+     * @param hedged
+     * @param finishedScan
+     * @return true if the chunk is complete, false if another scan of it is returning its results
+     */
+    protected boolean completeHedgedChunk(HedgedChunk hedged, Scan finishedScan) {
+        if (finishedScan.abandoned() || !finishedScan.claim()) {
+            return false;
+        }
+        // this scan has returned all of the results of the chunk, so the other one can stop
+        Scan other = (finishedScan == hedged.primary ? hedged.hedge : hedged.primary);
+        if (null != other) {
+            other.abandon();
+        }
+        chunkLatencies.record(System.currentTimeMillis() - hedged.start);
+        if (finishedScan == hedged.hedge && null != stats) {
+            synchronized (stats) {
+                stats.incrementHedgedScanWins(1);
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * A hedge which fails before returning any results leaves its chunk to the original scan, rather than failing the query.
+     */
+    private class HedgeCallback implements FutureCallback<Scan> {
+        private final Scan hedge;
+        
+        public HedgeCallback(Scan hedge) {
+            this.hedge = hedge;
+        }
+        
+        @Override
+        public void onSuccess(Scan finishedScan) {
+            BatchScannerSession.this.onSuccess(finishedScan);
+        }
+        
+        @Override
+        public void onFailure(Throwable t) {
+            hedge.abandon();
+            if (hedge.getClaim().get() == hedge) {
+                BatchScannerSession.this.onFailure(t);
+            } else {
+                log.warn("Hedged scan failed, leaving the chunk to the original scan", t);
+                hedgeableChunks.remove(hedge);
+            }
+        }
+    }
+    
     /**
      * Set the scanner options
      * 
@@ -504,7 +697,10 @@ public class BatchScannerSession extends ScannerSession implements Iterator<Entr
          */
         
         if (finishedScan.finished()) {
-            runnableCount.decrementAndGet();
+            HedgedChunk hedged = hedgeableChunks.remove(finishedScan);
+            if (null == hedged || completeHedgedChunk(hedged, finishedScan)) {
+                runnableCount.decrementAndGet();
+            }
             
             finishedScan.close();
             
@@ -630,6 +826,9 @@ public class BatchScannerSession extends ScannerSession implements Iterator<Entr
         protected void shutdownServices() {
             service.shutdownNow();
             listenerService.shutdownNow();
+            if (null != hedgeService) {
+                hedgeService.shutdownNow();
+            }
             int count = 0;
             try {
                 while (!service.awaitTermination(250, TimeUnit.MILLISECONDS) && count < MAX_WAIT) {
@@ -650,6 +849,9 @@ public class BatchScannerSession extends ScannerSession implements Iterator<Entr
         stop();
         service.shutdownNow();
         listenerService.shutdownNow();
+        if (null != hedgeService) {
+            hedgeService.shutdownNow();
+        }
     }
     
     public void addVisitor(Function<ScannerChunk,ScannerChunk> visitorFunction) {
@@ -692,6 +894,26 @@ public class BatchScannerSession extends ScannerSession implements Iterator<Entr
         this.speculativeScanning = speculative;
     }
     
+    public void setHedgedScanning(boolean hedgedScanning) {
+        this.hedgedScanning = hedgedScanning;
+    }
+    
+    /**
+     * @param hedgedScanPercentile
+     *            the percentile of the completed chunk latencies a chunk has to exceed before it is hedged, between 0 and 1
+     */
+    public void setHedgedScanPercentile(double hedgedScanPercentile) {
+        this.hedgedScanPercentile = hedgedScanPercentile;
+    }
+    
+    /**
+     * @param hedgedScanMaxRate
+     *            the fraction of the chunks which may be hedged
+     */
+    public void setHedgedScanMaxRate(double hedgedScanMaxRate) {
+        this.hedgedScanMaxRate = hedgedScanMaxRate;
+    }
+    
     @Override
     public void uncaughtException(Thread t, Throwable e) {
         t.interrupt();
@@ -0,0 +1,289 @@
+package datawave.query.tables;
+
+import java.util.Map.Entry;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
+import org.apache.log4j.Logger;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+
+import datawave.query.tables.async.Scan;
+import datawave.query.tables.stats.ScanSessionStats.TIMERS;
+
+/**
+ * A BatchScannerSession whose scans run on an executor shared by every session in the JVM, rather than on a thread pool and a service thread per session.
+ * <p>
+ * Work is driven by the consumer: each call to hasNext() hands chunks to the scans and dispatches them, but only while the result queue has room. A scan that
+ * fills the result queue returns instead of blocking, and is parked until the consumer has drained enough of the queue for it to continue from its last key. A
+ * session that is not being read from therefore holds no threads and no scanner resources, and at most {@link #setThreads(int)} of its scans run at once.
+ * <p>
+ * The size of the shared executor is set with the {@value #SCAN_EXECUTOR_THREADS_PROPERTY} system property, and the most scans a single session may run on it
+ * at once with the {@value #SCAN_SESSION_THREADS_PROPERTY} system property, so that one query cannot take the whole executor.
+ * <p>
+ * Speculative and hedged scans are not supported by this session, and are ignored if they are enabled. Speculative scans block on the result queue, and a
+ * hedge would hold a thread of its own while the scan it races is parked.
+ */
+public class DemandDrivenBatchScannerSession extends BatchScannerSession {
+    
+    private static final Logger log = Logger.getLogger(DemandDrivenBatchScannerSession.class);
+    
+    public static final String SCAN_EXECUTOR_THREADS_PROPERTY = "datawave.query.scan.executor.threads";
+    
+    public static final int DEFAULT_SCAN_EXECUTOR_THREADS = 100;
+    
+    public static final String SCAN_SESSION_THREADS_PROPERTY = "datawave.query.scan.session.threads";
+    
+    public static final int DEFAULT_SCAN_SESSION_THREADS = 10;
+    
+    private static ListeningExecutorService scanExecutor = null;
+    
+    /**
+     * Scans that are waiting for demand, either new or yielded.
+     */
+    protected Queue<Scan> parkedScans = new ConcurrentLinkedQueue<>();
+    
+    /**
+     * Scans currently running on the shared executor.
+     */
+    protected AtomicInteger inFlight = new AtomicInteger(0);
+    
+    protected volatile boolean closed = false;
+    
+    protected boolean started = false;
+    
+    public DemandDrivenBatchScannerSession(ScannerSession other) {
+        super(other);
+        // setThreads is overridden, so the super constructor does not create a thread pool. Scans only use the per session executor as a shutdown signal, so
+        // it never runs any work
+        if (null != service) {
+            service.shutdownNow();
+        }
+        service = listenerService;
+    }
+    
+    private static class ScanExecutorThreadFactory implements ThreadFactory {
+        
+        private ThreadFactory dtf = Executors.defaultThreadFactory();
+        private AtomicInteger threadNum = new AtomicInteger(1);
+        
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = dtf.newThread(r);
+            thread.setName("Datawave Shared Scan Executor -" + threadNum.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+    
+    protected static synchronized ListeningExecutorService getScanExecutor() {
+        if (scanExecutor == null) {
+            int threads = Integer.getInteger(SCAN_EXECUTOR_THREADS_PROPERTY, DEFAULT_SCAN_EXECUTOR_THREADS);
+            log.info("Creating shared scan executor with " + threads + " threads");
+            scanExecutor = MoreExecutors.listeningDecorator(Executors.newFixedThreadPool(threads, new ScanExecutorThreadFactory()));
+        }
+        return scanExecutor;
+    }
+    
+    /**
+     * @return the most scans a session may run at once on the shared executor
+     */
+    protected static int getMaxSessionThreads() {
+        int executorThreads = Integer.getInteger(SCAN_EXECUTOR_THREADS_PROPERTY, DEFAULT_SCAN_EXECUTOR_THREADS);
+        return Math.max(1, Math.min(executorThreads, Integer.getInteger(SCAN_SESSION_THREADS_PROPERTY, DEFAULT_SCAN_SESSION_THREADS)));
+    }
+    
+    /**
+     * Sets the maximum number of scans this session runs at once on the shared executor, up to the limit for a single session.
+     */
+    @Override
+    public BatchScannerSession setThreads(int threads) {
+        this.threadCount = Math.max(1, Math.min(threads, getMaxSessionThreads()));
+        return this;
+    }
+    
+    @Override
+    public void setSpeculativeScanning(boolean speculative) {
+        if (speculative) {
+            log.warn("Speculative scanning is not supported with demand driven scanning, ignoring");
+        }
+    }
+    
+    @Override
+    public void setHedgedScanning(boolean hedgedScanning) {
+        if (hedgedScanning) {
+            log.warn("Hedged scanning is not supported with demand driven scanning, ignoring");
+        }
+    }
+    
+    /*
+     * (non-Javadoc)
+     * 
+     * @see java.util.Iterator#hasNext()
+     * 
+     * Note that this method needs to check the uncaught exception handler and propogate any set throwables.
+     */
+    @Override
+    public boolean hasNext() {
+        if (!started) {
+            started = true;
+            if (null != stats) {
+                stats.getTimer(TIMERS.RUNTIME).start();
+                initializeTimers();
+            }
+        }
+        
+        try {
+            if (null != stats)
+                stats.getTimer(TIMERS.HASNEXT).resume();
+            
+            while (null == currentEntry && !closed) {
+                submitWork();
+                
+                try {
+                    currentEntry = resultQueue.poll(getPollTime(), TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    log.error("Interrupted before finding next", e);
+                    throw new RuntimeException(e);
+                }
+                
+                if (null == currentEntry && isExhausted()) {
+                    // entries are queued before their scan completes, so check the queue once more
+                    currentEntry = resultQueue.poll();
+                    if (null == currentEntry) {
+                        close();
+                    }
+                }
+            }
+        } finally {
+            if (null != stats) {
+                try {
+                    stats.getTimer(TIMERS.HASNEXT).suspend();
+                } catch (Exception e) {
+                    log.error("Failed to suspend timer", e);
+                }
+            }
+            if (uncaughtExceptionHandler.getThrowable() != null) {
+                log.error("Exception discovered on hasNext call", uncaughtExceptionHandler.getThrowable());
+                throw new RuntimeException(uncaughtExceptionHandler.getThrowable());
+            }
+        }
+        
+        return (null != currentEntry);
+    }
+    
+    @Override
+    public Entry<Key,Value> next() {
+        Entry<Key,Value> retVal = super.next();
+        // the consumer has made room, so let a parked scan continue
+        dispatch();
+        return retVal;
+    }
+    
+    /**
+     * Creates scans for more chunks when all of the existing ones are running and the consumer still has room, then dispatches what it can.
+     */
+    protected void submitWork() {
+        if (parkedScans.isEmpty() && inFlight.get() < threadCount && resultQueue.remainingCapacity() > 0) {
+            if (!currentBatch.isEmpty()) {
+                submitTasks();
+            } else if (scannerBatches.hasNext()) {
+                submitTasks(scannerBatches.next());
+            }
+        }
+        dispatch();
+    }
+    
+    /**
+     * Runs parked scans on the shared executor while the result queue has room and this session is under its limit.
+     */
+    protected void dispatch() {
+        while (!closed && resultQueue.remainingCapacity() > 0) {
+            int running = inFlight.get();
+            if (running >= threadCount) {
+                return;
+            }
+            if (!inFlight.compareAndSet(running, running + 1)) {
+                continue;
+            }
+            Scan scan = parkedScans.poll();
+            if (null == scan) {
+                inFlight.decrementAndGet();
+                return;
+            }
+            ListenableFuture<Scan> future = getScanExecutor().submit(scan);
+            Futures.addCallback(future, this);
+        }
+    }
+    
+    /**
+     * @return true if there is no more work for this session
+     */
+    protected boolean isExhausted() {
+        return runnableCount.get() == 0 && currentBatch.isEmpty() && !scannerBatches.hasNext();
+    }
+    
+    /**
+     * Parks the scan until there is demand for its results.
+     */
+    @Override
+    protected void submitScan(Scan scan, boolean increment) {
+        if (increment)
+            runnableCount.incrementAndGet();
+        scan.setYieldWhenFull(true);
+        parkedScans.add(scan);
+        dispatch();
+    }
+    
+    @Override
+    public void onSuccess(Scan finishedScan) {
+        inFlight.decrementAndGet();
+        if (closed) {
+            runnableCount.decrementAndGet();
+            finishedScan.close();
+        } else if (finishedScan.yielded()) {
+            // not a failure, the consumer is just behind
+            submitScan(finishedScan, false);
+        } else {
+            super.onSuccess(finishedScan);
+        }
+    }
+    
+    @Override
+    public void onFailure(Throwable t) {
+        inFlight.decrementAndGet();
+        runnableCount.decrementAndGet();
+        uncaughtExceptionHandler.uncaughtException(Thread.currentThread(), t);
+        close();
+    }
+    
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        // signals any running scans to stop
+        listenerService.shutdownNow();
+        if (null != statsListener) {
+            statsListener.shutdownNow();
+        }
+        Scan scan;
+        while ((scan = parkedScans.poll()) != null) {
+            runnableCount.decrementAndGet();
+            scan.close();
+        }
+        if (null != stats && started) {
+            stats.getTimer(TIMERS.RUNTIME).stop();
+        }
+    }
+}
@@ -134,7 +134,8 @@ public class ScannerFactory {
     
     /**
      * Builds a new scanner session using a finalized table name and set of authorizations using the previously defined queue. Note that the number of entries
-     * is hardcoded, below, to 1000, but can be changed
+     * is hardcoded, below, to 1000, but can be changed. If demand driven scanning is configured the session runs its scans on the shared scan executor,
+     * and caps its threads at the limit for a single session.
      * 
      * @param tableName
      * @param auths
@@ -143,7 +144,11 @@ public class ScannerFactory {
      */
     public synchronized BatchScannerSession newQueryScanner(final String tableName, final Set<Authorizations> auths, Query settings) throws Exception {
         
-        return newLimitedScanner(BatchScannerSession.class, tableName, auths, settings).setThreads(scanQueue.getCapacity());
+        Class<? extends BatchScannerSession> wrapper = BatchScannerSession.class;
+        if (null != config && config.getDemandDrivenScanning()) {
+            wrapper = DemandDrivenBatchScannerSession.class;
+        }
+        return newLimitedScanner(wrapper, tableName, auths, settings).setThreads(scanQueue.getCapacity());
     }
     
     /**
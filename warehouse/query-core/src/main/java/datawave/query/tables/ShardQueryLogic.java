@@ -1392,6 +1392,14 @@ public class ShardQueryLogic extends BaseQueryLogic<Entry<Key,Value>> {
         this.config.setIndexStatsTableName(indexStatsTableName);
     }
     
+    public String getTermDictionaryTableName() {
+        return this.config.getTermDictionaryTableName();
+    }
+    
+    public void setTermDictionaryTableName(String termDictionaryTableName) {
+        this.config.setTermDictionaryTableName(termDictionaryTableName);
+    }
+    
     @Override
     public String getTableName() {
         if (null == getConfig()) {
@@ -1683,6 +1691,30 @@ public class ShardQueryLogic extends BaseQueryLogic<Entry<Key,Value>> {
         this.config.setMaxPipelineCachedResults(maxCachedResults);
     }
     
+    public int getTermFrequencyBatchSize() {
+        return this.config.getTermFrequencyBatchSize();
+    }
+    
+    public void setTermFrequencyBatchSize(int termFrequencyBatchSize) {
+        this.config.setTermFrequencyBatchSize(termFrequencyBatchSize);
+    }
+    
+    public int getEvaluationBatchSize() {
+        return this.config.getEvaluationBatchSize();
+    }
+    
+    public void setEvaluationBatchSize(int evaluationBatchSize) {
+        this.config.setEvaluationBatchSize(evaluationBatchSize);
+    }
+    
+    public boolean isLazyAttributes() {
+        return this.config.isLazyAttributes();
+    }
+    
+    public void setLazyAttributes(boolean lazyAttributes) {
+        this.config.setLazyAttributes(lazyAttributes);
+    }
+    
     public double getMinimumSelectivity() {
         return this.config.getMinSelectivity();
     }
@@ -1806,6 +1838,14 @@ public class ShardQueryLogic extends BaseQueryLogic<Entry<Key,Value>> {
         this.config.setCompressServerSideResults(compressServerSideResults);
     }
     
+    public boolean isDictionaryCompressServerSideResults() {
+        return this.config.isDictionaryCompressServerSideResults();
+    }
+    
+    public void setDictionaryCompressServerSideResults(boolean dictionaryCompressServerSideResults) {
+        this.config.setDictionaryCompressServerSideResults(dictionaryCompressServerSideResults);
+    }
+    
     /**
      * Returns a value indicating whether index-only filter functions (e.g., #INCLUDE, #EXCLUDE) should be enabled. If true, the use of such filters can
      * potentially consume a LOT of memory.
@@ -1926,6 +1966,14 @@ public class ShardQueryLogic extends BaseQueryLogic<Entry<Key,Value>> {
         this.config.setMaxIndexScanTimeMillis(maxTime);
     }
     
+    public long getIndexLookupCacheTimeMillis() {
+        return this.config.getIndexLookupCacheTimeMillis();
+    }
+    
+    public void setIndexLookupCacheTimeMillis(long indexLookupCacheTimeMillis) {
+        this.config.setIndexLookupCacheTimeMillis(indexLookupCacheTimeMillis);
+    }
+    
     public Function getQueryMacroFunction() {
         return queryMacroFunction;
     }
@@ -1950,6 +1998,38 @@ public class ShardQueryLogic extends BaseQueryLogic<Entry<Key,Value>> {
         this.config.setSpeculativeScanning(speculativeScanning);
     }
     
+    public boolean getDemandDrivenScanning() {
+        return this.config.getDemandDrivenScanning();
+    }
+    
+    public void setDemandDrivenScanning(boolean demandDrivenScanning) {
+        this.config.setDemandDrivenScanning(demandDrivenScanning);
+    }
+    
+    public boolean getHedgedScanning() {
+        return this.config.getHedgedScanning();
+    }
+    
+    public void setHedgedScanning(boolean hedgedScanning) {
+        this.config.setHedgedScanning(hedgedScanning);
+    }
+    
+    public double getHedgedScanPercentile() {
+        return this.config.getHedgedScanPercentile();
+    }
+    
+    public void setHedgedScanPercentile(double hedgedScanPercentile) {
+        this.config.setHedgedScanPercentile(hedgedScanPercentile);
+    }
+    
+    public double getHedgedScanMaxRate() {
+        return this.config.getHedgedScanMaxRate();
+    }
+    
+    public void setHedgedScanMaxRate(double hedgedScanMaxRate) {
+        this.config.setHedgedScanMaxRate(hedgedScanMaxRate);
+    }
+    
     public boolean getAllowShortcutEvaluation() {
         return this.config.getAllowShortcutEvaluation();
     }
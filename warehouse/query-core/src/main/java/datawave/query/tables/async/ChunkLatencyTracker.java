@@ -0,0 +1,57 @@
+package datawave.query.tables.async;
+
+import java.util.Arrays;
+
+/**
+ * Keeps the completion times of the most recent scanner chunks of a session, so that a chunk which is taking far longer than the others can be recognized.
+ */
+public class ChunkLatencyTracker {
+    
+    public static final int DEFAULT_WINDOW = 1000;
+    
+    /**
+     * Percentiles are not reported until this many chunks have completed
+     */
+    public static final int MIN_SAMPLES = 10;
+    
+    private final long[] latencies;
+    
+    private int count = 0;
+    
+    private int next = 0;
+    
+    public ChunkLatencyTracker() {
+        this(DEFAULT_WINDOW);
+    }
+    
+    public ChunkLatencyTracker(int window) {
+        latencies = new long[Math.max(MIN_SAMPLES, window)];
+    }
+    
+    public synchronized void record(long latencyMillis) {
+        latencies[next] = latencyMillis;
+        next = (next + 1) % latencies.length;
+        if (count < latencies.length) {
+            count++;
+        }
+    }
+    
+    /**
+     * @param percentile
+     *            between 0 and 1
+     * @return the latency at the percentile of the recorded chunks, or -1 if too few have been recorded
+     */
+    public synchronized long getPercentile(double percentile) {
+        if (count < MIN_SAMPLES) {
+            return -1;
+        }
+        long[] sorted = Arrays.copyOf(latencies, count);
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(percentile * count) - 1;
+        return sorted[Math.max(0, Math.min(count - 1, index))];
+    }
+    
+    public synchronized int getCount() {
+        return count;
+    }
+}
@@ -9,6 +9,7 @@ import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.apache.accumulo.core.client.IteratorSetting;
 import org.apache.accumulo.core.client.impl.ThriftScanner.ScanTimedOutException;
@@ -73,6 +74,20 @@ public class Scan implements Callable<Scan> {
     
     private AccumuloResource delegatedResource = null;
     
+    /**
+     * When set, the scan returns instead of blocking when the result queue is full, so that it can be resumed once there is demand.
+     */
+    protected boolean yieldWhenFull = false;
+    
+    protected boolean yielded = false;
+    
+    /**
+     * When set, this scan races other scans of the same chunk. Only the scan holding the claim may return results, the others give up when they find one.
+     */
+    protected AtomicReference<Scan> claim = null;
+    
+    protected volatile boolean abandoned = false;
+    
     public Scan(String localTableName, Set<Authorizations> localAuths, ScannerChunk chunk, ResourceQueue delegatorReference,
                     Class<? extends AccumuloResource> delegatedResourceInitializer, BlockingQueue<Entry<Key,Value>> results, ExecutorService callingService) {
         myScan = chunk;
@@ -105,7 +120,46 @@ public class Scan implements Callable<Scan> {
         if (caller.isShutdown() && log.isTraceEnabled()) {
             log.trace("Prematurely shutting down because we were forced to stop");
         }
-        return caller.isShutdown() || (currentRange == null && lastSeenKey == null);
+        return caller.isShutdown() || abandoned || (!yielded && currentRange == null && lastSeenKey == null);
+    }
+    
+    public void setClaim(AtomicReference<Scan> claim) {
+        this.claim = claim;
+    }
+    
+    public AtomicReference<Scan> getClaim() {
+        return claim;
+    }
+    
+    /**
+     * Claims the chunk for this scan, if no other scan of it has.
+     * 
+     * @return true if this scan may return results for the chunk
+     */
+    public boolean claim() {
+        return null == claim || claim.get() == this || claim.compareAndSet(null, this);
+    }
+    
+    /**
+     * Stops this scan at the next result, without returning it.
+     */
+    public void abandon() {
+        abandoned = true;
+    }
+    
+    public boolean abandoned() {
+        return abandoned;
+    }
+    
+    public void setYieldWhenFull(boolean yieldWhenFull) {
+        this.yieldWhenFull = yieldWhenFull;
+    }
+    
+    /**
+     * @return true if the last call returned early because the result queue was full
+     */
+    public boolean yielded() {
+        return yielded;
     }
     
     @Subscribe
@@ -120,6 +174,9 @@ public class Scan implements Callable<Scan> {
      */
     @Override
     public Scan call() throws Exception {
+        yielded = false;
+        if (abandoned)
+            return this;
         try {
             
             /**
@@ -267,9 +324,32 @@ public class Scan implements Callable<Scan> {
                         throw new Exception("Stopped mid cycle");
                     myEntry = iter.next();
                     
-                    while (!caller.isShutdown() && !results.offer(myEntry, 25, TimeUnit.MILLISECONDS)) {
+                    if (!claim()) {
+                        // another scan of this chunk is returning its results
                         if (log.isTraceEnabled())
-                            log.trace("offering");
+                            log.trace("abandoning " + currentRange + " as another scan has claimed the chunk");
+                        abandoned = true;
+                        break;
+                    }
+                    
+                    if (yieldWhenFull) {
+                        if (!results.offer(myEntry)) {
+                            // give up the thread and resume after the last key that was queued
+                            if (log.isTraceEnabled())
+                                log.trace("yielding after " + lastSeenKey + " because the results are full");
+                            if (lastSeenKey == null) {
+                                // nothing was queued from this range, so run all of it again before the rest of the chunk
+                                myScan.pushRange(currentRange);
+                                currentRange = null;
+                            }
+                            yielded = true;
+                            break;
+                        }
+                    } else {
+                        while (!caller.isShutdown() && !results.offer(myEntry, 25, TimeUnit.MILLISECONDS)) {
+                            if (log.isTraceEnabled())
+                                log.trace("offering");
+                        }
                     }
                     
                     if (log.isTraceEnabled())
@@ -282,7 +362,7 @@ public class Scan implements Callable<Scan> {
                     if (log.isTraceEnabled())
                         log.trace("last seen key is " + lastSeenKey);
                 }
-                if (!iter.hasNext())
+                if (!yielded && !abandoned && !iter.hasNext())
                     lastSeenKey = null;
                 
                 // close early
@@ -291,6 +371,9 @@ public class Scan implements Callable<Scan> {
                 if (null != myStats)
                     myStats.getTimer(TIMERS.SCANNER_ITERATE).suspend();
                 
+                if (yielded)
+                    return this;
+                
                 if (log.isTraceEnabled())
                     log.trace("not finished?" + !finished());
             } while (!finished());
@@ -86,6 +86,21 @@ public class ScannerChunk {
         setRanges(Collections.singleton(range));
     }
     
+    /**
+     * Puts a range back at the head of the chunk, so that it is the next range returned
+     * 
+     * @param range
+     */
+    public void pushRange(Range range) {
+        ConcurrentLinkedQueue<Range> pushed = new ConcurrentLinkedQueue<>();
+        pushed.add(range);
+        pushed.addAll(ranges);
+        ranges = pushed;
+        if (null == lastRange) {
+            lastRange = range;
+        }
+    }
+    
     @Override
     public int hashCode() {
         return hashCode;
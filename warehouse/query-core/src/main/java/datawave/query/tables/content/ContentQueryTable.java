@@ -130,8 +130,9 @@ public class ContentQueryTable extends BaseQueryLogic<Entry<Key,Value>> {
         final ContentQueryConfiguration config = (ContentQueryConfiguration) genericConfig;
         
         try {
-            final BatchScanner scanner = this.scannerFactory
-                            .newScanner(config.getTableName(), config.getAuthorizations(), this.queryThreads, config.getQuery());
+            // the batch scanner bins the ranges by tablet, so all of the documents are fetched in one pass with at most one thread per range
+            final int threads = Math.max(1, Math.min(this.queryThreads, config.getRanges().size()));
+            final BatchScanner scanner = this.scannerFactory.newScanner(config.getTableName(), config.getAuthorizations(), threads, config.getQuery());
             scanner.setRanges(config.getRanges());
             
             if (null != this.viewName) {
@@ -221,7 +222,9 @@ public class ContentQueryTable extends BaseQueryLogic<Entry<Key,Value>> {
                             + ". At least one term required of the form 'DOCUMENT:shardId/datatype/eventUID'.");
         }
         
-        return ranges;
+        // when the content of children is included, the range of a parent covers those of any of its children in the query, which would otherwise be
+        // returned twice
+        return Range.mergeOverlapping(ranges);
     }
     
     @Override
@@ -30,6 +30,10 @@ public class ScanSessionStats {
     
     protected MutableLong keysSeen;
     
+    protected MutableLong hedgedScans;
+    
+    protected MutableLong hedgedScanWins;
+    
     public ScanSessionStats() {
         timers = new EnumMap<>(TIMERS.class);
         
@@ -41,6 +45,10 @@ public class ScanSessionStats {
         }
         
         keysSeen = new MutableLong();
+        
+        hedgedScans = new MutableLong();
+        
+        hedgedScanWins = new MutableLong();
     }
     
     public ScanSessionStats merge(ScanSessionStats other) {
@@ -52,6 +60,8 @@ public class ScanSessionStats {
             long otherTimer = other.getValue(timer);
             timerValue.add(otherTimer);
         }
+        hedgedScans.add(other.getHedgedScans());
+        hedgedScanWins.add(other.getHedgedScanWins());
         return this;
     }
     
@@ -71,6 +81,28 @@ public class ScanSessionStats {
         keysSeen.add(keys);
     }
     
+    /**
+     * @return the number of duplicate scans launched for chunks which were taking much longer than the others
+     */
+    public long getHedgedScans() {
+        return hedgedScans.longValue();
+    }
+    
+    public void incrementHedgedScans(long scans) {
+        hedgedScans.add(scans);
+    }
+    
+    /**
+     * @return the number of duplicate scans which returned the results of their chunk before the original scan
+     */
+    public long getHedgedScanWins() {
+        return hedgedScanWins.longValue();
+    }
+    
+    public void incrementHedgedScanWins(long scans) {
+        hedgedScanWins.add(scans);
+    }
+    
     public void initializeTimers() {
         timers.get(TIMERS.HASNEXT).start();
         timers.get(TIMERS.HASNEXT).suspend();
@@ -124,6 +156,12 @@ public class ScanSessionStats {
         sb.append(QueryStopwatch.INDENT).append("Total elapsed: ").append(formatMillis(totalDurationMillis));
         logToUse.debug(sb.toString());
         
+        if (getHedgedScans() > 0) {
+            sb.setLength(0);
+            sb.append(QueryStopwatch.INDENT).append("Hedged scans: ").append(getHedgedScans()).append(", won: ").append(getHedgedScanWins());
+            logToUse.debug(sb.toString());
+        }
+        
     }
     
     protected String formatMillis(long elapsedMillis) {
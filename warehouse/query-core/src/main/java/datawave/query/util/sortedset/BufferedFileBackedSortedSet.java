@@ -80,6 +80,16 @@ public class BufferedFileBackedSortedSet<E extends Serializable> implements Sort
         }
     }
     
+    /**
+     * Create the unpersisted set that added entries are buffered in until the persist threshold is reached
+     * 
+     * @return the buffer
+     * @throws IOException
+     */
+    protected FileSortedSet<E> createBuffer() throws IOException {
+        return new FileSortedSet<>(comparator, handlerFactory.createHandler(), false);
+    }
+    
     protected List<FileSortedSet<E>> getSets() {
         List<FileSortedSet<E>> sets = new ArrayList<>();
         for (SortedSet<E> subSet : set.getSets()) {
@@ -227,7 +237,7 @@ public class BufferedFileBackedSortedSet<E extends Serializable> implements Sort
     public boolean add(E e) {
         if (buffer == null) {
             try {
-                buffer = new FileSortedSet<>(comparator, handlerFactory.createHandler(), false);
+                buffer = createBuffer();
             } catch (Exception ex) {
                 throw new IllegalStateException("Unable to create an underlying FileSortedSet", ex);
             }
@@ -253,7 +263,7 @@ public class BufferedFileBackedSortedSet<E extends Serializable> implements Sort
     public boolean addAll(Collection<? extends E> c) {
         if (buffer == null) {
             try {
-                buffer = new FileSortedSet<>(comparator, handlerFactory.createHandler(), false);
+                buffer = createBuffer();
             } catch (Exception ex) {
                 throw new IllegalStateException("Unable to create an underlying FileSortedSet", ex);
             }
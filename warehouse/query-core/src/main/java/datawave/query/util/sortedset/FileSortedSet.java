@@ -113,6 +113,20 @@ public class FileSortedSet<E extends Serializable> implements SortedSet<E> {
         this.persisted = false;
     }
     
+    /**
+     * Create an unpersisted sorted set which holds its entries in the supplied set until persisted. Unlike the constructor above, the set is used as is rather
+     * than copied into a TreeSet, which lets the caller choose how the entries are kept in memory.
+     *
+     * @param handler
+     * @param buffer
+     *            an empty set
+     */
+    public FileSortedSet(SortedSetFileHandler handler, SortedSet<E> buffer) {
+        this.handler = handler;
+        this.set = buffer;
+        this.persisted = false;
+    }
+    
     /**
      * Create an sorted set out of another sorted set. If persist is true, then the set will be directly persisted using the set's iterator which avoid pulling
      * all of its entries into memory at once.
@@ -0,0 +1,29 @@
+package datawave.query.util.sortedset;
+
+import java.io.IOException;
+
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+
+/**
+ * An HdfsBackedSortedSet of key/value pairs, as filled by the ivarators, which buffers entries in a {@link SortedKeyValueSetBuffer} instead of a TreeSet. The
+ * persisted files are the same as those of any other HdfsBackedSortedSet of {@link KeyValueSerializable}.
+ */
+public class HdfsBackedKeyValueSortedSet extends HdfsBackedSortedSet<KeyValueSerializable> {
+    
+    public HdfsBackedKeyValueSortedSet(HdfsBackedKeyValueSortedSet other) throws IOException {
+        super(other);
+    }
+    
+    public HdfsBackedKeyValueSortedSet(int bufferPersistThreshold, FileSystem fs, Path uniqueDir, int maxOpenFiles) throws IOException {
+        super(null, bufferPersistThreshold, fs, uniqueDir, maxOpenFiles);
+    }
+    
+    /**
+     * The buffer is persisted once it holds bufferPersistThreshold entries, so it is sized for that many from the start
+     */
+    @Override
+    protected FileSortedSet<KeyValueSerializable> createBuffer() throws IOException {
+        return new FileSortedSet<>(handlerFactory.createHandler(), new SortedKeyValueSetBuffer(bufferPersistThreshold));
+    }
+}
@@ -0,0 +1,581 @@
+package datawave.query.util.sortedset;
+
+import datawave.webservice.query.exception.DatawaveErrorCode;
+import datawave.webservice.query.exception.QueryException;
+
+import org.apache.accumulo.core.data.ByteSequence;
+import org.apache.accumulo.core.data.Key;
+import org.apache.hadoop.io.WritableComparator;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.SortedSet;
+
+/**
+ * This is a sorted set of key/value pairs which keeps the entries serialized in a few large byte arrays (slabs) and a separate array of slab addresses in
+ * sorted entry order. An entry is only turned back into a {@link KeyValueSerializable} when it is read, for instance as the set is persisted. The reason for
+ * building this sorted set structure is to buffer the thousands of field index keys an ivarator collects per file without creating several objects for each
+ * of them.
+ * <p>
+ * Entries are ordered as {@link KeyValueSerializable#compareTo(KeyValueSerializable)} orders them. Slabs double in size as they fill up to a maximum of
+ * {@link #MAX_SLAB_SIZE}, so growing the set never copies the entries already added.
+ * <p>
+ * This is meant as a buffer which is filled, persisted and cleared, and has two limits which follow from that:
+ * <ul>
+ * <li>Removing an entry only drops it from the index. The space it took up in the slabs is never reused, and is only reclaimed when the set is cleared, so a
+ * set which sees many removes and adds keeps growing.</li>
+ * <li>An address packs the slab number into the bits above the offset, which leaves room for {@link #MAX_SLABS} slabs, so the set holds at most 2GB of
+ * serialized entries of ordinary size. Adding an entry beyond that throws an {@link IllegalStateException}.</li>
+ * </ul>
+ */
+public class SortedKeyValueSetBuffer extends AbstractSet<KeyValueSerializable> implements SortedSet<KeyValueSerializable> {
+    public static final int AVERAGE_ENTRY_SIZE = 128;
+    public static final int DEFAULT_BUFFER_SIZE = 64;
+    
+    // an address is the slab number in the high bits and the offset within the slab in the low SLAB_SHIFT bits
+    protected static final int SLAB_SHIFT = 20;
+    protected static final int MAX_SLAB_SIZE = 1 << SLAB_SHIFT;
+    protected static final int MAX_SLABS = 1 << (31 - SLAB_SHIFT);
+    
+    // the lengths of the row, column family, column qualifier, column visibility and value, then the timestamp and the deleted flag
+    protected static final int TIMESTAMP_OFFSET = 20;
+    protected static final int DELETED_OFFSET = 28;
+    protected static final int HEADER_SIZE = 29;
+    
+    protected final int capacity;
+    protected byte[][] slabs = null;
+    protected int numSlabs = 0;
+    protected int slabUsed = 0;
+    protected int[] sortedAddresses = null;
+    protected int size = 0;
+    protected int modCount = 0;
+    
+    // the entry being added or searched for, serialized the same way as the entries in the slabs
+    protected byte[] term = new byte[AVERAGE_ENTRY_SIZE];
+    
+    public SortedKeyValueSetBuffer() {
+        this(DEFAULT_BUFFER_SIZE);
+    }
+    
+    public SortedKeyValueSetBuffer(int capacity) {
+        this.capacity = Math.max(1, capacity);
+        this.slabs = new byte[4][];
+        this.sortedAddresses = new int[this.capacity];
+    }
+    
+    /************************** Overridden methods *************************/
+    
+    @Override
+    public int size() {
+        return size;
+    }
+    
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+    
+    @Override
+    public boolean contains(Object o) {
+        if (o instanceof KeyValueSerializable) {
+            setTerm((KeyValueSerializable) o);
+            return binarySearch(0, size - 1) >= 0;
+        }
+        return false;
+    }
+    
+    @Override
+    public Iterator<KeyValueSerializable> iterator() {
+        return new SortedKeyValueSetBufferIterator();
+    }
+    
+    @Override
+    public boolean add(KeyValueSerializable e) {
+        int length = setTerm(e);
+        int index;
+        // field index keys are mostly added in order, so check whether this one goes at the end before searching
+        if (size == 0 || compare(sortedAddresses[size - 1]) < 0) {
+            index = size;
+        } else {
+            index = binarySearch(0, size - 1);
+            if (index >= 0) {
+                return false;
+            }
+            index = -1 - index;
+        }
+        add(index, length);
+        return true;
+    }
+    
+    @Override
+    public boolean remove(Object o) {
+        if (!(o instanceof KeyValueSerializable)) {
+            return false;
+        }
+        setTerm((KeyValueSerializable) o);
+        int index = binarySearch(0, size - 1);
+        if (index >= 0) {
+            remove(index);
+            return true;
+        }
+        return false;
+    }
+    
+    /**
+     * Clears the set, releasing the slabs so that a set which has been persisted no longer holds on to them
+     */
+    @Override
+    public void clear() {
+        modCount++;
+        size = 0;
+        slabs = new byte[4][];
+        numSlabs = 0;
+        slabUsed = 0;
+        sortedAddresses = new int[capacity];
+        term = new byte[AVERAGE_ENTRY_SIZE];
+    }
+    
+    /**
+     * The entries are in their natural order
+     *
+     * @return null
+     */
+    @Override
+    public Comparator<? super KeyValueSerializable> comparator() {
+        return null;
+    }
+    
+    @Override
+    public SortedSet<KeyValueSerializable> subSet(KeyValueSerializable fromElement, KeyValueSerializable toElement) {
+        return new SortedKeyValueSubSetBuffer(fromElement, toElement);
+    }
+    
+    @Override
+    public SortedSet<KeyValueSerializable> headSet(KeyValueSerializable toElement) {
+        return new SortedKeyValueSubSetBuffer(null, toElement);
+    }
+    
+    @Override
+    public SortedSet<KeyValueSerializable> tailSet(KeyValueSerializable fromElement) {
+        return new SortedKeyValueSubSetBuffer(fromElement, null);
+    }
+    
+    @Override
+    public KeyValueSerializable first() {
+        if (size == 0) {
+            QueryException qe = new QueryException(DatawaveErrorCode.FETCH_FIRST_ELEMENT_ERROR);
+            throw (NoSuchElementException) (new NoSuchElementException().initCause(qe));
+        }
+        return get(0);
+    }
+    
+    @Override
+    public KeyValueSerializable last() {
+        if (size == 0) {
+            QueryException qe = new QueryException(DatawaveErrorCode.FETCH_LAST_ELEMENT_ERROR);
+            throw (NoSuchElementException) (new NoSuchElementException().initCause(qe));
+        }
+        return get(size - 1);
+    }
+    
+    /***************************** Other public methods *************************/
+    
+    public KeyValueSerializable get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("index is out of range");
+        }
+        int address = sortedAddresses[index];
+        byte[] slab = slabs[address >>> SLAB_SHIFT];
+        int offset = address & (MAX_SLAB_SIZE - 1);
+        
+        int pos = offset + HEADER_SIZE;
+        byte[][] fields = new byte[5][];
+        for (int i = 0; i < fields.length; i++) {
+            int length = readInt(slab, offset + 4 * i);
+            fields[i] = Arrays.copyOfRange(slab, pos, pos + length);
+            pos += length;
+        }
+        Key key = new Key(fields[0], fields[1], fields[2], fields[3], readLong(slab, offset + TIMESTAMP_OFFSET), slab[offset + DELETED_OFFSET] != 0, false);
+        return new KeyValueSerializable(key, fields[4]);
+    }
+    
+    /**
+     * Get the number of bytes allocated for the slabs
+     *
+     * @return the slab bytes
+     */
+    public long getSlabBytes() {
+        long bytes = 0;
+        for (int i = 0; i < numSlabs; i++) {
+            bytes += slabs[i].length;
+        }
+        return bytes;
+    }
+    
+    /******************************* The protected stuff ***************************/
+    
+    /**
+     * Serialize an entry into the term buffer
+     *
+     * @param e
+     * @return the serialized length
+     */
+    protected int setTerm(KeyValueSerializable e) {
+        Key key = e.getKey();
+        ByteSequence[] fields = {key.getRowData(), key.getColumnFamilyData(), key.getColumnQualifierData(), key.getColumnVisibilityData()};
+        int length = HEADER_SIZE + e.value.length;
+        for (ByteSequence field : fields) {
+            length += field.length();
+        }
+        if (term.length < length) {
+            term = new byte[Math.max(length, term.length * 2)];
+        }
+        
+        int pos = HEADER_SIZE;
+        for (int i = 0; i < fields.length; i++) {
+            writeInt(term, 4 * i, fields[i].length());
+            System.arraycopy(fields[i].getBackingArray(), fields[i].offset(), term, pos, fields[i].length());
+            pos += fields[i].length();
+        }
+        writeInt(term, 16, e.value.length);
+        System.arraycopy(e.value, 0, term, pos, e.value.length);
+        writeLong(term, TIMESTAMP_OFFSET, key.getTimestamp());
+        term[DELETED_OFFSET] = (byte) (key.isDeleted() ? 1 : 0);
+        return length;
+    }
+    
+    /**
+     * Copy the term buffer into the slabs and insert its address into the index
+     *
+     * @param index
+     * @param length
+     */
+    protected void add(int index, int length) {
+        modCount++;
+        if (numSlabs == 0 || slabUsed + length > slabs[numSlabs - 1].length) {
+            addSlab(length);
+        }
+        int address = ((numSlabs - 1) << SLAB_SHIFT) | slabUsed;
+        System.arraycopy(term, 0, slabs[numSlabs - 1], slabUsed, length);
+        slabUsed += length;
+        
+        if (size == sortedAddresses.length) {
+            sortedAddresses = Arrays.copyOf(sortedAddresses, (sortedAddresses.length * 3) / 2 + 1);
+        }
+        System.arraycopy(sortedAddresses, index, sortedAddresses, index + 1, size - index);
+        sortedAddresses[index] = address;
+        size++;
+    }
+    
+    protected void addSlab(int minSize) {
+        if (numSlabs == MAX_SLABS) {
+            throw new IllegalStateException("SortedKeyValueSetBuffer does not support more than " + MAX_SLABS + " slabs, " + getSlabBytes()
+                            + " bytes are in use by " + size + " entries");
+        }
+        long slabSize = (numSlabs == 0 ? (long) capacity * AVERAGE_ENTRY_SIZE : 2L * slabs[numSlabs - 1].length);
+        // an entry larger than the maximum gets a slab of its own, which is fine since it starts at offset 0
+        slabSize = Math.max(Math.min(slabSize, MAX_SLAB_SIZE), minSize);
+        if (numSlabs == slabs.length) {
+            slabs = Arrays.copyOf(slabs, slabs.length * 2);
+        }
+        slabs[numSlabs++] = new byte[(int) slabSize];
+        slabUsed = 0;
+    }
+    
+    protected void remove(int index) {
+        modCount++;
+        size--;
+        System.arraycopy(sortedAddresses, index + 1, sortedAddresses, index, size - index);
+    }
+    
+    /**
+     * Compare the entry at an address with the term buffer
+     *
+     * @param address
+     * @return the comparison
+     */
+    protected int compare(int address) {
+        return compare(slabs[address >>> SLAB_SHIFT], address & (MAX_SLAB_SIZE - 1), term, 0);
+    }
+    
+    /**
+     * Compare two serialized entries the same way {@link KeyValueSerializable} compares them: by key, and then by value using a {@link ByteArrayComparator}
+     */
+    protected static int compare(byte[] a, int aOffset, byte[] b, int bOffset) {
+        int aPos = aOffset + HEADER_SIZE;
+        int bPos = bOffset + HEADER_SIZE;
+        // the row, column family, column qualifier and column visibility
+        for (int i = 0; i < 4; i++) {
+            int aLength = readInt(a, aOffset + 4 * i);
+            int bLength = readInt(b, bOffset + 4 * i);
+            int comparison = WritableComparator.compareBytes(a, aPos, aLength, b, bPos, bLength);
+            if (comparison != 0) {
+                return comparison;
+            }
+            aPos += aLength;
+            bPos += bLength;
+        }
+        
+        // newer timestamps sort first, and then deleted keys
+        long aTimestamp = readLong(a, aOffset + TIMESTAMP_OFFSET);
+        long bTimestamp = readLong(b, bOffset + TIMESTAMP_OFFSET);
+        if (aTimestamp != bTimestamp) {
+            return (aTimestamp < bTimestamp ? 1 : -1);
+        }
+        if (a[aOffset + DELETED_OFFSET] != b[bOffset + DELETED_OFFSET]) {
+            return (a[aOffset + DELETED_OFFSET] != 0 ? -1 : 1);
+        }
+        
+        // the value, using signed bytes
+        int aLength = readInt(a, aOffset + 16);
+        int bLength = readInt(b, bOffset + 16);
+        int minLength = Math.min(aLength, bLength);
+        for (int i = 0; i < minLength; i++) {
+            int comparison = a[aPos + i] - b[bPos + i];
+            if (comparison != 0) {
+                return comparison;
+            }
+        }
+        return Integer.compare(aLength, bLength);
+    }
+    
+    /**
+     * A binary search of the term buffer based on the sorted address array
+     *
+     * @param start
+     * @param end
+     * @return the index of the term, or a negative index if not found so we know where it should go
+     */
+    protected int binarySearch(int start, int end) {
+        while (start <= end) {
+            int middle = (start + end) >>> 1;
+            int comparison = compare(sortedAddresses[middle]);
+            
+            if (comparison < 0)
+                start = middle + 1;
+            else if (comparison > 0)
+                end = middle - 1;
+            else
+                return middle;
+        }
+        return -(start + 1);
+    }
+    
+    protected static int readInt(byte[] data, int offset) {
+        return ((data[offset] & 0xFF) << 24) | ((data[offset + 1] & 0xFF) << 16) | ((data[offset + 2] & 0xFF) << 8) | (data[offset + 3] & 0xFF);
+    }
+    
+    protected static void writeInt(byte[] data, int offset, int value) {
+        data[offset] = (byte) (value >>> 24);
+        data[offset + 1] = (byte) (value >>> 16);
+        data[offset + 2] = (byte) (value >>> 8);
+        data[offset + 3] = (byte) value;
+    }
+    
+    protected static long readLong(byte[] data, int offset) {
+        return ((long) readInt(data, offset) << 32) | (readInt(data, offset + 4) & 0xFFFFFFFFL);
+    }
+    
+    protected static void writeLong(byte[] data, int offset, long value) {
+        writeInt(data, offset, (int) (value >>> 32));
+        writeInt(data, offset + 4, (int) value);
+    }
+    
+    protected class SortedKeyValueSetBufferIterator implements Iterator<KeyValueSerializable> {
+        protected int index = 0;
+        protected int end = 0;
+        protected int expectedModCount = -1;
+        protected int last = -1;
+        
+        public SortedKeyValueSetBufferIterator() {
+            this(0, size);
+        }
+        
+        public SortedKeyValueSetBufferIterator(int start, int end) {
+            this.expectedModCount = modCount;
+            this.index = start;
+            this.end = end;
+        }
+        
+        final void checkModCount() {
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+        }
+        
+        @Override
+        public boolean hasNext() {
+            checkModCount();
+            return index < end;
+        }
+        
+        @Override
+        public KeyValueSerializable next() {
+            if (!hasNext()) {
+                QueryException qe = new QueryException(DatawaveErrorCode.FETCH_NEXT_ELEMENT_ERROR);
+                throw (NoSuchElementException) (new NoSuchElementException().initCause(qe));
+            }
+            last = index;
+            return get(index++);
+        }
+        
+        @Override
+        public void remove() {
+            checkModCount();
+            if (last >= 0) {
+                SortedKeyValueSetBuffer.this.remove(last);
+                index--;
+                end--;
+                last = -1;
+                expectedModCount = modCount;
+            } else {
+                throw new IllegalStateException("next needs to be called first");
+            }
+        }
+    }
+    
+    protected class SortedKeyValueSubSetBuffer extends AbstractSet<KeyValueSerializable> implements SortedSet<KeyValueSerializable> {
+        protected KeyValueSerializable from;
+        protected KeyValueSerializable to;
+        protected int expectedModCount = -1;
+        protected int[] range = null;
+        
+        public SortedKeyValueSubSetBuffer(KeyValueSerializable from, KeyValueSerializable to) {
+            if (from != null && to != null && from.compareTo(to) > 0) {
+                throw new IllegalArgumentException("The start is greater than the end");
+            }
+            this.from = from;
+            this.to = to;
+        }
+        
+        @Override
+        public Comparator<? super KeyValueSerializable> comparator() {
+            return SortedKeyValueSetBuffer.this.comparator();
+        }
+        
+        @Override
+        public SortedSet<KeyValueSerializable> subSet(KeyValueSerializable fromElement, KeyValueSerializable toElement) {
+            if ((from != null && fromElement.compareTo(from) < 0) || (to != null && to.compareTo(toElement) < 0)) {
+                throw new IllegalArgumentException("Cannot create subset outside of the range of this subset");
+            }
+            return SortedKeyValueSetBuffer.this.subSet(fromElement, toElement);
+        }
+        
+        @Override
+        public SortedSet<KeyValueSerializable> headSet(KeyValueSerializable toElement) {
+            return subSet(from, toElement);
+        }
+        
+        @Override
+        public SortedSet<KeyValueSerializable> tailSet(KeyValueSerializable fromElement) {
+            return subSet(fromElement, to);
+        }
+        
+        @Override
+        public KeyValueSerializable first() {
+            int[] range = getRange();
+            if (range == null) {
+                QueryException qe = new QueryException(DatawaveErrorCode.FETCH_FIRST_ELEMENT_ERROR);
+                throw (NoSuchElementException) (new NoSuchElementException().initCause(qe));
+            }
+            return get(range[0]);
+        }
+        
+        @Override
+        public KeyValueSerializable last() {
+            int[] range = getRange();
+            if (range == null) {
+                QueryException qe = new QueryException(DatawaveErrorCode.FETCH_LAST_ELEMENT_ERROR);
+                throw (NoSuchElementException) (new NoSuchElementException().initCause(qe));
+            }
+            return get(range[1]);
+        }
+        
+        @Override
+        public Iterator<KeyValueSerializable> iterator() {
+            int[] range = getRange();
+            if (range == null) {
+                return new SortedKeyValueSetBufferIterator(0, 0);
+            } else {
+                return new SortedKeyValueSetBufferIterator(range[0], range[1] + 1);
+            }
+        }
+        
+        @Override
+        public int size() {
+            int[] range = getRange();
+            if (range == null) {
+                return 0;
+            } else {
+                return range[1] - range[0] + 1;
+            }
+        }
+        
+        @Override
+        public boolean contains(Object o) {
+            if (!(o instanceof KeyValueSerializable)) {
+                return false;
+            }
+            int[] range = getRange();
+            if (range == null) {
+                return false;
+            }
+            setTerm((KeyValueSerializable) o);
+            return (binarySearch(range[0], range[1]) >= 0);
+        }
+        
+        @Override
+        public boolean add(KeyValueSerializable e) {
+            if ((from != null && e.compareTo(from) < 0) || (to != null && e.compareTo(to) >= 0)) {
+                throw new IllegalArgumentException("Cannot add element outside of subset range");
+            }
+            return SortedKeyValueSetBuffer.this.add(e);
+        }
+        
+        @Override
+        public boolean remove(Object o) {
+            if (contains(o)) {
+                return SortedKeyValueSetBuffer.this.remove(o);
+            }
+            return false;
+        }
+        
+        /***
+         * Get the range of elements in the SortedKeyValueSetBuffer
+         *
+         * @return int[] {firstIndex, lastIndex}, or null if the subset is empty
+         */
+        protected int[] getRange() {
+            if (expectedModCount != modCount) {
+                expectedModCount = modCount;
+                
+                // find the first entry
+                int start = 0;
+                if (from != null) {
+                    setTerm(from);
+                    start = binarySearch(0, size - 1);
+                    if (start < 0) {
+                        start = -1 - start;
+                    }
+                }
+                
+                // find the entry after the last one, since the end is exclusive
+                int end = size;
+                if (to != null) {
+                    setTerm(to);
+                    end = binarySearch(0, size - 1);
+                    if (end < 0) {
+                        end = -1 - end;
+                    }
+                }
+                end--;
+                
+                range = (start <= end ? new int[] {start, end} : null);
+            }
+            return range;
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package datawave.mr.bulk;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import datawave.accumulo.inmemory.InMemoryInstance;
+import datawave.query.config.ShardQueryConfiguration;
+import datawave.webservice.query.configuration.QueryData;
+
+import org.apache.accumulo.core.client.BatchScanner;
+import org.apache.accumulo.core.client.BatchWriter;
+import org.apache.accumulo.core.client.BatchWriterConfig;
+import org.apache.accumulo.core.client.Connector;
+import org.apache.accumulo.core.client.IteratorSetting;
+import org.apache.accumulo.core.client.TableNotFoundException;
+import org.apache.accumulo.core.client.security.tokens.PasswordToken;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Mutation;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.user.RegExFilter;
+import org.apache.accumulo.core.security.Authorizations;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.SequenceFile;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Runs plans through the offline query runner against an in memory instance, reading the table through its scanners rather than its files.
+ */
+public class OfflineQueryRunnerTest {
+    
+    private static final String TABLE = "shard";
+    
+    private static final int ROWS = 50;
+    
+    private static final AtomicInteger instances = new AtomicInteger(0);
+    
+    @Rule
+    public final TemporaryFolder tmpDir = new TemporaryFolder();
+    
+    private Connector connector;
+    
+    private Configuration conf;
+    
+    @Before
+    public void setup() throws Exception {
+        connector = new InMemoryInstance(OfflineQueryRunnerTest.class.getName() + instances.incrementAndGet()).getConnector("root", new PasswordToken(""));
+        connector.tableOperations().create(TABLE);
+        BatchWriter writer = connector.createBatchWriter(TABLE, new BatchWriterConfig());
+        for (int row = 0; row < ROWS; row++) {
+            Mutation m = new Mutation(getRow(row));
+            m.put("cf", "cq1", new Value(new byte[0]));
+            m.put("cf", "cq2", new Value(new byte[0]));
+            writer.addMutation(m);
+        }
+        writer.close();
+        
+        conf = new Configuration();
+        conf.set("fs.defaultFS", "file:///");
+    }
+    
+    private static String getRow(int row) {
+        return String.format("row%02d", row);
+    }
+    
+    /**
+     * @return a query data for every five rows, each keeping only the even rows
+     */
+    private static List<QueryData> getPlan() {
+        IteratorSetting evenRows = new IteratorSetting(50, "evenRows", RegExFilter.class);
+        RegExFilter.setRegexs(evenRows, ".*[02468]", null, null, null, false);
+        List<QueryData> plan = new ArrayList<>();
+        for (int row = 0; row < ROWS; row += 5) {
+            Range range = new Range(getRow(row), true, getRow(row + 4), true);
+            plan.add(new QueryData("evenRows", Collections.singleton(range), Collections.singletonList(evenRows)));
+        }
+        return plan;
+    }
+    
+    private List<Key> readOutput(Path outputDir) throws IOException {
+        List<Key> keys = new ArrayList<>();
+        FileSystem fs = outputDir.getFileSystem(conf);
+        for (FileStatus status : fs.listStatus(outputDir)) {
+            if (!status.getPath().getName().startsWith("part-")) {
+                continue;
+            }
+            try (SequenceFile.Reader reader = new SequenceFile.Reader(conf, SequenceFile.Reader.file(status.getPath()))) {
+                Key key = new Key();
+                Value value = new Value();
+                while (reader.next(key, value)) {
+                    keys.add(new Key(key));
+                }
+            }
+        }
+        return keys;
+    }
+    
+    @Test
+    public void testRun() throws Exception {
+        Path outputDir = new Path(tmpDir.getRoot().toURI().toString(), "output");
+        OfflineQueryRunner runner = new InMemoryQueryRunner(connector, conf, 3);
+        
+        long results = runner.run(TABLE, Collections.singleton(new Authorizations()), getPlan().iterator(), outputDir);
+        
+        // every result is written once, by one of the threads
+        List<Key> keys = readOutput(outputDir);
+        Assert.assertEquals(ROWS, results);
+        Assert.assertEquals(ROWS, keys.size());
+        Set<String> rows = new TreeSet<>();
+        for (Key key : keys) {
+            rows.add(key.getRow().toString());
+        }
+        Assert.assertEquals(ROWS / 2, rows.size());
+        for (String row : rows) {
+            Assert.assertTrue(row, (row.charAt(row.length() - 1) - '0') % 2 == 0);
+        }
+        Assert.assertEquals(keys.size(), new TreeSet<>(keys).size());
+    }
+    
+    @Test
+    public void testRunConfiguration() throws Exception {
+        ShardQueryConfiguration config = new ShardQueryConfiguration();
+        config.setShardTableName(TABLE);
+        config.setAuthorizations(Collections.singleton(new Authorizations()));
+        config.setQueries(getPlan().iterator());
+        Path outputDir = new Path(tmpDir.getRoot().toURI().toString(), "output");
+        
+        Assert.assertEquals(ROWS, new InMemoryQueryRunner(connector, conf, 1).run(config, outputDir));
+        Assert.assertEquals(ROWS, readOutput(outputDir).size());
+    }
+    
+    @Test(expected = IOException.class)
+    public void testOutputDirectoryExists() throws Exception {
+        Path outputDir = new Path(tmpDir.getRoot().toURI().toString());
+        new InMemoryQueryRunner(connector, conf, 1).run(TABLE, Collections.singleton(new Authorizations()), getPlan().iterator(), outputDir);
+    }
+    
+    @Test
+    public void testFailure() throws Exception {
+        Path outputDir = new Path(tmpDir.getRoot().toURI().toString(), "output");
+        OfflineQueryRunner runner = new InMemoryQueryRunner(connector, conf, 2) {
+            @Override
+            protected BatchScanner createScanner(Configuration tableConf, String tableName, Set<Authorizations> auths) {
+                throw new IllegalStateException("unable to read the files");
+            }
+        };
+        try {
+            runner.run(TABLE, Collections.singleton(new Authorizations()), getPlan().iterator(), outputDir);
+            Assert.fail("expected the failure to be reported");
+        } catch (IOException e) {
+            Assert.assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+    }
+    
+    /**
+     * Reads the table through the in memory instance, as it has no files to read
+     */
+    private static class InMemoryQueryRunner extends OfflineQueryRunner {
+        private final Connector connector;
+        
+        InMemoryQueryRunner(Connector connector, Configuration conf, int numThreads) {
+            super(connector, new byte[0], conf, numThreads);
+            this.connector = connector;
+        }
+        
+        @Override
+        protected BatchScanner createScanner(Configuration tableConf, String tableName, Set<Authorizations> auths) {
+            try {
+                return connector.createBatchScanner(tableName, auths.iterator().next(), 1);
+            } catch (TableNotFoundException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package datawave.query;
+
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Map.Entry;
+import java.util.Random;
+
+import datawave.data.type.TrimLeadingZerosType;
+import datawave.query.DocumentSerialization.ReturnType;
+import datawave.query.attributes.Content;
+import datawave.query.attributes.DiacriticContent;
+import datawave.query.attributes.Document;
+import datawave.query.attributes.TypeAttribute;
+import datawave.query.exceptions.InvalidDocumentHeader;
+import datawave.query.function.deserializer.KryoDocumentDeserializer;
+import datawave.query.function.serializer.DocumentSerializer;
+import datawave.query.function.serializer.KryoDocumentSerializer;
+
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.common.collect.Maps;
+import com.google.common.io.ByteStreams;
+
+public class DocumentSerializationTest {
+    
+    private Entry<Key,Document> createDocument(int fields) {
+        Key key = new Key("20190101_0", "datatype\u0000uid", "", "PUBLIC", 1000L);
+        Document d = new Document(key, true);
+        for (int i = 0; i < fields; i++) {
+            d.put("FIELD_" + i, new Content("value " + i, key, true));
+        }
+        return Maps.immutableEntry(key, d);
+    }
+    
+    private byte getCompression(Value value) {
+        return value.get()[2];
+    }
+    
+    @Test
+    public void testDictionaryRoundTrip() {
+        Entry<Key,Document> doc = createDocument(20);
+        
+        Entry<Key,Value> gzipped = new KryoDocumentSerializer(false, true).apply(doc);
+        Entry<Key,Value> dictionary = new KryoDocumentSerializer(false, true, true).apply(doc);
+        
+        // too small to be gzipped, but not too small for the dictionary
+        Assert.assertEquals(DocumentSerialization.NONE, getCompression(gzipped.getValue()));
+        Assert.assertEquals(DocumentSerialization.DICTIONARY, getCompression(dictionary.getValue()));
+        Assert.assertTrue(dictionary.getValue().getSize() < gzipped.getValue().getSize());
+        
+        Entry<Key,Document> result = new KryoDocumentDeserializer().apply(dictionary);
+        Assert.assertEquals(doc.getKey(), result.getKey());
+        Assert.assertEquals(doc.getValue().size(), result.getValue().size());
+        Assert.assertEquals("value 7", ((Content) result.getValue().get("FIELD_7")).getContent());
+        Assert.assertEquals(doc.getValue().get("FIELD_7").getColumnVisibility(), result.getValue().get("FIELD_7").getColumnVisibility());
+    }
+    
+    @Test
+    public void testSmallDocumentIsNotCompressed() {
+        Entry<Key,Value> dictionary = new KryoDocumentSerializer(false, true, true).apply(createDocument(0));
+        
+        Assert.assertEquals(DocumentSerialization.NONE, getCompression(dictionary.getValue()));
+        Assert.assertEquals(0, new KryoDocumentDeserializer().apply(dictionary).getValue().size());
+    }
+    
+    @Test
+    public void testDocumentWhichDoesNotShrinkIsNotCompressed() throws Exception {
+        byte[] random = new byte[1024];
+        new Random(1).nextBytes(random);
+        DocumentSerializer serializer = new DocumentSerializer(false, DocumentSerialization.DICTIONARY,
+                        DocumentSerializer.DEFAULT_MIN_DICTIONARY_COMPRESS_SIZE) {
+            @Override
+            public byte[] serialize(Document d) {
+                return random;
+            }
+        };
+        
+        Value value = serializer.apply(createDocument(0)).getValue();
+        
+        // large enough to compress, but deflating random bytes only adds to them
+        Assert.assertEquals(DocumentSerialization.NONE, getCompression(value));
+        Assert.assertEquals(random.length + 3, value.getSize());
+        Assert.assertArrayEquals(random, ByteStreams.toByteArray(DocumentSerialization.consumeHeader(value.get())));
+    }
+    
+    @Test
+    public void testFieldsAndClassesMissingFromTheDictionary() {
+        Key key = new Key("20190101_0", "datatype\u0000uid", "", "PUBLIC", 1000L);
+        Document d = new Document(key, true);
+        for (int i = 0; i < 20; i++) {
+            TrimLeadingZerosType type = new TrimLeadingZerosType();
+            type.setDelegateFromString("000" + i);
+            d.put("UNCOMMON_NUMBER_" + i, new TypeAttribute<>(type, key, true));
+            d.put("UNCOMMON_TEXT_" + i, new DiacriticContent("caf\u00e9 " + i, key, true));
+        }
+        
+        Entry<Key,Value> dictionary = new KryoDocumentSerializer(false, true, true).apply(Maps.immutableEntry(key, d));
+        Assert.assertEquals(DocumentSerialization.DICTIONARY, getCompression(dictionary.getValue()));
+        
+        Document result = new KryoDocumentDeserializer().apply(dictionary).getValue();
+        Assert.assertEquals(d.size(), result.size());
+        TypeAttribute<?> number = (TypeAttribute<?>) result.get("UNCOMMON_NUMBER_7");
+        Assert.assertEquals(TrimLeadingZerosType.class, number.getType().getClass());
+        Assert.assertEquals("0007", number.getType().getDelegateAsString());
+        DiacriticContent text = (DiacriticContent) result.get("UNCOMMON_TEXT_7");
+        Assert.assertEquals("caf\u00e9 7", text.getContent());
+    }
+    
+    @Test
+    public void testReaderNeedsNoFlagToReadTheDictionary() {
+        Entry<Key,Value> dictionary = new KryoDocumentSerializer(false, true, true).apply(createDocument(20));
+        Assert.assertEquals(DocumentSerialization.DICTIONARY, getCompression(dictionary.getValue()));
+        
+        // the flag only selects what the iterators write, a reader made without it reads every scheme
+        Entry<Key,Document> result = DocumentSerialization.getDocumentDeserializer(ReturnType.kryo).apply(dictionary);
+        Assert.assertEquals(20, result.getValue().size());
+        Assert.assertEquals("value 7", ((Content) result.getValue().get("FIELD_7")).getContent());
+    }
+    
+    @Test
+    public void testUnknownSchemeIsRejected() throws Exception {
+        byte[] dictionary = new KryoDocumentSerializer(false, true, true).apply(createDocument(20)).getValue().get();
+        
+        // a reader which predates a scheme fails on its header rather than misreading the document, which is why the dictionary is off by default
+        byte[] unknown = Arrays.copyOf(dictionary, dictionary.length);
+        unknown[2] = DocumentSerialization.DICTIONARY + 1;
+        try {
+            InputStream in = DocumentSerialization.consumeHeader(unknown);
+            Assert.fail("expected an InvalidDocumentHeader, read " + in.available() + " bytes");
+        } catch (InvalidDocumentHeader e) {
+            // expected
+        }
+    }
+}
@@ -4,6 +4,9 @@ import com.google.common.collect.Sets;
 import datawave.data.type.LcNoDiacriticsType;
 import datawave.data.type.NoOpType;
 import datawave.data.type.NumberType;
+import datawave.query.util.TypeMetadata;
+import org.apache.accumulo.core.data.ArrayByteSequence;
+import org.apache.accumulo.core.data.Key;
 import org.apache.log4j.Logger;
 import org.junit.Assert;
 import org.junit.Test;
@@ -45,4 +48,31 @@ public class AttributeFactoryTest {
         
     }
     
+    @Test
+    public void testLazyAttributes() {
+        TypeMetadata typeMetadata = new TypeMetadata();
+        typeMetadata.put("NUM", "dt", NumberType.class.getName());
+        Key key = new Key("20190101_0", "dt\0uid", "NUM\0" + "12");
+        
+        AttributeFactory eager = new AttributeFactory(typeMetadata);
+        AttributeFactory lazy = new AttributeFactory(typeMetadata);
+        lazy.setLazy(true);
+        
+        TypeAttribute<?> expected = (TypeAttribute<?>) eager.create("NUM", new ArrayByteSequence("12"), key, true);
+        Assert.assertFalse(expected.isLazy());
+        
+        TypeAttribute<?> attribute = (TypeAttribute<?>) lazy.create("NUM", new ArrayByteSequence("12"), key, true);
+        Assert.assertTrue(attribute.isLazy());
+        Assert.assertTrue(attribute.copy().isLazy());
+        
+        // reading the type parses the value
+        Assert.assertEquals(NumberType.class, attribute.getType().getClass());
+        Assert.assertFalse(attribute.isLazy());
+        Assert.assertEquals(expected, attribute);
+        Assert.assertEquals(expected.getType().normalize(), attribute.getType().normalize());
+        
+        // values which cannot be parsed still fall back to a NoOpType
+        attribute = (TypeAttribute<?>) lazy.create("NUM", new ArrayByteSequence("twelve"), key, true);
+        Assert.assertEquals(NoOpType.class, attribute.getType().getClass());
+    }
 }
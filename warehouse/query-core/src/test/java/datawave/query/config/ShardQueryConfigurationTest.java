@@ -56,6 +56,7 @@ public class ShardQueryConfigurationTest {
         Assert.assertFalse(config.isAllTermsIndexOnly());
         Assert.assertEquals("", config.getAccumuloPassword());
         Assert.assertEquals(Long.MAX_VALUE, config.getMaxIndexScanTimeMillis());
+        Assert.assertEquals(0, config.getIndexLookupCacheTimeMillis());
         Assert.assertFalse(config.getCollapseUids());
         Assert.assertFalse(config.getSequentialScheduler());
         Assert.assertFalse(config.getCollectTimingDetails());
@@ -83,6 +84,7 @@ public class ShardQueryConfigurationTest {
         Assert.assertEquals("DatawaveMetadata", config.getMetadataTableName());
         Assert.assertEquals("DateIndex", config.getDateIndexTableName());
         Assert.assertEquals("shardIndexStats", config.getIndexStatsTableName());
+        Assert.assertNull(config.getTermDictionaryTableName());
         Assert.assertEquals("EVENT", config.getDefaultDateTypeName());
         Assert.assertTrue(config.isCleanupShardsAndDaysQueryHints());
         Assert.assertEquals(new Integer(8), config.getNumQueryThreads());
@@ -117,6 +119,9 @@ public class ShardQueryConfigurationTest {
         Assert.assertTrue(config.isSortedUIDs());
         Assert.assertEquals(Sets.newHashSet(), config.getQueryTermFrequencyFields());
         Assert.assertFalse(config.isTermFrequenciesRequired());
+        Assert.assertEquals(1, config.getTermFrequencyBatchSize());
+        Assert.assertEquals(1, config.getEvaluationBatchSize());
+        Assert.assertFalse(config.isLazyAttributes());
         Assert.assertEquals(Sets.newHashSet(), config.getLimitFields());
         Assert.assertFalse(config.isLimitFieldsPreQueryEvaluation());
         Assert.assertNull(config.getLimitFieldsField());
@@ -138,6 +143,10 @@ public class ShardQueryConfigurationTest {
         Assert.assertTrue(config.getAllowShortcutEvaluation());
         Assert.assertFalse(config.getBypassAccumulo());
         Assert.assertFalse(config.getSpeculativeScanning());
+        Assert.assertFalse(config.getDemandDrivenScanning());
+        Assert.assertFalse(config.getHedgedScanning());
+        Assert.assertEquals(0.95, config.getHedgedScanPercentile(), 0.0);
+        Assert.assertEquals(0.05, config.getHedgedScanMaxRate(), 0.0);
         Assert.assertFalse(config.isDisableEvaluation());
         Assert.assertFalse(config.isContainsIndexOnlyTerms());
         Assert.assertFalse(config.isContainsCompositeTerms());
@@ -173,6 +182,7 @@ public class ShardQueryConfigurationTest {
         Assert.assertFalse(config.isExpansionLimitedToModelContents());
         Assert.assertEquals(new QueryImpl(), config.getQuery());
         Assert.assertFalse(config.isCompressServerSideResults());
+        Assert.assertFalse(config.isDictionaryCompressServerSideResults());
         Assert.assertFalse(config.isIndexOnlyFilterFunctionsEnabled());
         Assert.assertFalse(config.isCompositeFilterFunctionsEnabled());
         Assert.assertEquals(0, config.getGroupFieldsBatchSize());
@@ -0,0 +1,76 @@
+package datawave.query.function;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+import datawave.query.attributes.Document;
+import datawave.query.jexl.DatawaveJexlContext;
+import datawave.query.jexl.DefaultArithmetic;
+import datawave.query.util.Tuple3;
+import datawave.query.util.Tuples;
+
+import org.apache.accumulo.core.data.Key;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.common.collect.Sets;
+
+public class CompiledJexlEvaluationTest {
+    
+    private static final String[] QUERIES = {"FOO == 'bar'", "FOO == 'bar' && BAR != 'baz'", "FOO == 'bar' || (BAR =~ 'ba.*' && !(BAZ == 'qux'))",
+            "FOO !~ 'b.*' || BAR == null", "(ASTDelayedPredicate = true) && (NUM >= '2' && NUM <= '4')", "FOO == 'bar' && (NUM > '2' || BAZ == 'qux')",
+            "filter:includeRegex(FOO, 'b.*') && BAR == 'baz'"};
+    
+    @Test
+    public void testMatchesInterpreter() {
+        List<Tuple3<Key,Document,DatawaveJexlContext>> documents = documents();
+        for (String query : QUERIES) {
+            JexlEvaluation interpreted = new JexlEvaluation(query, new DefaultArithmetic());
+            CompiledJexlEvaluation compiled = new CompiledJexlEvaluation(query, new DefaultArithmetic());
+            
+            BitSet expected = new BitSet();
+            for (int i = 0; i < documents.size(); i++) {
+                expected.set(i, interpreted.apply(documents.get(i)));
+                Assert.assertEquals(query + " against document " + i, expected.get(i), compiled.apply(documents.get(i)));
+            }
+            Assert.assertEquals(query, expected, compiled.apply(documents));
+        }
+    }
+    
+    @Test
+    public void testBatchedIterator() {
+        List<Tuple3<Key,Document,DatawaveJexlContext>> documents = documents();
+        CompiledJexlEvaluation compiled = new CompiledJexlEvaluation("FOO == 'bar'", new DefaultArithmetic());
+        
+        List<Tuple3<Key,Document,DatawaveJexlContext>> matched = new ArrayList<>();
+        new BatchedJexlEvaluationIterator(documents.iterator(), compiled, 2).forEachRemaining(matched::add);
+        
+        List<Tuple3<Key,Document,DatawaveJexlContext>> expected = new ArrayList<>();
+        for (Tuple3<Key,Document,DatawaveJexlContext> document : documents) {
+            if (compiled.apply(document)) {
+                expected.add(document);
+            }
+        }
+        Assert.assertFalse(expected.isEmpty());
+        Assert.assertEquals(expected, matched);
+    }
+    
+    private static List<Tuple3<Key,Document,DatawaveJexlContext>> documents() {
+        List<Tuple3<Key,Document,DatawaveJexlContext>> documents = new ArrayList<>();
+        documents.add(document(new Object[] {"FOO", "bar"}, new Object[] {"BAR", "baz"}, new Object[] {"NUM", "3"}));
+        documents.add(document(new Object[] {"FOO", "bar"}, new Object[] {"BAR", "bat"}, new Object[] {"BAZ", "qux"}));
+        documents.add(document(new Object[] {"FOO", "car"}, new Object[] {"BAR", "baz"}, new Object[] {"NUM", "5"}));
+        documents.add(document(new Object[] {"FOO", Sets.newHashSet("car", "bar")}, new Object[] {"NUM", "2"}));
+        documents.add(document(new Object[] {"BAZ", "qux"}));
+        return documents;
+    }
+    
+    private static Tuple3<Key,Document,DatawaveJexlContext> document(Object[]... fields) {
+        DatawaveJexlContext context = new DatawaveJexlContext();
+        for (Object[] field : fields) {
+            context.set((String) field[0], field[1]);
+        }
+        return Tuples.tuple(new Key("row"), new Document(), context);
+    }
+}
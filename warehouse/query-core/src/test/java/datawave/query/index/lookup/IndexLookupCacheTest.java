@@ -0,0 +1,96 @@
+package datawave.query.index.lookup;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map.Entry;
+
+import org.apache.accumulo.core.client.IteratorSetting;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.security.Authorizations;
+import org.junit.After;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+public class IndexLookupCacheTest {
+    
+    private final List<Authorizations> auths = Collections.singletonList(new Authorizations("A", "B"));
+    
+    @After
+    public void clear() {
+        IndexLookupCache.clear();
+    }
+    
+    @Test
+    public void testCachedOnceExhausted() {
+        String key = key("FOO", "bar");
+        List<Entry<Key,Value>> entries = entries(3);
+        
+        Iterator<Entry<Key,Value>> recording = IndexLookupCache.record(key, entries.iterator());
+        recording.next();
+        assertNull(IndexLookupCache.get(key, 60000));
+        
+        List<Entry<Key,Value>> scanned = Lists.newArrayList(recording);
+        assertEquals(2, scanned.size());
+        
+        Iterator<Entry<Key,Value>> cached = IndexLookupCache.get(key, 60000);
+        assertNotNull(cached);
+        assertEquals(entries, Lists.newArrayList(cached));
+        
+        assertNull(IndexLookupCache.get(key("FOO", "baz"), 60000));
+    }
+    
+    @Test
+    public void testMaxAge() throws InterruptedException {
+        String key = key("FOO", "bar");
+        Lists.newArrayList(IndexLookupCache.record(key, entries(1).iterator()));
+        Thread.sleep(5);
+        assertNull(IndexLookupCache.get(key, 1));
+        assertNotNull(IndexLookupCache.get(key, 60000));
+    }
+    
+    @Test
+    public void testLargeLookupNotCached() {
+        String key = key("FOO", "bar");
+        Iterator<Entry<Key,Value>> recording = IndexLookupCache.record(key, entries(2000).iterator());
+        assertEquals(2000, Lists.newArrayList(recording).size());
+        assertNull(IndexLookupCache.get(key, 60000));
+    }
+    
+    @Test
+    public void testKey() {
+        IteratorSetting setting = new IteratorSetting(30, "uids", CreateUidsIterator.class);
+        String key = IndexLookupCache.key("shardIndex", auths, new Range("bar"), "FOO", "batch", setting);
+        assertEquals(key, IndexLookupCache.key("shardIndex", auths, new Range("bar"), "FOO", "batch", setting));
+        assertNotEquals(key, IndexLookupCache.key("shardIndex", auths, new Range("bar"), "FOO", "range:10", setting));
+        
+        IteratorSetting collapsed = new IteratorSetting(30, "uids", CreateUidsIterator.class);
+        collapsed.addOption(CreateUidsIterator.COLLAPSE_UIDS, "true");
+        assertNotEquals(key, IndexLookupCache.key("shardIndex", auths, new Range("bar"), "FOO", "batch", collapsed));
+        
+        List<Authorizations> otherAuths = Collections.singletonList(new Authorizations("A"));
+        assertNotEquals(key, IndexLookupCache.key("shardIndex", otherAuths, new Range("bar"), "FOO", "batch", setting));
+        assertNotEquals(key, IndexLookupCache.key("shardIndex", auths, new Range("baz"), "FOO", "batch", setting));
+    }
+    
+    private String key(String field, String term) {
+        return IndexLookupCache.key("shardIndex", auths, new Range(term), field, "batch");
+    }
+    
+    private static List<Entry<Key,Value>> entries(int count) {
+        List<Entry<Key,Value>> entries = Lists.newArrayList();
+        for (int i = 0; i < count; i++) {
+            entries.add(Maps.immutableEntry(new Key("bar", "FOO", "20190101_" + i + "\u0000datatype"), new Value(new byte[1024])));
+        }
+        return entries;
+    }
+}
@@ -0,0 +1,134 @@
+package datawave.query.iterator;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+
+import datawave.query.attributes.Content;
+import datawave.query.attributes.Document;
+import datawave.query.function.CompiledJexlEvaluation;
+import datawave.query.function.JexlEvaluation;
+import datawave.query.iterator.pipeline.PipelineIterator;
+import datawave.query.iterator.profile.QuerySpanCollector;
+import datawave.query.jexl.DatawaveJexlContext;
+import datawave.query.util.Tuple3;
+
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
+import org.apache.accumulo.core.iterators.SortedMapIterator;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.Iterators;
+import com.google.common.collect.Maps;
+
+/**
+ * Runs documents through the pipeline of a {@link QueryIterator}, and checks the documents are evaluated in batches when the pipeline is serial
+ */
+public class QueryIteratorEvaluationBatchTest {
+    
+    private BatchRecordingQueryIterator iterator;
+    
+    @Before
+    public void setup() {
+        iterator = new BatchRecordingQueryIterator();
+        iterator.setQuery("FOO == 'bar'");
+        iterator.setEvaluationBatchSize(3);
+        iterator.sourceForDeepCopies = new SortedMapIterator(new TreeMap<>());
+        iterator.range = new Range();
+    }
+    
+    private void evaluate(int documents) {
+        List<Map.Entry<Key,Document>> documentKeys = new ArrayList<>();
+        List<Key> expected = new ArrayList<>();
+        for (int i = 0; i < documents; i++) {
+            Key docKey = new Key("20190101_0", "datatype\0uid" + i);
+            Document document = new Document();
+            document.put("FOO", new Content(i % 2 == 0 ? "bar" : "baz", docKey, true));
+            documentKeys.add(Maps.immutableEntry(docKey, document));
+            if (i % 2 == 0) {
+                expected.add(docKey);
+            }
+        }
+        DocumentSpecificNestedIterator source = new DocumentSpecificNestedIterator(null);
+        source.setDocumentKeys(documentKeys);
+        
+        PipelineIterator pipeline = iterator.createPipelineIterator(source, null);
+        pipeline.startPipeline();
+        List<Key> matched = new ArrayList<>();
+        while (pipeline.hasNext()) {
+            matched.add(pipeline.next().getKey());
+        }
+        Assert.assertEquals(expected, matched);
+    }
+    
+    @Test
+    public void testSerialPipelineEvaluatesBatches() {
+        iterator.serialEvaluationPipeline = true;
+        Assert.assertEquals(3, iterator.getDocumentBatchSize());
+        
+        evaluate(7);
+        
+        // each batch is handed through the pipeline, and evaluated together
+        Assert.assertEquals(3, iterator.batchSizes.size());
+        Assert.assertEquals(3, (int) iterator.batchSizes.get(0));
+        Assert.assertEquals(3, (int) iterator.batchSizes.get(1));
+        Assert.assertEquals(1, (int) iterator.batchSizes.get(2));
+    }
+    
+    @Test
+    public void testSinglePipelineEvaluatesBatches() {
+        iterator.setMaxEvaluationPipelines(1);
+        Assert.assertEquals(3, iterator.getDocumentBatchSize());
+        
+        evaluate(4);
+        
+        Assert.assertEquals(2, iterator.batchSizes.size());
+        Assert.assertEquals(3, (int) iterator.batchSizes.get(0));
+        Assert.assertEquals(1, (int) iterator.batchSizes.get(1));
+    }
+    
+    @Test
+    public void testParallelPipelinesEvaluateSingleDocuments() {
+        // each parallel pipeline only ever holds one document, so the query is interpreted
+        Assert.assertEquals(1, iterator.getDocumentBatchSize());
+        Assert.assertFalse(iterator.newJexlEvaluation(new DocumentSpecificNestedIterator(null)) instanceof CompiledJexlEvaluation);
+    }
+    
+    /**
+     * Uses the evaluation of the query iterator as the whole document pipeline, recording the size of each batch the query is evaluated against
+     */
+    private static class BatchRecordingQueryIterator extends QueryIterator {
+        private final List<Integer> batchSizes = new ArrayList<>();
+        
+        @Override
+        public Iterator<Entry<Key,Document>> createDocumentPipeline(SortedKeyValueIterator<Key,Value> deepSourceCopy,
+                        final NestedQueryIterator<Key> documentSpecificSource, QuerySpanCollector querySpanCollector) {
+            Iterator<Entry<Key,Document>> documents = Iterators.transform(documentSpecificSource,
+                            from -> Maps.immutableEntry(from, documentSpecificSource.document()));
+            return getEvaluation(documentSpecificSource, deepSourceCopy, documents, null, null);
+        }
+        
+        @Override
+        protected JexlEvaluation newJexlEvaluation(NestedQueryIterator<Key> documentSource) {
+            JexlEvaluation evaluation = super.newJexlEvaluation(documentSource);
+            if (!(evaluation instanceof CompiledJexlEvaluation)) {
+                return evaluation;
+            }
+            return new CompiledJexlEvaluation(getQuery(), getArithmetic()) {
+                @Override
+                public BitSet apply(List<Tuple3<Key,Document,DatawaveJexlContext>> batch) {
+                    batchSizes.add(batch.size());
+                    return super.apply(batch);
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package datawave.query.iterator;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class QueryOptionsCacheTest {
+    
+    private AtomicInteger loads = new AtomicInteger(0);
+    
+    @Before
+    public void setup() {
+        QueryOptionsCache.clear();
+    }
+    
+    private String load(String value) {
+        loads.incrementAndGet();
+        return new String(value);
+    }
+    
+    @Test
+    public void testSameValueIsLoadedOnce() throws IOException {
+        String first = QueryOptionsCache.get("option", false, "value", () -> load("value"));
+        String second = QueryOptionsCache.get("option", false, new String("value"), () -> load("value"));
+        Assert.assertSame(first, second);
+        Assert.assertEquals(1, loads.get());
+    }
+    
+    @Test
+    public void testKeyedByOptionAndCompression() throws IOException {
+        QueryOptionsCache.get("option", false, "value", () -> load("value"));
+        QueryOptionsCache.get("option", true, "value", () -> load("value"));
+        QueryOptionsCache.get("other", false, "value", () -> load("value"));
+        QueryOptionsCache.get("option", false, "other value", () -> load("other value"));
+        Assert.assertEquals(4, loads.get());
+    }
+    
+    @Test
+    public void testNullValueIsNotCached() throws IOException {
+        Assert.assertEquals("empty", QueryOptionsCache.get("option", false, null, () -> load("empty")));
+        Assert.assertEquals("empty", QueryOptionsCache.get("option", false, null, () -> load("empty")));
+        Assert.assertEquals(2, loads.get());
+    }
+    
+    @Test(expected = IOException.class)
+    public void testIOExceptionIsPropagated() throws IOException {
+        QueryOptionsCache.get("option", false, "value", () -> {
+            throw new IOException("bad value");
+        });
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void testRuntimeExceptionIsPropagated() throws IOException {
+        QueryOptionsCache.get("option", false, "value", () -> {
+            throw new IllegalArgumentException("bad value");
+        });
+    }
+    
+    @Test
+    public void testFailuresAreNotCached() throws IOException {
+        try {
+            QueryOptionsCache.get("option", false, "value", () -> {
+                throw new IOException("bad value");
+            });
+            Assert.fail("expected an IOException");
+        } catch (IOException e) {
+            // expected
+        }
+        Assert.assertEquals("value", QueryOptionsCache.get("option", false, "value", () -> load("value")));
+    }
+}
@@ -0,0 +1,83 @@
+package datawave.query.jexl;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CompiledRegexTest {
+    
+    private static final List<String> REGEXES = Arrays.asList("abc", "ABC", "a\\.b", "ab.*", ".*bc", ".*b.*", "a.c", "a*", "(ab)+", "(ab)*c", "a|b|", "(a|bc)*d?",
+                    "[a-c]+", "[^a-c]*", "[A-C0-9_]{2,3}", "[-a]+", "[a-]+", "x{2}", "x{1,}", "x{0,2}y", "\\d+\\.\\d{1,2}", "\\w+@\\w+\\.com", "\\s*\\S+\\s*",
+                    "[\\d\\s]+", "[^\\W]+", "^abc$", "^a.*", ".*z$", "(?:ab|cd)+", "a+?b", "(a*)*", "a\\tb", "\\|", "café.*", "Été", "[à-ÿ]+",
+                    ".", "..", "(?i)abc", "(?-i)abc", "(?-i)a.c", "a++b", "\\bab", "\\p{Alpha}+", "(a)\\1", "\\Qa.b\\E", "[a-z&&[^c]]+", "");
+    
+    private static final List<String> VALUES = Arrays.asList("", "a", "ab", "abc", "ABC", "aBc", "a.b", "axb", "abab", "ababc", "abcabc", "bc", "d", "cd", "bcbcd",
+                    "xx", "xxx", "xy", "y", "A_1", "a-a", "-", "12.5", "12.345", "foo@bar.com", "FOO@BAR.COM", " abc ", "1 2", "a\tb", "a\nb", "abc\n", "\nabc", "|",
+                    "café", "CAFÉ", "cafés", "Été", "été", "àÿ", "aab", "aaab", "aa", "😀", "😀x");
+    
+    @Test
+    public void testAgainstPattern() {
+        for (String regex : REGEXES) {
+            Pattern pattern = Pattern.compile(regex, Pattern.CASE_INSENSITIVE | Pattern.MULTILINE);
+            CompiledRegex compiled = CompiledRegex.get(regex);
+            for (String value : VALUES) {
+                Assert.assertEquals("regex " + regex + " value " + value, pattern.matcher(value).matches(), compiled.matches(value));
+            }
+        }
+    }
+    
+    @Test
+    public void testAutomatonAgainstPattern() {
+        Random random = new Random(42);
+        String alphabet = "abcABC.-_ 1\t\né";
+        for (String regex : REGEXES) {
+            for (boolean caseInsensitive : new boolean[] {true, false}) {
+                RegexAutomaton automaton = RegexAutomaton.compile(regex, caseInsensitive);
+                if (automaton == null) {
+                    continue;
+                }
+                Pattern pattern = Pattern.compile(regex, caseInsensitive ? Pattern.CASE_INSENSITIVE : 0);
+                for (int i = 0; i < 500; i++) {
+                    StringBuilder value = new StringBuilder();
+                    int length = random.nextInt(8);
+                    for (int j = 0; j < length; j++) {
+                        value.append(alphabet.charAt(random.nextInt(alphabet.length())));
+                    }
+                    Assert.assertEquals("regex " + regex + " value " + value, pattern.matcher(value).matches(), automaton.matches(value));
+                }
+            }
+        }
+    }
+    
+    @Test
+    public void testUnsupportedConstructs() {
+        for (String regex : Arrays.asList("(?i)abc", "a++b", "\\bab", "\\p{Alpha}+", "(a)\\1", "\\Qa.b\\E", "[a-z&&[^c]]+", "a^b", "(a$)b")) {
+            Assert.assertNull(regex, RegexAutomaton.compile(regex, true));
+        }
+        Assert.assertNotNull(RegexAutomaton.compile("^(a|b)*[c-e]{1,3}\\d?$", true));
+    }
+    
+    @Test
+    public void testCaseSensitivity() {
+        Assert.assertFalse(CompiledRegex.get("abc.*").isCaseSensitive());
+        Assert.assertTrue(CompiledRegex.get("(?-i)abc.*").isCaseSensitive());
+        Assert.assertFalse(CompiledRegex.get("(?-i)abc.*").matches("ABCD"));
+        Assert.assertTrue(CompiledRegex.get("abc.*").matches("ABCD"));
+    }
+    
+    @Test
+    public void testLinearTime() {
+        StringBuilder value = new StringBuilder();
+        for (int i = 0; i < 5000; i++) {
+            value.append('a');
+        }
+        value.append('b');
+        // catastrophic backtracking for java.util.regex
+        Assert.assertFalse(CompiledRegex.get("(a*)*c").matches(value.toString()));
+        Assert.assertTrue(CompiledRegex.get("(a|aa)*b").matches(value.toString()));
+    }
+}
@@ -0,0 +1,169 @@
+package datawave.query.jexl.lookups;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import datawave.accumulo.inmemory.InMemoryInstance;
+import datawave.query.config.ShardQueryConfiguration;
+import datawave.query.tables.ScannerFactory;
+import datawave.util.time.DateHelper;
+
+import org.apache.accumulo.core.client.BatchWriter;
+import org.apache.accumulo.core.client.BatchWriterConfig;
+import org.apache.accumulo.core.client.Connector;
+import org.apache.accumulo.core.client.Scanner;
+import org.apache.accumulo.core.client.security.tokens.PasswordToken;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Mutation;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.security.Authorizations;
+import org.apache.accumulo.core.security.ColumnVisibility;
+import org.apache.commons.lang.time.DateUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.Sets;
+
+/**
+ * Builds term dictionaries from an in memory index, and checks which of them queries may use.
+ */
+public class TermDictionaryJobTest {
+    
+    private static final String INDEX = "shardIndex";
+    private static final String DICTIONARIES = "termDictionary";
+    private static final String FIELD = "FRUIT";
+    
+    private static final AtomicInteger instances = new AtomicInteger(0);
+    
+    private Connector connector;
+    
+    @Before
+    public void setup() throws Exception {
+        connector = new InMemoryInstance(TermDictionaryJobTest.class.getName() + instances.incrementAndGet()).getConnector("root", new PasswordToken(""));
+        connector.tableOperations().create(INDEX);
+        connector.tableOperations().create(DICTIONARIES);
+        
+        BatchWriter writer = connector.createBatchWriter(INDEX, new BatchWriterConfig());
+        addIndexEntry(writer, "apple", "20190101_1", "csv");
+        addIndexEntry(writer, "banana", "20190101_2", "json");
+        addIndexEntry(writer, "cherry", "20190101_1", "csv");
+        addIndexEntry(writer, "cherry", "20190101_3", "json");
+        addIndexEntry(writer, "date", "20190102_1", "csv");
+        writer.close();
+        
+        TermDictionaries.clear();
+    }
+    
+    @After
+    public void cleanup() {
+        TermDictionaries.clear();
+    }
+    
+    private static void addIndexEntry(BatchWriter writer, String term, String shard, String datatype) throws Exception {
+        Mutation m = new Mutation(term);
+        m.put(FIELD, shard + '\0' + datatype, new ColumnVisibility(), new Value(new byte[0]));
+        writer.addMutation(m);
+    }
+    
+    private ShardQueryConfiguration getConfig(String beginDay, String endDay) {
+        ShardQueryConfiguration config = new ShardQueryConfiguration();
+        config.setTermDictionaryTableName(DICTIONARIES);
+        config.setBeginDate(DateHelper.parse(beginDay));
+        config.setEndDate(DateHelper.parse(endDay));
+        config.setAuthorizations(Collections.singleton(new Authorizations()));
+        return config;
+    }
+    
+    private static List<String> getTerms(TermDictionary dictionary, String... datatypes) {
+        List<String> terms = new ArrayList<>();
+        dictionary.forEachMatch("", null, (datatypes.length == 0 ? null : Sets.newHashSet(datatypes)), terms::add);
+        return terms;
+    }
+    
+    @Test
+    public void testBuildRecordsDatatypesAndWatermark() throws Exception {
+        long start = System.currentTimeMillis();
+        TermDictionaryJob job = new TermDictionaryJob(connector, Collections.singleton(new Authorizations()), INDEX, DICTIONARIES);
+        Assert.assertEquals(1, job.build("20190101", Collections.emptySet()));
+        
+        Scanner scanner = connector.createScanner(DICTIONARIES, new Authorizations());
+        List<Entry<Key,Value>> entries = new ArrayList<>();
+        for (Entry<Key,Value> entry : scanner) {
+            entries.add(entry);
+        }
+        Assert.assertEquals(1, entries.size());
+        Key key = entries.get(0).getKey();
+        Assert.assertEquals("20190101", key.getRow().toString());
+        Assert.assertEquals(FIELD, key.getColumnFamily().toString());
+        Assert.assertEquals(INDEX, key.getColumnQualifier().toString());
+        Assert.assertTrue(key.getTimestamp() >= start);
+        
+        TermDictionary dictionary = TermDictionary.fromBytes(entries.get(0).getValue().get());
+        Assert.assertEquals(Sets.newHashSet("csv", "json"), new HashSet<>(dictionary.getDatatypes()));
+        Assert.assertEquals(3, dictionary.size());
+        Assert.assertEquals(Arrays.asList("apple", "banana", "cherry"), getTerms(dictionary));
+        Assert.assertEquals(Arrays.asList("apple", "cherry"), getTerms(dictionary, "csv"));
+        Assert.assertEquals(Arrays.asList("banana", "cherry"), getTerms(dictionary, "json"));
+        Assert.assertEquals(Collections.emptyList(), getTerms(dictionary, "xml"));
+    }
+    
+    @Test
+    public void testFinalDictionariesUsed() throws Exception {
+        TermDictionaryJob job = new TermDictionaryJob(connector, Collections.singleton(new Authorizations()), INDEX, DICTIONARIES);
+        job.build("20190101", Collections.emptySet());
+        job.build("20190102", Collections.emptySet());
+        
+        List<TermDictionary> dictionaries = TermDictionaries.get(getConfig("20190101", "20190102"), new ScannerFactory(connector), INDEX, FIELD);
+        Assert.assertNotNull(dictionaries);
+        Assert.assertEquals(2, dictionaries.size());
+        Assert.assertEquals(Collections.singletonList("date"), getTerms(dictionaries.get(1)));
+    }
+    
+    @Test
+    public void testDictionaryBuiltDuringItsDayNotUsed() throws Exception {
+        TermDictionaryJob job = new TermDictionaryJob(connector, Collections.singleton(new Authorizations()), INDEX, DICTIONARIES);
+        job.build("20190101", Collections.emptySet());
+        
+        // a dictionary built while its day was still being ingested may be missing terms
+        BatchWriter writer = connector.createBatchWriter(DICTIONARIES, new BatchWriterConfig());
+        Mutation m = new Mutation("20190102");
+        long watermark = DateHelper.parse("20190102").getTime() + DateUtils.MILLIS_PER_HOUR;
+        m.put(FIELD, INDEX, new ColumnVisibility(), watermark, new Value(TermDictionary.builder().add("date", "csv").build().toBytes()));
+        writer.addMutation(m);
+        writer.close();
+        
+        Assert.assertNull(TermDictionaries.get(getConfig("20190101", "20190102"), new ScannerFactory(connector), INDEX, FIELD));
+        Assert.assertNotNull(TermDictionaries.get(getConfig("20190101", "20190101"), new ScannerFactory(connector), INDEX, FIELD));
+    }
+    
+    @Test
+    public void testMissingOrUnreadableDictionaryNotUsed() throws Exception {
+        Assert.assertNull(TermDictionaries.get(getConfig("20190101", "20190101"), new ScannerFactory(connector), INDEX, FIELD));
+        
+        TermDictionaries.clear();
+        BatchWriter writer = connector.createBatchWriter(DICTIONARIES, new BatchWriterConfig());
+        Mutation m = new Mutation("20190101");
+        m.put(FIELD, INDEX, new ColumnVisibility(), System.currentTimeMillis(), new Value(new byte[] {99}));
+        writer.addMutation(m);
+        writer.close();
+        Assert.assertNull(TermDictionaries.get(getConfig("20190101", "20190101"), new ScannerFactory(connector), INDEX, FIELD));
+    }
+    
+    @Test
+    public void testIsFinal() {
+        long dayStart = DateHelper.parse("20190101").getTime();
+        Assert.assertFalse(TermDictionaries.isFinal("20190101", dayStart));
+        Assert.assertFalse(TermDictionaries.isFinal("20190101", dayStart + DateUtils.MILLIS_PER_DAY - 1));
+        Assert.assertTrue(TermDictionaries.isFinal("20190101", dayStart + DateUtils.MILLIS_PER_DAY));
+        // the current day is never final
+        String today = DateHelper.format(System.currentTimeMillis());
+        Assert.assertFalse(TermDictionaries.isFinal(today, System.currentTimeMillis()));
+    }
+}
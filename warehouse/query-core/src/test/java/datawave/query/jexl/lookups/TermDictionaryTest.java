@@ -0,0 +1,203 @@
+package datawave.query.jexl.lookups;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Pattern;
+
+import datawave.query.jexl.RegexAutomaton;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TermDictionaryTest {
+    
+    private static final List<String> REGEXES = Arrays.asList("ab.*", ".*bc", ".*b.*", "a.c", "[a-c]+", "b[^a]*", "(ab|ca)+", "a?b?c?", "c.*a.*", "\\d+",
+                    "1[0-9]", "é.*", ".*😀.*", "x", "");
+    
+    private static TreeSet<String> randomTerms(Random random, int count) {
+        String alphabet = "abc19é😀";
+        TreeSet<String> terms = new TreeSet<>(TermDictionary::compare);
+        while (terms.size() < count) {
+            StringBuilder term = new StringBuilder();
+            int length = random.nextInt(7);
+            for (int i = 0; i < length; i++) {
+                term.appendCodePoint(alphabet.codePointAt(alphabet.offsetByCodePoints(0, random.nextInt(alphabet.codePointCount(0, alphabet.length())))));
+            }
+            terms.add(term.toString());
+        }
+        return terms;
+    }
+    
+    private static TermDictionary build(Iterable<String> terms, int blockSize) {
+        TermDictionary.Builder builder = TermDictionary.builder(blockSize);
+        for (String term : terms) {
+            builder.add(term);
+        }
+        return TermDictionary.fromBytes(builder.build().toBytes());
+    }
+    
+    @Test
+    public void testMatchesAgainstPattern() {
+        Random random = new Random(7);
+        TreeSet<String> terms = randomTerms(random, 2000);
+        for (int blockSize : new int[] {1, 3, 32}) {
+            TermDictionary dictionary = build(terms, blockSize);
+            Assert.assertEquals(terms.size(), dictionary.size());
+            for (String regex : REGEXES) {
+                Pattern pattern = Pattern.compile(regex);
+                RegexAutomaton automaton = RegexAutomaton.compile(regex, false);
+                for (String prefix : Arrays.asList("", "a", "ab", "é", "😀", "zz")) {
+                    List<String> expected = new ArrayList<>();
+                    for (String term : terms) {
+                        if (term.startsWith(prefix) && pattern.matcher(term).matches()) {
+                            expected.add(term);
+                        }
+                    }
+                    List<String> found = new ArrayList<>();
+                    Assert.assertTrue(dictionary.forEachMatch(prefix, automaton, found::add));
+                    Assert.assertEquals("regex " + regex + " prefix " + prefix + " block size " + blockSize, expected, found);
+                }
+            }
+        }
+    }
+    
+    @Test
+    public void testPrefixOnly() {
+        TermDictionary dictionary = build(Arrays.asList("a", "ab", "abc", "b", "ba"), 2);
+        List<String> found = new ArrayList<>();
+        dictionary.forEachMatch("ab", null, found::add);
+        Assert.assertEquals(Arrays.asList("ab", "abc"), found);
+    }
+    
+    @Test
+    public void testRange() {
+        Random random = new Random(11);
+        TreeSet<String> terms = randomTerms(random, 500);
+        TermDictionary dictionary = build(terms, 4);
+        List<String> all = new ArrayList<>(terms);
+        for (int i = 0; i < 200; i++) {
+            String lower = (random.nextInt(10) == 0 ? null : all.get(random.nextInt(all.size())) + (random.nextBoolean() ? "" : "b"));
+            String upper = (random.nextInt(10) == 0 ? null : all.get(random.nextInt(all.size())));
+            boolean lowerInclusive = random.nextBoolean();
+            boolean upperInclusive = random.nextBoolean();
+            List<String> expected = new ArrayList<>();
+            for (String term : terms) {
+                if (lower != null) {
+                    int c = TermDictionary.compare(term, lower);
+                    if (c < 0 || (c == 0 && !lowerInclusive)) {
+                        continue;
+                    }
+                }
+                if (upper != null) {
+                    int c = TermDictionary.compare(term, upper);
+                    if (c > 0 || (c == 0 && !upperInclusive)) {
+                        continue;
+                    }
+                }
+                expected.add(term);
+            }
+            List<String> found = new ArrayList<>();
+            dictionary.forEachInRange(lower, lowerInclusive, upper, upperInclusive, found::add);
+            Assert.assertEquals(expected, found);
+        }
+    }
+    
+    @Test
+    public void testVisitorStops() {
+        TermDictionary dictionary = build(Arrays.asList("aa", "ab", "ac"), 32);
+        List<String> found = new ArrayList<>();
+        Assert.assertFalse(dictionary.forEachMatch("a", RegexAutomaton.compile("a.", false), term -> found.add(term) && found.size() < 2));
+        Assert.assertEquals(Arrays.asList("aa", "ab"), found);
+    }
+    
+    @Test
+    public void testEmptyDictionary() {
+        TermDictionary dictionary = build(new ArrayList<>(), 32);
+        Assert.assertEquals(0, dictionary.size());
+        Assert.assertTrue(dictionary.forEachMatch("", null, term -> {
+            Assert.fail("unexpected term " + term);
+            return true;
+        }));
+        Assert.assertTrue(dictionary.forEachInRange(null, true, null, true, term -> {
+            Assert.fail("unexpected term " + term);
+            return true;
+        }));
+    }
+    
+    @Test
+    public void testDuplicatesIgnored() {
+        TermDictionary.Builder builder = TermDictionary.builder();
+        builder.add("a").add("a").add("b");
+        Assert.assertEquals(2, builder.build().size());
+    }
+    
+    @Test
+    public void testDatatypeFilter() {
+        Random random = new Random(13);
+        TreeSet<String> terms = randomTerms(random, 1000);
+        List<String> datatypes = Arrays.asList("csv", "json", "wiki");
+        Map<String,Set<String>> termDatatypes = new HashMap<>();
+        TermDictionary.Builder builder = TermDictionary.builder(8);
+        for (String term : terms) {
+            // a term is indexed once per shard and datatype, so the same datatype is often added more than once
+            Set<String> added = new HashSet<>();
+            for (int i = random.nextInt(4) + 1; i > 0; i--) {
+                String datatype = datatypes.get(random.nextInt(datatypes.size()));
+                builder.add(term, datatype);
+                added.add(datatype);
+            }
+            termDatatypes.put(term, added);
+        }
+        TermDictionary dictionary = TermDictionary.fromBytes(builder.build().toBytes());
+        Assert.assertEquals(terms.size(), dictionary.size());
+        Assert.assertEquals(new HashSet<>(datatypes), new HashSet<>(dictionary.getDatatypes()));
+        
+        List<Set<String>> filters = Arrays.asList(null, Collections.emptySet(), Collections.singleton("csv"), new HashSet<>(Arrays.asList("json", "wiki")),
+                        Collections.singleton("other"));
+        for (Set<String> filter : filters) {
+            for (String regex : REGEXES) {
+                Pattern pattern = Pattern.compile(regex);
+                List<String> expected = new ArrayList<>();
+                List<String> expectedInRange = new ArrayList<>();
+                for (String term : terms) {
+                    if (filter == null || filter.isEmpty() || !Collections.disjoint(filter, termDatatypes.get(term))) {
+                        if (pattern.matcher(term).matches()) {
+                            expected.add(term);
+                        }
+                        if (TermDictionary.compare(term, "b") >= 0 && TermDictionary.compare(term, "c") < 0) {
+                            expectedInRange.add(term);
+                        }
+                    }
+                }
+                List<String> found = new ArrayList<>();
+                Assert.assertTrue(dictionary.forEachMatch("", RegexAutomaton.compile(regex, false), filter, found::add));
+                Assert.assertEquals("regex " + regex + " filter " + filter, expected, found);
+                
+                found.clear();
+                Assert.assertTrue(dictionary.forEachInRange("b", true, "c", false, filter, found::add));
+                Assert.assertEquals("filter " + filter, expectedInRange, found);
+            }
+        }
+    }
+    
+    @Test
+    public void testTermsWithoutDatatypesPassFilters() {
+        TermDictionary dictionary = TermDictionary.builder().add("a").add("b", "csv").add("c", "json").build();
+        List<String> found = new ArrayList<>();
+        dictionary.forEachMatch("", null, Collections.singleton("csv"), found::add);
+        Assert.assertEquals(Arrays.asList("a", "b"), found);
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void testOutOfOrder() {
+        TermDictionary.builder().add("b").add("a");
+    }
+}
@@ -0,0 +1,282 @@
+package datawave.query.metrics;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import datawave.accumulo.inmemory.InMemoryInstance;
+import datawave.webservice.query.dashboard.DashboardSummary;
+import datawave.webservice.query.metric.BaseQueryMetric.PageMetric;
+import datawave.webservice.query.metric.QueryMetric;
+import datawave.webservice.query.metric.QueryMetricsSummaryResponse;
+
+import org.apache.accumulo.core.client.BatchWriter;
+import org.apache.accumulo.core.client.BatchWriterConfig;
+import org.apache.accumulo.core.client.Connector;
+import org.apache.accumulo.core.client.security.tokens.PasswordToken;
+import org.apache.accumulo.core.data.Mutation;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.IteratorUtil.IteratorScope;
+import org.apache.accumulo.core.iterators.LongCombiner;
+import org.apache.accumulo.core.security.Authorizations;
+import org.apache.accumulo.core.security.ColumnVisibility;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Writes the summaries of queries to an in memory table, where the combiners of the table aggregate the buckets, and reads them back at the times of a clock
+ * the test moves.
+ */
+public class QueryMetricSummaryStoreTest {
+    
+    private static final String TABLE = "QueryMetrics_s";
+    
+    private static final String LOGIC = "EventQuery";
+    
+    private static final Collection<Authorizations> AUTHS = Collections.singleton(new Authorizations());
+    
+    private static final ColumnVisibility VISIBILITY = new ColumnVisibility();
+    
+    private static final Instant NOW = Instant.parse("2019-01-02T00:30:00Z");
+    
+    private static final AtomicInteger instances = new AtomicInteger(0);
+    
+    private TestClock clock;
+    
+    private QueryMetricSummaryStore store;
+    
+    private Connector connector;
+    
+    @Before
+    public void setup() throws Exception {
+        clock = new TestClock(NOW);
+        store = new QueryMetricSummaryStore(TABLE, clock);
+        connector = new InMemoryInstance(QueryMetricSummaryStoreTest.class.getName() + instances.incrementAndGet()).getConnector("root",
+                        new PasswordToken(""));
+        store.createTableIfNecessary(connector.tableOperations());
+    }
+    
+    private static Date minutesAgo(double minutes) {
+        return Date.from(NOW.minusSeconds((long) (minutes * 60)));
+    }
+    
+    /**
+     * @return a metric created at the date, which took half a second to create, with the pages of results and page times given
+     */
+    private static QueryMetric getMetric(Date created, String error, long[]... pages) {
+        QueryMetric metric = new QueryMetric();
+        metric.setQueryId("query");
+        metric.setCreateDate(created);
+        metric.setCreateCallTime(500);
+        metric.setErrorMessage(error);
+        for (long[] page : pages) {
+            metric.addPageTime(page[0], page[1], 0, 0);
+        }
+        return metric;
+    }
+    
+    private void write(List<Mutation> mutations) throws Exception {
+        BatchWriter writer = connector.createBatchWriter(TABLE, new BatchWriterConfig());
+        writer.addMutations(mutations);
+        writer.close();
+    }
+    
+    /**
+     * Writes the query as the handler does when it first stores its metric
+     */
+    private QueryMetric writeQuery(String user, QueryMetric metric) throws Exception {
+        write(store.getMutations(user, LOGIC, metric.getCreateDate(), true, metric.getPageTimes(), null, metric, VISIBILITY));
+        return metric;
+    }
+    
+    /**
+     * Writes an update of the query as the handler does, with the pages the stored metric does not have
+     */
+    private QueryMetric writeUpdate(String user, QueryMetric stored, QueryMetric updated) throws Exception {
+        List<PageMetric> newPages = new ArrayList<>(updated.getPageTimes().subList(stored.getPageTimes().size(), updated.getPageTimes().size()));
+        write(store.getMutations(user, LOGIC, updated.getCreateDate(), false, newPages, stored, updated, VISIBILITY));
+        return updated;
+    }
+    
+    private QueryMetricsSummaryResponse getSummaries(String user) throws Exception {
+        return store.getSummaries(new QueryMetricsSummaryResponse(), connector, AUTHS, null, null, user);
+    }
+    
+    @Test
+    public void testBucketRollover() throws Exception {
+        // either side of the day the window of the last hour spans, and six hours and three days back
+        writeQuery("alice", getMetric(minutesAgo(20), null));
+        writeQuery("alice", getMetric(minutesAgo(30.5), null));
+        writeQuery("alice", getMetric(minutesAgo(105), null));
+        writeQuery("alice", getMetric(minutesAgo(3 * 24 * 60 - 30), null));
+        
+        // each query is written to its minute, hour and day, and is read from only one of them
+        QueryMetricsSummaryResponse response = getSummaries(null);
+        Assert.assertEquals(2, response.getHour1().getQueryCount());
+        Assert.assertEquals(3, response.getHour6().getQueryCount());
+        Assert.assertEquals(3, response.getDay1().getQueryCount());
+        Assert.assertEquals(4, response.getDay7().getQueryCount());
+        Assert.assertEquals(4, response.getAll().getQueryCount());
+        
+        // a period ending in the previous day takes the query of its last minute and not those of the new day
+        response = store.getSummaries(new QueryMetricsSummaryResponse(), connector, AUTHS, null, minutesAgo(30.5), null);
+        Assert.assertEquals(1, response.getHour1().getQueryCount());
+        Assert.assertEquals(2, response.getDay1().getQueryCount());
+    }
+    
+    @Test
+    public void testRollingWindowEviction() throws Exception {
+        writeQuery("alice", getMetric(minutesAgo(20), null));
+        writeQuery("alice", getMetric(minutesAgo(30.5), null));
+        writeQuery("alice", getMetric(minutesAgo(105), null));
+        Assert.assertEquals(2, getSummaries(null).getHour1().getQueryCount());
+        
+        // both of the last hour's queries age out of it, and stay in the last six hours and day
+        clock.advance(45);
+        QueryMetricsSummaryResponse response = getSummaries(null);
+        Assert.assertEquals(0, response.getHour1().getQueryCount());
+        Assert.assertEquals(3, response.getHour6().getQueryCount());
+        Assert.assertEquals(3, response.getDay1().getQueryCount());
+        
+        // the oldest query leaves the last day first
+        clock.advance(23 * 60 - 30);
+        response = getSummaries(null);
+        Assert.assertEquals(0, response.getHour6().getQueryCount());
+        Assert.assertEquals(2, response.getDay1().getQueryCount());
+        Assert.assertEquals(3, response.getDay7().getQueryCount());
+        
+        clock.advance(60);
+        Assert.assertEquals(0, getSummaries(null).getDay1().getQueryCount());
+        Assert.assertEquals(3, getSummaries(null).getAll().getQueryCount());
+    }
+    
+    @Test
+    public void testAggregation() throws Exception {
+        QueryMetric stored = writeQuery("alice", getMetric(minutesAgo(20), null, new long[] {10, 100}));
+        writeUpdate("alice", stored, getMetric(minutesAgo(20), null, new long[] {10, 100}, new long[] {20, 300}, new long[] {5, 200}));
+        writeQuery("bob", getMetric(minutesAgo(21), null, new long[] {15, 50}));
+        writeQuery("bob", getMetric(minutesAgo(22), null));
+        
+        // the totals are summed over every query and page, and the maxima taken over them
+        QueryMetricsSummaryResponse response = getSummaries(null);
+        Assert.assertEquals(3, response.getHour1().getQueryCount());
+        Assert.assertEquals(4, response.getHour1().getTotalPages());
+        Assert.assertEquals(50, response.getHour1().getTotalPageResultSize());
+        Assert.assertEquals(650, response.getHour1().getTotalPageResponseTime());
+        Assert.assertEquals(20, response.getHour1().getMaxPageResultSize());
+        Assert.assertEquals(300, response.getHour1().getMaxPageResponseTime());
+        
+        // the buckets of a larger period add up to the same
+        Assert.assertEquals(50, response.getDay1().getTotalPageResultSize());
+        Assert.assertEquals(300, response.getDay1().getMaxPageResponseTime());
+        
+        // and only the user's columns are read for a user
+        response = getSummaries("bob");
+        Assert.assertEquals(2, response.getHour1().getQueryCount());
+        Assert.assertEquals(1, response.getHour1().getTotalPages());
+        Assert.assertEquals(15, response.getHour1().getTotalPageResultSize());
+        Assert.assertEquals(50, response.getHour1().getMaxPageResponseTime());
+    }
+    
+    @Test
+    public void testDashboardCounts() throws Exception {
+        // half a second to create and no results yet
+        QueryMetric stored = writeQuery("alice", getMetric(minutesAgo(20), null));
+        DashboardSummary summary = store.getDashboardSummary(connector, AUTHS, minutesAgo(60), null);
+        Assert.assertEquals(Date.from(NOW), summary.getDateTime());
+        Assert.assertEquals(1, summary.getQueryCount());
+        Assert.assertEquals(1, summary.getUpTo3Sec());
+        Assert.assertEquals(1, summary.getZeroResults());
+        Assert.assertEquals(1, summary.getOneTerm());
+        
+        // the first page makes it slower and gives it results, which moves it out of the counts it was in
+        stored = writeUpdate("alice", stored, getMetric(minutesAgo(20), null, new long[] {20, 4000}));
+        summary = store.getDashboardSummary(connector, AUTHS, minutesAgo(60), null);
+        Assert.assertEquals(1, summary.getQueryCount());
+        Assert.assertEquals(0, summary.getUpTo3Sec());
+        Assert.assertEquals(1, summary.getUpTo10Sec());
+        Assert.assertEquals(0, summary.getZeroResults());
+        Assert.assertEquals(1, summary.getUpTo10KResults());
+        Assert.assertEquals(20, summary.getResultCount());
+        
+        // a later page does not change its latency, and an error takes it out of the latency and result counts
+        writeUpdate("alice", stored, getMetric(minutesAgo(20), "failed", new long[] {20, 4000}, new long[] {30, 100}));
+        writeQuery("bob", getMetric(minutesAgo(90), null));
+        summary = store.getDashboardSummary(connector, AUTHS, minutesAgo(60), null);
+        Assert.assertEquals(1, summary.getQueryCount());
+        Assert.assertEquals(1, summary.getErrorCount());
+        Assert.assertEquals(0, summary.getUpTo10Sec());
+        Assert.assertEquals(0, summary.getUpTo10KResults());
+        Assert.assertEquals(50, summary.getResultCount());
+        
+        summary = store.getDashboardSummary(connector, AUTHS, minutesAgo(120), minutesAgo(30));
+        Assert.assertEquals(minutesAgo(30), summary.getDateTime());
+        Assert.assertEquals(1, summary.getQueryCount());
+        Assert.assertEquals(1, summary.getUpTo3Sec());
+        Assert.assertEquals(0, summary.getErrorCount());
+    }
+    
+    @Test
+    public void testUnknownDashboardCount() throws Exception {
+        writeQuery("alice", getMetric(minutesAgo(20), null));
+        Mutation m = new Mutation("m201901020010");
+        m.put(QueryMetricSummaryStore.DASHBOARD, "retired\0alice\0" + LOGIC, VISIBILITY, new Value(LongCombiner.VAR_LEN_ENCODER.encode(1L)));
+        write(Collections.singletonList(m));
+        
+        DashboardSummary summary = store.getDashboardSummary(connector, AUTHS, minutesAgo(60), null);
+        Assert.assertEquals(1, summary.getQueryCount());
+    }
+    
+    @Test
+    public void testDashboardCombinerAdded() throws Exception {
+        connector.tableOperations().removeIterator(TABLE, "dashboard", EnumSet.allOf(IteratorScope.class));
+        Map<String,?> iterators = connector.tableOperations().listIterators(TABLE);
+        Assert.assertFalse(iterators.containsKey("dashboard"));
+        Assert.assertTrue(iterators.containsKey("totals"));
+        
+        // a table created before the dashboard counts were kept gets their combiner
+        store.createTableIfNecessary(connector.tableOperations());
+        Assert.assertTrue(connector.tableOperations().listIterators(TABLE).containsKey("dashboard"));
+    }
+    
+    /**
+     * A clock which stands still until the test moves it on
+     */
+    private static class TestClock extends Clock {
+        private Instant instant;
+        
+        TestClock(Instant instant) {
+            this.instant = instant;
+        }
+        
+        void advance(long minutes) {
+            instant = instant.plusMillis(TimeUnit.MINUTES.toMillis(minutes));
+        }
+        
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+        
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+        
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
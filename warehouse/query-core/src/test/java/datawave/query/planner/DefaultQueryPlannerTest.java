@@ -0,0 +1,55 @@
+package datawave.query.planner;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+import datawave.query.config.ShardQueryConfiguration;
+import datawave.query.iterator.QueryIterator;
+import datawave.query.iterator.QueryOptions;
+
+import org.apache.accumulo.core.client.IteratorSetting;
+import org.junit.Test;
+
+public class DefaultQueryPlannerTest {
+    
+    private QueryOptions getIteratorOptions(ShardQueryConfiguration config) throws Exception {
+        config.setBeginDate(new Date(0));
+        config.setEndDate(new Date());
+        IteratorSetting cfg = new IteratorSetting(100, "query", QueryIterator.class);
+        new DefaultQueryPlanner().setCommonIteratorOptions(config, cfg);
+        
+        Map<String,String> options = new HashMap<>(cfg.getOptions());
+        // nothing is evaluated, so the query and index only fields are not needed
+        options.put(QueryOptions.DISABLE_EVALUATION, "true");
+        options.put(QueryOptions.FULL_TABLE_SCAN_ONLY, "true");
+        
+        QueryOptions queryOptions = new QueryOptions();
+        assertTrue(queryOptions.validateOptions(options));
+        return queryOptions;
+    }
+    
+    @Test
+    public void testDictionaryCompressionPassedToIterators() throws Exception {
+        ShardQueryConfiguration config = new ShardQueryConfiguration();
+        config.setCompressServerSideResults(true);
+        config.setDictionaryCompressServerSideResults(true);
+        
+        QueryOptions options = getIteratorOptions(config);
+        assertTrue(options.isCompressResults());
+        assertTrue(options.isDictionaryCompressResults());
+        
+        QueryOptions copy = new QueryOptions();
+        copy.deepCopy(options);
+        assertTrue(copy.isDictionaryCompressResults());
+    }
+    
+    @Test
+    public void testDictionaryCompressionOffByDefault() throws Exception {
+        QueryOptions options = getIteratorOptions(new ShardQueryConfiguration());
+        assertFalse(options.isDictionaryCompressResults());
+    }
+}
@@ -0,0 +1,50 @@
+package datawave.query.planner;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Arrays;
+
+import datawave.query.jexl.JexlASTHelper;
+import datawave.query.jexl.visitors.JexlStringBuildingVisitor;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class QueryPlanTemplatesTest {
+    
+    @After
+    public void clear() {
+        QueryPlanTemplates.clear();
+    }
+    
+    @Test
+    public void testParameterize() throws Exception {
+        QueryPlanTemplates.Parameterized parameterized = parameterize("FOO == 'bar' && (BAR != 'baz' || BAZ =~ 'qu.*')");
+        assertEquals(Arrays.asList("bar", "baz"), parameterized.getValues());
+        
+        // queries that differ only in their compared values share a signature
+        assertEquals(parameterized.getSignature(), parameterize("FOO == 'one' && (BAR != 'two' || BAZ =~ 'qu.*')").getSignature());
+        
+        // but regexes are part of the signature
+        assertNotEquals(parameterized.getSignature(), parameterize("FOO == 'bar' && (BAR != 'baz' || BAZ =~ 'ba.*')").getSignature());
+        assertNotEquals(parameterized.getSignature(), parameterize("FOO == 'bar' && (BAR == 'baz' || BAZ =~ 'qu.*')").getSignature());
+    }
+    
+    @Test
+    public void testBind() throws Exception {
+        String query = "FOO == 'bar' && BAR != 'baz'";
+        QueryPlanTemplates.Parameterized parameterized = parameterize(query);
+        assertNull(QueryPlanTemplates.get("key", parameterized.getValues()));
+        
+        assertEquals(query, JexlStringBuildingVisitor.buildQuery(QueryPlanTemplates.put("key", parameterized.getTree(), parameterized.getValues())));
+        
+        String other = "FOO == 'one' && BAR != 'two'";
+        assertEquals(other, JexlStringBuildingVisitor.buildQuery(QueryPlanTemplates.get("key", parameterize(other).getValues())));
+    }
+    
+    private static QueryPlanTemplates.Parameterized parameterize(String query) throws Exception {
+        return QueryPlanTemplates.parameterize(JexlASTHelper.parseJexlQuery(query));
+    }
+}
@@ -0,0 +1,148 @@
+package datawave.query.postprocessing.tf;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import datawave.ingest.protobuf.TermWeight;
+import datawave.query.Constants;
+import datawave.query.attributes.Document;
+import datawave.query.jexl.functions.TermFrequencyList;
+import datawave.query.predicate.EventDataQueryFieldFilter;
+import datawave.query.util.Tuple2;
+
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.SortedMapIterator;
+import org.apache.accumulo.core.iterators.system.ColumnFamilySkippingIterator;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.Multimap;
+import com.google.common.collect.Sets;
+
+public class TermOffsetPopulatorTest {
+    
+    private static final String ROW = "20190101_0";
+    
+    private TreeMap<Key,Value> data;
+    private Multimap<String,String> fieldValues;
+    
+    @Before
+    public void setup() {
+        data = new TreeMap<>();
+        addTermFrequency(ROW, "uid1", "BODY", "quick", 1, 5);
+        addTermFrequency(ROW, "uid1", "BODY", "brown", 2);
+        addTermFrequency(ROW, "uid1", "BODY", "other", 3);
+        addTermFrequency(ROW, "uid2", "BODY", "quick", 7);
+        addTermFrequency(ROW, "uid2", "BODY", "brown", 8);
+        addTermFrequency(ROW, "uid3", "BODY", "quick", 10);
+        addTermFrequency(ROW, "uid3", "TITLE", "brown", 11);
+        addTermFrequency("20190102_0", "uid1", "BODY", "quick", 20);
+        
+        fieldValues = HashMultimap.create();
+        fieldValues.put("BODY", "quick");
+        fieldValues.put("BODY", "brown");
+        fieldValues.put("TITLE", "brown");
+    }
+    
+    private void addTermFrequency(String row, String uid, String field, String value, int... offsets) {
+        TermWeight.Info.Builder builder = TermWeight.Info.newBuilder();
+        for (int offset : offsets) {
+            builder.addTermOffset(offset);
+        }
+        Key key = new Key(row, "tf", "datatype\0" + uid + '\0' + value + '\0' + field);
+        data.put(key, new Value(builder.build().toByteArray()));
+    }
+    
+    private TermOffsetPopulator getPopulator() {
+        return new TermOffsetPopulator(fieldValues, Collections.emptySet(), null, new ColumnFamilySkippingIterator(new SortedMapIterator(data)));
+    }
+    
+    private static Key docKey(String row, String uid) {
+        return new Key(row, "datatype\0" + uid);
+    }
+    
+    @Test
+    public void testBatchMatchesSingleDocuments() {
+        Map<Key,Set<Key>> documents = new LinkedHashMap<>();
+        for (Key docKey : new Key[] {docKey(ROW, "uid1"), docKey(ROW, "uid3"), docKey("20190102_0", "uid1")}) {
+            documents.put(docKey, Collections.singleton(docKey));
+        }
+        
+        Map<Key,Tuple2<Document,Map<String,Object>>> batch = getPopulator().getContextMaps(documents);
+        Assert.assertEquals(3, batch.size());
+        
+        for (Key docKey : documents.keySet()) {
+            TermOffsetPopulator populator = getPopulator();
+            Map<String,Object> single = populator.getContextMap(docKey);
+            Tuple2<Document,Map<String,Object>> batched = batch.get(docKey);
+            Assert.assertEquals(single, batched.second());
+            Assert.assertEquals(populator.document().size(), batched.first().size());
+        }
+    }
+    
+    @Test
+    public void testDocumentsBetweenCandidatesAreSkipped() {
+        Map<Key,Set<Key>> documents = new LinkedHashMap<>();
+        documents.put(docKey(ROW, "uid1"), Collections.singleton(docKey(ROW, "uid1")));
+        documents.put(docKey(ROW, "uid3"), Collections.singleton(docKey(ROW, "uid3")));
+        
+        Map<Key,Tuple2<Document,Map<String,Object>>> batch = getPopulator().getContextMaps(documents);
+        
+        Map<String,TermFrequencyList> uid1 = getTermOffsetMap(batch.get(docKey(ROW, "uid1")));
+        Assert.assertEquals(Collections.singleton(ROW + "\0datatype\0uid1"), uid1.get("quick").eventIds());
+        Assert.assertEquals(2, uid1.get("quick").fetchOffsets().size());
+        Assert.assertEquals(Collections.singleton(ROW + "\0datatype\0uid1"), uid1.get("brown").eventIds());
+        Assert.assertNull(uid1.get("other"));
+        
+        Map<String,TermFrequencyList> uid3 = getTermOffsetMap(batch.get(docKey(ROW, "uid3")));
+        Assert.assertEquals(Collections.singleton(ROW + "\0datatype\0uid3"), uid3.get("quick").eventIds());
+        Assert.assertEquals(Collections.singleton("TITLE"), uid3.get("brown").fields());
+    }
+    
+    @Test
+    public void testOverlappingDocumentsStartedOnce() {
+        addTermFrequency(ROW, "uid4", "BODY", "quick", 1);
+        addTermFrequency(ROW, "uid4.1", "BODY", "brown", 2);
+        addTermFrequency(ROW, "uid4.2", "BODY", "quick", 3);
+        
+        // a document made up of a parent and its second child, which overlaps the first child
+        Map<Key,Set<Key>> documents = new LinkedHashMap<>();
+        documents.put(docKey(ROW, "uid4"), Sets.newHashSet(docKey(ROW, "uid4"), docKey(ROW, "uid4.2")));
+        documents.put(docKey(ROW, "uid4.1"), Collections.singleton(docKey(ROW, "uid4.1")));
+        
+        List<Key> started = new ArrayList<>();
+        EventDataQueryFieldFilter filter = new EventDataQueryFieldFilter() {
+            @Override
+            public void startNewDocument(Key document) {
+                started.add(document);
+                super.startNewDocument(document);
+            }
+        };
+        Map<Key,Tuple2<Document,Map<String,Object>>> batch = new TermOffsetPopulator(fieldValues, Collections.emptySet(), filter,
+                        new ColumnFamilySkippingIterator(new SortedMapIterator(data))).getContextMaps(documents);
+        
+        Assert.assertEquals(2, started.size());
+        Assert.assertEquals(documents.keySet(), Sets.newHashSet(started));
+        
+        Map<String,TermFrequencyList> parent = getTermOffsetMap(batch.get(docKey(ROW, "uid4")));
+        Assert.assertEquals(Sets.newHashSet(ROW + "\0datatype\0uid4", ROW + "\0datatype\0uid4.2"), parent.get("quick").eventIds());
+        Assert.assertEquals(Collections.singleton(ROW + "\0datatype\0uid4.1"), parent.get("brown").eventIds());
+        
+        Map<String,TermFrequencyList> child = getTermOffsetMap(batch.get(docKey(ROW, "uid4.1")));
+        Assert.assertEquals(Collections.singleton(ROW + "\0datatype\0uid4.1"), child.get("brown").eventIds());
+        Assert.assertNull(child.get("quick"));
+    }
+    
+    @SuppressWarnings("unchecked")
+    private static Map<String,TermFrequencyList> getTermOffsetMap(Tuple2<Document,Map<String,Object>> context) {
+        return (Map<String,TermFrequencyList>) context.second().get(Constants.TERM_OFFSET_MAP_JEXL_VARIABLE_NAME);
+    }
+}
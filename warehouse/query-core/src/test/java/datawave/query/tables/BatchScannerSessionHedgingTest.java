@@ -0,0 +1,263 @@
+package datawave.query.tables;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import datawave.accumulo.inmemory.InMemoryInstance;
+import datawave.query.tables.async.Scan;
+import datawave.query.tables.async.ScannerChunk;
+
+import org.apache.accumulo.core.client.BatchWriter;
+import org.apache.accumulo.core.client.BatchWriterConfig;
+import org.apache.accumulo.core.client.Connector;
+import org.apache.accumulo.core.client.IteratorSetting;
+import org.apache.accumulo.core.client.TableNotFoundException;
+import org.apache.accumulo.core.client.security.tokens.PasswordToken;
+import org.apache.accumulo.core.data.ByteSequence;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Mutation;
+import org.apache.accumulo.core.data.PartialKey;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.WrappingIterator;
+import org.apache.accumulo.core.security.Authorizations;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Runs hedged sessions against an in memory shard table, where the scan of one chunk is held up until the test releases it or the session interrupts it.
+ */
+public class BatchScannerSessionHedgingTest {
+    
+    private static final String TABLE = "shard";
+    
+    private static final String DOC = "dt\0uid";
+    
+    /**
+     * Enough chunks complete while the straggler is held up for its latency to be compared with theirs
+     */
+    private static final int SHARDS = 13;
+    
+    private static final int COLUMNS = 3;
+    
+    private static final String STRAGGLER = getShard(0);
+    
+    private static final AtomicInteger instances = new AtomicInteger(0);
+    
+    private Connector connector;
+    
+    private ResourceQueue resourceQueue;
+    
+    private List<HedgingSession> sessions = new ArrayList<>();
+    
+    @Before
+    public void setup() throws Exception {
+        StragglingIterator.reset(false);
+        TrackingResource.open.clear();
+        
+        connector = new InMemoryInstance(BatchScannerSessionHedgingTest.class.getName() + instances.incrementAndGet()).getConnector("root",
+                        new PasswordToken(""));
+        connector.tableOperations().create(TABLE);
+        BatchWriter writer = connector.createBatchWriter(TABLE, new BatchWriterConfig());
+        for (int shard = 0; shard < SHARDS; shard++) {
+            Mutation m = new Mutation(getShard(shard));
+            for (int column = 0; column < COLUMNS; column++) {
+                m.put(DOC, "cq" + column, new Value(new byte[0]));
+            }
+            writer.addMutation(m);
+        }
+        writer.close();
+        resourceQueue = new ResourceQueue(10, connector);
+    }
+    
+    @After
+    public void cleanup() throws Exception {
+        StragglingIterator.release.countDown();
+        for (HedgingSession session : sessions) {
+            session.close();
+        }
+        resourceQueue.close();
+    }
+    
+    private static String getShard(int shard) {
+        return "20190101_" + shard;
+    }
+    
+    /**
+     * @return a chunk for each shard, holding the range of its document so that the scans run through the configured resource
+     */
+    private static List<ScannerChunk> getChunks() {
+        List<ScannerChunk> chunks = new ArrayList<>();
+        for (int shard = 0; shard < SHARDS; shard++) {
+            Key doc = new Key(getShard(shard), DOC);
+            SessionOptions options = new SessionOptions();
+            options.addScanIterator(new IteratorSetting(50, "straggle", StragglingIterator.class));
+            chunks.add(new ScannerChunk(options, Collections.singletonList(new Range(doc, true, doc.followingKey(PartialKey.ROW_COLFAM), false))));
+        }
+        return chunks;
+    }
+    
+    private HedgingSession newSession() {
+        HedgingSession session = new HedgingSession(new ScannerSession(TABLE, Collections.singleton(new Authorizations()), resourceQueue, 1000, null));
+        session.setThreads(4);
+        session.setResourceClass(TrackingResource.class);
+        session.setHedgedScanning(true);
+        session.setChunkIter(Collections.singletonList(getChunks()).iterator());
+        sessions.add(session);
+        return session;
+    }
+    
+    private static List<Key> getExpected() {
+        List<Key> expected = new ArrayList<>();
+        for (int shard = 0; shard < SHARDS; shard++) {
+            for (int column = 0; column < COLUMNS; column++) {
+                expected.add(new Key(getShard(shard), DOC, "cq" + column));
+            }
+        }
+        Collections.sort(expected);
+        return expected;
+    }
+    
+    private static void await(String message, Condition condition) throws InterruptedException {
+        long stop = System.currentTimeMillis() + 10000;
+        while (!condition.met() && System.currentTimeMillis() < stop) {
+            Thread.sleep(10);
+        }
+        Assert.assertTrue(message, condition.met());
+    }
+    
+    @Test
+    public void testStragglerHedged() throws Exception {
+        HedgingSession session = newSession();
+        
+        List<Key> keys = new ArrayList<>();
+        while (session.hasNext()) {
+            Key key = session.next().getKey();
+            keys.add(new Key(key.getRow(), key.getColumnFamily(), key.getColumnQualifier()));
+        }
+        Collections.sort(keys);
+        
+        // the hedge returned the straggler's results, and the straggler none of them
+        Assert.assertEquals(getExpected(), keys);
+        Assert.assertEquals(1, session.hedgeCount.get());
+        
+        // the straggler gives up once it is unblocked, and every resource is released
+        StragglingIterator.release.countDown();
+        await("the straggler was not abandoned", () -> session.finished.stream().anyMatch(Scan::abandoned));
+        await("resources were left open", TrackingResource.open::isEmpty);
+        Assert.assertEquals(SHARDS, session.finished.stream().filter(scan -> !scan.abandoned()).count());
+        
+        Assert.assertTrue(session.service.isShutdown());
+        Assert.assertNotNull(session.hedgeService);
+        Assert.assertTrue(session.hedgeService.isShutdown());
+    }
+    
+    @Test
+    public void testCloseWhileHedging() throws Exception {
+        // the hedge is held up as well, so neither scan of the chunk completes
+        StragglingIterator.reset(true);
+        HedgingSession session = newSession();
+        
+        Assert.assertTrue(session.hasNext());
+        await("the straggler was not hedged", () -> StragglingIterator.held.get() == 2);
+        Assert.assertEquals(1, session.hedgeCount.get());
+        
+        session.close();
+        
+        Assert.assertTrue(session.service.isShutdown());
+        Assert.assertTrue(session.hedgeService.isShutdown());
+        await("resources were left open", TrackingResource.open::isEmpty);
+    }
+    
+    private interface Condition {
+        boolean met();
+    }
+    
+    /**
+     * Holds up the seek of the straggler's shard until released, or interrupted. Only the first seek is held up, unless every seek of it is to be.
+     */
+    public static class StragglingIterator extends WrappingIterator {
+        private static volatile CountDownLatch release = new CountDownLatch(1);
+        private static volatile boolean blockEvery = false;
+        private static final AtomicBoolean straggled = new AtomicBoolean(false);
+        private static final AtomicInteger held = new AtomicInteger(0);
+        
+        static void reset(boolean every) {
+            release = new CountDownLatch(1);
+            blockEvery = every;
+            straggled.set(false);
+            held.set(0);
+        }
+        
+        @Override
+        public void seek(Range range, Collection<ByteSequence> columnFamilies, boolean inclusive) throws IOException {
+            if (STRAGGLER.equals(range.getStartKey().getRow().toString()) && (blockEvery || straggled.compareAndSet(false, true))) {
+                held.incrementAndGet();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    // the session gave up on this scan, which goes on to find the chunk claimed
+                }
+            }
+            super.seek(range, columnFamilies, inclusive);
+        }
+    }
+    
+    /**
+     * Keeps the resources which have been initialized and not yet closed
+     */
+    public static class TrackingResource extends BatchResource {
+        private static final Set<TrackingResource> open = Collections.synchronizedSet(Collections.newSetFromMap(new IdentityHashMap<>()));
+        
+        public TrackingResource(AccumuloResource copy) {
+            super(copy);
+        }
+        
+        @Override
+        protected void init(String tableName, Set<Authorizations> auths, Collection<Range> currentRange) throws TableNotFoundException {
+            open.add(this);
+            super.init(tableName, auths, currentRange);
+        }
+        
+        @Override
+        public void close() throws IOException {
+            super.close();
+            open.remove(this);
+        }
+    }
+    
+    /**
+     * Hedges through the tracked resource, as the files of the in memory table cannot be read, and records the scans as they finish
+     */
+    private static class HedgingSession extends BatchScannerSession {
+        private final Collection<Scan> finished = new ConcurrentLinkedQueue<>();
+        
+        HedgingSession(ScannerSession other) {
+            super(other);
+        }
+        
+        @Override
+        protected Class<? extends AccumuloResource> getHedgeResource() {
+            return TrackingResource.class;
+        }
+        
+        @Override
+        public void onSuccess(Scan finishedScan) {
+            if (finishedScan.finished()) {
+                finished.add(finishedScan);
+            }
+            super.onSuccess(finishedScan);
+        }
+    }
+}
@@ -0,0 +1,258 @@
+package datawave.query.tables;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import datawave.accumulo.inmemory.InMemoryInstance;
+import datawave.query.tables.async.Scan;
+import datawave.query.tables.async.ScannerChunk;
+
+import org.apache.accumulo.core.client.BatchWriter;
+import org.apache.accumulo.core.client.BatchWriterConfig;
+import org.apache.accumulo.core.client.Connector;
+import org.apache.accumulo.core.client.security.tokens.PasswordToken;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Mutation;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.security.Authorizations;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.Maps;
+
+/**
+ * Runs demand driven sessions against an in memory table, with a result queue small enough that the scans have to yield and resume.
+ */
+public class DemandDrivenBatchScannerSessionTest {
+    
+    private static final String TABLE = "shard";
+    
+    private static final int ROWS = 10;
+    
+    private static final int COLUMNS = 10;
+    
+    private Connector connector;
+    
+    private ResourceQueue resourceQueue;
+    
+    private List<RecordingSession> sessions = new ArrayList<>();
+    
+    @Before
+    public void setup() throws Exception {
+        connector = new InMemoryInstance(DemandDrivenBatchScannerSessionTest.class.getName()).getConnector("root", new PasswordToken(""));
+        if (!connector.tableOperations().exists(TABLE)) {
+            connector.tableOperations().create(TABLE);
+            BatchWriter writer = connector.createBatchWriter(TABLE, new BatchWriterConfig());
+            for (int row = 0; row < ROWS; row++) {
+                Mutation m = new Mutation(getRow(row));
+                for (int column = 0; column < COLUMNS; column++) {
+                    m.put("cf", "cq" + column, new Value(new byte[0]));
+                }
+                writer.addMutation(m);
+            }
+            writer.close();
+        }
+        resourceQueue = new ResourceQueue(10, connector);
+    }
+    
+    @After
+    public void cleanup() throws Exception {
+        for (RecordingSession session : sessions) {
+            session.close();
+        }
+        resourceQueue.close();
+    }
+    
+    private static String getRow(int row) {
+        return "row" + row;
+    }
+    
+    private static Range getRange(int row) {
+        return new Range(getRow(row));
+    }
+    
+    /**
+     * @return a chunk for each pair of rows
+     */
+    private static List<ScannerChunk> getChunks() {
+        List<ScannerChunk> chunks = new ArrayList<>();
+        for (int row = 0; row < ROWS; row += 2) {
+            List<Range> ranges = new ArrayList<>();
+            ranges.add(getRange(row));
+            ranges.add(getRange(row + 1));
+            chunks.add(new ScannerChunk(new SessionOptions(), ranges));
+        }
+        return chunks;
+    }
+    
+    private RecordingSession newSession(int maxResults, int threads) {
+        RecordingSession session = new RecordingSession(new ScannerSession(TABLE, Collections.singleton(new Authorizations()), resourceQueue, maxResults,
+                        null));
+        session.setThreads(threads);
+        session.setChunkIter(Collections.singletonList(getChunks()).iterator());
+        sessions.add(session);
+        return session;
+    }
+    
+    private static List<Key> getExpected() {
+        List<Key> expected = new ArrayList<>();
+        for (int row = 0; row < ROWS; row++) {
+            for (int column = 0; column < COLUMNS; column++) {
+                expected.add(new Key(getRow(row), "cf", "cq" + column));
+            }
+        }
+        Collections.sort(expected);
+        return expected;
+    }
+    
+    private static List<Key> read(BatchScannerSession session, int limit) {
+        List<Key> keys = new ArrayList<>();
+        while (keys.size() < limit && session.hasNext()) {
+            Key key = session.next().getKey();
+            keys.add(new Key(key.getRow(), key.getColumnFamily(), key.getColumnQualifier()));
+        }
+        return keys;
+    }
+    
+    /**
+     * Waits for every scan of the session to yield once the result queue has filled
+     */
+    private static void awaitIdle(RecordingSession session) throws InterruptedException {
+        long stop = System.currentTimeMillis() + 10000;
+        while ((session.inFlight.get() > 0 || session.resultQueue.remainingCapacity() > 0) && System.currentTimeMillis() < stop) {
+            Thread.sleep(10);
+        }
+        Assert.assertEquals(0, session.inFlight.get());
+    }
+    
+    @Test
+    public void testYieldAndResume() {
+        RecordingSession session = newSession(3, 2);
+        
+        List<Key> keys = read(session, Integer.MAX_VALUE);
+        Collections.sort(keys);
+        
+        // every entry exactly once, although the scans yielded many times on the way
+        Assert.assertEquals(getExpected(), keys);
+        Assert.assertTrue(session.yields.get() > 0);
+        Assert.assertEquals(0, session.runnableCount.get());
+        Assert.assertTrue(session.parkedScans.isEmpty());
+    }
+    
+    @Test
+    public void testYieldRequeuesRangeAtHead() throws Exception {
+        ScannerChunk chunk = new ScannerChunk(new SessionOptions(), getChunks().get(0).getRanges());
+        BlockingQueue<Entry<Key,Value>> results = new ArrayBlockingQueue<>(1);
+        ExecutorService caller = Executors.newSingleThreadExecutor();
+        try {
+            Scan scan = new Scan(TABLE, Collections.singleton(new Authorizations()), chunk, resourceQueue, RunningResource.class, results, caller);
+            scan.setYieldWhenFull(true);
+            
+            // nothing can be queued, so the first range has to be run again before the second
+            results.add(Maps.immutableEntry(new Key(), new Value()));
+            scan.call();
+            Assert.assertTrue(scan.yielded());
+            Assert.assertEquals(getRange(0), chunk.getRanges().iterator().next());
+            Assert.assertEquals(2, chunk.getRanges().size());
+            
+            // resuming returns the rows in order, one entry per call
+            results.clear();
+            List<Key> keys = new ArrayList<>();
+            do {
+                scan.call();
+                Entry<Key,Value> entry = results.poll();
+                if (null != entry) {
+                    keys.add(new Key(entry.getKey().getRow(), entry.getKey().getColumnFamily(), entry.getKey().getColumnQualifier()));
+                }
+            } while (!scan.finished() || !results.isEmpty());
+            Assert.assertEquals(getExpected().subList(0, 2 * COLUMNS), keys);
+        } finally {
+            caller.shutdownNow();
+        }
+    }
+    
+    @Test
+    public void testCloseWhileYielded() throws Exception {
+        RecordingSession session = newSession(5, 2);
+        
+        Assert.assertEquals(1, read(session, 1).size());
+        awaitIdle(session);
+        Assert.assertFalse(session.parkedScans.isEmpty());
+        
+        session.close();
+        
+        // the parked scans are closed rather than resumed
+        Assert.assertTrue(session.parkedScans.isEmpty());
+        Assert.assertEquals(0, session.runnableCount.get());
+        Assert.assertTrue(session.service.isShutdown());
+        Assert.assertFalse(session.hasNext());
+    }
+    
+    @Test
+    public void testDemandDrivenThrottling() throws Exception {
+        RecordingSession session = newSession(5, 2);
+        
+        // a session which is not being read from holds no threads
+        Assert.assertEquals(1, read(session, 1).size());
+        awaitIdle(session);
+        int yields = session.yields.get();
+        Thread.sleep(100);
+        Assert.assertEquals(0, session.inFlight.get());
+        Assert.assertEquals(yields, session.yields.get());
+        
+        List<Key> keys = read(session, Integer.MAX_VALUE);
+        Assert.assertEquals(ROWS * COLUMNS - 1, keys.size());
+        Assert.assertTrue(session.maxInFlight.get() <= 2);
+    }
+    
+    @Test
+    public void testThreadsPerSessionCapped() {
+        RecordingSession session = newSession(5, 1000);
+        
+        // one session may not take the whole shared executor
+        Assert.assertEquals(DemandDrivenBatchScannerSession.getMaxSessionThreads(), session.threadCount);
+        Assert.assertTrue(session.threadCount < DemandDrivenBatchScannerSession.DEFAULT_SCAN_EXECUTOR_THREADS);
+        
+        session.setThreads(0);
+        Assert.assertEquals(1, session.threadCount);
+        
+        // the per session executor is only a shutdown signal
+        Assert.assertSame(session.listenerService, session.service);
+    }
+    
+    /**
+     * Records the yields of the scans, and the most scans in flight at once
+     */
+    private static class RecordingSession extends DemandDrivenBatchScannerSession {
+        private final AtomicInteger yields = new AtomicInteger(0);
+        private final AtomicInteger maxInFlight = new AtomicInteger(0);
+        
+        RecordingSession(ScannerSession other) {
+            super(other);
+        }
+        
+        @Override
+        protected void dispatch() {
+            super.dispatch();
+            maxInFlight.accumulateAndGet(inFlight.get(), Math::max);
+        }
+        
+        @Override
+        public void onSuccess(Scan finishedScan) {
+            if (finishedScan.yielded()) {
+                yields.incrementAndGet();
+            }
+            super.onSuccess(finishedScan);
+        }
+    }
+}
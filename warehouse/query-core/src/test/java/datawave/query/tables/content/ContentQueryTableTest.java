@@ -0,0 +1,135 @@
+package datawave.query.tables.content;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import datawave.accumulo.inmemory.InMemoryInstance;
+import datawave.ingest.mapreduce.handler.ExtendedDataTypeHandler;
+import datawave.query.Constants;
+import datawave.query.QueryParameters;
+import datawave.query.config.ContentQueryConfiguration;
+import datawave.webservice.query.QueryImpl;
+
+import org.apache.accumulo.core.client.BatchWriter;
+import org.apache.accumulo.core.client.BatchWriterConfig;
+import org.apache.accumulo.core.client.Connector;
+import org.apache.accumulo.core.client.security.tokens.PasswordToken;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Mutation;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.security.Authorizations;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Runs batched content lookups against an in memory shard table, checking the ranges of the batch are merged so each document is returned once.
+ */
+public class ContentQueryTableTest {
+    
+    private static final String TABLE = "shard";
+    private static final String SHARD = "20190101_0";
+    private static final String DATATYPE = "csv";
+    
+    private static final AtomicInteger instances = new AtomicInteger(0);
+    
+    private Connector connector;
+    
+    private ContentQueryTable logic;
+    
+    @Before
+    public void setup() throws Exception {
+        connector = new InMemoryInstance(ContentQueryTableTest.class.getName() + instances.incrementAndGet()).getConnector("root", new PasswordToken(""));
+        connector.tableOperations().create(TABLE);
+        BatchWriter writer = connector.createBatchWriter(TABLE, new BatchWriterConfig());
+        Mutation m = new Mutation(SHARD);
+        // a parent, one of its children, and an unrelated document
+        for (String uid : new String[] {"uid1", "uid1.1", "uid2"}) {
+            m.put(ExtendedDataTypeHandler.FULL_CONTENT_COLUMN_FAMILY, DATATYPE + Constants.NULL_BYTE_STRING + uid + Constants.NULL_BYTE_STRING + "CONTENT",
+                            new Value(uid.getBytes()));
+        }
+        writer.addMutation(m);
+        writer.close();
+        
+        logic = new ContentQueryTable();
+        logic.setTableName(TABLE);
+        logic.setQueryThreads(10);
+    }
+    
+    @After
+    public void cleanup() {
+        logic.close();
+    }
+    
+    private static QueryImpl getQuery(boolean viewAll, String... uids) {
+        StringBuilder query = new StringBuilder();
+        for (String uid : uids) {
+            query.append("DOCUMENT:").append(SHARD).append('/').append(DATATYPE).append('/').append(uid).append(' ');
+        }
+        QueryImpl settings = new QueryImpl();
+        settings.setId(UUID.randomUUID());
+        settings.setQuery(query.toString());
+        if (viewAll) {
+            settings.addParameter(QueryParameters.CONTENT_VIEW_ALL, "true");
+        }
+        return settings;
+    }
+    
+    private ContentQueryConfiguration initialize(QueryImpl settings) throws Exception {
+        return (ContentQueryConfiguration) logic.initialize(connector, settings, Collections.singleton(new Authorizations()));
+    }
+    
+    /**
+     * @return the sorted uids of the documents returned by the query
+     */
+    private List<String> run(ContentQueryConfiguration config) throws Exception {
+        logic.setupQuery(config);
+        List<String> uids = new ArrayList<>();
+        Iterator<Entry<Key,Value>> iterator = logic.iterator();
+        while (iterator.hasNext()) {
+            uids.add(new String(iterator.next().getValue().get()));
+        }
+        Collections.sort(uids);
+        return uids;
+    }
+    
+    @Test
+    public void testParentRangeCoversChildren() throws Exception {
+        ContentQueryConfiguration config = initialize(getQuery(true, "uid1", "uid1.1", "uid2"));
+        
+        // the child's range falls within the parent's, so the two are scanned as one
+        List<Range> ranges = new ArrayList<>(config.getRanges());
+        Assert.assertEquals(2, ranges.size());
+        Assert.assertTrue(ranges.get(0).contains(new Key(SHARD, ExtendedDataTypeHandler.FULL_CONTENT_COLUMN_FAMILY, DATATYPE + Constants.NULL_BYTE_STRING
+                        + "uid1.1" + Constants.NULL_BYTE_STRING + "CONTENT")));
+        
+        Assert.assertEquals(Arrays.asList("uid1", "uid1.1", "uid2"), run(config));
+    }
+    
+    @Test
+    public void testParentOnlyRangesNotMerged() throws Exception {
+        ContentQueryConfiguration config = initialize(getQuery(false, "uid1", "uid1.1", "uid2"));
+        
+        // without the children the ranges are disjoint, and each returns its own document only
+        Assert.assertEquals(3, config.getRanges().size());
+        Assert.assertEquals(Arrays.asList("uid1", "uid1.1", "uid2"), run(config));
+        
+        Assert.assertEquals(Collections.singletonList("uid1"), run(initialize(getQuery(false, "uid1"))));
+    }
+    
+    @Test
+    public void testRepeatedTerms() throws Exception {
+        ContentQueryConfiguration config = initialize(getQuery(true, "uid2", "uid2", "uid1.1", "uid1.1"));
+        
+        Assert.assertEquals(2, config.getRanges().size());
+        Assert.assertEquals(Arrays.asList("uid1.1", "uid2"), run(config));
+    }
+}
@@ -0,0 +1,274 @@
+package datawave.query.util.sortedset;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import org.apache.accumulo.core.data.Key;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Checks the buffer behaves the same as a TreeSet of the same entries, for entries chosen to collide often and to differ where signed and unsigned byte
+ * comparisons disagree.
+ */
+public class SortedKeyValueSetBufferTest {
+    
+    private static final int ROUNDS = 5;
+    
+    // bytes either side of the sign bit, so that an unsigned comparison orders them differently from a signed one
+    private static final byte[] ALPHABET = {0x00, 0x01, 0x7f, (byte) 0x80, (byte) 0xff};
+    
+    private static byte[] randomBytes(Random random, int maxLength) {
+        byte[] bytes = new byte[random.nextInt(maxLength + 1)];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = ALPHABET[random.nextInt(ALPHABET.length)];
+        }
+        return bytes;
+    }
+    
+    private static KeyValueSerializable randomEntry(Random random) {
+        Key key = new Key(randomBytes(random, 2), ("cf" + random.nextInt(2)).getBytes(), randomBytes(random, 1), (random.nextBoolean() ? "A" : "").getBytes(),
+                        1 + random.nextInt(3), random.nextBoolean(), false);
+        return new KeyValueSerializable(key, randomBytes(random, 2));
+    }
+    
+    private static KeyValueSerializable entry(byte[] row, long timestamp, boolean deleted, byte[] value) {
+        return new KeyValueSerializable(new Key(row, "cf".getBytes(), "cq".getBytes(), new byte[0], timestamp, deleted, false), value);
+    }
+    
+    private static void fill(Random random, int count, SortedSet<KeyValueSerializable> expected, SortedKeyValueSetBuffer buffer) {
+        for (int i = 0; i < count; i++) {
+            KeyValueSerializable entry = randomEntry(random);
+            Assert.assertEquals(expected.add(entry), buffer.add(entry));
+        }
+    }
+    
+    private static void assertSameSet(String message, SortedSet<KeyValueSerializable> expected, SortedSet<KeyValueSerializable> actual) {
+        Assert.assertEquals(message, expected.size(), actual.size());
+        Assert.assertEquals(message, expected.isEmpty(), actual.isEmpty());
+        Assert.assertEquals(message, new ArrayList<>(expected), new ArrayList<>(actual));
+        if (!expected.isEmpty()) {
+            Assert.assertEquals(message, expected.first(), actual.first());
+            Assert.assertEquals(message, expected.last(), actual.last());
+        }
+    }
+    
+    @Test
+    public void testCompareOrder() {
+        // in the order a TreeSet keeps them
+        List<KeyValueSerializable> ordered = new ArrayList<>();
+        // row bytes compare unsigned
+        ordered.add(entry(new byte[] {0x7f}, 5, false, new byte[0]));
+        // newer timestamps first
+        ordered.add(entry(new byte[] {(byte) 0x80}, 5, false, new byte[0]));
+        // then deleted entries first
+        ordered.add(entry(new byte[] {(byte) 0x80}, 3, true, new byte[0]));
+        // then values compare with signed bytes, shorter first
+        ordered.add(entry(new byte[] {(byte) 0x80}, 3, false, new byte[] {(byte) 0x80}));
+        ordered.add(entry(new byte[] {(byte) 0x80}, 3, false, new byte[] {0x01}));
+        ordered.add(entry(new byte[] {(byte) 0x80}, 3, false, new byte[] {0x01, 0x00}));
+        ordered.add(entry(new byte[] {(byte) 0x80}, 3, false, new byte[] {0x7f}));
+        Assert.assertEquals(ordered, new ArrayList<>(new TreeSet<>(ordered)));
+        
+        for (long seed = 0; seed < ROUNDS; seed++) {
+            List<KeyValueSerializable> shuffled = new ArrayList<>(ordered);
+            Collections.shuffle(shuffled, new Random(seed));
+            SortedKeyValueSetBuffer buffer = new SortedKeyValueSetBuffer();
+            for (KeyValueSerializable entry : shuffled) {
+                Assert.assertTrue(buffer.add(entry));
+            }
+            Assert.assertEquals("seed " + seed, ordered, new ArrayList<>(buffer));
+        }
+    }
+    
+    @Test
+    public void testRandomizedAgainstTreeSet() {
+        for (long seed = 0; seed < ROUNDS; seed++) {
+            Random random = new Random(seed);
+            TreeSet<KeyValueSerializable> expected = new TreeSet<>();
+            SortedKeyValueSetBuffer buffer = new SortedKeyValueSetBuffer(16);
+            // more entries than there are distinct ones, so many adds are duplicates
+            fill(random, 2000, expected, buffer);
+            Assert.assertTrue(expected.size() < 2000);
+            assertSameSet("seed " + seed, expected, buffer);
+            
+            for (int i = 0; i < 200; i++) {
+                KeyValueSerializable probe = randomEntry(random);
+                Assert.assertEquals("seed " + seed, expected.contains(probe), buffer.contains(probe));
+            }
+            Assert.assertFalse(buffer.contains("not an entry"));
+            
+            buffer.clear();
+            Assert.assertTrue(buffer.isEmpty());
+            Assert.assertEquals(0, buffer.getSlabBytes());
+        }
+    }
+    
+    @Test
+    public void testSubSets() {
+        for (long seed = 0; seed < ROUNDS; seed++) {
+            Random random = new Random(seed);
+            TreeSet<KeyValueSerializable> expected = new TreeSet<>();
+            SortedKeyValueSetBuffer buffer = new SortedKeyValueSetBuffer();
+            fill(random, 500, expected, buffer);
+            
+            for (int i = 0; i < 50; i++) {
+                String message = "seed " + seed + " bounds " + i;
+                KeyValueSerializable from = randomEntry(random);
+                KeyValueSerializable to = randomEntry(random);
+                if (from.compareTo(to) > 0) {
+                    KeyValueSerializable swap = from;
+                    from = to;
+                    to = swap;
+                }
+                assertSameSet(message, expected.subSet(from, to), buffer.subSet(from, to));
+                assertSameSet(message, expected.headSet(to), buffer.headSet(to));
+                assertSameSet(message, expected.tailSet(from), buffer.tailSet(from));
+                assertSameSet(message, expected.tailSet(from).headSet(to), buffer.tailSet(from).headSet(to));
+                
+                // bounds which are members: the start is included and the end is not
+                KeyValueSerializable member = new ArrayList<>(expected).get(random.nextInt(expected.size()));
+                assertSameSet(message, expected.headSet(member), buffer.headSet(member));
+                assertSameSet(message, expected.tailSet(member), buffer.tailSet(member));
+                Assert.assertTrue(buffer.tailSet(member).contains(member));
+                Assert.assertFalse(buffer.headSet(member).contains(member));
+            }
+            
+            // a subset follows changes to the set
+            KeyValueSerializable first = expected.first();
+            SortedSet<KeyValueSerializable> tail = buffer.tailSet(first);
+            Assert.assertEquals(expected.size(), tail.size());
+            Assert.assertTrue(tail.remove(first));
+            expected.remove(first);
+            Assert.assertEquals(expected.size(), tail.size());
+            Assert.assertFalse(tail.remove(first));
+            
+            try {
+                buffer.headSet(expected.first()).add(expected.last());
+                Assert.fail("expected an entry outside of the subset to be refused");
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+        }
+    }
+    
+    @Test
+    public void testRemove() {
+        for (long seed = 0; seed < ROUNDS; seed++) {
+            Random random = new Random(seed);
+            TreeSet<KeyValueSerializable> expected = new TreeSet<>();
+            SortedKeyValueSetBuffer buffer = new SortedKeyValueSetBuffer();
+            fill(random, 1000, expected, buffer);
+            
+            for (int i = 0; i < 300; i++) {
+                KeyValueSerializable entry = randomEntry(random);
+                Assert.assertEquals("seed " + seed, expected.remove(entry), buffer.remove(entry));
+            }
+            assertSameSet("seed " + seed, expected, buffer);
+            
+            // remove every third entry through the iterators
+            Iterator<KeyValueSerializable> expectedIterator = expected.iterator();
+            Iterator<KeyValueSerializable> iterator = buffer.iterator();
+            for (int i = 0; iterator.hasNext(); i++) {
+                Assert.assertEquals(expectedIterator.next(), iterator.next());
+                if (i % 3 == 0) {
+                    expectedIterator.remove();
+                    iterator.remove();
+                }
+            }
+            Assert.assertFalse(expectedIterator.hasNext());
+            assertSameSet("seed " + seed, expected, buffer);
+            
+            // removed entries can be added again
+            fill(random, 1000, expected, buffer);
+            assertSameSet("seed " + seed, expected, buffer);
+        }
+    }
+    
+    @Test(expected = IllegalStateException.class)
+    public void testIteratorRemoveBeforeNext() {
+        SortedKeyValueSetBuffer buffer = new SortedKeyValueSetBuffer();
+        buffer.add(entry(new byte[] {1}, 1, false, new byte[0]));
+        buffer.iterator().remove();
+    }
+    
+    @Test
+    public void testSlabRollover() {
+        Random random = new Random(0);
+        TreeSet<KeyValueSerializable> expected = new TreeSet<>();
+        SortedKeyValueSetBuffer buffer = new SortedKeyValueSetBuffer(8);
+        
+        // about 4MB of entries, so the slabs grow to their maximum size and more are added
+        byte[] value = new byte[10000];
+        for (int i = 0; i < 400; i++) {
+            random.nextBytes(value);
+            KeyValueSerializable entry = randomEntry(random);
+            entry = new KeyValueSerializable(entry.getKey(), value.clone());
+            Assert.assertEquals(expected.add(entry), buffer.add(entry));
+        }
+        // and one entry larger than a slab, which gets one of its own
+        KeyValueSerializable large = entry(new byte[] {0x01}, 1, false, new byte[2 * SortedKeyValueSetBuffer.MAX_SLAB_SIZE]);
+        Assert.assertEquals(expected.add(large), buffer.add(large));
+        fill(random, 100, expected, buffer);
+        
+        Assert.assertTrue(buffer.numSlabs > 4);
+        Assert.assertTrue(buffer.getSlabBytes() > 5L * SortedKeyValueSetBuffer.MAX_SLAB_SIZE);
+        for (int i = 0; i < buffer.numSlabs; i++) {
+            Assert.assertTrue(buffer.slabs[i].length <= SortedKeyValueSetBuffer.MAX_SLAB_SIZE || buffer.slabs[i].length > large.value.length);
+        }
+        assertSameSet("slabs", expected, buffer);
+        Assert.assertTrue(buffer.contains(large));
+    }
+    
+    @Test
+    public void testPersistRoundTrip() throws Exception {
+        for (long seed = 0; seed < ROUNDS; seed++) {
+            Random random = new Random(seed);
+            TreeSet<KeyValueSerializable> expected = new TreeSet<>();
+            SortedKeyValueSetBuffer buffer = new SortedKeyValueSetBuffer(100);
+            fill(random, 500, expected, buffer);
+            
+            FileSortedSet<KeyValueSerializable> set = new FileSortedSet<>(new SortedSetTempFileHandler(), buffer);
+            try {
+                set.persist();
+                // persisting clears the buffer, which releases its slabs
+                Assert.assertTrue(set.isPersisted());
+                Assert.assertTrue(buffer.isEmpty());
+                Assert.assertEquals(0, buffer.getSlabBytes());
+                Assert.assertEquals("seed " + seed, new ArrayList<>(expected), new ArrayList<>(set));
+                
+                set.load();
+                Assert.assertFalse(set.isPersisted());
+                assertSameSet("seed " + seed, expected, buffer);
+                
+                // and the loaded buffer can be added to and persisted again
+                fill(random, 100, expected, buffer);
+                set.persist();
+                Assert.assertEquals("seed " + seed, new ArrayList<>(expected), new ArrayList<>(set));
+            } finally {
+                set.clear();
+            }
+        }
+    }
+    
+    @Test
+    public void testEmpty() {
+        SortedKeyValueSetBuffer buffer = new SortedKeyValueSetBuffer(0);
+        Assert.assertTrue(buffer.isEmpty());
+        Assert.assertFalse(buffer.iterator().hasNext());
+        Assert.assertTrue(buffer.headSet(entry(new byte[] {1}, 1, false, new byte[0])).isEmpty());
+        Assert.assertEquals(Collections.emptyList(), new ArrayList<>(buffer.tailSet(entry(new byte[] {1}, 1, false, new byte[0]))));
+        try {
+            buffer.first();
+            Assert.fail("expected an empty set to have no first entry");
+        } catch (NoSuchElementException e) {
+            // expected
+        }
+    }
+}
@@ -156,6 +156,9 @@ import org.jboss.resteasy.specimpl.MultivaluedMapImpl;
  * database and use the group_concat() SQL function to concatentate them at query time. Also, since the data is coming from a schema-less source, all columns in
  * the table will be of type Text.
  * 
+ * When a store directory is configured, the rows are instead loaded into a {@link CachedResultsStore} of memory-mapped files that the queries against the view
+ * are answered from, and only the state of the cached results is kept in the database.
+ * 
  * Object that loads a predefined query into a relational database so that SQL queries can be run against it. Typical use case for this object is:
  *
  * load() create() repeated calls to next() or previous() close()
@@ -243,10 +246,14 @@ public class CachedResultsBean {
     
     private static final String IMPORT_FILE = "replication_scripts/import.sh";
     
+    // how often a streaming load updates the status of the cached results with its progress
+    private static final long STREAMING_STATUS_INTERVAL = 10000L;
+    
     private static Map<String,RunningQuery> loadingQueryMap = Collections.synchronizedMap(new HashMap<>());
     private static Set<String> loadingQueries = Collections.synchronizedSet(new HashSet<>());
     private URL importFileUrl = null;
     private CachedResultsParameters cp = new CachedResultsParameters();
+    private CachedResultsStore.Factory storeFactory = null;
     
     @PostConstruct
     public void init() {
@@ -269,6 +276,16 @@ public class CachedResultsBean {
         CachedRunningQuery.setQueryFactory(queryFactory);
         CachedRunningQuery.setResponseObjectFactory(responseObjectFactory);
         
+        // hold the loaded results in local files rather than database tables when a directory is configured
+        String storeDirectory = cachedResultsConfiguration.getStoreDirectory();
+        if (StringUtils.isNotBlank(storeDirectory)) {
+            storeFactory = new MappedCachedResultsStore.Factory(new File(storeDirectory));
+            log.info("cached results store: " + storeDirectory);
+        } else {
+            storeFactory = null;
+        }
+        CachedRunningQuery.setStoreFactory(storeFactory);
+        
         String template = null;
         try (Connection con = ds.getConnection()) {
             Statement s = con.createStatement();
@@ -364,6 +381,7 @@ public class CachedResultsBean {
         String viewName = "v" + nameBase;
         Connection con = null;
         PreparedStatement ps = null;
+        CachedResultsStore store = null;
         boolean tableCreated = false;
         boolean viewCreated = false;
         CachedRunningQuery crq = null;
@@ -481,8 +499,7 @@ public class CachedResultsBean {
                 qlCache.add(q.getId().toString(), owner, logic, connector);
                 
                 try {
-                    query = new RunningQuery(null, null, logic.getConnectionPriority(), logic, q, q.getQueryAuthorizations(), p, new RunningQueryTimingImpl(
-                                    queryExpirationConf, q.getPageTimeout()), executor, predictor, metricFactory);
+                    query = createLoadingQuery(logic, q, p);
                     query.setActiveCall(true);
                     // queryMetric was duplicated from the original earlier
                     query.setMetric(queryMetric);
@@ -501,20 +518,26 @@ public class CachedResultsBean {
             }
             
             try {
-                con = ds.getConnection();
-                // Create the result table for this query
-                Statement s = con.createStatement();
-                String createTable = cachedResultsConfiguration.getParameters().get("CREATE_TABLE");
-                createTable = createTable.replace(TABLE, tableName);
-                s.execute(createTable);
-                s.close();
-                tableCreated = true;
-                // Parse the PreparedStatement
-                String insert = cachedResultsConfiguration.getParameters().get("INSERT");
-                insert = insert.replace(TABLE, tableName);
-                ps = con.prepareStatement(insert);
-            } catch (SQLException sqle) {
-                throw new QueryException(DatawaveErrorCode.CACHED_RESULTS_TABLE_CREATE_ERROR, sqle);
+                if (storeFactory != null) {
+                    // the store takes the place of both the table and the view
+                    store = storeFactory.create(viewName);
+                    tableCreated = true;
+                } else {
+                    con = ds.getConnection();
+                    // Create the result table for this query
+                    Statement s = con.createStatement();
+                    String createTable = cachedResultsConfiguration.getParameters().get("CREATE_TABLE");
+                    createTable = createTable.replace(TABLE, tableName);
+                    s.execute(createTable);
+                    s.close();
+                    tableCreated = true;
+                    // Parse the PreparedStatement
+                    String insert = cachedResultsConfiguration.getParameters().get("INSERT");
+                    insert = insert.replace(TABLE, tableName);
+                    ps = con.prepareStatement(insert);
+                }
+            } catch (SQLException | IOException e) {
+                throw new QueryException(DatawaveErrorCode.CACHED_RESULTS_TABLE_CREATE_ERROR, e);
             }
             
             // Object for keeping track of which fields are placed in which
@@ -531,6 +554,11 @@ public class CachedResultsBean {
             }
             
             int rowsWritten = 0;
+            long rowsLoaded = 0;
+            long loadStart = System.currentTimeMillis();
+            long lastStatusUpdate = loadStart;
+            boolean streamingLoad = cachedResultsConfiguration.isStreamingLoad();
+            int viewFieldCount = 0;
             boolean go = true;
             while (go) {
                 
@@ -580,9 +608,14 @@ public class CachedResultsBean {
                         SQLException loadBatchException = null; // exception;
                         while (dataWritten == false && attempt < 10) {
                             try {
-                                loadBatch(ps, owner, queryId, logic.getLogicName(), fieldMap, cacheableQueryObject, maxLength);
+                                if (store != null) {
+                                    store.write(owner, queryId, logic.getLogicName(), cacheableQueryObject, fieldMap);
+                                } else {
+                                    loadBatch(ps, owner, queryId, logic.getLogicName(), fieldMap, cacheableQueryObject, maxLength);
+                                }
                                 dataWritten = true;
                                 rowsWritten++;
+                                rowsLoaded++;
                             } catch (SQLException e) {
                                 loadBatchException = e;
                                 String msg = e.getMessage();
@@ -602,9 +635,30 @@ public class CachedResultsBean {
                             log.error("Batch write FAILED - last exception = " + message + "record = " + cacheableQueryObject.getColumnValues().entrySet(),
                                             loadBatchException);
                         } else if (rowsWritten >= rowsPerBatch) {
-                            persistBatch(ps);
-                            ps.clearBatch();
+                            persistBatch(ps, store);
                             rowsWritten = 0;
+                            
+                            // the rows written so far can be paged through while the rest are loaded, once the view covers all of their fields
+                            long now = System.currentTimeMillis();
+                            if (streamingLoad && (fieldMap.size() > viewFieldCount || now - lastStatusUpdate >= STREAMING_STATUS_INTERVAL)) {
+                                if (fieldMap.size() > viewFieldCount) {
+                                    viewCreated = store != null || createView(tableName, viewName, con, viewCreated, fieldMap);
+                                    viewFieldCount = fieldMap.size();
+                                }
+                                if (crq == null) {
+                                    crq = new CachedRunningQuery(q, logic, viewName, alias, owner, viewName, cachedResultsConfiguration.getDefaultPageSize(),
+                                                    queryId, fieldMap.keySet(), null, metricFactory);
+                                    crq.setOriginalQueryId(queryId);
+                                    crq.setTableName(tableName);
+                                    crq.setStatus(CachedRunningQuery.Status.LOADING);
+                                    crq.setPrincipal(ctx.getCallerPrincipal());
+                                } else {
+                                    crq.setVariableFields(fieldMap.keySet());
+                                }
+                                crq.setStatusMessage(getLoadStatus(rowsLoaded, loadStart));
+                                persist(crq, owner);
+                                lastStatusUpdate = now;
+                            }
                         }
                     }
                 }
@@ -612,8 +666,7 @@ public class CachedResultsBean {
             
             // commit the last batch
             if (rowsWritten > 0) {
-                persistBatch(ps);
-                ps.clearBatch();
+                persistBatch(ps, store);
                 rowsWritten = 0;
             }
             
@@ -624,8 +677,16 @@ public class CachedResultsBean {
                 }
             }
             
-            // Create the view of the table
-            viewCreated = createView(tableName, viewName, con, viewCreated, fieldMap);
+            String loadStatus = getLoadStatus(rowsLoaded, loadStart);
+            log.info(loadStatus + " into " + tableName + " for query " + queryId);
+            
+            // Create the view of the table, unless a streaming load already created one with all of the fields
+            if (!viewCreated || fieldMap.size() > viewFieldCount) {
+                viewCreated = store != null || createView(tableName, viewName, con, viewCreated, fieldMap);
+            }
+            if (store != null) {
+                store.close();
+            }
             
             // create the CachedRunningQuery and store it under the originalQueryName, but do not activate it
             crq = new CachedRunningQuery(q, logic, viewName, alias, owner, viewName, cachedResultsConfiguration.getDefaultPageSize(), queryId,
@@ -633,6 +694,7 @@ public class CachedResultsBean {
             crq.setOriginalQueryId(queryId);
             crq.setTableName(tableName);
             crq.setStatus(CachedRunningQuery.Status.LOADED);
+            crq.setStatusMessage(loadStatus);
             crq.setPrincipal(ctx.getCallerPrincipal());
             persist(crq, owner);
             
@@ -659,7 +721,7 @@ public class CachedResultsBean {
                 crq.getMetric().setLifecycle(QueryMetric.Lifecycle.CANCELLED);
             }
             try {
-                persistByQueryId(viewName, alias, owner, CachedRunningQuery.Status.CANCELED, "query canceled", false);
+                persistByQueryId(viewName, alias, owner, CachedRunningQuery.Status.CANCELED, "query canceled", crq != null);
             } catch (IOException e1) {
                 response.addException(new PreConditionFailedQueryException(DatawaveErrorCode.CACHED_RESULTS_IMPORT_ERROR, e1));
             }
@@ -682,7 +744,7 @@ public class CachedResultsBean {
             }
             
             try {
-                persistByQueryId(viewName, alias, owner, CachedRunningQuery.Status.ERROR, statusMessage, false);
+                persistByQueryId(viewName, alias, owner, CachedRunningQuery.Status.ERROR, statusMessage, crq != null);
             } catch (IOException e2) {
                 response.addException(new PreConditionFailedQueryException(DatawaveErrorCode.CACHED_RESULTS_IMPORT_ERROR, e2));
             }
@@ -692,6 +754,14 @@ public class CachedResultsBean {
             } else {
                 log.error(t.getMessage(), t);
             }
+            if (store != null) {
+                try {
+                    store.drop();
+                } catch (Exception e1) {
+                    log.error(e1.getMessage(), e1);
+                    response.addException(new QueryException(DatawaveErrorCode.FAILURE_CLEANUP_ERROR, e1).getBottomQueryException());
+                }
+            }
             if (con != null) {
                 Statement s = null;
                 try {
@@ -731,6 +801,13 @@ public class CachedResultsBean {
             throw new DatawaveWebApplicationException(t, response, statusCode);
         } finally {
             DbUtils.closeQuietly(con, ps, null);
+            if (store != null) {
+                try {
+                    store.close();
+                } catch (IOException e) {
+                    log.error(e.getMessage(), e);
+                }
+            }
             if (queryLockedException == false) {
                 CachedResultsBean.loadingQueryMap.remove(queryId);
                 CachedResultsBean.loadingQueries.remove(queryId);
@@ -859,6 +936,15 @@ public class CachedResultsBean {
         return dn;
     }
     
+    private void persistBatch(PreparedStatement ps, CachedResultsStore store) throws SQLException, IOException {
+        if (store != null) {
+            store.flush();
+        } else {
+            persistBatch(ps);
+            ps.clearBatch();
+        }
+    }
+    
     protected void persistBatch(PreparedStatement ps) throws SQLException {
         int[] batchResults = null;
         try {
@@ -1174,27 +1260,38 @@ public class CachedResultsBean {
             
             List<String> columns = new ArrayList<>();
             Integer numRows = null;
-            try (Connection con = ds.getConnection(); Statement s = con.createStatement()) {
-                try (ResultSet rs = s.executeQuery("select count(*) from " + view)) {
-                    if (rs.next()) {
-                        numRows = rs.getInt(1);
+            CachedResultsStore store;
+            try {
+                store = (storeFactory == null) ? null : storeFactory.open(view);
+            } catch (IOException e) {
+                throw new QueryException(DatawaveErrorCode.CACHED_RESULTS_PERSIST_ERROR, e);
+            }
+            if (store != null) {
+                numRows = store.size();
+                columns.addAll(store.getColumnNames());
+            } else {
+                try (Connection con = ds.getConnection(); Statement s = con.createStatement()) {
+                    try (ResultSet rs = s.executeQuery("select count(*) from " + view)) {
+                        if (rs.next()) {
+                            numRows = rs.getInt(1);
+                        }
                     }
-                }
-                
-                try (ResultSet rs = s.executeQuery("show columns from " + view)) {
-                    Set<String> fixedColumns = CacheableQueryRow.getFixedColumnSet();
-                    while (rs.next()) {
-                        String column = rs.getString(1);
-                        if (!fixedColumns.contains(column)) {
-                            columns.add(column);
+                    
+                    try (ResultSet rs = s.executeQuery("show columns from " + view)) {
+                        Set<String> fixedColumns = CacheableQueryRow.getFixedColumnSet();
+                        while (rs.next()) {
+                            String column = rs.getString(1);
+                            if (!fixedColumns.contains(column)) {
+                                columns.add(column);
+                            }
                         }
                     }
+                    
+                } catch (SQLSyntaxErrorException e) {
+                    throw new NotFoundQueryException(DatawaveErrorCode.VIEW_NOT_FOUND);
+                } catch (SQLException e) {
+                    throw new QueryException(DatawaveErrorCode.CACHED_QUERY_SQL_ERROR);
                 }
-                
-            } catch (SQLSyntaxErrorException e) {
-                throw new NotFoundQueryException(DatawaveErrorCode.VIEW_NOT_FOUND);
-            } catch (SQLException e) {
-                throw new QueryException(DatawaveErrorCode.CACHED_QUERY_SQL_ERROR);
             }
             
             response.setColumns(columns);
@@ -1247,12 +1344,12 @@ public class CachedResultsBean {
         CachedRunningQuery crq = null;
         Connection con = null;
         try {
-            con = ds.getConnection();
             CachedRunningQuery loadCrq = retrieve(cp.getView(), owner); // the caller may have used the alias name for the view.
             
             if (loadCrq == null) {
                 throw new PreConditionFailedQueryException(DatawaveErrorCode.QUERY_NOT_CACHED);
             }
+            con = getConnection(loadCrq);
             if (!loadCrq.getUser().equals(owner)) {
                 throw new UnauthorizedQueryException(DatawaveErrorCode.QUERY_OWNER_MISMATCH, MessageFormat.format("{0} != {1}", loadCrq.getUser(), owner));
             }
@@ -1441,7 +1538,7 @@ public class CachedResultsBean {
                 synchronized (crq) {
                     
                     if (crq.isActivated() == false) {
-                        Connection connection = ds.getConnection();
+                        Connection connection = getConnection(crq);
                         String logicName = crq.getQueryLogicName();
                         if (logicName != null) {
                             QueryLogic<?> queryLogic = queryFactory.getQueryLogic(logicName, p);
@@ -1549,7 +1646,7 @@ public class CachedResultsBean {
                 synchronized (crq) {
                     if (crq.isActivated() == false) {
                         if (crq.getShouldAutoActivate()) {
-                            Connection connection = ds.getConnection();
+                            Connection connection = getConnection(crq);
                             String logicName = crq.getQueryLogicName();
                             QueryLogic<?> queryLogic = queryFactory.getQueryLogic(logicName, p);
                             crq.activate(connection, queryLogic);
@@ -1663,7 +1760,7 @@ public class CachedResultsBean {
                         closeCrqConnection(crq);
                     }
                     
-                    Connection connection = ds.getConnection();
+                    Connection connection = getConnection(crq);
                     String logicName = crq.getQueryLogicName();
                     QueryLogic<?> queryLogic = queryFactory.getQueryLogic(logicName, p);
                     crq.activate(connection, queryLogic);
@@ -1760,7 +1857,7 @@ public class CachedResultsBean {
                 synchronized (crq) {
                     if (crq.isActivated() == false) {
                         if (crq.getShouldAutoActivate()) {
-                            Connection connection = ds.getConnection();
+                            Connection connection = getConnection(crq);
                             String logicName = crq.getQueryLogicName();
                             QueryLogic<?> queryLogic = queryFactory.getQueryLogic(logicName, p);
                             crq.activate(connection, queryLogic);
@@ -1903,7 +2000,7 @@ public class CachedResultsBean {
                 synchronized (crq) {
                     
                     if (crq.isActivated() == false) {
-                        Connection connection = ds.getConnection();
+                        Connection connection = getConnection(crq);
                         String logicName = crq.getQueryLogicName();
                         QueryLogic<?> queryLogic = queryFactory.getQueryLogic(logicName, p);
                         crq.activate(connection, queryLogic);
@@ -2477,6 +2574,13 @@ public class CachedResultsBean {
         }
     }
     
+    /**
+     * @return a connection to the database to read the rows of a query from, or null if they are read from a store
+     */
+    private Connection getConnection(CachedRunningQuery crq) throws SQLException {
+        return crq.isStored() ? null : ds.getConnection();
+    }
+    
     public static void closeCrqConnection(CachedRunningQuery crq) {
         
         if (log.isTraceEnabled()) {
@@ -2505,7 +2609,8 @@ public class CachedResultsBean {
         
         StringBuilder view = new StringBuilder();
         try {
-            view.append("CREATE VIEW ").append(viewName).append("(");
+            // a view which already exists is being widened to fields found since it was created
+            view.append(viewCreated ? "CREATE OR REPLACE VIEW " : "CREATE VIEW ").append(viewName).append("(");
             view.append(viewCols);
             view.append(") AS SELECT ").append(tableCols);
             view.append(" FROM ").append(tableName);
@@ -2523,6 +2628,19 @@ public class CachedResultsBean {
         return viewCreated;
     }
     
+    /**
+     * @return the query whose results are read into the cache by a load
+     */
+    protected RunningQuery createLoadingQuery(QueryLogic<?> logic, Query q, Principal p) throws Exception {
+        return new RunningQuery(null, null, logic.getConnectionPriority(), logic, q, q.getQueryAuthorizations(), p, new RunningQueryTimingImpl(
+                        queryExpirationConf, q.getPageTimeout()), executor, predictor, metricFactory);
+    }
+    
+    private static String getLoadStatus(long rowsLoaded, long loadStart) {
+        long elapsed = Math.max(1, System.currentTimeMillis() - loadStart);
+        return "Loaded " + rowsLoaded + " rows in " + elapsed + " ms (" + (rowsLoaded * 1000 / elapsed) + " rows/s)";
+    }
+    
     private void addQueryToTrackingMap(Map<String,String> trackingMap, Query q) {
         
         if (trackingMap == null || q == null) {
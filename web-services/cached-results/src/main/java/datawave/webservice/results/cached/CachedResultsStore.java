@@ -0,0 +1,131 @@
+package datawave.webservice.results.cached;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import datawave.webservice.query.cachedresults.CacheableQueryRow;
+
+/**
+ * Holds the rows of one loaded set of cached results in place of the table and view that the relational database holds them in, and answers the fields,
+ * conditions and order of a {@link CachedRunningQuery} against them.
+ */
+public interface CachedResultsStore extends Closeable {
+    
+    /**
+     * Creates and opens the stores of cached results
+     */
+    interface Factory {
+        
+        /**
+         * @param view
+         *            the name the loaded results are retrieved by
+         * @return a new, empty store
+         * @throws IOException
+         *             if the store could not be created
+         */
+        CachedResultsStore create(String view) throws IOException;
+        
+        /**
+         * @param view
+         *            the name the loaded results are retrieved by
+         * @return the store for the view, or null if there is none
+         * @throws IOException
+         *             if the store could not be opened
+         */
+        CachedResultsStore open(String view) throws IOException;
+    }
+    
+    /**
+     * The rows selected by a query, in the order requested
+     */
+    interface Selection {
+        
+        /**
+         * @return the number of rows selected
+         */
+        int size();
+        
+        /**
+         * @param rowBegin
+         *            the first row to return, counting from 1
+         * @param rowEnd
+         *            the last row to return
+         * @param fixedFieldsInEvent
+         *            the fixed columns to return as fields of the rows
+         * @return the rows from rowBegin to rowEnd, fewer if the selection ends before rowEnd
+         * @throws IOException
+         *             if the rows could not be read
+         */
+        List<CacheableQueryRow> getRows(int rowBegin, int rowEnd, Set<String> fixedFieldsInEvent) throws IOException;
+    }
+    
+    String getView();
+    
+    /**
+     * Adds a row, which is not read until the next {@link #flush()}
+     *
+     * @param owner
+     *            the user the row was loaded for
+     * @param queryId
+     *            the query the row was loaded from
+     * @param logicName
+     *            the logic of the query
+     * @param row
+     *            the row
+     * @param fieldMap
+     *            the column number of each field, to which the fields of the row not yet in it are added
+     * @throws IOException
+     *             if the row could not be written
+     */
+    void write(String owner, String queryId, String logicName, CacheableQueryRow row, Map<String,Integer> fieldMap) throws IOException;
+    
+    /**
+     * Makes the rows written so far available to queries
+     *
+     * @throws IOException
+     *             if the rows could not be written
+     */
+    void flush() throws IOException;
+    
+    /**
+     * @return the number of rows available to queries
+     */
+    int size();
+    
+    /**
+     * @return the names of the columns other than the fixed columns, in the order they were added
+     */
+    List<String> getColumnNames();
+    
+    /**
+     * Selects the rows of a user matching a query. The conditions and order take the form of the WHERE and ORDER BY clauses the database is queried with.
+     *
+     * @param user
+     *            the user whose rows are selected
+     * @param fields
+     *            comma separated fields to return, all of them when empty
+     * @param conditions
+     *            the conditions the rows must meet, if any
+     * @param grouping
+     *            the fields to group the rows by, if any
+     * @param order
+     *            the order to return the rows in, by event id when empty
+     * @return the rows selected
+     * @throws IllegalArgumentException
+     *             if the store cannot answer the query
+     * @throws IOException
+     *             if the rows could not be read
+     */
+    Selection select(String user, String fields, String conditions, String grouping, String order) throws IOException;
+    
+    /**
+     * Closes the store and removes its rows
+     *
+     * @throws IOException
+     *             if the rows could not be removed
+     */
+    void drop() throws IOException;
+}
@@ -49,12 +49,17 @@ public class CachedRunningQuery extends AbstractRunningQuery {
     
     private static DataSource datasource = null;
     
+    private static CachedResultsStore.Factory storeFactory = null;
+    
     private static final long serialVersionUID = 1L;
     
     private static ResponseObjectFactory responseObjectFactory;
     private transient Connection connection = null;
     private transient CachedRowSet crs = null;
     private transient Statement statement = null;
+    // the rows of the query, when they are read from a store rather than the database
+    private transient CachedResultsStore.Selection selection = null;
+    private transient int storedRows = 0;
     
     private transient CacheableLogic cacheableLogic = null;
     private transient QueryLogic<?> queryLogic = null;
@@ -400,8 +405,10 @@ public class CachedRunningQuery extends AbstractRunningQuery {
         if (StringUtils.isEmpty(StringUtils.trimToNull(grouping)))
             grouping = null;
         
-        if (null == this.viewColumnNames)
-            this.viewColumnNames = this.getViewColumnNames(connection, view);
+        if (null == this.viewColumnNames) {
+            CachedResultsStore store = getStore();
+            this.viewColumnNames = (store == null) ? this.getViewColumnNames(connection, view) : new ArrayList<>(store.getColumnNames());
+        }
         
         if (!fields.equals("*")) {
             LinkedHashSet<String> fieldSet = new LinkedHashSet<>();
@@ -544,7 +551,27 @@ public class CachedRunningQuery extends AbstractRunningQuery {
         if (this.connection != null && this.statement != null && this.crs != null) {
             return true;
         } else {
-            return false;
+            return this.selection != null;
+        }
+    }
+    
+    /**
+     * @return whether the rows of this query are read from a store rather than the database
+     * @throws SQLException
+     *             if the store could not be opened
+     */
+    public boolean isStored() throws SQLException {
+        return getStore() != null;
+    }
+    
+    private CachedResultsStore getStore() throws SQLException {
+        if (storeFactory == null || this.view == null) {
+            return null;
+        }
+        try {
+            return storeFactory.open(this.view);
+        } catch (IOException e) {
+            throw new SQLException("Unable to open the cached results store of " + this.view, e);
         }
     }
     
@@ -585,8 +612,13 @@ public class CachedRunningQuery extends AbstractRunningQuery {
                 log.trace("activating CRS on host:" + host + ", " + this);
             }
             
-            this.statement = this.connection.createStatement(ResultSet.TYPE_SCROLL_INSENSITIVE, ResultSet.CONCUR_READ_ONLY);
-            initialize();
+            CachedResultsStore store = getStore();
+            if (store == null) {
+                this.statement = this.connection.createStatement(ResultSet.TYPE_SCROLL_INSENSITIVE, ResultSet.CONCUR_READ_ONLY);
+                initialize();
+            } else {
+                initialize(store);
+            }
         } catch (SQLException e) {
             log.error(e.getMessage(), e);
             throw e;
@@ -632,6 +664,26 @@ public class CachedRunningQuery extends AbstractRunningQuery {
         this.currentRow = position.BEFORE_FIRST;
     }
     
+    private void initialize(CachedResultsStore store) throws SQLException {
+        
+        // the query is generated for the metric and to validate the parameters as for the database
+        this.sqlQuery = this.generateSql(this.view, this.fields, this.conditions, this.grouping, this.order, this.user, this.connection);
+        this.getMetric().setQuery(sqlQuery);
+        
+        try {
+            this.storedRows = store.size();
+            this.selection = store.select(this.user, this.fields, this.conditions, this.grouping, this.order);
+        } catch (IOException e) {
+            throw new SQLException("Unable to read the cached results store of " + this.view, e);
+        }
+        this.totalRows = this.selection.size();
+        this.currentRow = position.BEFORE_FIRST;
+        
+        if (log.isTraceEnabled()) {
+            log.trace("Selected " + this.totalRows + " rows from the cached results store of " + this.view);
+        }
+    }
+    
     public String getUser() {
         return this.user;
     }
@@ -649,6 +701,19 @@ public class CachedRunningQuery extends AbstractRunningQuery {
         updateTimestamp();
         long pageStartTime = System.currentTimeMillis();
         
+        if (this.selection != null) {
+            // select the rows again once a load has added to them, as the database is queried again for each page
+            CachedResultsStore store = getStore();
+            if (store != null && store.size() != this.storedRows) {
+                initialize(store);
+            }
+            ResultsPage resultList = convert(rowBegin, rowEnd, pageByteTrigger);
+            long now = System.currentTimeMillis();
+            this.getMetric().addPageTime(resultList.getResults().size(), (now - pageStartTime), pageStartTime, now);
+            updateTimestamp();
+            return resultList;
+        }
+        
         // We need to apply a default ORDER BY clause if one does not EXIST in the query
         StringBuilder query = new StringBuilder(this.sqlQuery);
         if (!this.sqlQuery.toUpperCase().contains(" ORDER BY ")) {
@@ -658,6 +723,9 @@ public class CachedRunningQuery extends AbstractRunningQuery {
         ResultsPage resultList;
         int pagesize = (rowEnd - rowBegin) + 1;
         
+        // let the database skip to the page rather than reading every row before it, in the form MySQL shares with PostgreSQL and H2
+        query.append(" LIMIT ").append(pagesize).append(" OFFSET ").append(rowBegin - 1);
+        
         try (PreparedStatement ps = connection.prepareStatement(query.toString()); CachedRowSet crs = RowSetProvider.newFactory().createCachedRowSet()) {
             log.debug("Get Rows query: " + query);
             
@@ -665,7 +733,7 @@ public class CachedRunningQuery extends AbstractRunningQuery {
             crs.setPageSize(pagesize);
             
             try (ResultSet rs = ps.executeQuery()) {
-                crs.populate(rs, rowBegin);
+                crs.populate(rs);
                 resultList = convert(crs, rowBegin, rowEnd, pageByteTrigger);
             }
             
@@ -734,7 +802,10 @@ public class CachedRunningQuery extends AbstractRunningQuery {
         }
         
         ResultsPage resultList = new ResultsPage();
-        if (nextPageOfResults()) {
+        if (this.selection != null) {
+            int rowBegin = this.lastPageNumber * this.pagesize + 1;
+            resultList = convert(rowBegin, rowBegin + this.pagesize - 1, pageByteTrigger);
+        } else if (nextPageOfResults()) {
             resultList = convert(this.crs, pageByteTrigger);
         }
         
@@ -772,7 +843,12 @@ public class CachedRunningQuery extends AbstractRunningQuery {
         }
         
         ResultsPage resultList = new ResultsPage();
-        if (previousPageOfResults()) {
+        if (this.selection != null) {
+            if (this.lastPageNumber > 1) {
+                int rowBegin = (this.lastPageNumber - 2) * this.pagesize + 1;
+                resultList = convert(rowBegin, rowBegin + this.pagesize - 1, pageByteTrigger);
+            }
+        } else if (previousPageOfResults()) {
             resultList = convert(this.crs, pageByteTrigger);
         }
         
@@ -862,10 +938,40 @@ public class CachedRunningQuery extends AbstractRunningQuery {
         }
     }
     
+    private ResultsPage convert(int rowBegin, int rowEnd, long pageByteTrigger) {
+        boolean hitPageByteTrigger = false;
+        List<CacheableQueryRow> cacheableQueryRowList = new ArrayList<>();
+        try {
+            long resultBytes = 0;
+            for (CacheableQueryRow row : this.selection.getRows(rowBegin, rowEnd, this.fixedFieldsInEvent)) {
+                if (hitPageByteTrigger) {
+                    break;
+                }
+                cacheableQueryRowList.add(row);
+                if (pageByteTrigger != 0) {
+                    resultBytes += ObjectSizeOf.Sizer.getObjectSize(row);
+                    if (resultBytes >= pageByteTrigger) {
+                        hitPageByteTrigger = true;
+                    }
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            log.error(e.getMessage(), e);
+        }
+        
+        if (this.cacheableLogic == null) {
+            return new ResultsPage();
+        } else {
+            return new ResultsPage(this.cacheableLogic.readFromCache(cacheableQueryRowList), (hitPageByteTrigger ? ResultsPage.Status.PARTIAL
+                            : ResultsPage.Status.COMPLETE));
+        }
+    }
+    
     public void resetConnection() {
         this.connection = null;
         this.statement = null;
         this.crs = null;
+        this.selection = null;
     }
     
     public Connection getConnection() {
@@ -1219,6 +1325,14 @@ public class CachedRunningQuery extends AbstractRunningQuery {
         CachedRunningQuery.datasource = datasource;
     }
     
+    /**
+     * @param storeFactory
+     *            the stores to read the rows of the views loaded into them from, or null to read them all from the database
+     */
+    public static void setStoreFactory(CachedResultsStore.Factory storeFactory) {
+        CachedRunningQuery.storeFactory = storeFactory;
+    }
+    
     public Status getStatus() {
         return status;
     }
@@ -0,0 +1,998 @@
+package datawave.webservice.results.cached;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntPredicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import datawave.marking.MarkingFunctions;
+import datawave.webservice.query.cachedresults.CacheableQueryRow;
+import datawave.webservice.query.cachedresults.CacheableQueryRowReader;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.log4j.Logger;
+
+/**
+ * Stores each set of cached results in a directory of its own, with two files for each column that are memory mapped to read it: one holding the values of
+ * the column end to end, and one the offset and length of the value of each row. The first query ordered by a column sorts the rows by it, and the sort index
+ * is kept in a third file beside the column for the queries after it.
+ *
+ * The conditions of a query may compare columns and literals with =, !=, &lt;&gt;, &lt;, &lt;=, &gt;, &gt;=, [NOT] LIKE, [NOT] IN, [NOT] BETWEEN and IS [NOT]
+ * NULL, combined with AND, OR, NOT and parentheses. Values compare as text ignoring case, as in the template table, or as numbers when compared with a number.
+ * Functions and grouping are left to the database.
+ */
+public class MappedCachedResultsStore implements CachedResultsStore {
+    
+    private static Logger log = Logger.getLogger(MappedCachedResultsStore.class);
+    
+    // the stores opened, so that the queries of a view read the rows flushed by the load still writing it
+    private static final Map<File,MappedCachedResultsStore> stores = new ConcurrentHashMap<>();
+    
+    private static final List<String> FIXED_COLUMNS = new ArrayList<>(CacheableQueryRow.getFixedColumnSet());
+    private static final String USER_COLUMN = "_user_";
+    private static final String DEFAULT_ORDER = "_eventId_";
+    
+    private static final String COLUMNS = "columns";
+    private static final String VALUES = ".dat";
+    private static final String OFFSETS = ".idx";
+    private static final String SORT_INDEX = ".srt";
+    
+    // the offset of a value and its length, which is -1 for a null
+    private static final int OFFSET_SIZE = 12;
+    private static final int NULL_LENGTH = -1;
+    
+    private static final Comparator<String> VALUE_ORDER = Comparator.nullsFirst(String.CASE_INSENSITIVE_ORDER);
+    
+    private static final Pattern NUMBER = Pattern.compile("^\\s*[-+]?(\\d+\\.?\\d*|\\.\\d+)([eE][-+]?\\d+)?");
+    
+    /**
+     * Creates the stores in a directory, one directory beneath it for each view
+     */
+    public static class Factory implements CachedResultsStore.Factory {
+        
+        private final File directory;
+        
+        public Factory(File directory) {
+            this.directory = directory;
+        }
+        
+        @Override
+        public CachedResultsStore create(String view) throws IOException {
+            File storeDirectory = new File(directory, CachedResultsParameters.validate(view));
+            if (!storeDirectory.mkdirs()) {
+                throw new IOException("Unable to create cached results store " + storeDirectory);
+            }
+            MappedCachedResultsStore store = new MappedCachedResultsStore(view, storeDirectory, true);
+            store.flush();
+            stores.put(storeDirectory, store);
+            return store;
+        }
+        
+        @Override
+        public CachedResultsStore open(String view) throws IOException {
+            File storeDirectory = new File(directory, CachedResultsParameters.validate(view));
+            MappedCachedResultsStore store = stores.get(storeDirectory);
+            if (store == null && new File(storeDirectory, COLUMNS).exists()) {
+                synchronized (stores) {
+                    store = stores.get(storeDirectory);
+                    if (store == null) {
+                        store = new MappedCachedResultsStore(view, storeDirectory, false);
+                        store.readColumns();
+                        stores.put(storeDirectory, store);
+                    }
+                }
+            }
+            return store;
+        }
+    }
+    
+    /**
+     * The columns and rows that queries read, as of the last flush
+     */
+    private static class Contents {
+        private final List<String> columns;
+        private final int rows;
+        
+        private Contents(List<String> columns, int rows) {
+            this.columns = Collections.unmodifiableList(new ArrayList<>(columns));
+            this.rows = rows;
+        }
+    }
+    
+    private final String view;
+    private final File directory;
+    
+    // the columns written, the fixed columns first, and the position of each
+    private final List<String> columns = new ArrayList<>(FIXED_COLUMNS);
+    private final Map<String,Integer> positions = new HashMap<>();
+    private final List<ColumnWriter> writers = new ArrayList<>();
+    private boolean writable;
+    private int rowsWritten = 0;
+    
+    private volatile Contents contents = new Contents(FIXED_COLUMNS, 0);
+    
+    private final Map<Integer,MappedColumn> mappedColumns = new ConcurrentHashMap<>();
+    private final Map<Integer,SortIndex> sortIndexes = new ConcurrentHashMap<>();
+    
+    private MappedCachedResultsStore(String view, File directory, boolean writable) {
+        this.view = view;
+        this.directory = directory;
+        this.writable = writable;
+        for (int x = 0; x < columns.size(); x++) {
+            positions.put(columns.get(x), x);
+        }
+    }
+    
+    @Override
+    public String getView() {
+        return view;
+    }
+    
+    @Override
+    public synchronized void write(String owner, String queryId, String logicName, CacheableQueryRow row, Map<String,Integer> fieldMap) throws IOException {
+        if (!writable) {
+            throw new IllegalStateException("Cached results store " + view + " is not open for writing");
+        }
+        
+        Map<String,String> columnValues = row.getColumnValues();
+        for (String columnName : columnValues.keySet()) {
+            if (!fieldMap.containsKey(columnName)) {
+                fieldMap.put(columnName, CacheableQueryRow.getFixedColumnSet().size() + fieldMap.size() + 1);
+            }
+            if (!positions.containsKey(columnName)) {
+                positions.put(columnName, columns.size());
+                columns.add(columnName);
+            }
+        }
+        
+        // the column markings and timestamps refer to columns by their number in this store
+        Map<String,Integer> columnNumbers = getColumnNumbers(columns);
+        
+        // in the order of the fixed columns
+        String[] values = new String[columns.size()];
+        values[0] = owner;
+        values[1] = queryId;
+        values[2] = logicName;
+        values[3] = row.getDataType();
+        values[4] = row.getEventId();
+        values[5] = row.getRow();
+        values[6] = row.getColFam();
+        values[7] = MarkingFunctions.Encoding.toString(new TreeMap<>(row.getMarkings()));
+        values[8] = row.getColumnSecurityMarkingString(columnNumbers);
+        values[9] = row.getColumnTimestampString(columnNumbers);
+        for (Map.Entry<String,String> e : columnValues.entrySet()) {
+            values[positions.get(e.getKey())] = e.getValue();
+        }
+        
+        for (int x = 0; x < values.length; x++) {
+            getWriter(x).write(values[x]);
+        }
+        rowsWritten++;
+    }
+    
+    private ColumnWriter getWriter(int position) throws IOException {
+        while (writers.size() <= position) {
+            // a column found after the first rows is null in them
+            ColumnWriter writer = new ColumnWriter(writers.size() + 1);
+            for (int x = 0; x < rowsWritten; x++) {
+                writer.write(null);
+            }
+            writers.add(writer);
+        }
+        return writers.get(position);
+    }
+    
+    @Override
+    public synchronized void flush() throws IOException {
+        if (!writable) {
+            return;
+        }
+        for (ColumnWriter writer : writers) {
+            writer.flush();
+        }
+        
+        File columnsFile = new File(directory, COLUMNS);
+        File tmp = new File(directory, COLUMNS + ".tmp");
+        List<String> lines = new ArrayList<>();
+        lines.add(Integer.toString(rowsWritten));
+        lines.addAll(columns);
+        Files.write(tmp.toPath(), lines, StandardCharsets.UTF_8);
+        Files.move(tmp.toPath(), columnsFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        
+        contents = new Contents(columns, rowsWritten);
+        if (log.isTraceEnabled()) {
+            log.trace("Flushed " + rowsWritten + " rows of " + columns.size() + " columns to " + directory);
+        }
+    }
+    
+    private void readColumns() throws IOException {
+        List<String> lines = Files.readAllLines(new File(directory, COLUMNS).toPath(), StandardCharsets.UTF_8);
+        columns.clear();
+        columns.addAll(lines.subList(1, lines.size()));
+        positions.clear();
+        for (int x = 0; x < columns.size(); x++) {
+            positions.put(columns.get(x), x);
+        }
+        rowsWritten = Integer.parseInt(lines.get(0));
+        contents = new Contents(columns, rowsWritten);
+    }
+    
+    @Override
+    public int size() {
+        return contents.rows;
+    }
+    
+    @Override
+    public List<String> getColumnNames() {
+        List<String> columns = contents.columns;
+        return columns.subList(FIXED_COLUMNS.size(), columns.size());
+    }
+    
+    @Override
+    public Selection select(String user, String fields, String conditions, String grouping, String order) throws IOException {
+        if (StringUtils.isNotBlank(grouping)) {
+            throw new IllegalArgumentException("Grouping is not supported by the cached results store of " + view);
+        }
+        
+        Contents contents = this.contents;
+        Map<String,MappedColumn> columns = new HashMap<>();
+        for (int x = 0; x < contents.columns.size(); x++) {
+            columns.put(contents.columns.get(x), getColumn(x, contents.rows));
+        }
+        
+        List<String> selected = selectColumns(fields, contents.columns);
+        Condition where = null;
+        if (StringUtils.isNotBlank(conditions)) {
+            where = new ConditionParser(conditions, columns).parse();
+        }
+        
+        MappedColumn users = columns.get(USER_COLUMN);
+        BitSet matches = new BitSet(contents.rows);
+        for (int row = 0; row < contents.rows; row++) {
+            if (user.equals(users.get(row)) && (where == null || Boolean.TRUE.equals(where.evaluate(row)))) {
+                matches.set(row);
+            }
+        }
+        
+        return new MappedSelection(contents, columns, selected, sort(matches, parseOrder(order, contents), contents.rows));
+    }
+    
+    private List<String> selectColumns(String fields, List<String> columns) {
+        if (StringUtils.isBlank(fields)) {
+            return columns;
+        }
+        
+        // the fixed columns are always selected
+        Set<String> selected = new LinkedHashSet<>(FIXED_COLUMNS);
+        for (String field : CachedRunningQuery.tokenizeOutsideParens(fields, ',')) {
+            field = field.replace("`", "").trim();
+            if (field.equals("*")) {
+                return columns;
+            }
+            if (field.contains("(")) {
+                throw new IllegalArgumentException("Functions are not supported by the cached results store of " + view + ": " + field);
+            }
+            if (!columns.contains(field)) {
+                throw new IllegalArgumentException("Unknown column '" + field + "' in field list");
+            }
+            selected.add(field);
+        }
+        return new ArrayList<>(selected);
+    }
+    
+    /**
+     * A column to order by, and its direction
+     */
+    private static class SortKey {
+        private final int position;
+        private final boolean descending;
+        
+        private SortKey(int position, boolean descending) {
+            this.position = position;
+            this.descending = descending;
+        }
+    }
+    
+    private List<SortKey> parseOrder(String order, Contents contents) {
+        List<SortKey> keys = new ArrayList<>();
+        if (StringUtils.isBlank(order)) {
+            keys.add(new SortKey(contents.columns.indexOf(DEFAULT_ORDER), false));
+            return keys;
+        }
+        for (String key : CachedRunningQuery.tokenizeOutsideParens(order, ',')) {
+            String[] parts = CachedRunningQuery.tokenizeOutsideParens(key, ' ');
+            String column = parts[0].replace("`", "").trim();
+            if (column.contains("(")) {
+                throw new IllegalArgumentException("Functions are not supported by the cached results store of " + view + ": " + column);
+            }
+            int position = contents.columns.indexOf(column);
+            if (position < 0) {
+                throw new IllegalArgumentException("Unknown column '" + column + "' in order clause");
+            }
+            boolean descending = false;
+            if (parts.length == 2 && parts[1].equalsIgnoreCase("DESC")) {
+                descending = true;
+            } else if (parts.length > 2 || (parts.length == 2 && !parts[1].equalsIgnoreCase("ASC"))) {
+                throw new IllegalArgumentException("Unable to order by " + key);
+            }
+            keys.add(new SortKey(position, descending));
+        }
+        return keys;
+    }
+    
+    private int[] sort(BitSet matches, List<SortKey> keys, int rows) throws IOException {
+        int[] sorted = new int[matches.cardinality()];
+        if (keys.size() == 1) {
+            // read the rows in the order of the index
+            SortKey key = keys.get(0);
+            SortIndex index = getSortIndex(key.position, rows);
+            int x = 0;
+            for (int i = 0; i < rows; i++) {
+                int row = index.getRow(key.descending ? rows - 1 - i : i);
+                if (matches.get(row)) {
+                    sorted[x++] = row;
+                }
+            }
+        } else {
+            // compare the rows by their rank in the index of each column
+            SortIndex[] indexes = new SortIndex[keys.size()];
+            for (int k = 0; k < keys.size(); k++) {
+                indexes[k] = getSortIndex(keys.get(k).position, rows);
+            }
+            Integer[] selected = new Integer[sorted.length];
+            int x = 0;
+            for (int row = matches.nextSetBit(0); row >= 0; row = matches.nextSetBit(row + 1)) {
+                selected[x++] = row;
+            }
+            Arrays.sort(selected, (row1, row2) -> {
+                for (int k = 0; k < indexes.length; k++) {
+                    int c = Integer.compare(indexes[k].getRank(row1), indexes[k].getRank(row2));
+                    if (c != 0) {
+                        return keys.get(k).descending ? -c : c;
+                    }
+                }
+                return Integer.compare(row1, row2);
+            });
+            for (x = 0; x < selected.length; x++) {
+                sorted[x] = selected[x];
+            }
+        }
+        return sorted;
+    }
+    
+    /**
+     * The rows of a query, read from the columns mapped when it was run
+     */
+    private static class MappedSelection implements Selection {
+        
+        private final Map<String,Integer> columnNumbers;
+        private final Map<String,MappedColumn> columns;
+        private final List<String> selected;
+        private final int[] rows;
+        
+        private MappedSelection(Contents contents, Map<String,MappedColumn> columns, List<String> selected, int[] rows) {
+            this.columnNumbers = getColumnNumbers(contents.columns);
+            this.columns = columns;
+            this.selected = selected;
+            this.rows = rows;
+        }
+        
+        @Override
+        public int size() {
+            return rows.length;
+        }
+        
+        @Override
+        public List<CacheableQueryRow> getRows(int rowBegin, int rowEnd, Set<String> fixedFieldsInEvent) {
+            List<CacheableQueryRow> page = new ArrayList<>();
+            for (int x = Math.max(rowBegin, 1) - 1; x < Math.min(rowEnd, rows.length); x++) {
+                Map<String,String> values = new LinkedHashMap<>();
+                for (String column : selected) {
+                    values.put(column, columns.get(column).get(rows[x]));
+                }
+                page.add(CacheableQueryRowReader.createRow(values, columnNumbers, fixedFieldsInEvent));
+            }
+            return page;
+        }
+    }
+    
+    private static Map<String,Integer> getColumnNumbers(List<String> columns) {
+        Map<String,Integer> columnNumbers = new HashMap<>();
+        for (int x = 0; x < columns.size(); x++) {
+            columnNumbers.put(columns.get(x), x + 1);
+        }
+        return columnNumbers;
+    }
+    
+    private File getFile(int position, String suffix) {
+        return new File(directory, (position + 1) + suffix);
+    }
+    
+    private static MappedByteBuffer map(File file, long size) throws IOException {
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException(file + " is too large to map");
+        }
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+    }
+    
+    private MappedColumn getColumn(int position, int rows) throws IOException {
+        MappedColumn column = mappedColumns.get(position);
+        if (column == null || column.rows < rows) {
+            synchronized (mappedColumns) {
+                column = mappedColumns.get(position);
+                // remap a column which has grown since it was mapped
+                if (column == null || column.rows < rows) {
+                    File values = getFile(position, VALUES);
+                    column = new MappedColumn(rows, map(getFile(position, OFFSETS), (long) rows * OFFSET_SIZE), map(values, values.length()));
+                    mappedColumns.put(position, column);
+                }
+            }
+        }
+        return column;
+    }
+    
+    /**
+     * The values of a column, as of the number of rows it was mapped with
+     */
+    private static class MappedColumn {
+        
+        private final int rows;
+        private final ByteBuffer offsets;
+        private final ByteBuffer values;
+        
+        private MappedColumn(int rows, ByteBuffer offsets, ByteBuffer values) {
+            this.rows = rows;
+            this.offsets = offsets;
+            this.values = values;
+        }
+        
+        private String get(int row) {
+            int offset = row * OFFSET_SIZE;
+            int length = offsets.getInt(offset + 8);
+            if (length == NULL_LENGTH) {
+                return null;
+            }
+            byte[] bytes = new byte[length];
+            ByteBuffer value = values.duplicate();
+            value.position((int) offsets.getLong(offset));
+            value.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+    
+    /**
+     * Appends the values of the rows to the files of a column
+     */
+    private class ColumnWriter {
+        
+        private final OutputStream values;
+        private final DataOutputStream offsets;
+        private long length = 0;
+        
+        private ColumnWriter(int column) throws IOException {
+            values = new BufferedOutputStream(new FileOutputStream(new File(directory, column + VALUES)));
+            offsets = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(new File(directory, column + OFFSETS))));
+        }
+        
+        private void write(String value) throws IOException {
+            offsets.writeLong(length);
+            if (value == null) {
+                offsets.writeInt(NULL_LENGTH);
+            } else {
+                byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                offsets.writeInt(bytes.length);
+                values.write(bytes);
+                length += bytes.length;
+            }
+        }
+        
+        private void flush() throws IOException {
+            // the values first, so that no offset refers past them
+            values.flush();
+            offsets.flush();
+        }
+        
+        private void close() throws IOException {
+            try {
+                values.close();
+            } finally {
+                offsets.close();
+            }
+        }
+    }
+    
+    private SortIndex getSortIndex(int position, int rows) throws IOException {
+        SortIndex index = sortIndexes.get(position);
+        if (index == null || index.rows != rows) {
+            synchronized (sortIndexes) {
+                index = sortIndexes.get(position);
+                if (index == null || index.rows != rows) {
+                    index = readSortIndex(position, rows);
+                    if (index == null) {
+                        index = writeSortIndex(position, rows);
+                    }
+                    sortIndexes.put(position, index);
+                }
+            }
+        }
+        return index;
+    }
+    
+    private SortIndex readSortIndex(int position, int rows) throws IOException {
+        File file = getFile(position, SORT_INDEX);
+        if (file.exists()) {
+            MappedByteBuffer buffer = map(file, file.length());
+            // an index of fewer rows than the column has now is sorted again
+            if (buffer.getInt(0) == rows) {
+                return new SortIndex(buffer);
+            }
+        }
+        return null;
+    }
+    
+    private SortIndex writeSortIndex(int position, int rows) throws IOException {
+        long start = System.currentTimeMillis();
+        MappedColumn column = getColumn(position, rows);
+        String[] values = new String[rows];
+        Integer[] order = new Integer[rows];
+        for (int row = 0; row < rows; row++) {
+            values[row] = column.get(row);
+            order[row] = row;
+        }
+        // a stable sort, so rows of equal values keep the order they were loaded in
+        Arrays.sort(order, (row1, row2) -> VALUE_ORDER.compare(values[row1], values[row2]));
+        
+        int[] rank = new int[rows];
+        for (int x = 1; x < rows; x++) {
+            boolean equal = VALUE_ORDER.compare(values[order[x - 1]], values[order[x]]) == 0;
+            rank[order[x]] = equal ? rank[order[x - 1]] : x;
+        }
+        
+        File file = getFile(position, SORT_INDEX);
+        File tmp = new File(directory, file.getName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+            out.writeInt(rows);
+            for (int row : order) {
+                out.writeInt(row);
+            }
+            for (int r : rank) {
+                out.writeInt(r);
+            }
+        }
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        if (log.isDebugEnabled()) {
+            log.debug("Sorted " + rows + " rows of " + view + " by " + contents.columns.get(position) + " in " + (System.currentTimeMillis() - start) + " ms");
+        }
+        return new SortIndex(map(file, file.length()));
+    }
+    
+    /**
+     * The rows of a column in the order of their values, and the rank of the value of each row in that order, equal for equal values
+     */
+    private static class SortIndex {
+        
+        private final int rows;
+        private final IntBuffer index;
+        
+        private SortIndex(ByteBuffer buffer) {
+            this.rows = buffer.getInt(0);
+            ByteBuffer ints = buffer.duplicate();
+            ints.position(4);
+            this.index = ints.slice().asIntBuffer();
+        }
+        
+        private int getRow(int x) {
+            return index.get(x);
+        }
+        
+        private int getRank(int row) {
+            return index.get(rows + row);
+        }
+    }
+    
+    @Override
+    public synchronized void close() throws IOException {
+        if (writable) {
+            flush();
+            writable = false;
+            IOException exception = null;
+            for (ColumnWriter writer : writers) {
+                try {
+                    writer.close();
+                } catch (IOException e) {
+                    exception = e;
+                }
+            }
+            writers.clear();
+            if (exception != null) {
+                throw exception;
+            }
+        }
+    }
+    
+    @Override
+    public synchronized void drop() throws IOException {
+        stores.remove(directory);
+        try {
+            writable = false;
+            for (ColumnWriter writer : writers) {
+                writer.close();
+            }
+        } finally {
+            writers.clear();
+            mappedColumns.clear();
+            sortIndexes.clear();
+            File[] files = directory.listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    Files.deleteIfExists(file.toPath());
+                }
+            }
+            Files.deleteIfExists(directory.toPath());
+        }
+    }
+    
+    /**
+     * A condition of a query, which is true, false, or null when it compares a null value, as in SQL
+     */
+    private interface Condition {
+        Boolean evaluate(int row);
+    }
+    
+    /**
+     * A column or literal compared by a condition
+     */
+    private interface Operand {
+        String get(int row);
+        
+        default boolean isNumber() {
+            return false;
+        }
+    }
+    
+    private static Operand literal(String value, boolean number) {
+        return new Operand() {
+            @Override
+            public String get(int row) {
+                return value;
+            }
+            
+            @Override
+            public boolean isNumber() {
+                return number;
+            }
+        };
+    }
+    
+    private static double toNumber(String value) {
+        // the leading number of a value compared with a number, or 0 if there is none, as MySQL converts it
+        Matcher m = NUMBER.matcher(value);
+        return m.find() ? Double.parseDouble(m.group().trim()) : 0;
+    }
+    
+    private static Integer compare(Operand left, Operand right, int row) {
+        String l = left.get(row);
+        String r = right.get(row);
+        if (l == null || r == null) {
+            return null;
+        }
+        if (left.isNumber() || right.isNumber()) {
+            return Double.compare(toNumber(l), toNumber(r));
+        }
+        return String.CASE_INSENSITIVE_ORDER.compare(l, r);
+    }
+    
+    private static Boolean test(Integer comparison, IntPredicate predicate) {
+        return comparison == null ? null : predicate.test(comparison);
+    }
+    
+    private static Boolean not(Boolean b) {
+        return b == null ? null : !b;
+    }
+    
+    private static Pattern toPattern(String like) {
+        StringBuilder regex = new StringBuilder();
+        for (int x = 0; x < like.length(); x++) {
+            char c = like.charAt(x);
+            if (c == '\\' && x + 1 < like.length()) {
+                regex.append(Pattern.quote(String.valueOf(like.charAt(++x))));
+            } else if (c == '%') {
+                regex.append(".*");
+            } else if (c == '_') {
+                regex.append('.');
+            } else {
+                regex.append(Pattern.quote(String.valueOf(c)));
+            }
+        }
+        return Pattern.compile(regex.toString(), Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE | Pattern.DOTALL);
+    }
+    
+    /**
+     * Parses the conditions of a query, as written for its WHERE clause, into a {@link Condition} on the columns of this store
+     */
+    private static class ConditionParser {
+        
+        // quoted names, strings, numbers, names and keywords, and operators
+        private static final Pattern TOKEN = Pattern.compile("\\s*(`[^`]*`" + "|'(?:[^'\\\\]|\\\\.|'')*'|\"(?:[^\"\\\\]|\\\\.|\"\")*\""
+                        + "|-?(?:\\d+\\.?\\d*|\\.\\d+)(?:[eE][-+]?\\d+)?" + "|[\\w.$]+" + "|<=|>=|<>|!=|[=<>(),])");
+        
+        private static final Set<String> COMPARISONS = new HashSet<>(Arrays.asList("=", "!=", "<>", "<", "<=", ">", ">="));
+        
+        private final String conditions;
+        private final Map<String,MappedColumn> columns;
+        private final List<String> tokens = new ArrayList<>();
+        private int next = 0;
+        
+        private ConditionParser(String conditions, Map<String,MappedColumn> columns) {
+            this.conditions = conditions;
+            this.columns = columns;
+            Matcher m = TOKEN.matcher(conditions);
+            int end = 0;
+            while (m.find() && m.start() == end) {
+                tokens.add(m.group(1));
+                end = m.end();
+            }
+            if (!conditions.substring(end).trim().isEmpty()) {
+                throw new IllegalArgumentException("Unable to parse conditions at: " + conditions.substring(end).trim());
+            }
+        }
+        
+        private Condition parse() {
+            Condition condition = parseOr();
+            if (next < tokens.size()) {
+                throw error();
+            }
+            return condition;
+        }
+        
+        private IllegalArgumentException error() {
+            String at = next < tokens.size() ? tokens.get(next) : "end";
+            return new IllegalArgumentException("Unable to parse conditions '" + conditions + "' at: " + at);
+        }
+        
+        private String peek() {
+            return next < tokens.size() ? tokens.get(next) : null;
+        }
+        
+        private boolean accept(String keyword) {
+            if (keyword.equalsIgnoreCase(peek())) {
+                next++;
+                return true;
+            }
+            return false;
+        }
+        
+        private void expect(String keyword) {
+            if (!accept(keyword)) {
+                throw error();
+            }
+        }
+        
+        private Condition parseOr() {
+            List<Condition> conditions = new ArrayList<>();
+            conditions.add(parseAnd());
+            while (accept("OR")) {
+                conditions.add(parseAnd());
+            }
+            if (conditions.size() == 1) {
+                return conditions.get(0);
+            }
+            return row -> {
+                Boolean result = false;
+                for (Condition c : conditions) {
+                    Boolean b = c.evaluate(row);
+                    if (b == null) {
+                        result = null;
+                    } else if (b) {
+                        return true;
+                    }
+                }
+                return result;
+            };
+        }
+        
+        private Condition parseAnd() {
+            List<Condition> conditions = new ArrayList<>();
+            conditions.add(parseNot());
+            while (accept("AND")) {
+                conditions.add(parseNot());
+            }
+            if (conditions.size() == 1) {
+                return conditions.get(0);
+            }
+            return row -> {
+                Boolean result = true;
+                for (Condition c : conditions) {
+                    Boolean b = c.evaluate(row);
+                    if (b == null) {
+                        result = null;
+                    } else if (!b) {
+                        return false;
+                    }
+                }
+                return result;
+            };
+        }
+        
+        private Condition parseNot() {
+            if (accept("NOT")) {
+                Condition condition = parseNot();
+                return row -> not(condition.evaluate(row));
+            }
+            if (accept("(")) {
+                Condition condition = parseOr();
+                expect(")");
+                return condition;
+            }
+            return parsePredicate();
+        }
+        
+        private Condition parsePredicate() {
+            Operand left = parseOperand();
+            if (accept("IS")) {
+                boolean negated = accept("NOT");
+                expect("NULL");
+                return row -> (left.get(row) == null) != negated;
+            }
+            
+            boolean negated = accept("NOT");
+            Condition condition;
+            if (accept("LIKE")) {
+                String token = peek();
+                if (token == null || (token.charAt(0) != '\'' && token.charAt(0) != '"')) {
+                    throw new IllegalArgumentException("The pattern of a LIKE must be a string in the cached results store: " + conditions);
+                }
+                next++;
+                Pattern pattern = toPattern(unquote(token));
+                condition = row -> {
+                    String value = left.get(row);
+                    return value == null ? null : pattern.matcher(value).matches();
+                };
+            } else if (accept("IN")) {
+                expect("(");
+                List<Operand> values = new ArrayList<>();
+                values.add(parseOperand());
+                while (accept(",")) {
+                    values.add(parseOperand());
+                }
+                expect(")");
+                condition = row -> {
+                    Boolean result = false;
+                    for (Operand value : values) {
+                        Integer c = compare(left, value, row);
+                        if (c == null) {
+                            result = null;
+                        } else if (c == 0) {
+                            return true;
+                        }
+                    }
+                    return result;
+                };
+            } else if (accept("BETWEEN")) {
+                Operand low = parseOperand();
+                expect("AND");
+                Operand high = parseOperand();
+                condition = row -> {
+                    Integer c1 = compare(left, low, row);
+                    Integer c2 = compare(left, high, row);
+                    if ((c1 != null && c1 < 0) || (c2 != null && c2 > 0)) {
+                        return false;
+                    }
+                    return (c1 == null || c2 == null) ? null : true;
+                };
+            } else if (negated) {
+                throw error();
+            } else {
+                String op = peek();
+                if (!COMPARISONS.contains(op)) {
+                    throw error();
+                }
+                next++;
+                Operand right = parseOperand();
+                switch (op) {
+                    case "=":
+                        return row -> test(compare(left, right, row), c -> c == 0);
+                    case "!=":
+                    case "<>":
+                        return row -> test(compare(left, right, row), c -> c != 0);
+                    case "<":
+                        return row -> test(compare(left, right, row), c -> c < 0);
+                    case "<=":
+                        return row -> test(compare(left, right, row), c -> c <= 0);
+                    case ">":
+                        return row -> test(compare(left, right, row), c -> c > 0);
+                    case ">=":
+                        return row -> test(compare(left, right, row), c -> c >= 0);
+                    default:
+                        throw error();
+                }
+            }
+            return negated ? row -> not(condition.evaluate(row)) : condition;
+        }
+        
+        private Operand parseOperand() {
+            String token = peek();
+            if (token == null || token.equals("(") || token.equals(")") || token.equals(",")) {
+                throw error();
+            }
+            next++;
+            char first = token.charAt(0);
+            if (first == '\'' || first == '"') {
+                return literal(unquote(token), false);
+            }
+            if (Character.isDigit(first) || first == '-' || first == '.') {
+                return literal(token, true);
+            }
+            if (token.equalsIgnoreCase("NULL")) {
+                return literal(null, false);
+            }
+            if ("(".equals(peek())) {
+                throw new IllegalArgumentException("Functions are not supported by the cached results store: " + token);
+            }
+            String name = token.replace("`", "");
+            MappedColumn column = columns.get(name);
+            if (column == null) {
+                throw new IllegalArgumentException("Unknown column '" + name + "' in where clause");
+            }
+            return column::get;
+        }
+        
+        private static String unquote(String token) {
+            char quote = token.charAt(0);
+            StringBuilder value = new StringBuilder();
+            for (int x = 1; x < token.length() - 1; x++) {
+                char c = token.charAt(x);
+                if (c == '\\') {
+                    c = token.charAt(++x);
+                    switch (c) {
+                        case 'n':
+                            c = '\n';
+                            break;
+                        case 't':
+                            c = '\t';
+                            break;
+                        case '0':
+                            c = '\0';
+                            break;
+                        default:
+                            break;
+                    }
+                } else if (c == quote) {
+                    // a doubled quote
+                    x++;
+                }
+                value.append(c);
+            }
+            return value.toString();
+        }
+    }
+}
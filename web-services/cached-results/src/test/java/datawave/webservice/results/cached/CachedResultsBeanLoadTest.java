@@ -0,0 +1,278 @@
+package datawave.webservice.results.cached;
+
+import java.security.Principal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+
+import javax.ejb.EJBContext;
+
+import datawave.security.authorization.DatawavePrincipal;
+import datawave.security.authorization.DatawaveUser;
+import datawave.security.authorization.DatawaveUser.UserType;
+import datawave.security.authorization.SubjectIssuerDNPair;
+import datawave.webservice.common.audit.Auditor.AuditType;
+import datawave.webservice.common.connection.AccumuloConnectionFactory;
+import datawave.webservice.common.exception.DatawaveWebApplicationException;
+import datawave.webservice.query.Query;
+import datawave.webservice.query.QueryImpl;
+import datawave.webservice.query.cache.CachedResultsQueryCache;
+import datawave.webservice.query.cache.CreatedQueryLogicCacheBean;
+import datawave.webservice.query.cache.QueryCache;
+import datawave.webservice.query.cache.QueryMetricFactoryImpl;
+import datawave.webservice.query.cache.ResultsPage;
+import datawave.webservice.query.logic.QueryLogic;
+import datawave.webservice.query.metric.QueryMetricsBean;
+import datawave.webservice.query.runner.AccumuloConnectionRequestBean;
+import datawave.webservice.query.runner.RunningQuery;
+import datawave.webservice.results.cached.CachedResultsTestDatabase.StatusUpdate;
+import datawave.webservice.result.GenericResponse;
+
+import org.easymock.EasyMock;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.powermock.reflect.Whitebox;
+
+import com.google.common.collect.HashMultimap;
+
+/**
+ * Loads the pages of a query into the cached results database, checking the states a reader of the cached query sees as the rows are committed, once the
+ * load completes, and when it fails.
+ */
+public class CachedResultsBeanLoadTest {
+    
+    private static final String QUERY_ID = UUID.randomUUID().toString();
+    private static final String ALIAS = "alias";
+    private static final String VIEW = "v1";
+    
+    private CachedResultsTestDatabase database;
+    private String owner;
+    private QueryLogic<?> logic;
+    private CachedResultsQueryCache cachedRunningQueryCache;
+    private ScriptedQuery loading;
+    private LoadingBean bean;
+    
+    /**
+     * The state of the cached query and the rows committed, as seen each time the load asks for a page
+     */
+    private List<String> observed = new ArrayList<>();
+    
+    @Before
+    public void setup() throws Exception {
+        database = new CachedResultsTestDatabase();
+        CachedRunningQuery.setDatasource(database.getDataSource());
+        
+        DatawavePrincipal principal = new DatawavePrincipal(Collections.singleton(new DatawaveUser(SubjectIssuerDNPair.of("cn=me", "cn=issuer"),
+                        UserType.USER, Collections.singleton("A"), Collections.singleton("role"), HashMultimap.create(), System.currentTimeMillis())));
+        owner = principal.getShortName();
+        EJBContext ctx = EasyMock.createNiceMock(EJBContext.class);
+        EasyMock.expect(ctx.getCallerPrincipal()).andReturn(principal).anyTimes();
+        
+        logic = EasyMock.createNiceMock(QueryLogic.class);
+        EasyMock.expect(logic.clone()).andReturn(logic).anyTimes();
+        EasyMock.expect(logic.getTransformer(EasyMock.anyObject(Query.class))).andReturn(new CachedResultsTestDatabase.EventLogic()).anyTimes();
+        EasyMock.expect(logic.getAuditType(EasyMock.anyObject(Query.class))).andReturn(AuditType.NONE).anyTimes();
+        
+        AccumuloConnectionFactory connectionFactory = EasyMock.createNiceMock(AccumuloConnectionFactory.class);
+        AccumuloConnectionRequestBean accumuloConnectionRequestBean = EasyMock.createNiceMock(AccumuloConnectionRequestBean.class);
+        CreatedQueryLogicCacheBean qlCache = EasyMock.createNiceMock(CreatedQueryLogicCacheBean.class);
+        QueryMetricsBean metrics = EasyMock.createNiceMock(QueryMetricsBean.class);
+        EasyMock.replay(ctx, logic, connectionFactory, accumuloConnectionRequestBean, qlCache, metrics);
+        
+        // the query being cached, as created by the query service
+        QueryImpl settings = new QueryImpl();
+        settings.setId(UUID.fromString(QUERY_ID));
+        settings.setQueryName("query");
+        settings.setQuery("FIELD == 'value'");
+        settings.setOwner(owner);
+        QueryCache runningQueryCache = new QueryCache();
+        runningQueryCache.init();
+        runningQueryCache.put(QUERY_ID, new ScriptedQuery(settings, logic));
+        
+        cachedRunningQueryCache = new CachedResultsQueryCache();
+        cachedRunningQueryCache.init();
+        
+        CachedResultsConfiguration configuration = new CachedResultsConfiguration();
+        configuration.setStreamingLoad(true);
+        Map<String,String> parameters = new HashMap<>();
+        parameters.put("ROWS_PER_BATCH", "2");
+        parameters.put("CREATE_TABLE", "CREATE TABLE $table");
+        parameters.put("INSERT", "INSERT INTO $table VALUES (?)");
+        parameters.put("DROP_TABLE", "DROP TABLE $table");
+        parameters.put("DROP_VIEW", "DROP VIEW $table");
+        configuration.setParameters(parameters);
+        
+        loading = new ScriptedQuery(settings, logic);
+        loading.beforePage = () -> {
+            CachedRunningQuery crq = cachedRunningQueryCache.get(owner + "-" + ALIAS);
+            observed.add((null == crq ? "NONE" : crq.getStatus()) + ":" + database.rows.size());
+        };
+        
+        bean = new LoadingBean(loading);
+        Whitebox.setInternalState(bean, "ctx", ctx);
+        Whitebox.setInternalState(bean, "ds", database.getDataSource());
+        Whitebox.setInternalState(bean, "runningQueryCache", runningQueryCache);
+        Whitebox.setInternalState(bean, "cachedRunningQueryCache", cachedRunningQueryCache);
+        Whitebox.setInternalState(bean, "cachedResultsConfiguration", configuration);
+        Whitebox.setInternalState(bean, "metricFactory", new QueryMetricFactoryImpl());
+        Whitebox.setInternalState(bean, "connectionFactory", connectionFactory);
+        Whitebox.setInternalState(bean, "accumuloConnectionRequestBean", accumuloConnectionRequestBean);
+        Whitebox.setInternalState(bean, "qlCache", qlCache);
+        Whitebox.setInternalState(bean, "metrics", metrics);
+    }
+    
+    /**
+     * @return a page of events, each with the given fields
+     */
+    private static List<Object> page(int from, int to, String... fields) {
+        List<Object> events = new ArrayList<>();
+        for (int row = from; row < to; row++) {
+            List<String> event = new ArrayList<>();
+            event.add(CachedResultsTestDatabase.getEventId(row));
+            event.addAll(Arrays.asList(fields));
+            events.add(event.toArray(new String[0]));
+        }
+        return events;
+    }
+    
+    private CachedRunningQuery getCached() {
+        return cachedRunningQueryCache.get(owner + "-" + ALIAS);
+    }
+    
+    private void assertLoadFails(String message) {
+        try {
+            bean.load(QUERY_ID, ALIAS, "1");
+            Assert.fail("expected the load to fail");
+        } catch (DatawaveWebApplicationException e) {
+            StatusUpdate last = database.statuses.get(database.statuses.size() - 1);
+            Assert.assertEquals(CachedRunningQuery.Status.ERROR.toString(), last.status);
+            Assert.assertEquals(message, last.message);
+        }
+        Assert.assertTrue(((Set<?>) Whitebox.getInternalState(CachedResultsBean.class, "loadingQueries")).isEmpty());
+    }
+    
+    @Test
+    public void testStreamingLoad() throws Exception {
+        // each page is a batch, and brings a field the view does not have yet
+        loading.pages.add(page(0, 2, "F0"));
+        loading.pages.add(page(2, 4, "F0", "F1"));
+        loading.pages.add(page(4, 6, "F0", "F1", "F2"));
+        
+        GenericResponse<String> response = bean.load(QUERY_ID, ALIAS, "1");
+        Assert.assertEquals(VIEW, response.getResult());
+        
+        // a reader finds the rows committed so far as soon as the first batch is in, and more of them with each batch after
+        Assert.assertEquals(Arrays.asList("NONE:0", "LOADING:2", "LOADING:4", "LOADING:6"), observed);
+        
+        Assert.assertEquals(Arrays.asList("LOADING", "LOADING", "LOADING", "LOADING", "LOADED"), database.getStatuses());
+        List<StatusUpdate> statuses = database.statuses;
+        Assert.assertEquals(0, statuses.get(0).rows);
+        Assert.assertNull(statuses.get(0).view);
+        
+        // the rows of each update are only announced once the view covers all of their fields
+        Assert.assertEquals(2, statuses.get(1).rows);
+        Assert.assertTrue(statuses.get(1).view, statuses.get(1).view.startsWith("CREATE VIEW " + VIEW));
+        Assert.assertTrue(statuses.get(1).view, statuses.get(1).view.contains("`F0`"));
+        Assert.assertEquals(4, statuses.get(2).rows);
+        Assert.assertTrue(statuses.get(2).view, statuses.get(2).view.startsWith("CREATE OR REPLACE VIEW " + VIEW));
+        Assert.assertTrue(statuses.get(2).view, statuses.get(2).view.contains("`F1`"));
+        Assert.assertEquals(6, statuses.get(3).rows);
+        Assert.assertTrue(statuses.get(3).view, statuses.get(3).view.contains("`F2`"));
+        
+        // the view was complete, so it is not created again when the load completes
+        Assert.assertEquals(6, statuses.get(4).rows);
+        Assert.assertEquals(3, database.statements.stream().filter(statement -> statement.contains(" VIEW " + VIEW)).count());
+        Assert.assertTrue(statuses.get(4).message, statuses.get(4).message.startsWith("Loaded 6 rows"));
+        
+        Assert.assertEquals(CachedRunningQuery.Status.LOADED, getCached().getStatus());
+        Assert.assertEquals(VIEW, getCached().getView());
+        Assert.assertTrue(getCached().getVariableFields().containsAll(Arrays.asList("F0", "F1", "F2")));
+    }
+    
+    @Test
+    public void testFailureAfterRowsAvailable() throws Exception {
+        loading.pages.add(page(0, 2, "F0"));
+        loading.pages.add(new IllegalStateException("tablet server lost"));
+        
+        assertLoadFails("tablet server lost");
+        Assert.assertEquals(Arrays.asList("NONE:0", "LOADING:2"), observed);
+        Assert.assertEquals(Arrays.asList("LOADING", "LOADING", "ERROR"), database.getStatuses());
+        
+        // a reader of the partial results sees the load failed, and the table and view behind them are gone
+        Assert.assertEquals(CachedRunningQuery.Status.ERROR, getCached().getStatus());
+        Assert.assertEquals("tablet server lost", getCached().getStatusMessage());
+        Assert.assertTrue(database.statements.contains("DROP TABLE t1"));
+        Assert.assertTrue(database.statements.contains("DROP VIEW " + VIEW));
+    }
+    
+    @Test
+    public void testFailureBeforeRowsAvailable() throws Exception {
+        loading.pages.add(new IllegalStateException("tablet server lost"));
+        
+        assertLoadFails("tablet server lost");
+        Assert.assertEquals(Arrays.asList("LOADING", "ERROR"), database.getStatuses());
+        
+        // nothing was offered to readers, and there is no view to drop
+        Assert.assertNull(getCached());
+        Assert.assertTrue(database.statements.contains("DROP TABLE t1"));
+        Assert.assertFalse(database.statements.contains("DROP VIEW " + VIEW));
+        Assert.assertNull(database.getLastView());
+    }
+    
+    /**
+     * Returns the pages it is given, failing where a page is an exception, and calls back before each so the test can look at the state of the load
+     */
+    private static class ScriptedQuery extends RunningQuery {
+        private final Query settings;
+        private final QueryLogic<?> logic;
+        private final Queue<Object> pages = new LinkedList<>();
+        private Runnable beforePage = () -> {};
+        
+        ScriptedQuery(Query settings, QueryLogic<?> logic) {
+            this.settings = settings;
+            this.logic = logic;
+        }
+        
+        @Override
+        public Query getSettings() {
+            return settings;
+        }
+        
+        @Override
+        public QueryLogic<?> getLogic() {
+            return logic;
+        }
+        
+        @Override
+        @SuppressWarnings("unchecked")
+        public ResultsPage next() throws Exception {
+            beforePage.run();
+            Object page = pages.poll();
+            if (page instanceof Exception) {
+                throw (Exception) page;
+            }
+            return null == page ? new ResultsPage() : new ResultsPage((List<Object>) page);
+        }
+    }
+    
+    private static class LoadingBean extends CachedResultsBean {
+        private final RunningQuery loading;
+        
+        LoadingBean(RunningQuery loading) {
+            this.loading = loading;
+        }
+        
+        @Override
+        protected RunningQuery createLoadingQuery(QueryLogic<?> logic, Query q, Principal p) {
+            return loading;
+        }
+    }
+}
@@ -0,0 +1,334 @@
+package datawave.webservice.results.cached;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.sql.DataSource;
+import javax.sql.rowset.RowSetMetaDataImpl;
+
+import datawave.webservice.query.cache.ResultsPage;
+import datawave.webservice.query.cachedresults.CacheableLogic;
+import datawave.webservice.query.cachedresults.CacheableQueryRow;
+import datawave.webservice.query.cachedresults.CacheableQueryRowImpl;
+import datawave.webservice.query.logic.QueryLogicTransformer;
+import datawave.webservice.result.BaseQueryResponse;
+
+/**
+ * Stands in for the database holding the cached results. It keeps the event ids of the rows inserted into a results table, the statements run against it,
+ * and the states written for the cached queries, and answers the queries of a view from the rows inserted so far, in the order they were inserted.
+ */
+class CachedResultsTestDatabase {
+    
+    static final String USER = "me";
+    
+    private static final Pattern LIMIT = Pattern.compile(" LIMIT (\\d+) OFFSET (\\d+)$");
+    
+    private static final String STATUS_UPDATE = "INSERT INTO cachedResultsQuery (queryId, alias, user, status, statusMessage)";
+    
+    /**
+     * The event ids of the rows of the results table, as committed
+     */
+    final List<String> rows = new CopyOnWriteArrayList<>();
+    
+    /**
+     * The statements executed, other than queries and inserts
+     */
+    final List<String> statements = new CopyOnWriteArrayList<>();
+    
+    /**
+     * The paging queries run against the view
+     */
+    final List<String> pages = new CopyOnWriteArrayList<>();
+    
+    final List<StatusUpdate> statuses = new CopyOnWriteArrayList<>();
+    
+    /**
+     * A state written for a cached query, with the rows committed and the last view created when it was written
+     */
+    static class StatusUpdate {
+        final String status;
+        final String message;
+        final int rows;
+        final String view;
+        
+        StatusUpdate(String status, String message, int rows, String view) {
+            this.status = status;
+            this.message = message;
+            this.rows = rows;
+            this.view = view;
+        }
+        
+        @Override
+        public String toString() {
+            return status + " (" + message + ") with " + rows + " rows";
+        }
+    }
+    
+    List<String> getStatuses() {
+        List<String> states = new ArrayList<>();
+        for (StatusUpdate update : statuses) {
+            states.add(update.status);
+        }
+        return states;
+    }
+    
+    String getLastView() {
+        String view = null;
+        for (String statement : statements) {
+            if (statement.startsWith("CREATE VIEW") || statement.startsWith("CREATE OR REPLACE VIEW")) {
+                view = statement;
+            }
+        }
+        return view;
+    }
+    
+    void addRows(int count) {
+        for (int i = 0; i < count; i++) {
+            rows.add(getEventId(rows.size()));
+        }
+    }
+    
+    static String getEventId(int row) {
+        return String.format("event%03d", row);
+    }
+    
+    DataSource getDataSource() {
+        return proxy(DataSource.class, (method, args) -> "getConnection".equals(method.getName()) ? getConnection() : null);
+    }
+    
+    Connection getConnection() {
+        return proxy(Connection.class, (method, args) -> {
+            switch (method.getName()) {
+                case "createStatement":
+                    return createStatement();
+                case "prepareStatement":
+                    return prepareStatement((String) args[0]);
+                default:
+                    return null;
+            }
+        });
+    }
+    
+    private Statement createStatement() {
+        return proxy(Statement.class, (method, args) -> {
+            switch (method.getName()) {
+                case "execute":
+                    statements.add((String) args[0]);
+                    return false;
+                case "executeQuery":
+                    return query((String) args[0]);
+                default:
+                    return null;
+            }
+        });
+    }
+    
+    private PreparedStatement prepareStatement(String sql) {
+        Map<Integer,Object> parameters = new HashMap<>();
+        List<Map<Integer,Object>> batch = new ArrayList<>();
+        return proxy(PreparedStatement.class, (method, args) -> {
+            String name = method.getName();
+            if (name.startsWith("set") && args.length == 2 && args[0] instanceof Integer) {
+                parameters.put((Integer) args[0], name.equals("setNull") ? null : args[1]);
+                return null;
+            }
+            switch (name) {
+                case "clearParameters":
+                    parameters.clear();
+                    return null;
+                case "addBatch":
+                    batch.add(new HashMap<>(parameters));
+                    return null;
+                case "clearBatch":
+                    batch.clear();
+                    return null;
+                case "executeBatch":
+                    int[] counts = new int[batch.size()];
+                    Arrays.fill(counts, 1);
+                    for (Map<Integer,Object> row : batch) {
+                        update(sql, row);
+                    }
+                    batch.clear();
+                    return counts;
+                case "execute":
+                    update(sql, parameters);
+                    return false;
+                case "executeUpdate":
+                    update(sql, parameters);
+                    return 1;
+                case "executeQuery":
+                    return query(sql);
+                default:
+                    return null;
+            }
+        });
+    }
+    
+    private void update(String sql, Map<Integer,Object> parameters) {
+        if (sql.contains("cachedResultsQuery")) {
+            if (!sql.startsWith("DELETE")) {
+                // the status is the fourth parameter of a status update, and the eighth of a full one
+                int status = sql.startsWith(STATUS_UPDATE) ? 4 : 8;
+                statuses.add(new StatusUpdate((String) parameters.get(status), (String) parameters.get(status + 1), rows.size(), getLastView()));
+            }
+        } else if (sql.startsWith("INSERT")) {
+            // the event id is the fifth column of the results table
+            rows.add((String) parameters.get(5));
+        } else {
+            statements.add(sql);
+        }
+    }
+    
+    private ResultSet query(String sql) throws SQLException {
+        if (sql.contains("cachedResultsQuery")) {
+            return resultSet(Collections.singletonList("queryId"), Types.VARCHAR, Collections.emptyList());
+        }
+        if (sql.startsWith("SELECT count(*)")) {
+            return resultSet(Collections.singletonList("count"), Types.INTEGER, Collections.singletonList(Collections.singletonList(rows.size())));
+        }
+        if (sql.startsWith("show columns")) {
+            return resultSet(Collections.singletonList("Field"), Types.VARCHAR, Collections.emptyList());
+        }
+        
+        List<String> selected = new ArrayList<>(rows);
+        Matcher limit = LIMIT.matcher(sql);
+        if (limit.find()) {
+            pages.add(sql);
+            int count = Integer.parseInt(limit.group(1));
+            int offset = Integer.parseInt(limit.group(2));
+            selected = selected.subList(Math.min(offset, selected.size()), Math.min(offset + count, selected.size()));
+        }
+        List<List<Object>> values = new ArrayList<>();
+        for (String eventId : selected) {
+            values.add(Arrays.asList(USER, eventId));
+        }
+        return resultSet(Arrays.asList("_user_", "_eventId_"), Types.VARCHAR, values);
+    }
+    
+    private static ResultSet resultSet(List<String> columns, int type, List<List<Object>> values) throws SQLException {
+        RowSetMetaDataImpl metadata = new RowSetMetaDataImpl();
+        metadata.setColumnCount(columns.size());
+        for (int column = 1; column <= columns.size(); column++) {
+            metadata.setColumnName(column, columns.get(column - 1));
+            metadata.setColumnLabel(column, columns.get(column - 1));
+            metadata.setColumnType(column, type);
+            metadata.setNullable(column, ResultSetMetaData.columnNullable);
+        }
+        int[] cursor = {-1};
+        return proxy(ResultSet.class, (method, args) -> {
+            switch (method.getName()) {
+                case "next":
+                    return ++cursor[0] < values.size();
+                case "getMetaData":
+                    return metadata;
+                case "getObject":
+                case "getString":
+                case "getInt":
+                    Object value = values.get(cursor[0]).get((Integer) args[0] - 1);
+                    return method.getName().equals("getString") ? String.valueOf(value) : value;
+                default:
+                    return null;
+            }
+        });
+    }
+    
+    /**
+     * Caches results which are the event id followed by the names of the fields of the event, and reads back the event ids
+     */
+    static class EventLogic implements QueryLogicTransformer<Object,Object>, CacheableLogic {
+        
+        @Override
+        public List<CacheableQueryRow> writeToCache(Object o) {
+            String[] event = (String[]) o;
+            CacheableQueryRowImpl row = new CacheableQueryRowImpl();
+            row.setEventId(event[0]);
+            row.setDataType("dt");
+            row.setRow("20190101_0");
+            row.setColFam("dt\0" + event[0]);
+            Map<String,Set<String>> values = new HashMap<>();
+            for (int field = 1; field < event.length; field++) {
+                values.put(event[field], new LinkedHashSet<>(Collections.singleton("value")));
+            }
+            row.setColumnValues(values);
+            return Collections.singletonList(row);
+        }
+        
+        @Override
+        public List<Object> readFromCache(List<CacheableQueryRow> rows) {
+            List<Object> eventIds = new ArrayList<>();
+            for (CacheableQueryRow row : rows) {
+                eventIds.add(row.getEventId());
+            }
+            return eventIds;
+        }
+        
+        @Override
+        public BaseQueryResponse createResponse(ResultsPage resultList) {
+            return null;
+        }
+        
+        @Override
+        public Object transform(Object input) {
+            return input;
+        }
+    }
+    
+    private interface Handler {
+        Object invoke(Method method, Object[] args) throws Throwable;
+    }
+    
+    /**
+     * @return an implementation of the interface which answers the methods the handler does not with null, or the default of a primitive
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, Handler handler) {
+        InvocationHandler invocationHandler = (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "equals":
+                    return proxy == args[0];
+                case "toString":
+                    return type.getSimpleName();
+                default:
+                    Object value = handler.invoke(method, null == args ? new Object[0] : args);
+                    return (null == value && method.getReturnType().isPrimitive()) ? getDefault(method.getReturnType()) : value;
+            }
+        };
+        return (T) Proxy.newProxyInstance(CachedResultsTestDatabase.class.getClassLoader(), new Class<?>[] {type}, invocationHandler);
+    }
+    
+    private static Object getDefault(Class<?> type) {
+        if (type == boolean.class) {
+            return false;
+        } else if (type == long.class) {
+            return 0L;
+        } else if (type == double.class) {
+            return 0.0d;
+        } else if (type == float.class) {
+            return 0.0f;
+        } else if (type == void.class) {
+            return null;
+        }
+        return 0;
+    }
+}
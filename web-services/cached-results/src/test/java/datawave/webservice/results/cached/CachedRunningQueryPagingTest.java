@@ -0,0 +1,119 @@
+package datawave.webservice.results.cached;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import datawave.webservice.query.QueryImpl;
+import datawave.webservice.query.cache.QueryMetricFactoryImpl;
+import datawave.webservice.query.cache.ResultsPage;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.powermock.reflect.Whitebox;
+
+/**
+ * Pages through a view while rows are still being added to the table behind it, as a reader of a streaming load does.
+ */
+public class CachedRunningQueryPagingTest {
+    
+    private static final int PAGE_SIZE = 5;
+    
+    private static final String SQL = "SELECT * FROM v1 WHERE _user_ = '" + CachedResultsTestDatabase.USER + "'";
+    
+    private CachedResultsTestDatabase database;
+    private CachedRunningQuery crq;
+    
+    @Before
+    public void setup() throws Exception {
+        database = new CachedResultsTestDatabase();
+        crq = new CachedRunningQuery(new QueryImpl(), null, "v1", "alias", CachedResultsTestDatabase.USER, "v1", PAGE_SIZE, "query", Collections.emptySet(),
+                        null, new QueryMetricFactoryImpl());
+        crq.setConnection(database.getConnection());
+        Whitebox.setInternalState(crq, "sqlQuery", SQL);
+        Whitebox.setInternalState(crq, "cacheableLogic", new CachedResultsTestDatabase.EventLogic());
+    }
+    
+    private List<Object> getRows(int rowBegin, int rowEnd) throws Exception {
+        ResultsPage page = crq.getRows(rowBegin, rowEnd, 0);
+        return page.getResults();
+    }
+    
+    private static List<Object> getEventIds(int from, int to) {
+        List<Object> eventIds = new ArrayList<>();
+        for (int row = from; row < to; row++) {
+            eventIds.add(CachedResultsTestDatabase.getEventId(row));
+        }
+        return eventIds;
+    }
+    
+    @Test
+    public void testPartialPageWhileLoading() throws Exception {
+        database.addRows(3);
+        
+        // the page is returned short rather than waiting for the load to fill it
+        Assert.assertEquals(getEventIds(0, 3), getRows(1, PAGE_SIZE));
+        Assert.assertEquals(Collections.emptyList(), getRows(PAGE_SIZE + 1, 2 * PAGE_SIZE));
+    }
+    
+    @Test
+    public void testReaderCatchesUpWithWriter() throws Exception {
+        database.addRows(3);
+        Assert.assertEquals(getEventIds(0, 3), getRows(1, PAGE_SIZE));
+        
+        // rereading the page picks up the rows committed since, and the next page the ones after them
+        database.addRows(5);
+        Assert.assertEquals(getEventIds(0, 5), getRows(1, PAGE_SIZE));
+        Assert.assertEquals(getEventIds(5, 8), getRows(PAGE_SIZE + 1, 2 * PAGE_SIZE));
+        
+        database.addRows(2);
+        Assert.assertEquals(getEventIds(5, 10), getRows(PAGE_SIZE + 1, 2 * PAGE_SIZE));
+        Assert.assertEquals(Collections.emptyList(), getRows(2 * PAGE_SIZE + 1, 3 * PAGE_SIZE));
+        
+        // every read was paged by the database rather than by reading the rows before the page
+        Assert.assertEquals(6, database.pages.size());
+    }
+    
+    @Test
+    public void testFirstPage() throws Exception {
+        database.addRows(12);
+        
+        Assert.assertEquals(getEventIds(0, 5), getRows(1, PAGE_SIZE));
+        Assert.assertEquals(SQL + " ORDER BY _eventId_ LIMIT 5 OFFSET 0", database.pages.get(0));
+    }
+    
+    @Test
+    public void testLastPartialPage() throws Exception {
+        database.addRows(12);
+        
+        Assert.assertEquals(getEventIds(10, 12), getRows(11, 15));
+        Assert.assertEquals(SQL + " ORDER BY _eventId_ LIMIT 5 OFFSET 10", database.pages.get(0));
+    }
+    
+    @Test
+    public void testOffsetPastEnd() throws Exception {
+        database.addRows(12);
+        
+        Assert.assertEquals(Collections.emptyList(), getRows(16, 20));
+        Assert.assertEquals(SQL + " ORDER BY _eventId_ LIMIT 5 OFFSET 15", database.pages.get(0));
+    }
+    
+    @Test
+    public void testPageOfOneRow() throws Exception {
+        database.addRows(12);
+        
+        Assert.assertEquals(getEventIds(7, 8), getRows(8, 8));
+        Assert.assertEquals(SQL + " ORDER BY _eventId_ LIMIT 1 OFFSET 7", database.pages.get(0));
+    }
+    
+    @Test
+    public void testOrderKept() throws Exception {
+        database.addRows(12);
+        Whitebox.setInternalState(crq, "sqlQuery", SQL + " ORDER BY _row_");
+        
+        // the rows come back in the order of the table here, as only the paging of the statement is under test
+        Assert.assertEquals(getEventIds(5, 10), getRows(6, 10));
+        Assert.assertEquals(SQL + " ORDER BY _row_ LIMIT 5 OFFSET 5", database.pages.get(0));
+    }
+}
@@ -0,0 +1,129 @@
+package datawave.webservice.results.cached;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import datawave.webservice.query.Query;
+import datawave.webservice.query.QueryImpl;
+import datawave.webservice.query.cache.QueryMetricFactoryImpl;
+import datawave.webservice.query.cachedresults.CacheableQueryRow;
+import datawave.webservice.query.logic.QueryLogic;
+
+import org.easymock.EasyMock;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Pages through a view held in a store rather than the database, while rows are still being added to it.
+ */
+public class CachedRunningQueryStoreTest {
+    
+    private static final int PAGE_SIZE = 5;
+    private static final String VIEW = "v1";
+    
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+    
+    private CachedResultsStore store;
+    private QueryLogic<?> logic;
+    private Map<String,Integer> fieldMap = new HashMap<>();
+    private CachedResultsTestDatabase.EventLogic eventLogic = new CachedResultsTestDatabase.EventLogic();
+    
+    @Before
+    public void setup() throws Exception {
+        MappedCachedResultsStore.Factory factory = new MappedCachedResultsStore.Factory(folder.getRoot());
+        CachedRunningQuery.setStoreFactory(factory);
+        store = factory.create(VIEW);
+        
+        logic = EasyMock.createNiceMock(QueryLogic.class);
+        EasyMock.expect(logic.getTransformer(EasyMock.anyObject(Query.class))).andReturn(eventLogic).anyTimes();
+        EasyMock.replay(logic);
+    }
+    
+    @After
+    public void cleanup() throws Exception {
+        store.drop();
+        CachedRunningQuery.setStoreFactory(null);
+    }
+    
+    private void addRows(int from, int to) throws Exception {
+        for (int row = from; row < to; row++) {
+            for (CacheableQueryRow cqo : eventLogic.writeToCache(new String[] {CachedResultsTestDatabase.getEventId(row), "F0"})) {
+                store.write(CachedResultsTestDatabase.USER, "query", "logic", cqo, fieldMap);
+            }
+        }
+        store.flush();
+    }
+    
+    private CachedRunningQuery create(String conditions, String order) throws Exception {
+        // no connection to the database is needed for a view in the store
+        return new CachedRunningQuery(null, new QueryImpl(), logic, "query", "alias", CachedResultsTestDatabase.USER, VIEW, null, conditions, null, order,
+                        PAGE_SIZE, Collections.singleton("F0"), null, new QueryMetricFactoryImpl());
+    }
+    
+    private static List<Object> getEventIds(int from, int to) {
+        List<Object> eventIds = new ArrayList<>();
+        for (int row = from; row < to; row++) {
+            eventIds.add(CachedResultsTestDatabase.getEventId(row));
+        }
+        return eventIds;
+    }
+    
+    @Test
+    public void testNextAndPrevious() throws Exception {
+        addRows(0, 12);
+        CachedRunningQuery crq = create(null, null);
+        Assert.assertTrue(crq.isStored());
+        Assert.assertTrue(crq.isActivated());
+        Assert.assertEquals(12, crq.getTotalRows());
+        
+        Assert.assertEquals(getEventIds(0, 5), crq.next(0).getResults());
+        Assert.assertEquals(getEventIds(5, 10), crq.next(0).getResults());
+        Assert.assertEquals(getEventIds(10, 12), crq.next(0).getResults());
+        Assert.assertEquals(Collections.emptyList(), crq.next(0).getResults());
+        
+        Assert.assertEquals(getEventIds(10, 12), crq.previous(0).getResults());
+        Assert.assertEquals(getEventIds(5, 10), crq.previous(0).getResults());
+        Assert.assertEquals(getEventIds(0, 5), crq.previous(0).getResults());
+        Assert.assertEquals(Collections.emptyList(), crq.previous(0).getResults());
+    }
+    
+    @Test
+    public void testConditionsAndOrder() throws Exception {
+        addRows(0, 12);
+        CachedRunningQuery crq = create("_eventId_ >= 'event006'", "_eventId_ DESC");
+        Assert.assertEquals(6, crq.getTotalRows());
+        
+        List<Object> expected = getEventIds(6, 12);
+        Collections.reverse(expected);
+        Assert.assertEquals(expected.subList(0, 5), crq.getRows(1, PAGE_SIZE, 0).getResults());
+        Assert.assertEquals(expected.subList(5, 6), crq.getRows(PAGE_SIZE + 1, 2 * PAGE_SIZE, 0).getResults());
+    }
+    
+    @Test
+    public void testReaderCatchesUpWithWriter() throws Exception {
+        addRows(0, 3);
+        CachedRunningQuery crq = create(null, null);
+        Assert.assertEquals(getEventIds(0, 3), crq.getRows(1, PAGE_SIZE, 0).getResults());
+        
+        // rereading the page picks up the rows flushed since, and the next page the ones after them
+        addRows(3, 8);
+        Assert.assertEquals(getEventIds(0, 5), crq.getRows(1, PAGE_SIZE, 0).getResults());
+        Assert.assertEquals(getEventIds(5, 8), crq.getRows(PAGE_SIZE + 1, 2 * PAGE_SIZE, 0).getResults());
+        Assert.assertEquals(8, crq.getTotalRows());
+    }
+    
+    @Test
+    public void testViewNotStored() throws Exception {
+        CachedRunningQuery crq = new CachedRunningQuery(new QueryImpl(), null, "query", "alias", CachedResultsTestDatabase.USER, "v2", PAGE_SIZE, "query",
+                        Collections.emptySet(), null, new QueryMetricFactoryImpl());
+        Assert.assertFalse(crq.isStored());
+    }
+}
@@ -0,0 +1,234 @@
+package datawave.webservice.results.cached;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import datawave.webservice.query.cachedresults.CacheableQueryRow;
+import datawave.webservice.query.cachedresults.CacheableQueryRowImpl;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.powermock.reflect.Whitebox;
+
+/**
+ * Loads rows into a store and answers the fields, conditions, order and pages of the queries against them as the database would.
+ */
+public class MappedCachedResultsStoreTest {
+    
+    private static final String USER = CachedResultsTestDatabase.USER;
+    private static final String VIEW = "v1";
+    
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+    
+    private MappedCachedResultsStore.Factory factory;
+    private CachedResultsStore store;
+    private Map<String,Integer> fieldMap = new HashMap<>();
+    
+    @Before
+    public void setup() throws Exception {
+        factory = new MappedCachedResultsStore.Factory(folder.getRoot());
+        store = factory.create(VIEW);
+        write(USER, 0, "NAME", "alice", "AGE", "30");
+        write(USER, 1, "NAME", "Bob", "AGE", "9");
+        write(USER, 2, "NAME", "carol");
+        write(USER, 3, "NAME", "bob", "AGE", "100");
+        write("other", 4, "NAME", "alice", "AGE", "1");
+        store.flush();
+    }
+    
+    @After
+    public void cleanup() throws Exception {
+        store.drop();
+    }
+    
+    private void write(String user, int row, String... fieldValues) throws IOException {
+        CacheableQueryRowImpl cqo = new CacheableQueryRowImpl();
+        cqo.setEventId(CachedResultsTestDatabase.getEventId(row));
+        cqo.setDataType("dt");
+        cqo.setRow("20190101_0");
+        cqo.setColFam("dt\0" + cqo.getEventId());
+        Map<String,Set<String>> values = new HashMap<>();
+        for (int x = 0; x < fieldValues.length; x += 2) {
+            values.put(fieldValues[x], new LinkedHashSet<>(Collections.singleton(fieldValues[x + 1])));
+        }
+        cqo.setColumnValues(values);
+        store.write(user, "query", "logic", cqo, fieldMap);
+    }
+    
+    /**
+     * Closes the store and opens it again from its files, as another server would
+     */
+    private void reopen() throws IOException {
+        store.close();
+        ((Map<?,?>) Whitebox.getInternalState(MappedCachedResultsStore.class, "stores")).clear();
+        store = factory.open(VIEW);
+    }
+    
+    private List<CacheableQueryRow> select(String fields, String conditions, String order) throws IOException {
+        CachedResultsStore.Selection selection = store.select(USER, fields, conditions, null, order);
+        List<CacheableQueryRow> rows = selection.getRows(1, selection.size(), Collections.emptySet());
+        Assert.assertEquals(selection.size(), rows.size());
+        return rows;
+    }
+    
+    private List<Integer> getRows(String conditions, String order) throws IOException {
+        List<Integer> rows = new ArrayList<>();
+        for (CacheableQueryRow row : select(null, conditions, order)) {
+            rows.add(Integer.parseInt(row.getEventId().substring("event".length())));
+        }
+        return rows;
+    }
+    
+    @Test
+    public void testRowsAvailableOnFlush() throws Exception {
+        Assert.assertEquals(5, store.size());
+        Assert.assertEquals(new HashSet<>(Arrays.asList("NAME", "AGE")), new HashSet<>(store.getColumnNames()));
+        
+        write(USER, 5, "NAME", "dave", "CITY", "york");
+        Assert.assertEquals(5, store.size());
+        Assert.assertEquals(Arrays.asList(0, 1, 2, 3), getRows(null, null));
+        
+        store.flush();
+        Assert.assertEquals(6, store.size());
+        Assert.assertEquals(3, store.getColumnNames().size());
+        Assert.assertEquals("CITY", store.getColumnNames().get(2));
+        Assert.assertEquals(Arrays.asList(0, 1, 2, 3, 5), getRows(null, null));
+        
+        // the rows before a column was found have no value for it
+        Assert.assertEquals(Arrays.asList(5), getRows("CITY IS NOT NULL", null));
+        Assert.assertEquals(Arrays.asList(0, 1, 2, 3), getRows("CITY IS NULL", null));
+    }
+    
+    @Test
+    public void testRowRead() throws Exception {
+        CacheableQueryRow row = select(null, "_eventId_ = 'event000'", null).get(0);
+        Assert.assertEquals(USER, row.getUser());
+        Assert.assertEquals("query", row.getQueryId());
+        Assert.assertEquals("dt", row.getDataType());
+        Assert.assertEquals("20190101_0", row.getRow());
+        Assert.assertEquals("dt\0event000", row.getColFam());
+        Assert.assertEquals("alice", row.getColumnValues().get("NAME"));
+        Assert.assertEquals("30", row.getColumnValues().get("AGE"));
+        // the fields are numbered after the fixed columns, as for the table
+        Assert.assertEquals(new HashSet<>(Arrays.asList(11, 12)), new HashSet<>(fieldMap.values()));
+    }
+    
+    @Test
+    public void testFields() throws Exception {
+        CacheableQueryRow row = select("`AGE`", null, null).get(0);
+        Assert.assertEquals(Collections.singletonList("AGE"), row.getVariableColumnNames());
+        Assert.assertEquals("event000", row.getEventId());
+        
+        Assert.assertEquals(Arrays.asList("AGE", "NAME"), select("*", null, null).get(0).getVariableColumnNames());
+    }
+    
+    @Test
+    public void testConditions() throws Exception {
+        // text compares ignoring case, as in the template table
+        Assert.assertEquals(Arrays.asList(1, 3), getRows("NAME = 'BOB'", null));
+        Assert.assertEquals(Arrays.asList(0, 2), getRows("NAME <> 'bob'", null));
+        Assert.assertEquals(Arrays.asList(1, 2, 3), getRows("NAME > 'alice'", null));
+        Assert.assertEquals(Arrays.asList(0, 2), getRows("NAME LIKE '%a%'", null));
+        Assert.assertEquals(Arrays.asList(1, 3), getRows("NAME NOT LIKE '_a%' AND NAME NOT LIKE 'a%'", null));
+        Assert.assertEquals(Arrays.asList(0, 2), getRows("NAME IN ('Alice', \"carol\")", null));
+        Assert.assertEquals(Arrays.asList(0, 1, 3), getRows("NAME BETWEEN 'a' AND 'c'", null));
+        
+        // a column compared with a number compares as one
+        Assert.assertEquals(Arrays.asList(0, 3), getRows("AGE > 10", null));
+        Assert.assertEquals(Arrays.asList(0, 1, 3), getRows("AGE > '10'", null));
+        
+        // a null value matches neither a condition nor its negation
+        Assert.assertEquals(Arrays.asList(2), getRows("AGE IS NULL", null));
+        Assert.assertEquals(Arrays.asList(1), getRows("NOT (AGE >= 10)", null));
+        Assert.assertEquals(Arrays.asList(1, 2), getRows("AGE < 10 OR (NAME = 'carol' AND NOT NAME = 'bob')", null));
+    }
+    
+    @Test
+    public void testOrder() throws Exception {
+        Assert.assertEquals(Arrays.asList(0, 1, 2, 3), getRows(null, null));
+        Assert.assertEquals(Arrays.asList(3, 2, 1, 0), getRows(null, "_eventId_ DESC"));
+        
+        // values sort as text ignoring case, nulls first, and equal values in the order they were loaded
+        Assert.assertEquals(Arrays.asList(0, 1, 3, 2), getRows(null, "NAME"));
+        Assert.assertEquals(Arrays.asList(2, 3, 0, 1), getRows(null, "AGE"));
+        Assert.assertEquals(Arrays.asList(0, 1, 3, 2), getRows(null, "NAME ASC, AGE DESC"));
+        Assert.assertEquals(Arrays.asList(2, 3, 1, 0), getRows(null, "NAME DESC, `AGE`"));
+        Assert.assertEquals(Arrays.asList(2, 3, 0), getRows("AGE > 10 OR AGE IS NULL", "NAME DESC, AGE"));
+    }
+    
+    @Test
+    public void testSortIndexKept() throws Exception {
+        // the files of a column are numbered as its column in the table would be
+        int column = CacheableQueryRow.getFixedColumnSet().size() + 1 + store.getColumnNames().indexOf("NAME");
+        File index = new File(new File(folder.getRoot(), VIEW), column + ".srt");
+        Assert.assertFalse(index.exists());
+        
+        getRows(null, "NAME");
+        Assert.assertTrue(index.exists());
+        long modified = index.lastModified();
+        
+        // a store opened again reads the index rather than sorting the rows again
+        reopen();
+        Assert.assertEquals(Arrays.asList(2, 3, 1, 0), getRows(null, "NAME DESC"));
+        Assert.assertEquals(modified, index.lastModified());
+    }
+    
+    @Test
+    public void testPages() throws Exception {
+        CachedResultsStore.Selection selection = store.select(USER, null, null, null, "NAME");
+        Assert.assertEquals(4, selection.size());
+        Assert.assertEquals("event001", selection.getRows(2, 3, Collections.emptySet()).get(0).getEventId());
+        Assert.assertEquals(2, selection.getRows(3, 10, Collections.emptySet()).size());
+        Assert.assertEquals(0, selection.getRows(5, 10, Collections.emptySet()).size());
+    }
+    
+    @Test
+    public void testReopened() throws Exception {
+        reopen();
+        Assert.assertEquals(5, store.size());
+        Assert.assertEquals(new HashSet<>(Arrays.asList("NAME", "AGE")), new HashSet<>(store.getColumnNames()));
+        Assert.assertEquals(Arrays.asList(1, 3), getRows("NAME = 'bob'", null));
+        Assert.assertNull(factory.open("v2"));
+    }
+    
+    @Test
+    public void testDrop() throws Exception {
+        store.drop();
+        Assert.assertNull(factory.open(VIEW));
+        Assert.assertFalse(new File(folder.getRoot(), VIEW).exists());
+    }
+    
+    @Test(expected = IOException.class)
+    public void testCreateExisting() throws Exception {
+        factory.create(VIEW);
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void testGroupingLeftToDatabase() throws Exception {
+        store.select(USER, null, null, "NAME", null);
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void testFunctionLeftToDatabase() throws Exception {
+        store.select(USER, "count(NAME)", null, null, null);
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownColumn() throws Exception {
+        store.select(USER, null, "COLOR = 'red'", null, null);
+    }
+}
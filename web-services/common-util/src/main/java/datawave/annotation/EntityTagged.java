@@ -0,0 +1,22 @@
+package datawave.annotation;
+
+import javax.ws.rs.NameBinding;
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * A {@link NameBinding} to allow annotation of methods whose responses are tagged with an entity tag, and answered with a 304 (Not Modified) when the request
+ * already has the tagged entity.
+ *
+ * @see datawave.resteasy.interceptor.EntityTagFilter
+ */
+@Target({ElementType.TYPE, ElementType.METHOD, ElementType.PARAMETER})
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+@NameBinding
+public @interface EntityTagged {
+    
+}
@@ -0,0 +1,68 @@
+package datawave.resteasy.interceptor;
+
+import datawave.annotation.EntityTagged;
+
+import javax.ws.rs.HttpMethod;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ContainerResponseFilter;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.ext.Provider;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * JAX-RS filter to tag the response of a method with the entity tag the method set in {@link #ENTITY_TAG}. A GET or HEAD request whose If-None-Match header
+ * matches the tag gets a 304 (Not Modified) response without the entity, so that the method keeps returning its entity type to Java callers.
+ */
+@Provider
+@EntityTagged
+public class EntityTagFilter implements ContainerResponseFilter {
+    public static final ThreadLocal<String> ENTITY_TAG = new ThreadLocal<>();
+    
+    @Override
+    public void filter(ContainerRequestContext request, ContainerResponseContext response) throws IOException {
+        String value = ENTITY_TAG.get();
+        ENTITY_TAG.set(null);
+        if (null == value || response.getStatusInfo().getFamily() != Response.Status.Family.SUCCESSFUL) {
+            return;
+        }
+        
+        EntityTag tag = new EntityTag(value);
+        response.getHeaders().putSingle(HttpHeaders.ETAG, tag);
+        
+        String method = request.getMethod();
+        if ((HttpMethod.GET.equals(method) || HttpMethod.HEAD.equals(method)) && matches(request.getHeaders().get(HttpHeaders.IF_NONE_MATCH), tag)) {
+            response.setStatusInfo(Response.Status.NOT_MODIFIED);
+            response.setEntity(null);
+        }
+    }
+    
+    /**
+     * @return true if any of the If-None-Match headers lists the tag, or is a wildcard. Weak and strong tags with the same value match, as If-None-Match uses
+     *         weak comparison.
+     */
+    private static boolean matches(List<String> ifNoneMatch, EntityTag tag) {
+        if (null == ifNoneMatch) {
+            return false;
+        }
+        for (String header : ifNoneMatch) {
+            for (String candidate : header.split(",")) {
+                candidate = candidate.trim();
+                if ("*".equals(candidate)) {
+                    return true;
+                }
+                try {
+                    if (!candidate.isEmpty() && EntityTag.valueOf(candidate).getValue().equals(tag.getValue())) {
+                        return true;
+                    }
+                } catch (IllegalArgumentException e) {
+                    // not a tag, so it cannot match
+                }
+            }
+        }
+        return false;
+    }
+}
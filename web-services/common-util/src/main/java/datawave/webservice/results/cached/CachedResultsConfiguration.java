@@ -8,6 +8,8 @@ public class CachedResultsConfiguration {
     private int defaultPageSize = 20;
     private int maxPageSize = 0;
     private long pageByteTrigger = 0;
+    private boolean streamingLoad = false;
+    private String storeDirectory = null;
     private Map<String,String> parameters = new HashMap<>();
     
     public int getDefaultPageSize() {
@@ -34,6 +36,22 @@ public class CachedResultsConfiguration {
         this.pageByteTrigger = pageByteTrigger;
     }
     
+    public boolean isStreamingLoad() {
+        return streamingLoad;
+    }
+    
+    public void setStreamingLoad(boolean streamingLoad) {
+        this.streamingLoad = streamingLoad;
+    }
+    
+    public String getStoreDirectory() {
+        return storeDirectory;
+    }
+    
+    public void setStoreDirectory(String storeDirectory) {
+        this.storeDirectory = storeDirectory;
+    }
+    
     public Map<String,String> getParameters() {
         return parameters;
     }
@@ -0,0 +1,103 @@
+package datawave.resteasy.interceptor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.Response;
+
+import org.jboss.resteasy.core.interception.ContainerResponseContextImpl;
+import org.jboss.resteasy.core.interception.ResponseContainerRequestContext;
+import org.jboss.resteasy.mock.MockHttpRequest;
+import org.jboss.resteasy.mock.MockHttpResponse;
+import org.jboss.resteasy.specimpl.BuiltResponse;
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ *
+ */
+public class EntityTagFilterTest {
+    
+    private EntityTagFilter filter = new EntityTagFilter();
+    
+    @After
+    public void tearDown() {
+        EntityTagFilter.ENTITY_TAG.set(null);
+    }
+    
+    private ContainerResponseContextImpl filter(MockHttpRequest httpRequest, String tag) throws Exception {
+        ResponseContainerRequestContext request = new ResponseContainerRequestContext(httpRequest);
+        ContainerResponseContextImpl response = new ContainerResponseContextImpl(request.getHttpRequest(), new MockHttpResponse(), new BuiltResponse());
+        response.setStatusInfo(Response.Status.OK);
+        response.setEntity("entity");
+        
+        EntityTagFilter.ENTITY_TAG.set(tag);
+        filter.filter(request, response);
+        assertNull("The tag was not cleared", EntityTagFilter.ENTITY_TAG.get());
+        return response;
+    }
+    
+    @Test
+    public void filterTagsResponse() throws Exception {
+        ContainerResponseContextImpl response = filter(MockHttpRequest.get("/mock"), "1234");
+        
+        assertEquals(new EntityTag("1234"), response.getHeaders().getFirst("ETag"));
+        assertEquals(Response.Status.OK.getStatusCode(), response.getStatus());
+        assertEquals("entity", response.getEntity());
+    }
+    
+    @Test
+    public void filterNotModified() throws Exception {
+        ContainerResponseContextImpl response = filter(MockHttpRequest.get("/mock").header("If-None-Match", "\"abcd\", W/\"1234\""), "1234");
+        
+        assertEquals(new EntityTag("1234"), response.getHeaders().getFirst("ETag"));
+        assertEquals(Response.Status.NOT_MODIFIED.getStatusCode(), response.getStatus());
+        assertNull(response.getEntity());
+    }
+    
+    @Test
+    public void filterWildcard() throws Exception {
+        ContainerResponseContextImpl response = filter(MockHttpRequest.get("/mock").header("If-None-Match", "*"), "1234");
+        
+        assertEquals(Response.Status.NOT_MODIFIED.getStatusCode(), response.getStatus());
+    }
+    
+    @Test
+    public void filterModified() throws Exception {
+        ContainerResponseContextImpl response = filter(MockHttpRequest.get("/mock").header("If-None-Match", "\"abcd\", not-a-tag"), "1234");
+        
+        assertEquals(Response.Status.OK.getStatusCode(), response.getStatus());
+        assertEquals("entity", response.getEntity());
+    }
+    
+    @Test
+    public void filterNotGet() throws Exception {
+        ContainerResponseContextImpl response = filter(MockHttpRequest.post("/mock").header("If-None-Match", "\"1234\""), "1234");
+        
+        assertEquals(Response.Status.OK.getStatusCode(), response.getStatus());
+        assertEquals("entity", response.getEntity());
+    }
+    
+    @Test
+    public void filterNoTag() throws Exception {
+        ContainerResponseContextImpl response = filter(MockHttpRequest.get("/mock").header("If-None-Match", "\"1234\""), null);
+        
+        assertNull(response.getHeaders().getFirst("ETag"));
+        assertEquals(Response.Status.OK.getStatusCode(), response.getStatus());
+    }
+    
+    @Test
+    public void filterError() throws Exception {
+        ResponseContainerRequestContext request = new ResponseContainerRequestContext(MockHttpRequest.get("/mock").header("If-None-Match", "\"1234\""));
+        ContainerResponseContextImpl response = new ContainerResponseContextImpl(request.getHttpRequest(), new MockHttpResponse(), new BuiltResponse());
+        response.setStatusInfo(Response.Status.INTERNAL_SERVER_ERROR);
+        
+        EntityTagFilter.ENTITY_TAG.set("1234");
+        filter.filter(request, response);
+        
+        assertNull(EntityTagFilter.ENTITY_TAG.get());
+        assertNull(response.getHeaders().getFirst("ETag"));
+        assertEquals(Response.Status.INTERNAL_SERVER_ERROR.getStatusCode(), response.getStatus());
+    }
+}
@@ -92,6 +92,10 @@ public class AccumuloTableCache {
     
     public static final String MOCK_USERNAME = "";
     public static final PasswordToken MOCK_PASSWORD = new PasswordToken(new byte[0]);
+    /**
+     * suffix of the counter a server increments when an incremental refresh finds new entries, so that the other servers refresh right away
+     */
+    public static final String DELTA_COUNTER_SUFFIX = ":delta";
     
     private InMemoryInstance instance;
     private Map<String,TableCache> details;
@@ -163,6 +167,27 @@ public class AccumuloTableCache {
             } catch (Exception e) {
                 throw new RuntimeException("table:" + tableName + " Unable to create shared counters: " + e.getMessage(), e);
             }
+            
+            if (detail.isIncrementalRefresh()) {
+                final String deltaCounterName = tableName + DELTA_COUNTER_SUFFIX;
+                try {
+                    cacheCoordinator.registerCounter(deltaCounterName, new SharedCountListener() {
+                        @Override
+                        public void stateChanged(CuratorFramework client, ConnectionState newState) {
+                            // nothing to do
+                        }
+                        
+                        @Override
+                        public void countHasChanged(SharedCountReader sharedCount, int newCount) throws Exception {
+                            if (!cacheCoordinator.checkCounter(deltaCounterName, newCount)) {
+                                handleDelta(tableName);
+                            }
+                        }
+                    });
+                } catch (Exception e) {
+                    throw new RuntimeException("table:" + tableName + " Unable to create shared counters: " + e.getMessage(), e);
+                }
+            }
             detail.setWatcher(cacheCoordinator);
             details.put(entry.getKey(), entry.getValue());
             
@@ -181,7 +206,7 @@ public class AccumuloTableCache {
         return this.instance;
     }
     
-    @Schedule(hour = "*", minute = "*", second = "1", persistent = false)
+    @Schedule(hour = "*", minute = "*", second = "*/5", persistent = false)
     public void submitReloadTasks() {
         if (!connectionFactoryProvided) {
             log.trace("NOT submitting reload tasks since our connection factory hasn't been provided yet.");
@@ -286,6 +311,12 @@ public class AccumuloTableCache {
     }
     
     private void handleReload(String tableName) {
+        // a reload request always copies the whole table, even when refreshing incrementally
+        details.get(tableName).setLastFullRefresh(new Date(0));
+        details.get(tableName).setLastRefresh(new Date(0));
+    }
+    
+    private void handleDelta(String tableName) {
         details.get(tableName).setLastRefresh(new Date(0));
     }
     
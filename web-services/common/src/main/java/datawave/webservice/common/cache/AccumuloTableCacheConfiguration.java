@@ -24,6 +24,12 @@ public class AccumuloTableCacheConfiguration {
     @Inject
     @ConfigProperty(name = "dw.cache.reloadInterval", defaultValue = "86400000")
     private long reloadInterval;
+    @Inject
+    @ConfigProperty(name = "dw.cache.incrementalRefresh", defaultValue = "false")
+    private boolean incrementalRefresh;
+    @Inject
+    @ConfigProperty(name = "dw.cache.fullRefreshInterval", defaultValue = "86400000")
+    private long fullRefreshInterval;
     
     private Map<String,TableCache> caches = new HashMap<>();
     
@@ -34,6 +40,8 @@ public class AccumuloTableCacheConfiguration {
             cache.setTableName(tableName);
             cache.setConnectionPoolName(poolName);
             cache.setReloadInterval(reloadInterval);
+            cache.setIncrementalRefresh(incrementalRefresh);
+            cache.setFullRefreshInterval(fullRefreshInterval);
             caches.put(tableName, cache);
         }
     }
@@ -1,9 +1,13 @@
 package datawave.webservice.common.cache;
 
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.concurrent.Future;
@@ -21,6 +25,8 @@ import org.apache.accumulo.core.client.BatchWriter;
 import org.apache.accumulo.core.client.Connector;
 import org.apache.accumulo.core.client.IteratorSetting;
 import org.apache.accumulo.core.client.NamespaceExistsException;
+import org.apache.accumulo.core.client.Scanner;
+import org.apache.accumulo.core.client.ScannerBase;
 import org.apache.accumulo.core.client.TableNotFoundException;
 import datawave.accumulo.inmemory.InMemoryInstance;
 import org.apache.accumulo.core.client.admin.NamespaceOperations;
@@ -29,8 +35,10 @@ import org.apache.accumulo.core.data.Mutation;
 import org.apache.accumulo.core.data.Range;
 import org.apache.accumulo.core.data.Value;
 import org.apache.accumulo.core.iterators.user.RegExFilter;
+import org.apache.accumulo.core.iterators.user.TimestampFilter;
 import org.apache.accumulo.core.security.Authorizations;
 import org.apache.accumulo.core.security.ColumnVisibility;
+import org.apache.hadoop.io.Text;
 import org.apache.log4j.Logger;
 
 import com.google.common.collect.Lists;
@@ -47,9 +55,14 @@ public class BaseTableCache implements Serializable, TableCache {
     private String auths = null;
     private long reloadInterval = 0;
     private long maxRows = Long.MAX_VALUE;
+    private boolean incrementalRefresh = false;
+    private long fullRefreshInterval = 86400000;
     
     /** set programatically **/
     private Date lastRefresh = new Date(0);
+    private Date lastFullRefresh = new Date(0);
+    private transient List<Text> tabletSplits = null;
+    private transient long[] tabletMaxTimestamps = null;
     private AccumuloConnectionFactory connectionFactory = null;
     private InMemoryInstance instance = null;
     private SharedCacheCoordinator watcher = null;
@@ -157,16 +170,44 @@ public class BaseTableCache implements Serializable, TableCache {
         this.maxRows = maxRows;
     }
     
+    @Override
+    public boolean isIncrementalRefresh() {
+        return incrementalRefresh;
+    }
+    
+    @Override
+    public void setIncrementalRefresh(boolean incrementalRefresh) {
+        this.incrementalRefresh = incrementalRefresh;
+    }
+    
+    @Override
+    public long getFullRefreshInterval() {
+        return fullRefreshInterval;
+    }
+    
+    @Override
+    public void setFullRefreshInterval(long fullRefreshInterval) {
+        this.fullRefreshInterval = fullRefreshInterval;
+    }
+    
+    @Override
+    public Date getLastFullRefresh() {
+        return lastFullRefresh;
+    }
+    
+    @Override
+    public void setLastFullRefresh(Date lastFullRefresh) {
+        this.lastFullRefresh = lastFullRefresh;
+    }
+    
     @Override
     public Boolean call() throws Exception {
         if (!lock.tryLock(0, TimeUnit.SECONDS))
             return false;
+        // a refresh requested by another server through the delta counter starts with a zero lastRefresh, and is not published again
+        boolean publish = (lastRefresh.getTime() != 0);
         // Read from the table in the real Accumulo
-        BatchScanner scanner = null;
-        BatchWriter writer = null;
         Connector accumuloConn = null;
-        
-        String tempTableName = tableName + "Temp";
         try {
             Map<String,String> map = connectionFactory.getTrackingMap(Thread.currentThread().getStackTrace());
             accumuloConn = connectionFactory.getConnection(connectionPoolName, Priority.ADMIN, map);
@@ -179,11 +220,55 @@ public class BaseTableCache implements Serializable, TableCache {
             } else {
                 authorizations = new Authorizations(auths);
             }
-            scanner = accumuloConn.createBatchScanner(tableName, authorizations, 10);
             
             Connector instanceConnector = instance.getConnector(AccumuloTableCache.MOCK_USERNAME, AccumuloTableCache.MOCK_PASSWORD);
             instanceConnector.securityOperations().changeUserAuthorizations(AccumuloTableCache.MOCK_USERNAME, authorizations);
             
+            List<Text> splits = null;
+            if (incrementalRefresh) {
+                splits = new ArrayList<>(accumuloConn.tableOperations().listSplits(tableName));
+            }
+            
+            if (incrementalRefresh && canRefreshIncrementally(instanceConnector, splits)) {
+                long count = refresh(accumuloConn, instanceConnector, authorizations);
+                if (count > 0 && publish && null != watcher) {
+                    // let the other servers pull the same changes rather than wait for their next refresh
+                    try {
+                        watcher.incrementCounter(tableName + AccumuloTableCache.DELTA_COUNTER_SUFFIX);
+                    } catch (Exception e) {
+                        log.warn("Unable to publish the refresh of table: " + tableName, e);
+                    }
+                }
+            } else {
+                reload(accumuloConn, instanceConnector, authorizations, splits);
+            }
+        } catch (Exception e) {
+            log.error(e.getMessage(), e);
+            throw e;
+        } finally {
+            try {
+                if (null != accumuloConn)
+                    connectionFactory.returnConnection(accumuloConn);
+            } catch (Exception e) {
+                log.error(e.getMessage(), e);
+            }
+            lock.unlock();
+        }
+        return true;
+    }
+    
+    /**
+     * Copies the entire table into a temporary in-memory table, then swaps it in for the cached one. When refreshing incrementally, this also records the
+     * newest timestamp seen in each tablet.
+     */
+    private void reload(Connector accumuloConn, Connector instanceConnector, Authorizations authorizations, List<Text> splits) throws Exception {
+        BatchScanner scanner = null;
+        BatchWriter writer = null;
+        
+        String tempTableName = tableName + "Temp";
+        try {
+            scanner = accumuloConn.createBatchScanner(tableName, authorizations, 10);
+            
             createNamespaceIfNecessary(instanceConnector.namespaceOperations(), tempTableName);
             
             if (instanceConnector.tableOperations().exists(tempTableName)) {
@@ -196,6 +281,12 @@ public class BaseTableCache implements Serializable, TableCache {
             
             setupScanner(scanner);
             
+            long[] maxTimestamps = null;
+            if (null != splits) {
+                maxTimestamps = new long[splits.size() + 1];
+                Arrays.fill(maxTimestamps, Long.MIN_VALUE);
+            }
+            
             Iterator<Entry<Key,Value>> iter = scanner.iterator();
             long count = 0;
             while (iter.hasNext()) {
@@ -204,15 +295,20 @@ public class BaseTableCache implements Serializable, TableCache {
                     break;
                 Entry<Key,Value> value = iter.next();
                 
-                Key valueKey = value.getKey();
-                
-                Mutation m = new Mutation(value.getKey().getRow());
-                m.put(valueKey.getColumnFamily(), valueKey.getColumnQualifier(), new ColumnVisibility(valueKey.getColumnVisibility()), valueKey.getTimestamp(),
-                                value.getValue());
-                writer.addMutation(m);
+                writer.addMutation(toMutation(value));
+                if (null != maxTimestamps) {
+                    int tablet = findTablet(splits, value.getKey().getRow());
+                    maxTimestamps[tablet] = Math.max(maxTimestamps[tablet], value.getKey().getTimestamp());
+                }
                 count++;
             }
+            // flush before the swap so that readers never see a partial table
+            writer.close();
+            writer = null;
             this.lastRefresh = new Date();
+            this.lastFullRefresh = this.lastRefresh;
+            this.tabletSplits = splits;
+            this.tabletMaxTimestamps = maxTimestamps;
             try {
                 instanceConnector.tableOperations().delete(tableName);
             } catch (TableNotFoundException e) {
@@ -220,16 +316,7 @@ public class BaseTableCache implements Serializable, TableCache {
             }
             instanceConnector.tableOperations().rename(tempTableName, tableName);
             log.info("Cached " + count + " k,v for table: " + tableName);
-        } catch (Exception e) {
-            log.error(e.getMessage(), e);
-            throw e;
         } finally {
-            try {
-                if (null != accumuloConn)
-                    connectionFactory.returnConnection(accumuloConn);
-            } catch (Exception e) {
-                log.error(e.getMessage(), e);
-            }
             if (null != scanner)
                 scanner.close();
             try {
@@ -238,13 +325,101 @@ public class BaseTableCache implements Serializable, TableCache {
             } catch (Exception e) {
                 log.warn("Error closing batch writer for table: " + tempTableName, e);
             }
-            lock.unlock();
         }
-        return true;
+    }
+    
+    /**
+     * An incremental refresh is possible when the last full reload is recent enough to trust for deletes, and the tablets have not changed since it ran.
+     */
+    private boolean canRefreshIncrementally(Connector instanceConnector, List<Text> splits) {
+        if (null == tabletMaxTimestamps || !splits.equals(tabletSplits)) {
+            return false;
+        }
+        if ((System.currentTimeMillis() - lastFullRefresh.getTime()) > fullRefreshInterval) {
+            return false;
+        }
+        return instanceConnector.tableOperations().exists(tableName);
+    }
+    
+    /**
+     * Writes the entries that are at least as new as the newest entry seen in their tablet straight into the cached table.
+     *
+     * @return the number of entries newer than any seen before
+     */
+    private long refresh(Connector accumuloConn, Connector instanceConnector, Authorizations authorizations) throws Exception {
+        BatchWriter writer = null;
+        long count = 0;
+        long newer = 0;
+        try {
+            writer = instanceConnector.createBatchWriter(tableName, 10L * (1024L * 1024L), 100L, 1);
+            
+            for (int tablet = 0; tablet < tabletMaxTimestamps.length; tablet++) {
+                Text prevEndRow = (tablet == 0 ? null : tabletSplits.get(tablet - 1));
+                Text endRow = (tablet == tabletSplits.size() ? null : tabletSplits.get(tablet));
+                long maxTimestamp = tabletMaxTimestamps[tablet];
+                
+                Scanner scanner = accumuloConn.createScanner(tableName, authorizations);
+                try {
+                    scanner.setRange(new Range(prevEndRow, false, endRow, true));
+                    addColumnFilter(scanner);
+                    if (maxTimestamp != Long.MIN_VALUE) {
+                        // inclusive, as entries written later may share the newest timestamp
+                        IteratorSetting timestampFilter = new IteratorSetting(101, "newEntries", TimestampFilter.class);
+                        TimestampFilter.setStart(timestampFilter, maxTimestamp, true);
+                        scanner.addScanIterator(timestampFilter);
+                    }
+                    
+                    for (Entry<Key,Value> value : scanner) {
+                        if (count > maxRows)
+                            break;
+                        writer.addMutation(toMutation(value));
+                        long timestamp = value.getKey().getTimestamp();
+                        if (timestamp > maxTimestamp) {
+                            newer++;
+                        }
+                        tabletMaxTimestamps[tablet] = Math.max(tabletMaxTimestamps[tablet], timestamp);
+                        count++;
+                    }
+                } finally {
+                    scanner.close();
+                }
+            }
+            this.lastRefresh = new Date();
+            log.info("Refreshed " + count + " k,v (" + newer + " new) for table: " + tableName);
+        } finally {
+            try {
+                if (null != writer)
+                    writer.close();
+            } catch (Exception e) {
+                log.warn("Error closing batch writer for table: " + tableName, e);
+            }
+        }
+        return newer;
+    }
+    
+    private Mutation toMutation(Entry<Key,Value> value) {
+        Key valueKey = value.getKey();
+        
+        Mutation m = new Mutation(valueKey.getRow());
+        m.put(valueKey.getColumnFamily(), valueKey.getColumnQualifier(), new ColumnVisibility(valueKey.getColumnVisibility()), valueKey.getTimestamp(),
+                        value.getValue());
+        return m;
+    }
+    
+    /**
+     * @return the index of the tablet containing the row, where tablet i ends at split i inclusive and the last tablet has no end
+     */
+    static int findTablet(List<Text> splits, Text row) {
+        int index = Collections.binarySearch(splits, row);
+        return (index >= 0 ? index : -(index + 1));
     }
     
     public void setupScanner(BatchScanner scanner) {
         scanner.setRanges(Lists.newArrayList(new Range()));
+        addColumnFilter(scanner);
+    }
+    
+    private void addColumnFilter(ScannerBase scanner) {
         Map<String,String> options = new HashMap<>();
         options.put(RegExFilter.COLF_REGEX, "^f$");
         options.put("negate", "true");
@@ -31,6 +31,12 @@ public interface TableCache extends Callable<Boolean>, Serializable {
     
     long getMaxRows();
     
+    boolean isIncrementalRefresh();
+    
+    long getFullRefreshInterval();
+    
+    Date getLastFullRefresh();
+    
     void setTableName(String tableName);
     
     void setConnectionPoolName(String connectionPoolName);
@@ -51,6 +57,12 @@ public interface TableCache extends Callable<Boolean>, Serializable {
     
     void setMaxRows(long maxRows);
     
+    void setIncrementalRefresh(boolean incrementalRefresh);
+    
+    void setFullRefreshInterval(long fullRefreshInterval);
+    
+    void setLastFullRefresh(Date lastFullRefresh);
+    
     Boolean call() throws Exception;
     
 }
@@ -0,0 +1,29 @@
+package datawave.webservice.common.cache;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.hadoop.io.Text;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class BaseTableCacheTest {
+    
+    @Test
+    public void testFindTablet() {
+        List<Text> splits = Arrays.asList(new Text("c"), new Text("f"), new Text("m"));
+        Assert.assertEquals(0, BaseTableCache.findTablet(splits, new Text("a")));
+        // a tablet contains its end row
+        Assert.assertEquals(0, BaseTableCache.findTablet(splits, new Text("c")));
+        Assert.assertEquals(1, BaseTableCache.findTablet(splits, new Text("c\0")));
+        Assert.assertEquals(1, BaseTableCache.findTablet(splits, new Text("f")));
+        Assert.assertEquals(2, BaseTableCache.findTablet(splits, new Text("g")));
+        Assert.assertEquals(3, BaseTableCache.findTablet(splits, new Text("z")));
+    }
+    
+    @Test
+    public void testFindTabletWithoutSplits() {
+        Assert.assertEquals(0, BaseTableCache.findTablet(Collections.<Text> emptyList(), new Text("a")));
+    }
+}
@@ -3,16 +3,17 @@ package datawave.webservice.datadictionary;
 import com.google.common.collect.HashMultimap;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Multimap;
+import datawave.annotation.EntityTagged;
 import datawave.annotation.Required;
 import datawave.configuration.spring.SpringBean;
 import datawave.interceptor.RequiredInterceptor;
 import datawave.interceptor.ResponseInterceptor;
+import datawave.resteasy.interceptor.EntityTagFilter;
 import datawave.security.authorization.DatawavePrincipal;
 import datawave.security.util.AuthorizationsUtil;
 import datawave.webservice.common.cache.AccumuloTableCache;
 import datawave.webservice.common.connection.AccumuloConnectionFactory;
 import datawave.webservice.query.result.event.ResponseObjectFactory;
-import datawave.webservice.query.result.metadata.MetadataFieldBase;
 import datawave.webservice.result.VoidResponse;
 import datawave.webservice.results.datadictionary.DataDictionaryBase;
 import datawave.webservice.results.datadictionary.DescriptionBase;
@@ -80,6 +81,9 @@ public class DataDictionaryBean {
     @Inject
     private DatawaveDataDictionary datawaveDataDictionary;
     
+    @Inject
+    private DataDictionaryCache dataDictionaryCache;
+    
     @Inject
     @SpringBean(refreshable = true)
     private DataDictionaryConfiguration dataDictionaryConfiguration;
@@ -117,7 +121,9 @@ public class DataDictionaryBean {
     }
     
     /**
-     * Returns the DataDictionary given a model name and table, metadata table and authorizations
+     * Returns the DataDictionary given a model name and table, metadata table and authorizations. The dictionary is served from a cache that is rebuilt in the
+     * background, and is tagged so that a request with a matching If-None-Match header gets a 304 (Not Modified) response instead of the dictionary (see
+     * {@link EntityTagFilter}).
      *
      * @param modelName
      *            Name of query model to apply (Optional)
@@ -130,15 +136,18 @@ public class DataDictionaryBean {
      * @param dataTypeFilters
      *            Comma separated list of dataTypeFilters. DataDictionary will contain the union of fields that are found with those data types (Optional,
      *            returns all if no filter provided)
-     * @return
+     * @return the DataDictionary
      * @throws Exception
      */
     @GET
     @Path("/")
     @Interceptors({ResponseInterceptor.class})
+    @EntityTagged
     public DataDictionaryBase get(@QueryParam("modelName") String modelName, @QueryParam("modelTableName") String modelTableName,
                     @QueryParam("metadataTableName") String metadataTableName, @QueryParam("auths") String queryAuthorizations,
                     @QueryParam("dataTypeFilters") @DefaultValue("") String dataTypeFilters) throws Exception {
+        EntityTagFilter.ENTITY_TAG.set(null);
+        
         if (null == modelName || StringUtils.isBlank(modelName)) {
             modelName = this.dataDictionaryConfiguration.getModelName();
         }
@@ -153,21 +162,14 @@ public class DataDictionaryBean {
         
         Collection<String> dataTypes = (StringUtils.isBlank(dataTypeFilters) ? Collections.emptyList() : Arrays.asList(dataTypeFilters.split(",")));
         
-        Connector connector = null;
-        try {
-            connector = getConnector();
-            // If the user provides authorizations, intersect it with their actual authorizations
-            Set<Authorizations> auths = AuthorizationsUtil.getDowngradedAuthorizations(queryAuthorizations, ctx.getCallerPrincipal());
-            Collection<MetadataFieldBase> fields = this.datawaveDataDictionary.getFields(modelName, modelTableName, metadataTableName, dataTypes, connector,
-                            auths, this.dataDictionaryConfiguration.getNumThreads());
-            DataDictionaryBase dataDictionary = this.responseObjectFactory.getDataDictionary();
-            dataDictionary.setFields(fields);
-            return dataDictionary;
-        } finally {
-            if (null != connector)
-                returnConnector(connector);
-        }
+        // If the user provides authorizations, intersect it with their actual authorizations
+        Set<Authorizations> auths = AuthorizationsUtil.getDowngradedAuthorizations(queryAuthorizations, ctx.getCallerPrincipal());
+        DataDictionaryCache.CachedFields cached = this.dataDictionaryCache.get(modelName, modelTableName, metadataTableName, dataTypes, auths);
         
+        DataDictionaryBase dataDictionary = this.responseObjectFactory.getDataDictionary();
+        dataDictionary.setFields(cached.getFields());
+        EntityTagFilter.ENTITY_TAG.set(cached.getEntityTag());
+        return dataDictionary;
     }
     
     /**
@@ -207,6 +209,7 @@ public class DataDictionaryBean {
                                 desc);
             }
             cache.reloadCache(modelTable);
+            dataDictionaryCache.invalidate();
             return new VoidResponse();
         } finally {
             if (null != connector)
@@ -262,6 +265,7 @@ public class DataDictionaryBean {
             this.datawaveDataDictionary.setDescription(connector, this.dataDictionaryConfiguration.getMetadataTableName(), auths, modelName, modelTable,
                             fieldName, datatype, desc);
             cache.reloadCache(modelTable);
+            dataDictionaryCache.invalidate();
             return new VoidResponse();
         } finally {
             if (null != connector)
@@ -318,6 +322,7 @@ public class DataDictionaryBean {
             this.datawaveDataDictionary.setDescription(connector, this.dataDictionaryConfiguration.getMetadataTableName(), auths, modelName, modelTable,
                             fieldName, datatype, desc);
             cache.reloadCache(modelTable);
+            dataDictionaryCache.invalidate();
             return new VoidResponse();
         } finally {
             if (null != connector)
@@ -499,6 +504,7 @@ public class DataDictionaryBean {
             this.datawaveDataDictionary.deleteDescription(connector, this.dataDictionaryConfiguration.getMetadataTableName(), auths, modelName, modelTable,
                             fieldName, datatype, desc);
             cache.reloadCache(modelTable);
+            dataDictionaryCache.invalidate();
             return new VoidResponse();
         } finally {
             if (null != connector)
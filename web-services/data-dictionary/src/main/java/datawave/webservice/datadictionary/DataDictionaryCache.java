@@ -0,0 +1,231 @@
+package datawave.webservice.datadictionary;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListenableFutureTask;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import datawave.configuration.spring.SpringBean;
+import datawave.webservice.common.connection.AccumuloConnectionFactory;
+import datawave.webservice.query.result.metadata.MetadataFieldBase;
+import org.apache.accumulo.core.client.Connector;
+import org.apache.accumulo.core.security.Authorizations;
+import org.apache.log4j.Logger;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import javax.ejb.LocalBean;
+import javax.ejb.Lock;
+import javax.ejb.LockType;
+import javax.ejb.Singleton;
+import javax.enterprise.concurrent.ManagedExecutorService;
+import javax.inject.Inject;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caches the fields of the data dictionary so that requests are answered from memory instead of by scanning the metadata table. Fields are cached by model,
+ * tables, datatype filters and authorizations, so every user with the same authorizations shares an entry. Once an entry is older than the refresh interval,
+ * its next request starts a rebuild in the background and is answered from the old entry until the rebuild completes.
+ * <p>
+ * Each entry carries an entity tag derived from its fields, which stays the same across rebuilds that find no changes, so clients can avoid downloading a
+ * dictionary they already have.
+ */
+@LocalBean
+@Singleton
+@Lock(LockType.READ)
+public class DataDictionaryCache {
+    
+    private static final Logger log = Logger.getLogger(DataDictionaryCache.class);
+    
+    @Inject
+    private AccumuloConnectionFactory connectionFactory;
+    
+    @Inject
+    private DatawaveDataDictionary datawaveDataDictionary;
+    
+    @Inject
+    @SpringBean(refreshable = true)
+    private DataDictionaryConfiguration dataDictionaryConfiguration;
+    
+    @Resource
+    private ManagedExecutorService executorService;
+    
+    private LoadingCache<Key,CachedFields> cache;
+    
+    @PostConstruct
+    public void init() {
+        this.datawaveDataDictionary.setNormalizerMapping(this.dataDictionaryConfiguration.getNormalizerMap());
+        this.cache = CacheBuilder.newBuilder().maximumSize(dataDictionaryConfiguration.getCacheMaxSize())
+                        .expireAfterAccess(dataDictionaryConfiguration.getCacheExpirationMinutes(), TimeUnit.MINUTES)
+                        .refreshAfterWrite(dataDictionaryConfiguration.getCacheRefreshMinutes(), TimeUnit.MINUTES).concurrencyLevel(10)
+                        .build(new CacheLoader<Key,CachedFields>() {
+                            @Override
+                            public CachedFields load(Key key) throws Exception {
+                                return build(key, null);
+                            }
+                            
+                            @Override
+                            public ListenableFuture<CachedFields> reload(final Key key, final CachedFields previous) {
+                                ListenableFutureTask<CachedFields> task = ListenableFutureTask.create(() -> build(key, previous));
+                                executorService.execute(task);
+                                return task;
+                            }
+                        });
+    }
+    
+    /**
+     * Gets the fields of the data dictionary, building them if they are not cached.
+     *
+     * @param modelName
+     *            Name of query model to apply
+     * @param modelTableName
+     *            Name of query model table
+     * @param metadataTableName
+     *            Name of metadata table
+     * @param dataTypeFilters
+     *            The datatypes to include the fields of, or empty for all of them
+     * @param auths
+     *            Authorizations to use
+     * @return the cached fields
+     * @throws Exception
+     *             if the fields could not be built
+     */
+    public CachedFields get(String modelName, String modelTableName, String metadataTableName, Collection<String> dataTypeFilters, Set<Authorizations> auths)
+                    throws Exception {
+        try {
+            return cache.get(new Key(modelName, modelTableName, metadataTableName, new TreeSet<>(dataTypeFilters), auths));
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            if (e.getCause() instanceof Exception) {
+                throw (Exception) e.getCause();
+            }
+            throw e;
+        }
+    }
+    
+    /**
+     * Drops every cached dictionary, so that changes made through this service are seen by the next request.
+     */
+    public void invalidate() {
+        log.debug("Invalidating " + cache.size() + " cached data dictionaries");
+        cache.invalidateAll();
+    }
+    
+    private CachedFields build(Key key, CachedFields previous) throws Exception {
+        long start = System.currentTimeMillis();
+        Connector connector = null;
+        try {
+            Map<String,String> trackingMap = connectionFactory.getTrackingMap(Thread.currentThread().getStackTrace());
+            connector = connectionFactory.getConnection(AccumuloConnectionFactory.Priority.NORMAL, trackingMap);
+            Collection<MetadataFieldBase> fields = datawaveDataDictionary.getFields(key.modelName, key.modelTableName, key.metadataTableName,
+                            key.dataTypeFilters, connector, key.auths, dataDictionaryConfiguration.getNumThreads());
+            String entityTag = entityTag(fields);
+            if (log.isDebugEnabled()) {
+                log.debug("Built data dictionary of " + fields.size() + " fields for " + key + " in " + (System.currentTimeMillis() - start) + "ms");
+            }
+            // keep the previous entry if nothing changed so that it stays the same object with the same age
+            if (previous != null && previous.getEntityTag().equals(entityTag)) {
+                return previous;
+            }
+            return new CachedFields(Collections.unmodifiableCollection(fields), entityTag, System.currentTimeMillis());
+        } finally {
+            if (null != connector) {
+                connectionFactory.returnConnection(connector);
+            }
+        }
+    }
+    
+    static String entityTag(Collection<MetadataFieldBase> fields) {
+        // the fields are not returned in any particular order, so hash them in the order of their descriptions
+        List<String> descriptions = new ArrayList<>(fields.size());
+        for (MetadataFieldBase field : fields) {
+            descriptions.add(String.valueOf(field));
+        }
+        Collections.sort(descriptions);
+        Hasher hasher = Hashing.murmur3_128().newHasher();
+        for (String description : descriptions) {
+            hasher.putString(description, StandardCharsets.UTF_8).putInt(description.length());
+        }
+        return hasher.hash().toString();
+    }
+    
+    /**
+     * The fields of a data dictionary, along with an entity tag that changes whenever they do.
+     */
+    public static class CachedFields {
+        private final Collection<MetadataFieldBase> fields;
+        private final String entityTag;
+        private final long buildTime;
+        
+        CachedFields(Collection<MetadataFieldBase> fields, String entityTag, long buildTime) {
+            this.fields = fields;
+            this.entityTag = entityTag;
+            this.buildTime = buildTime;
+        }
+        
+        public Collection<MetadataFieldBase> getFields() {
+            return fields;
+        }
+        
+        public String getEntityTag() {
+            return entityTag;
+        }
+        
+        /**
+         * @return when the fields last changed, or were first built
+         */
+        public long getBuildTime() {
+            return buildTime;
+        }
+    }
+    
+    private static class Key {
+        private final String modelName;
+        private final String modelTableName;
+        private final String metadataTableName;
+        private final Set<String> dataTypeFilters;
+        private final Set<Authorizations> auths;
+        
+        Key(String modelName, String modelTableName, String metadataTableName, Set<String> dataTypeFilters, Set<Authorizations> auths) {
+            this.modelName = modelName;
+            this.modelTableName = modelTableName;
+            this.metadataTableName = metadataTableName;
+            this.dataTypeFilters = dataTypeFilters;
+            this.auths = auths;
+        }
+        
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return Objects.equals(modelName, other.modelName) && Objects.equals(modelTableName, other.modelTableName)
+                            && Objects.equals(metadataTableName, other.metadataTableName) && dataTypeFilters.equals(other.dataTypeFilters)
+                            && auths.equals(other.auths);
+        }
+        
+        @Override
+        public int hashCode() {
+            return Objects.hash(modelName, modelTableName, metadataTableName, dataTypeFilters, auths);
+        }
+        
+        @Override
+        public String toString() {
+            return "model " + modelName + " in " + modelTableName + ", metadata table " + metadataTableName + ", datatypes " + dataTypeFilters + ", auths "
+                            + auths;
+        }
+    }
+}
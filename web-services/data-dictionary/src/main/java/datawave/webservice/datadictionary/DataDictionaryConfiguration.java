@@ -9,6 +9,9 @@ public class DataDictionaryConfiguration {
     private String metadataTableName;
     private int numThreads;
     private Map<String,String> normalizerMap;
+    private long cacheRefreshMinutes = 10;
+    private long cacheExpirationMinutes = 60;
+    private long cacheMaxSize = 100;
     
     public String getModelName() {
         return modelName;
@@ -49,4 +52,37 @@ public class DataDictionaryConfiguration {
     public void setNormalizerMap(Map<String,String> normalizerMap) {
         this.normalizerMap = normalizerMap;
     }
+    
+    /**
+     * @return how old a cached dictionary may get before it is rebuilt in the background
+     */
+    public long getCacheRefreshMinutes() {
+        return cacheRefreshMinutes;
+    }
+    
+    public void setCacheRefreshMinutes(long cacheRefreshMinutes) {
+        this.cacheRefreshMinutes = cacheRefreshMinutes;
+    }
+    
+    /**
+     * @return how long a cached dictionary that is not requested is kept
+     */
+    public long getCacheExpirationMinutes() {
+        return cacheExpirationMinutes;
+    }
+    
+    public void setCacheExpirationMinutes(long cacheExpirationMinutes) {
+        this.cacheExpirationMinutes = cacheExpirationMinutes;
+    }
+    
+    /**
+     * @return the maximum number of dictionaries cached, one per combination of model, tables, datatype filters and authorizations
+     */
+    public long getCacheMaxSize() {
+        return cacheMaxSize;
+    }
+    
+    public void setCacheMaxSize(long cacheMaxSize) {
+        this.cacheMaxSize = cacheMaxSize;
+    }
 }
@@ -1,5 +1,6 @@
 package datawave.webservice.datadictionary;
 
+import datawave.resteasy.interceptor.EntityTagFilter;
 import datawave.security.authorization.DatawavePrincipal;
 import datawave.security.authorization.DatawaveUser;
 import datawave.security.authorization.SubjectIssuerDNPair;
@@ -8,9 +9,7 @@ import datawave.webservice.common.connection.AccumuloConnectionFactory;
 import datawave.webservice.query.result.event.DefaultResponseObjectFactory;
 import datawave.webservice.query.result.event.ResponseObjectFactory;
 import datawave.webservice.results.datadictionary.DataDictionaryBase;
-import org.apache.accumulo.core.client.Connector;
 import org.apache.accumulo.core.security.Authorizations;
-import org.easymock.EasyMock;
 import org.easymock.EasyMockRunner;
 import org.easymock.EasyMockSupport;
 import org.easymock.Mock;
@@ -31,7 +30,10 @@ import java.util.List;
 import java.util.Set;
 
 import static org.easymock.EasyMock.expect;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
 
 @RunWith(EasyMockRunner.class)
 public class DataDictionaryBeanTest extends EasyMockSupport {
@@ -43,9 +45,9 @@ public class DataDictionaryBeanTest extends EasyMockSupport {
     @Mock
     private EJBContext ctx;
     @Mock
-    private Connector connector;
-    @Mock
     private DataDictionaryConfiguration config;
+    @Mock
+    private DataDictionaryCache dictionaryCache;
     
     private DatawavePrincipal principal;
     private ResponseObjectFactory responseObjectFactory = new DefaultResponseObjectFactory();
@@ -100,11 +102,48 @@ public class DataDictionaryBeanTest extends EasyMockSupport {
         callGetWithDataTypeFilters(dataTypesInput, expectedFilters);
     }
     
+    @Test
+    public void testGetSetsEntityTag() throws Exception {
+        EntityTagFilter.ENTITY_TAG.set("stale");
+        DataDictionaryBean dictionaryBean = createPartiallyMockedDictionaryBean();
+        expect(ctx.getCallerPrincipal()).andReturn(principal);
+        DataDictionaryCache.CachedFields cached = new DataDictionaryCache.CachedFields(Collections.emptySet(), "tag", 0L);
+        expect(this.dictionaryCache.get(model, modelTable, metaTable, Collections.emptyList(), setOfAuthObjs)).andReturn(cached);
+        replayAll();
+        
+        DataDictionaryBase providedDictionary = dictionaryBean.get(model, modelTable, metaTable, auths, "");
+        verifyAll();
+        
+        // the filter tags the response, and answers a matching If-None-Match with a 304
+        assertNotNull("Expected a non-null response", providedDictionary);
+        assertEquals("tag", EntityTagFilter.ENTITY_TAG.get());
+        EntityTagFilter.ENTITY_TAG.set(null);
+    }
+    
+    @Test
+    public void testGetFailureClearsEntityTag() throws Exception {
+        EntityTagFilter.ENTITY_TAG.set("stale");
+        DataDictionaryBean dictionaryBean = createPartiallyMockedDictionaryBean();
+        expect(ctx.getCallerPrincipal()).andReturn(principal);
+        expect(this.dictionaryCache.get(model, modelTable, metaTable, Collections.emptyList(), setOfAuthObjs)).andThrow(new IllegalStateException("failed"));
+        replayAll();
+        
+        try {
+            dictionaryBean.get(model, modelTable, metaTable, auths, "");
+            fail("Expected the failure to be thrown");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        verifyAll();
+        
+        assertNull(EntityTagFilter.ENTITY_TAG.get());
+    }
+    
     private void callGetWithDataTypeFilters(String dataTypesInput, Collection<String> expectedDataTypeFilters) throws Exception {
         DataDictionaryBean dictionaryBean = createPartiallyMockedDictionaryBean();
         expect(ctx.getCallerPrincipal()).andReturn(principal);
-        expect(this.dictionary.getFields(model, modelTable, metaTable, expectedDataTypeFilters, this.connector, setOfAuthObjs, 1)).andReturn(
-                        Collections.emptySet());
+        DataDictionaryCache.CachedFields cached = new DataDictionaryCache.CachedFields(Collections.emptySet(), "tag", 0L);
+        expect(this.dictionaryCache.get(model, modelTable, metaTable, expectedDataTypeFilters, setOfAuthObjs)).andReturn(cached);
         replayAll();
         
         DataDictionaryBase providedDictionary = dictionaryBean.get(model, modelTable, metaTable, auths, dataTypesInput);
@@ -115,28 +154,16 @@ public class DataDictionaryBeanTest extends EasyMockSupport {
     
     private DataDictionaryBean createPartiallyMockedDictionaryBean() throws Exception {
         DataDictionaryBean dictionaryBean = createMockBuilder(DataDictionaryBean.class).addMockedMethod("getConnector").createMock();
-        mockBoilerPlateCalls(dictionaryBean);
         overrideDependenciesWithMocks(dictionaryBean);
         return dictionaryBean;
     }
     
-    private void mockBoilerPlateCalls(DataDictionaryBean dictionaryBean) throws Exception {
-        expect(this.config.getNumThreads()).andReturn(1);
-        
-        expectGetConnectionAndReturnConnection(dictionaryBean);
-    }
-    
-    private void expectGetConnectionAndReturnConnection(DataDictionaryBean dictionaryBean) throws Exception {
-        expect(dictionaryBean.getConnector()).andReturn(connector);
-        this.connectionFactory.returnConnection(connector);
-        EasyMock.expectLastCall().once();
-    }
-    
     private void overrideDependenciesWithMocks(DataDictionaryBean dictionaryBean) throws IllegalAccessException {
         Whitebox.getField(DataDictionaryBean.class, "connectionFactory").set(dictionaryBean, this.connectionFactory);
         Whitebox.getField(DataDictionaryBean.class, "dataDictionaryConfiguration").set(dictionaryBean, this.config);
         Whitebox.getField(DataDictionaryBean.class, "ctx").set(dictionaryBean, this.ctx);
         Whitebox.getField(DataDictionaryBean.class, "datawaveDataDictionary").set(dictionaryBean, this.dictionary);
+        Whitebox.getField(DataDictionaryBean.class, "dataDictionaryCache").set(dictionaryBean, this.dictionaryCache);
         Whitebox.getField(DataDictionaryBean.class, "responseObjectFactory").set(dictionaryBean, this.responseObjectFactory);
     }
 }
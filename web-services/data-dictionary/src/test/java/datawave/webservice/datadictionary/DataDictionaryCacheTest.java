@@ -0,0 +1,92 @@
+package datawave.webservice.datadictionary;
+
+import datawave.webservice.common.connection.AccumuloConnectionFactory;
+import datawave.webservice.query.result.metadata.DefaultMetadataField;
+import datawave.webservice.query.result.metadata.MetadataFieldBase;
+import org.apache.accumulo.core.client.Connector;
+import org.apache.accumulo.core.security.Authorizations;
+import org.easymock.EasyMock;
+import org.easymock.EasyMockRunner;
+import org.easymock.EasyMockSupport;
+import org.easymock.Mock;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.powermock.reflect.Whitebox;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.easymock.EasyMock.expect;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+
+@RunWith(EasyMockRunner.class)
+public class DataDictionaryCacheTest extends EasyMockSupport {
+    
+    @Mock
+    private DatawaveDataDictionary dictionary;
+    @Mock
+    private AccumuloConnectionFactory connectionFactory;
+    @Mock
+    private Connector connector;
+    
+    private DataDictionaryConfiguration config = new DataDictionaryConfiguration();
+    private DataDictionaryCache cache = new DataDictionaryCache();
+    
+    private Set<Authorizations> auths = Collections.singleton(new Authorizations("AUTH_1"));
+    
+    @Before
+    public void setup() throws Exception {
+        config.setNumThreads(1);
+        Whitebox.getField(DataDictionaryCache.class, "connectionFactory").set(cache, connectionFactory);
+        Whitebox.getField(DataDictionaryCache.class, "datawaveDataDictionary").set(cache, dictionary);
+        Whitebox.getField(DataDictionaryCache.class, "dataDictionaryConfiguration").set(cache, config);
+    }
+    
+    @Test
+    public void testFieldsAreCached() throws Exception {
+        Collection<MetadataFieldBase> fields = Collections.singleton(field("FIELD_A", "dataType1"));
+        dictionary.setNormalizerMapping(null);
+        expectGetFields(new TreeSet<>(Arrays.asList("dataType1", "dataType2")), fields, 2);
+        replayAll();
+        
+        cache.init();
+        DataDictionaryCache.CachedFields first = cache.get("model", "modelTable", "metaTable", Arrays.asList("dataType1", "dataType2"), auths);
+        DataDictionaryCache.CachedFields second = cache.get("model", "modelTable", "metaTable", Arrays.asList("dataType2", "dataType1"), auths);
+        assertSame(first, second);
+        
+        cache.invalidate();
+        DataDictionaryCache.CachedFields rebuilt = cache.get("model", "modelTable", "metaTable", Arrays.asList("dataType1", "dataType2"), auths);
+        verifyAll();
+        
+        assertEquals(first.getEntityTag(), rebuilt.getEntityTag());
+    }
+    
+    @Test
+    public void testEntityTag() {
+        String tag = DataDictionaryCache.entityTag(Arrays.asList(field("FIELD_A", "dataType1"), field("FIELD_B", "dataType1")));
+        assertEquals(tag, DataDictionaryCache.entityTag(Arrays.asList(field("FIELD_B", "dataType1"), field("FIELD_A", "dataType1"))));
+        assertNotEquals(tag, DataDictionaryCache.entityTag(Arrays.asList(field("FIELD_A", "dataType1"), field("FIELD_B", "dataType2"))));
+        assertNotEquals(tag, DataDictionaryCache.entityTag(Collections.singletonList(field("FIELD_A", "dataType1"))));
+    }
+    
+    private void expectGetFields(Collection<String> dataTypes, Collection<MetadataFieldBase> fields, int times) throws Exception {
+        expect(connectionFactory.getTrackingMap(EasyMock.anyObject())).andReturn(Collections.emptyMap()).times(times);
+        expect(connectionFactory.getConnection(AccumuloConnectionFactory.Priority.NORMAL, Collections.emptyMap())).andReturn(connector).times(times);
+        expect(dictionary.getFields("model", "modelTable", "metaTable", dataTypes, connector, auths, 1)).andReturn(fields).times(times);
+        connectionFactory.returnConnection(connector);
+        EasyMock.expectLastCall().times(times);
+    }
+    
+    private static MetadataFieldBase field(String fieldName, String dataType) {
+        DefaultMetadataField field = new DefaultMetadataField();
+        field.setFieldName(fieldName);
+        field.setDataType(dataType);
+        return field;
+    }
+}
@@ -3,6 +3,7 @@ package datawave.webservice.query.cachedresults;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Set;
@@ -20,97 +21,117 @@ public class CacheableQueryRowReader {
     
     public static CacheableQueryRow createRow(CachedRowSet cachedRowSet, Set<String> fixedFieldsInEvent) {
         
-        CacheableQueryRowImpl cqfc = new CacheableQueryRowImpl();
-        
-        ResultSetMetaData metadata;
+        Map<String,Integer> columnToIndexMap = new HashMap<>();
+        Map<String,String> columns = new LinkedHashMap<>();
         try {
-            metadata = cachedRowSet.getMetaData();
+            ResultSetMetaData metadata = cachedRowSet.getMetaData();
             
             int numColumns = metadata.getColumnCount();
-            Map<String,Integer> columnToIndexMap = new HashMap<>();
-            Map<String,Set<String>> columnValues = new HashMap<>();
-            Set<String> variableColumnNames = new TreeSet<>();
-            Set<String> fixedColumnNames = CacheableQueryRowImpl.getFixedColumnSet();
-            // lets do a quick size estimate
-            long characters = 0;
             for (int x = 1; x <= numColumns; x++) {
                 String columnLabel = metadata.getColumnLabel(x);
                 columnToIndexMap.put(columnLabel, x);
-                String s = cachedRowSet.getString(x);
-                if (s != null) {
-                    characters += s.length();
-                }
-                if (fixedColumnNames.contains(columnLabel) == false || fixedFieldsInEvent.contains(columnLabel)) {
-                    characters += columnLabel.length();
-                    variableColumnNames.add(columnLabel);
-                    if (s == null) {
-                        columnValues.put(columnLabel, new LinkedHashSet<>());
-                    } else {
-                        Set<String> columnValuesSet = new LinkedHashSet<>();
-                        columnValuesSet.add(s);
-                        columnValues.put(columnLabel, columnValuesSet);
-                    }
-                }
-            }
-            
-            // set the the size of the values in characters...internally converted to approximate bytes
-            cqfc.setSizeInStoredCharacters(characters);
-            
-            cqfc.setVariableColumnNames(variableColumnNames);
-            cqfc.setColumnValues(columnValues);
-            
-            if (columnToIndexMap.get("_user_") != null) {
-                cqfc.setUser(cachedRowSet.getString(columnToIndexMap.get("_user_")));
-            }
-            if (columnToIndexMap.get("_queryId_") != null) {
-                cqfc.setQueryId(cachedRowSet.getString(columnToIndexMap.get("_queryId_")));
-            }
-            if (columnToIndexMap.get("_logicName_") != null) {
-                cqfc.setLogicName(cachedRowSet.getString(columnToIndexMap.get("_logicName_")));
-            }
-            if (columnToIndexMap.get("_datatype_") != null) {
-                cqfc.setDataType(cachedRowSet.getString(columnToIndexMap.get("_datatype_")));
+                columns.put(columnLabel, cachedRowSet.getString(x));
             }
-            if (columnToIndexMap.get("_eventId_") != null) {
-                cqfc.setEventId(cachedRowSet.getString(columnToIndexMap.get("_eventId_")));
-            }
-            if (columnToIndexMap.get("_row_") != null) {
-                cqfc.setRow(cachedRowSet.getString(columnToIndexMap.get("_row_")));
-            }
-            if (columnToIndexMap.get("_colf_") != null) {
-                cqfc.setColFam(cachedRowSet.getString(columnToIndexMap.get("_colf_")));
-            }
-            if (columnToIndexMap.get("_markings_") != null) {
-                String mStr = cachedRowSet.getString(columnToIndexMap.get("_markings_"));
-                cqfc.setMarkings(MarkingFunctions.Encoding.fromString(mStr));
+        } catch (SQLException e) {
+            log.error(e.getMessage(), e);
+            return new CacheableQueryRowImpl();
+        }
+        return createRow(columns, columnToIndexMap, fixedFieldsInEvent);
+    }
+    
+    /**
+     * Creates a row from the values of its columns, as read from a store other than a database
+     *
+     * @param columns
+     *            the value of each column in the row, null where the column has no value
+     * @param columnToIndexMap
+     *            the number of each column, as referenced by the column markings and timestamps of the row
+     * @param fixedFieldsInEvent
+     *            the fixed columns to return as fields of the row
+     * @return the row
+     */
+    public static CacheableQueryRow createRow(Map<String,String> columns, Map<String,Integer> columnToIndexMap, Set<String> fixedFieldsInEvent) {
+        
+        CacheableQueryRowImpl cqfc = new CacheableQueryRowImpl();
+        
+        Map<String,Set<String>> columnValues = new HashMap<>();
+        Set<String> variableColumnNames = new TreeSet<>();
+        Set<String> fixedColumnNames = CacheableQueryRowImpl.getFixedColumnSet();
+        // lets do a quick size estimate
+        long characters = 0;
+        for (Map.Entry<String,String> column : columns.entrySet()) {
+            String columnLabel = column.getKey();
+            String s = column.getValue();
+            if (s != null) {
+                characters += s.length();
             }
-            if (columnToIndexMap.get("_column_markings_") != null) {
-                String columnMarkings = cachedRowSet.getString(columnToIndexMap.get("_column_markings_"));
-                Map<String,String> combinedColumnMarkings = parseColumnMarkings(columnMarkings, columnToIndexMap);
-                Map<String,Map<String,String>> columnMarkingsMap = new HashMap<>();
-                Map<String,String> columnVisibilityMap = new HashMap<>();
-                for (Map.Entry<String,String> entry : combinedColumnMarkings.entrySet()) {
-                    String columnName = entry.getKey();
-                    String combinedString = entry.getValue();
-                    int x = combinedString.lastIndexOf(":");
-                    if (x >= 0) {
-                        columnMarkingsMap.put(columnName, MarkingFunctions.Encoding.fromString(combinedString.substring(0, x)));
-                        columnVisibilityMap.put(columnName, combinedString.substring(x + 1));
-                    } else {
-                        columnMarkingsMap.put(columnName, MarkingFunctions.Encoding.fromString(combinedString));
-                        columnVisibilityMap.put(columnName, "");
-                    }
+            if (fixedColumnNames.contains(columnLabel) == false || fixedFieldsInEvent.contains(columnLabel)) {
+                characters += columnLabel.length();
+                variableColumnNames.add(columnLabel);
+                if (s == null) {
+                    columnValues.put(columnLabel, new LinkedHashSet<>());
+                } else {
+                    Set<String> columnValuesSet = new LinkedHashSet<>();
+                    columnValuesSet.add(s);
+                    columnValues.put(columnLabel, columnValuesSet);
                 }
-                cqfc.setColumnMarkingsMap(columnMarkingsMap);
-                cqfc.setColumnColumnVisibilityMap(columnVisibilityMap);
             }
-            if (columnToIndexMap.get("_column_timestamps_") != null) {
-                String columnTimestamps = cachedRowSet.getString(columnToIndexMap.get("_column_timestamps_"));
-                cqfc.setColumnTimestampMap(parseColumnTimestamps(columnTimestamps, columnToIndexMap));
+        }
+        
+        // set the the size of the values in characters...internally converted to approximate bytes
+        cqfc.setSizeInStoredCharacters(characters);
+        
+        cqfc.setVariableColumnNames(variableColumnNames);
+        cqfc.setColumnValues(columnValues);
+        
+        if (columns.containsKey("_user_")) {
+            cqfc.setUser(columns.get("_user_"));
+        }
+        if (columns.containsKey("_queryId_")) {
+            cqfc.setQueryId(columns.get("_queryId_"));
+        }
+        if (columns.containsKey("_logicName_")) {
+            cqfc.setLogicName(columns.get("_logicName_"));
+        }
+        if (columns.containsKey("_datatype_")) {
+            cqfc.setDataType(columns.get("_datatype_"));
+        }
+        if (columns.containsKey("_eventId_")) {
+            cqfc.setEventId(columns.get("_eventId_"));
+        }
+        if (columns.containsKey("_row_")) {
+            cqfc.setRow(columns.get("_row_"));
+        }
+        if (columns.containsKey("_colf_")) {
+            cqfc.setColFam(columns.get("_colf_"));
+        }
+        if (columns.containsKey("_markings_")) {
+            String mStr = columns.get("_markings_");
+            cqfc.setMarkings(MarkingFunctions.Encoding.fromString(mStr));
+        }
+        if (columns.containsKey("_column_markings_")) {
+            String columnMarkings = columns.get("_column_markings_");
+            Map<String,String> combinedColumnMarkings = parseColumnMarkings(columnMarkings, columnToIndexMap);
+            Map<String,Map<String,String>> columnMarkingsMap = new HashMap<>();
+            Map<String,String> columnVisibilityMap = new HashMap<>();
+            for (Map.Entry<String,String> entry : combinedColumnMarkings.entrySet()) {
+                String columnName = entry.getKey();
+                String combinedString = entry.getValue();
+                int x = combinedString.lastIndexOf(":");
+                if (x >= 0) {
+                    columnMarkingsMap.put(columnName, MarkingFunctions.Encoding.fromString(combinedString.substring(0, x)));
+                    columnVisibilityMap.put(columnName, combinedString.substring(x + 1));
+                } else {
+                    columnMarkingsMap.put(columnName, MarkingFunctions.Encoding.fromString(combinedString));
+                    columnVisibilityMap.put(columnName, "");
+                }
             }
-            
-        } catch (SQLException e) {
-            log.error(e.getMessage(), e);
+            cqfc.setColumnMarkingsMap(columnMarkingsMap);
+            cqfc.setColumnColumnVisibilityMap(columnVisibilityMap);
+        }
+        if (columns.containsKey("_column_timestamps_")) {
+            String columnTimestamps = columns.get("_column_timestamps_");
+            cqfc.setColumnTimestampMap(parseColumnTimestamps(columnTimestamps, columnToIndexMap));
         }
         
         return cqfc;
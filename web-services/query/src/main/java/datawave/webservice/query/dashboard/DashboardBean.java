@@ -6,6 +6,8 @@ import datawave.security.util.AuthorizationsUtil;
 import datawave.security.util.ScannerHelper;
 import datawave.webservice.common.connection.AccumuloConnectionFactory;
 import datawave.webservice.common.extjs.ExtJsResponse;
+import datawave.webservice.query.metric.BaseQueryMetric;
+import datawave.webservice.query.metric.QueryMetricHandler;
 import datawave.webservice.query.runner.QueryExecutorBean;
 import org.apache.accumulo.core.client.Connector;
 import org.apache.accumulo.core.client.Scanner;
@@ -32,6 +34,7 @@ import javax.ws.rs.core.MediaType;
 import java.security.Principal;
 import java.time.Instant;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashSet;
 import java.util.Map;
@@ -53,6 +56,8 @@ public class DashboardBean {
     private AccumuloConnectionFactory connectionFactory;
     @Inject
     private QueryExecutorBean queryExecutor;
+    @Inject
+    private QueryMetricHandler<? extends BaseQueryMetric> queryHandler;
     @Resource
     protected EJBContext ctx;
     
@@ -85,6 +90,12 @@ public class DashboardBean {
             auths = "ALL";
         } else {
             auths = AuthorizationsUtil.buildAuthorizationString(principal.getAuthorizations());
+            
+            // read the counts kept as the metrics were written when there are any, rather than every metric of the period
+            DashboardSummary stored = queryHandler.getDashboardSummary(Date.from(start), Date.from(end), principal);
+            if (stored != null) {
+                return new ExtJsResponse<>(Collections.singletonList(stored));
+            }
         }
         
         ExtJsResponse<DashboardSummary> summary = null;
@@ -1,6 +1,8 @@
 package datawave.webservice.query.dashboard;
 
 import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Objects;
 import javax.xml.bind.annotation.XmlAccessType;
 import javax.xml.bind.annotation.XmlAccessorType;
@@ -152,6 +154,92 @@ public final class DashboardSummary implements Comparable<DashboardSummary> {
         return upToInfTerms;
     }
     
+    /**
+     * @return the counts of this summary by name, so that they can be kept and added up elsewhere
+     */
+    public Map<String,Integer> getCounts() {
+        Map<String,Integer> counts = new LinkedHashMap<>();
+        counts.put("upTo3Sec", upTo3Sec);
+        counts.put("upTo10Sec", upTo10Sec);
+        counts.put("upTo60Sec", upTo60Sec);
+        counts.put("moreThan60Sec", moreThan60Sec);
+        counts.put("errorCount", errorCount);
+        counts.put("zeroResults", zeroResults);
+        counts.put("upTo10KResults", upTo10KResults);
+        counts.put("upTo1MResults", upTo1MResults);
+        counts.put("upToINFResults", upToINFResults);
+        counts.put("oneTerm", oneTerm);
+        counts.put("upTo16Terms", upTo16Terms);
+        counts.put("upTo100Terms", upTo100Terms);
+        counts.put("upTo1000Terms", upTo1000Terms);
+        counts.put("upToInfTerms", upToInfTerms);
+        counts.put("resultCount", resultCount);
+        counts.put("queryCount", queryCount);
+        counts.put("selectorCount", selectorCount);
+        return counts;
+    }
+    
+    /**
+     * Adds to one of the counts of this summary, by its name in {@link #getCounts()}
+     */
+    public void addCount(String name, int count) {
+        switch (name) {
+            case "upTo3Sec":
+                upTo3Sec += count;
+                break;
+            case "upTo10Sec":
+                upTo10Sec += count;
+                break;
+            case "upTo60Sec":
+                upTo60Sec += count;
+                break;
+            case "moreThan60Sec":
+                moreThan60Sec += count;
+                break;
+            case "errorCount":
+                errorCount += count;
+                break;
+            case "zeroResults":
+                zeroResults += count;
+                break;
+            case "upTo10KResults":
+                upTo10KResults += count;
+                break;
+            case "upTo1MResults":
+                upTo1MResults += count;
+                break;
+            case "upToINFResults":
+                upToINFResults += count;
+                break;
+            case "oneTerm":
+                oneTerm += count;
+                break;
+            case "upTo16Terms":
+                upTo16Terms += count;
+                break;
+            case "upTo100Terms":
+                upTo100Terms += count;
+                break;
+            case "upTo1000Terms":
+                upTo1000Terms += count;
+                break;
+            case "upToInfTerms":
+                upToInfTerms += count;
+                break;
+            case "resultCount":
+                resultCount += count;
+                break;
+            case "queryCount":
+                queryCount += count;
+                break;
+            case "selectorCount":
+                selectorCount += count;
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown dashboard count " + name);
+        }
+    }
+    
     @Override
     public int hashCode() {
         int hash = 7;
@@ -4,6 +4,7 @@ import java.util.Date;
 import java.util.Map;
 
 import datawave.security.authorization.DatawavePrincipal;
+import datawave.webservice.query.dashboard.DashboardSummary;
 
 public interface QueryMetricHandler<T extends BaseQueryMetric> {
     
@@ -19,6 +20,14 @@ public interface QueryMetricHandler<T extends BaseQueryMetric> {
     
     QueryMetricsSummaryHtmlResponse getUserQueriesSummary(Date begin, Date end, DatawavePrincipal datawavePrincipal);
     
+    /**
+     * @return the dashboard summary of the queries created between begin and end, from counts this handler keeps as it updates metrics, or null if it does not
+     *         keep them and the summary has to be computed from the metrics
+     */
+    default DashboardSummary getDashboardSummary(Date begin, Date end, DatawavePrincipal datawavePrincipal) {
+        return null;
+    }
+    
     void flush() throws Exception;
     
     /**
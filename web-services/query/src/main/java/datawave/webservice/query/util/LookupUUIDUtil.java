@@ -155,8 +155,8 @@ public class LookupUUIDUtil {
     
     /*
      * Create manageable batches of contentQuery strings based on the configured upper limit of UUIDS, if any. A content query term from one item in the list
-     * would look like the following example: <p> "DOCUMENT:shardId/datatype/uid" <p> <b>Note:</b> An attempt was made to concatenate multiple events into a
-     * single OR'd expression, but the ContentQueryTable only supports one term at a time.
+     * would look like the following example: <p> "DOCUMENT:shardId/datatype/uid" <p> Each batch is a space-delimited list of terms, which the
+     * ContentQueryTable fetches with a single batch scan.
      * 
      * @param eventResponse a specialized response for optimizing content lookup based on internal event IDs
      * 
@@ -213,16 +213,14 @@ public class LookupUUIDUtil {
     
     /*
      * Create contentQuery strings based on the specified events, if any. A contentQuery string from one event would look like the following example: <p>
-     * "DOCUMENT:shardId/datatype/uid" <p> <b>Note:</b> An attempt was made to concatenate multiple events into a single OR'd expression, but the
-     * ContentQueryTable only supports one term at a time.
+     * "DOCUMENT:shardId/datatype/uid" <p> Each batch is a space-delimited list of terms, which the ContentQueryTable fetches with a single batch scan.
      * 
      * @param eventResponse the response from the UUID query
      * 
      * @return a list of batched content query strings
      */
     private List<StringBuilder> createContentQueryStrings(final EventQueryResponseBase eventResponse) {
-        // Initialize a flag that can be flipped to support multi-term ContentQueryTable expressions
-        // at some unknown point in the future
+        // The ContentQueryTable fetches all of the terms of an expression with a single batch scan
         boolean multiTermExpressionsSupported = true;
         
         // Declare the returned list of query strings
@@ -4,6 +4,15 @@ import com.codahale.metrics.Counter;
 import com.codahale.metrics.annotation.Metric;
 import com.codahale.metrics.annotation.Timed;
 import com.fasterxml.jackson.databind.ObjectReader;
+import com.google.common.base.Throwables;
+import com.google.common.base.Ticker;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListenableFutureTask;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 import com.spotify.dns.LookupResult;
 import datawave.configuration.RefreshableScope;
 import datawave.security.authorization.AuthorizationException;
@@ -27,6 +36,8 @@ import org.xbill.DNS.Type;
 
 import javax.annotation.PostConstruct;
 import javax.annotation.Priority;
+import javax.annotation.Resource;
+import javax.enterprise.concurrent.ManagedExecutorService;
 import javax.enterprise.inject.Alternative;
 import javax.inject.Inject;
 import javax.interceptor.Interceptor;
@@ -35,12 +46,22 @@ import java.net.URISyntaxException;
 import java.util.Base64;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
+import java.util.function.Predicate;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 /**
  * A {@link CachedDatawaveUserService} that delegates all methods to a remote authorization microservice.
+ * <p>
+ * Lookups go through a bounded near-cache keyed by the proxied entity chain. Concurrent lookups of the same chain share a single remote call, so a burst of
+ * requests, e.g. after the caches have been flushed, results in one call per chain rather than one per request. Once an entry is older than the refresh
+ * interval, the next lookup returns it and refreshes it in the background; entries older than the expiration are always looked up again. Setting the maximum
+ * size to 0 disables the near-cache, although concurrent lookups of the same chain still share a call. Any eviction or reload through this service also
+ * evicts the matching near-cache entries.
  */
 @RefreshableScope
 @Alternative
@@ -96,6 +117,23 @@ public class RemoteDatawaveUserService extends RemoteHttpService implements Cach
     @ConfigProperty(name = "dw.remoteDatawaveUserService.unavailableRetryDelayMS", defaultValue = "2000")
     private int unavailableRetryDelay;
     
+    @Inject
+    @ConfigProperty(name = "dw.remoteDatawaveUserService.nearCache.maxSize", defaultValue = "1000")
+    private int nearCacheMaxSize;
+    
+    @Inject
+    @ConfigProperty(name = "dw.remoteDatawaveUserService.nearCache.refreshSeconds", defaultValue = "30")
+    private int nearCacheRefreshSeconds;
+    
+    @Inject
+    @ConfigProperty(name = "dw.remoteDatawaveUserService.nearCache.expireSeconds", defaultValue = "300")
+    private int nearCacheExpireSeconds;
+    
+    @Resource
+    private ManagedExecutorService nearCacheRefreshExecutor;
+    
+    private LoadingCache<List<SubjectIssuerDNPair>,Collection<DatawaveUser>> nearCache;
+    
     @Inject
     @Metric(name = "dw.remoteDatawaveUserService.retries", absolute = true)
     private Counter retryCounter;
@@ -107,6 +145,19 @@ public class RemoteDatawaveUserService extends RemoteHttpService implements Cach
     @Override
     @Timed(name = "dw.remoteDatawaveUserService.lookup", absolute = true)
     public Collection<DatawaveUser> lookup(Collection<SubjectIssuerDNPair> dns) throws AuthorizationException {
+        try {
+            return nearCache.get(ImmutableList.copyOf(dns));
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof AuthorizationException) {
+                throw (AuthorizationException) e.getCause();
+            }
+            throw new AuthorizationException(e.getCause().getMessage(), e.getCause());
+        } catch (UncheckedExecutionException e) {
+            throw Throwables.propagate(e.getCause());
+        }
+    }
+    
+    protected Collection<DatawaveUser> remoteLookup(Collection<SubjectIssuerDNPair> dns) throws AuthorizationException {
         final String enttiesHeader = "<" + dns.stream().map(SubjectIssuerDNPair::subjectDN).collect(Collectors.joining("><")) + ">";
         final String issuersHeader = "<" + dns.stream().map(SubjectIssuerDNPair::issuerDN).collect(Collectors.joining("><")) + ">";
         // @formatter:off
@@ -126,6 +177,7 @@ public class RemoteDatawaveUserService extends RemoteHttpService implements Cach
     @Override
     @Timed(name = "dw.remoteDatawaveUserService.reload", absolute = true)
     public Collection<DatawaveUser> reload(Collection<SubjectIssuerDNPair> dns) throws AuthorizationException {
+        evictNearCache(entry -> entry.getKey().stream().anyMatch(dns::contains));
         Base64.Encoder encoder = Base64.getEncoder();
         // @formatter:off
         return executeGetMethodWithAuthorizationException("admin/reloadUsers",
@@ -180,6 +232,7 @@ public class RemoteDatawaveUserService extends RemoteHttpService implements Cach
     @Override
     @Timed(name = "dw.remoteDatawaveUserService.evict", absolute = true)
     public String evict(String name) {
+        evictNearCache(entry -> entry.getValue().stream().anyMatch(u -> u.getName().equalsIgnoreCase(name)));
         // @formatter:off
         return executeGetMethodWithRuntimeException("admin/evictUser",
                 uriBuilder -> uriBuilder.addParameter("username", name),
@@ -192,6 +245,8 @@ public class RemoteDatawaveUserService extends RemoteHttpService implements Cach
     @Override
     @Timed(name = "dw.remoteDatawaveUserService.evictMatching", absolute = true)
     public String evictMatching(String substring) {
+        String lowerSubstring = substring.toLowerCase();
+        evictNearCache(entry -> entry.getValue().stream().anyMatch(u -> u.getName().toLowerCase().contains(lowerSubstring)));
         // @formatter:off
         return executeGetMethodWithRuntimeException("admin/evictUsersMatching",
                 uriBuilder -> uriBuilder.addParameter("substring", substring),
@@ -204,6 +259,7 @@ public class RemoteDatawaveUserService extends RemoteHttpService implements Cach
     @Override
     @Timed(name = "dw.remoteDatawaveUserService.evictAll", absolute = true)
     public String evictAll() {
+        nearCache.invalidateAll();
         // @formatter:off
         return executeGetMethodWithRuntimeException("admin/evictAll",
                 b -> {},
@@ -213,6 +269,10 @@ public class RemoteDatawaveUserService extends RemoteHttpService implements Cach
         // @formatter:on
     }
     
+    private void evictNearCache(Predicate<Map.Entry<List<SubjectIssuerDNPair>,Collection<DatawaveUser>>> predicate) {
+        nearCache.asMap().entrySet().removeIf(predicate);
+    }
+    
     protected <T> T executeGetMethodWithRuntimeException(String uriSuffix, Consumer<URIBuilder> uriCustomizer, Consumer<HttpGet> requestCustomizer,
                     IOFunction<T> resultConverter, Supplier<String> errorSupplier) {
         try {
@@ -277,6 +337,37 @@ public class RemoteDatawaveUserService extends RemoteHttpService implements Cach
         datawaveUserReader = objectMapper.readerFor(DatawaveUser.class);
         datawaveUserListReader = objectMapper.readerFor(objectMapper.getTypeFactory().constructCollectionType(Collection.class, DatawaveUser.class));
         datawaveUserInfoListReader = objectMapper.readerFor(objectMapper.getTypeFactory().constructCollectionType(Collection.class, DatawaveUserInfo.class));
+        initNearCache(Ticker.systemTicker());
+    }
+    
+    /**
+     * Builds the near-cache from the configured size, refresh interval and expiration.
+     *
+     * @param ticker
+     *            the time source used to age the entries
+     */
+    void initNearCache(Ticker ticker) {
+        CacheBuilder<Object,Object> nearCacheBuilder = CacheBuilder.newBuilder().ticker(ticker).maximumSize(Math.max(0, nearCacheMaxSize))
+                        .expireAfterWrite(Math.max(0, nearCacheExpireSeconds), TimeUnit.SECONDS);
+        if (nearCacheRefreshSeconds > 0 && nearCacheRefreshSeconds < nearCacheExpireSeconds) {
+            nearCacheBuilder.refreshAfterWrite(nearCacheRefreshSeconds, TimeUnit.SECONDS);
+        }
+        // @formatter:off
+        nearCache = nearCacheBuilder.build(new CacheLoader<List<SubjectIssuerDNPair>,Collection<DatawaveUser>>() {
+                    @Override
+                    public Collection<DatawaveUser> load(List<SubjectIssuerDNPair> dns) throws AuthorizationException {
+                        return remoteLookup(dns);
+                    }
+                    
+                    @Override
+                    public ListenableFuture<Collection<DatawaveUser>> reload(List<SubjectIssuerDNPair> dns, Collection<DatawaveUser> oldValue) {
+                        // refresh in the background, returning the current entry in the meantime
+                        ListenableFutureTask<Collection<DatawaveUser>> task = ListenableFutureTask.create(() -> remoteLookup(dns));
+                        nearCacheRefreshExecutor.execute(task);
+                        return task;
+                    }
+                });
+        // @formatter:on
     }
     
     @Override
@@ -0,0 +1,257 @@
+package datawave.security.authorization.remote;
+
+import com.google.common.base.Ticker;
+import com.google.common.collect.HashMultimap;
+import datawave.security.authorization.AuthorizationException;
+import datawave.security.authorization.DatawaveUser;
+import datawave.security.authorization.DatawaveUser.UserType;
+import datawave.security.authorization.SubjectIssuerDNPair;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.utils.URIBuilder;
+import org.easymock.EasyMock;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.powermock.reflect.Whitebox;
+
+import javax.enterprise.concurrent.ManagedExecutorService;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Exercises the near-cache of the remote user service, with the remote call replaced and the time of the cache under the control of the test.
+ */
+public class RemoteDatawaveUserServiceTest {
+    
+    private static final List<SubjectIssuerDNPair> CHAIN = Collections.singletonList(SubjectIssuerDNPair.of("cn=user", "cn=issuer"));
+    private static final List<SubjectIssuerDNPair> OTHER_CHAIN = Collections.singletonList(SubjectIssuerDNPair.of("cn=other", "cn=issuer"));
+    
+    private static final int THREADS = 10;
+    
+    private FakeTicker ticker;
+    private List<Runnable> refreshes;
+    private ExecutorService callers;
+    
+    @Before
+    public void setup() {
+        ticker = new FakeTicker();
+        refreshes = Collections.synchronizedList(new ArrayList<>());
+        callers = Executors.newFixedThreadPool(THREADS);
+    }
+    
+    @After
+    public void cleanup() {
+        callers.shutdownNow();
+    }
+    
+    private StubbedUserService createService(int maxSize, int refreshSeconds, int expireSeconds) {
+        StubbedUserService service = new StubbedUserService();
+        Whitebox.setInternalState(service, "nearCacheMaxSize", maxSize);
+        Whitebox.setInternalState(service, "nearCacheRefreshSeconds", refreshSeconds);
+        Whitebox.setInternalState(service, "nearCacheExpireSeconds", expireSeconds);
+        
+        // refreshes are queued, so the test decides when they complete
+        ManagedExecutorService executor = EasyMock.createMock(ManagedExecutorService.class);
+        executor.execute(EasyMock.anyObject(Runnable.class));
+        EasyMock.expectLastCall().andAnswer(() -> refreshes.add((Runnable) EasyMock.getCurrentArguments()[0])).anyTimes();
+        EasyMock.replay(executor);
+        Whitebox.setInternalState(service, "nearCacheRefreshExecutor", executor);
+        
+        service.initNearCache(ticker);
+        return service;
+    }
+    
+    /**
+     * Looks up the same chain from many threads at once
+     */
+    private List<Future<Collection<DatawaveUser>>> lookupConcurrently(StubbedUserService service) {
+        List<Future<Collection<DatawaveUser>>> futures = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            futures.add(callers.submit(() -> service.lookup(CHAIN)));
+        }
+        return futures;
+    }
+    
+    @Test
+    public void testConcurrentLookupsCoalesced() throws Exception {
+        StubbedUserService service = createService(1000, 0, 300);
+        service.block();
+        
+        List<Future<Collection<DatawaveUser>>> futures = lookupConcurrently(service);
+        assertTrue(service.started.await(10, TimeUnit.SECONDS));
+        // give the other callers time to reach the cache while the first call is outstanding
+        Thread.sleep(100);
+        service.release.countDown();
+        
+        Collection<DatawaveUser> users = futures.get(0).get(10, TimeUnit.SECONDS);
+        for (Future<Collection<DatawaveUser>> future : futures) {
+            assertSame(users, future.get(10, TimeUnit.SECONDS));
+        }
+        assertEquals(1, service.calls.get());
+        
+        // a different chain is a different entry
+        service.lookup(OTHER_CHAIN);
+        assertEquals(2, service.calls.get());
+        service.lookup(CHAIN);
+        assertEquals(2, service.calls.get());
+    }
+    
+    @Test
+    public void testExpiry() throws Exception {
+        StubbedUserService service = createService(1000, 0, 300);
+        
+        Collection<DatawaveUser> users = service.lookup(CHAIN);
+        ticker.advance(299, TimeUnit.SECONDS);
+        assertSame(users, service.lookup(CHAIN));
+        assertEquals(1, service.calls.get());
+        
+        ticker.advance(1, TimeUnit.SECONDS);
+        assertNotSame(users, service.lookup(CHAIN));
+        assertEquals(2, service.calls.get());
+    }
+    
+    @Test
+    public void testRefreshReturnsCurrentEntry() throws Exception {
+        StubbedUserService service = createService(1000, 30, 300);
+        
+        Collection<DatawaveUser> users = service.lookup(CHAIN);
+        ticker.advance(31, TimeUnit.SECONDS);
+        
+        // the stale entry is returned while the refresh is outstanding
+        assertSame(users, service.lookup(CHAIN));
+        assertEquals(1, refreshes.size());
+        assertEquals(1, service.calls.get());
+        
+        refreshes.get(0).run();
+        assertEquals(2, service.calls.get());
+        Collection<DatawaveUser> refreshed = service.lookup(CHAIN);
+        assertNotSame(users, refreshed);
+        assertEquals(2, service.calls.get());
+    }
+    
+    @Test
+    public void testErrorPropagatesToCoalescedWaiters() throws Exception {
+        StubbedUserService service = createService(1000, 0, 300);
+        service.block();
+        service.failure = new AuthorizationException("authorization service unavailable");
+        
+        List<Future<Collection<DatawaveUser>>> futures = lookupConcurrently(service);
+        assertTrue(service.started.await(10, TimeUnit.SECONDS));
+        Thread.sleep(100);
+        service.release.countDown();
+        
+        // every caller sees the failure of the shared call
+        for (Future<Collection<DatawaveUser>> future : futures) {
+            try {
+                future.get(10, TimeUnit.SECONDS);
+                fail("expected the lookup to fail");
+            } catch (ExecutionException e) {
+                assertSame(service.failure, e.getCause());
+            }
+        }
+        assertEquals(1, service.calls.get());
+        
+        // failures are not cached
+        service.failure = null;
+        assertEquals(1, service.lookup(CHAIN).size());
+        assertEquals(2, service.calls.get());
+    }
+    
+    @Test
+    public void testDisabledNearCache() throws Exception {
+        StubbedUserService service = createService(0, 30, 300);
+        
+        service.lookup(CHAIN);
+        service.lookup(CHAIN);
+        assertEquals(2, service.calls.get());
+    }
+    
+    @Test
+    public void testReloadAndEvictAllEvictNearCache() throws Exception {
+        StubbedUserService service = createService(1000, 0, 300);
+        
+        Collection<DatawaveUser> users = service.lookup(CHAIN);
+        Collection<DatawaveUser> others = service.lookup(OTHER_CHAIN);
+        service.reload(CHAIN);
+        
+        assertNotSame(users, service.lookup(CHAIN));
+        assertSame(others, service.lookup(OTHER_CHAIN));
+        assertEquals(3, service.calls.get());
+        
+        service.evictAll();
+        assertNotSame(others, service.lookup(OTHER_CHAIN));
+        assertEquals(4, service.calls.get());
+    }
+    
+    /**
+     * Answers lookups locally, optionally holding them until released
+     */
+    private static class StubbedUserService extends RemoteDatawaveUserService {
+        private final AtomicInteger calls = new AtomicInteger(0);
+        private final CountDownLatch started = new CountDownLatch(1);
+        private CountDownLatch release = new CountDownLatch(0);
+        private volatile AuthorizationException failure;
+        
+        void block() {
+            release = new CountDownLatch(1);
+        }
+        
+        @Override
+        protected Collection<DatawaveUser> remoteLookup(Collection<SubjectIssuerDNPair> dns) throws AuthorizationException {
+            calls.incrementAndGet();
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new AuthorizationException("interrupted", e);
+            }
+            if (null != failure) {
+                throw failure;
+            }
+            List<DatawaveUser> users = new ArrayList<>();
+            for (SubjectIssuerDNPair dn : dns) {
+                users.add(new DatawaveUser(dn, UserType.USER, Collections.singleton("A"), Collections.singleton("role"), HashMultimap.create(), System
+                                .currentTimeMillis()));
+            }
+            return users;
+        }
+        
+        @Override
+        protected <T> T executeGetMethod(String uriSuffix, Consumer<URIBuilder> uriCustomizer, Consumer<HttpGet> requestCustomizer,
+                        IOFunction<T> resultConverter, Supplier<String> errorSupplier) {
+            // the administrative calls are not under test, only their effect on the near-cache
+            return null;
+        }
+    }
+    
+    private static class FakeTicker extends Ticker {
+        private final AtomicLong nanos = new AtomicLong(0);
+        
+        void advance(long time, TimeUnit unit) {
+            nanos.addAndGet(unit.toNanos(time));
+        }
+        
+        @Override
+        public long read() {
+            return nanos.get();
+        }
+    }
+}